@@ -0,0 +1,78 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sindice.rdfcommons.beanmapper.DeserializationException;
+import org.sindice.rdfcommons.beanmapper.DeserializationManager;
+import org.sindice.rdfcommons.beanmapper.QueryEndpoint;
+import org.sindice.rdfcommons.beanmapper.SerializationException;
+import org.sindice.rdfcommons.beanmapper.SerializationManager;
+import org.sindice.rdfcommons.model.TripleBuffer;
+
+import java.lang.annotation.Annotation;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Benchmarks the bean serialization and deserialization.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+public class BeanMapperBenchmark {
+
+    private static final Annotation[] ANNOTATIONS = BenchmarkBean.class.getAnnotations();
+
+    @Param({"10", "100"})
+    public int size;
+
+    private List<BenchmarkBean> beans;
+
+    private TripleBuffer serialized;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SerializationException {
+        beans = new DatasetGenerator(BenchmarkRunner.SEED).generateBeans(size);
+        serialized = new TripleBuffer();
+        final SerializationManager serializationManager = new SerializationManager();
+        for(BenchmarkBean bean : beans) {
+            serializationManager.serializeObject(bean, ANNOTATIONS, serialized);
+        }
+    }
+
+    @Benchmark
+    public TripleBuffer serialize() throws SerializationException {
+        final SerializationManager serializationManager = new SerializationManager();
+        final TripleBuffer buffer = new TripleBuffer();
+        for(BenchmarkBean bean : beans) {
+            serializationManager.serializeObject(bean, ANNOTATIONS, buffer);
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public Collection<BenchmarkBean> deserialize() throws DeserializationException {
+        return new DeserializationManager().deserialize( BenchmarkBean.class, new QueryEndpoint(serialized) );
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.benchmarks;
+
+import java.util.List;
+
+/**
+ * Bean serialized and deserialized by the {@link BeanMapperBenchmark}.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class BenchmarkBean {
+
+    private String name;
+
+    private int age;
+
+    private double score;
+
+    private String[] tags;
+
+    private List<BenchmarkBean> friends;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+    public String[] getTags() {
+        return tags;
+    }
+
+    public void setTags(String[] tags) {
+        this.tags = tags;
+    }
+
+    public List<BenchmarkBean> getFriends() {
+        return friends;
+    }
+
+    public void setFriends(List<BenchmarkBean> friends) {
+        this.friends = friends;
+    }
+
+}
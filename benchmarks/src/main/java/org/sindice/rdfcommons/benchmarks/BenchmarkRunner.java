@@ -0,0 +1,58 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the benchmarks with the {@link GCProfiler} reporting the allocation rate and the
+ * garbage collections of every benchmark.
+ * <p>
+ * Usage: <code>java -jar benchmarks.jar [regexp]</code> where the optional regular expression
+ * selects the benchmarks to be run, i.e. <i>TripleSetBenchmark</i>.
+ * The size of the generated datasets can be changed with the JMH <i>-p size=N</i> option by running
+ * <code>java -cp benchmarks.jar org.openjdk.jmh.Main</code> directly.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Seed of the generated datasets.
+     */
+    public static final long SEED = 42;
+
+    public static void main(String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+                .include( args.length > 0 ? args[0] : BenchmarkRunner.class.getPackage().getName() + ".*" )
+                .addProfiler(GCProfiler.class)
+                .warmupIterations(5)
+                .warmupTime( TimeValue.seconds(1) )
+                .measurementIterations(5)
+                .measurementTime( TimeValue.seconds(1) )
+                .forks(1)
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+import org.sindice.rdfcommons.adapter.sesame.nquads.NQuadsParser;
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.serialization.BinaryTripleReader;
+import org.sindice.rdfcommons.serialization.BinaryTripleWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Compares the loading of the binary triple format with the <i>N-Quads</i> parsing.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+public class BinaryFormatBenchmark {
+
+    @Param({"10000"})
+    public int size;
+
+    private TripleBuffer triples;
+
+    private byte[] nquads;
+
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        triples = new DatasetGenerator(BenchmarkRunner.SEED).fill(size, new TripleBuffer());
+        nquads  = new DatasetGenerator(BenchmarkRunner.SEED).generateNQuads(size);
+        binary  = writeBinary();
+    }
+
+    @Benchmark
+    public int parseNQuads() throws IOException, RDFParseException, RDFHandlerException {
+        final CountingHandler handler = new CountingHandler();
+        final NQuadsParser parser = new NQuadsParser();
+        parser.setRDFHandler(handler);
+        parser.parse( new ByteArrayInputStream(nquads), "" );
+        return handler.count;
+    }
+
+    @Benchmark
+    public int readBinary() throws IOException {
+        final BinaryTripleReader reader = new BinaryTripleReader( new ByteArrayInputStream(binary) );
+        int count = 0;
+        while( reader.readTriple() != null ) {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public TripleBuffer loadBinary() throws IOException {
+        final TripleBuffer result = new TripleBuffer();
+        new BinaryTripleReader( new ByteArrayInputStream(binary) ).read(result);
+        return result;
+    }
+
+    @Benchmark
+    public byte[] writeBinary() throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final BinaryTripleWriter writer = new BinaryTripleWriter(baos);
+        writer.write(triples);
+        writer.close();
+        return baos.toByteArray();
+    }
+
+    /**
+     * Handler counting the parsed statements.
+     */
+    private static class CountingHandler extends RDFHandlerBase {
+        private int count;
+
+        @Override
+        public void handleStatement(Statement statement) {
+            count++;
+        }
+    }
+
+}
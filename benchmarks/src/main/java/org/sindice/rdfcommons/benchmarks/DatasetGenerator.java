@@ -0,0 +1,165 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.benchmarks;
+
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleImpl;
+import org.sindice.rdfcommons.model.TripleSet;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic and reproducible datasets for the benchmarks.
+ * <p>
+ * The generated data describes a social network: every person has a type, a name, an age, a few
+ * <i>knows</i> links, some of them toward blank nodes, and belongs to one of a few graphs.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class DatasetGenerator {
+
+    public static final String NS = "http://example.org/";
+
+    public static final String PERSON = NS + "Person";
+
+    public static final String TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+
+    public static final String NAME = NS + "name";
+
+    public static final String AGE = NS + "age";
+
+    public static final String KNOWS = NS + "knows";
+
+    private static final int GRAPHS = 8;
+
+    private static final int MAX_KNOWS = 4;
+
+    private final Random random;
+
+    /**
+     * Constructor.
+     *
+     * @param seed seed of the generated data, the same seed produces the same dataset.
+     */
+    public DatasetGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * @return the URI of the i-th person.
+     */
+    public static String person(int i) {
+        return NS + "person/" + i;
+    }
+
+    /**
+     * Generates at least <i>size</i> triples describing <i>size / 4</i> persons.
+     *
+     * @param size the number of triples.
+     * @return the list of generated triples.
+     */
+    public List<Triple> generateTriples(int size) {
+        final int persons = Math.max(1, size / 4);
+        final List<Triple> triples = new ArrayList<Triple>(size + MAX_KNOWS);
+        for(int i = 0; triples.size() < size; i++) {
+            final String subject = person(i % persons);
+            final String graph   = NS + "graph/" + (i % GRAPHS);
+            triples.add( new TripleImpl<String>(
+                    subject, TYPE, PERSON, Triple.SubjectType.uri, Triple.ObjectType.uri, graph
+            ));
+            triples.add( new TripleImpl<String>(
+                    subject, NAME, "Person \"" + i + "\"", Triple.SubjectType.uri, Triple.ObjectType.literal, graph
+            ));
+            triples.add( new TripleImpl<Integer>(
+                    subject, AGE, random.nextInt(100), Triple.SubjectType.uri, Triple.ObjectType.literal, graph
+            ));
+            final int knows = 1 + random.nextInt(MAX_KNOWS);
+            for(int k = 0; k < knows; k++) {
+                if(random.nextInt(10) == 0) {
+                    triples.add( new TripleImpl<String>(
+                            subject, KNOWS, "b" + i + "_" + k, Triple.SubjectType.uri, Triple.ObjectType.bnode, graph
+                    ));
+                } else {
+                    triples.add( new TripleImpl<String>(
+                            subject, KNOWS, person( random.nextInt(persons) ),
+                            Triple.SubjectType.uri, Triple.ObjectType.uri, graph
+                    ));
+                }
+            }
+        }
+        return triples;
+    }
+
+    /**
+     * Fills a triple set with at least <i>size</i> generated triples.
+     *
+     * @param size the number of triples.
+     * @param target the triple set to be filled.
+     * @return the <i>target</i> triple set.
+     */
+    public <T extends TripleSet> T fill(int size, T target) {
+        for(Triple triple : generateTriples(size)) {
+            target.addTriple(triple);
+        }
+        return target;
+    }
+
+    /**
+     * Generates at least <i>size</i> quads serialized in the <i>N-Quads</i> format.
+     *
+     * @param size the number of quads.
+     * @return the UTF-8 encoded quads.
+     */
+    public byte[] generateNQuads(int size) {
+        final StringBuilder sb = new StringBuilder(size * 96);
+        for(Triple triple : generateTriples(size)) {
+            sb.append( triple.toNQuadsString() ).append('\n');
+        }
+        return sb.toString().getBytes( Charset.forName("UTF-8") );
+    }
+
+    /**
+     * Generates a list of beans linked to each other.
+     *
+     * @param size the number of beans.
+     * @return the list of beans.
+     */
+    public List<BenchmarkBean> generateBeans(int size) {
+        final List<BenchmarkBean> beans = new ArrayList<BenchmarkBean>(size);
+        for(int i = 0; i < size; i++) {
+            final BenchmarkBean bean = new BenchmarkBean();
+            bean.setName("bean " + i);
+            bean.setAge( random.nextInt(100) );
+            bean.setScore( random.nextDouble() );
+            bean.setTags( new String[]{ "tag" + random.nextInt(10), "tag" + random.nextInt(10) } );
+            beans.add(bean);
+        }
+        for(int i = 0; i < size; i++) {
+            final List<BenchmarkBean> friends = new ArrayList<BenchmarkBean>();
+            for(int k = 0; k < MAX_KNOWS; k++) {
+                friends.add( beans.get( random.nextInt(size) ) );
+            }
+            beans.get(i).setFriends(friends);
+        }
+        return beans;
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+import org.sindice.rdfcommons.adapter.sesame.SesameConversionUtil;
+import org.sindice.rdfcommons.adapter.sesame.nquads.NQuadsParser;
+import org.sindice.rdfcommons.adapter.sesame.nquads.NQuadsWriter;
+import org.sindice.rdfcommons.model.Triple;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks the <i>N-Quads</i> parsing and serialization throughput.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+public class NQuadsBenchmark {
+
+    @Param({"10000"})
+    public int size;
+
+    private byte[] nquads;
+
+    private List<Triple> triples;
+
+    private List<Statement> statements;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final DatasetGenerator generator = new DatasetGenerator(BenchmarkRunner.SEED);
+        triples = generator.generateTriples(size);
+        nquads  = new DatasetGenerator(BenchmarkRunner.SEED).generateNQuads(size);
+        statements = new ArrayList<Statement>( triples.size() );
+        for(Triple triple : triples) {
+            statements.add( SesameConversionUtil.getInstance().convertTripleToSesameStatement(triple) );
+        }
+    }
+
+    @Benchmark
+    public int parse() throws IOException, RDFParseException, RDFHandlerException {
+        final CountingHandler handler = new CountingHandler();
+        final NQuadsParser parser = new NQuadsParser();
+        parser.setRDFHandler(handler);
+        parser.parse( new ByteArrayInputStream(nquads), "" );
+        return handler.count;
+    }
+
+    @Benchmark
+    public long write() throws RDFHandlerException {
+        final CountingOutputStream out = new CountingOutputStream();
+        final NQuadsWriter writer = new NQuadsWriter(out);
+        writer.startRDF();
+        for(Statement statement : statements) {
+            writer.handleStatement(statement);
+        }
+        writer.endRDF();
+        return out.count;
+    }
+
+    @Benchmark
+    public void toNQuadsString(Blackhole blackhole) {
+        for(Triple triple : triples) {
+            blackhole.consume( triple.toNQuadsString() );
+        }
+    }
+
+    /**
+     * Handler counting the parsed statements.
+     */
+    private static class CountingHandler extends RDFHandlerBase {
+        private int count;
+
+        @Override
+        public void handleStatement(Statement statement) {
+            count++;
+        }
+    }
+
+    /**
+     * Output stream discarding the written bytes.
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sindice.rdfcommons.model.IndexedTripleSet;
+import org.sindice.rdfcommons.model.TripleSet;
+import org.sindice.rdfcommons.query.QueryBuilder;
+import org.sindice.rdfcommons.storage.ResultSet;
+
+/**
+ * Benchmarks the join evaluation of the {@link org.sindice.rdfcommons.query.TripleSetQueryExecutor}.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private TripleSet tripleSet;
+
+    private QueryBuilder join;
+
+    private QueryBuilder star;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tripleSet = new DatasetGenerator(BenchmarkRunner.SEED).fill(size, new IndexedTripleSet());
+
+        join = new QueryBuilder();
+        join.addQuery("?p", DatasetGenerator.KNOWS, "?f");
+        join.addQuery("?f", DatasetGenerator.NAME , "?n");
+
+        star = new QueryBuilder();
+        star.addQuery("?p", DatasetGenerator.TYPE, DatasetGenerator.PERSON);
+        star.addQuery("?p", DatasetGenerator.NAME, "?n");
+        star.addQuery("?p", DatasetGenerator.AGE , "?a");
+    }
+
+    @Benchmark
+    public int join() {
+        return drain( join.execOnTriples(tripleSet) );
+    }
+
+    @Benchmark
+    public int star() {
+        return drain( star.execOnTriples(tripleSet) );
+    }
+
+    @Benchmark
+    public int firstRows() {
+        return drain( join.execOnTriples(tripleSet, 10) );
+    }
+
+    private static int drain(ResultSet rs) {
+        int count = 0;
+        while(rs.hasNext()) {
+            rs.next();
+            count++;
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sindice.rdfcommons.model.IndexedTripleSet;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.model.TripleSet;
+
+import java.util.List;
+
+/**
+ * Benchmarks the add, contains and pattern operations of the {@link TripleSet} implementations.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+public class TripleSetBenchmark {
+
+    @Param({"buffer", "indexed"})
+    public String implementation;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private List<Triple> triples;
+
+    private TripleSet tripleSet;
+
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        triples   = new DatasetGenerator(BenchmarkRunner.SEED).generateTriples(size);
+        tripleSet = newTripleSet();
+        for(Triple triple : triples) {
+            tripleSet.addTriple(triple);
+        }
+    }
+
+    @Benchmark
+    public TripleSet add() {
+        final TripleSet target = newTripleSet();
+        for(Triple triple : triples) {
+            target.addTriple(triple);
+        }
+        return target;
+    }
+
+    @Benchmark
+    public boolean contains() {
+        final Triple triple = nextTriple();
+        return tripleSet.containsTriple(
+                triple.getSubject(), triple.getPredicate(), triple.getObject(),
+                triple.getSubjectType(), triple.getObjectType(), triple.getGraph()
+        );
+    }
+
+    @Benchmark
+    public void subjectPattern(Blackhole blackhole) {
+        final Triple triple = nextTriple();
+        blackhole.consume(
+                tripleSet.getTriplesWithPattern(triple.getSubject(), null, null, null, null, null)
+        );
+    }
+
+    @Benchmark
+    public void predicateObjectPattern(Blackhole blackhole) {
+        blackhole.consume(
+                tripleSet.getTriplesWithPattern(
+                        null, DatasetGenerator.TYPE, DatasetGenerator.PERSON, null, Triple.ObjectType.uri, null
+                )
+        );
+    }
+
+    private Triple nextTriple() {
+        cursor = (cursor + 1) % triples.size();
+        return triples.get(cursor);
+    }
+
+    private TripleSet newTripleSet() {
+        return "indexed".equals(implementation) ? new IndexedTripleSet() : new TripleBuffer();
+    }
+
+}
@@ -69,11 +69,10 @@ public class BaseMapper {
      * Returns the list of annotations associated to the given object.
      *
      * @param o
-     * @return list of annotations.
+     * @return list of annotations, not to be modified.
      */
     protected static Annotation[] getAnnotations(Object o) {
-        Class clazz = o.getClass();
-        return clazz.getAnnotations();
+        return BeanDescriptor.getDescriptor( o.getClass() ).getAnnotations();
     }
 
     /**
@@ -211,13 +210,7 @@ public class BaseMapper {
      * @return string containing URL.
      */
     public static String getObjectURL(Object o) {
-        Method target = null;
-        for(Method method : o.getClass().getMethods()) {
-            if(method.getAnnotation(Id.class) != null) {
-                target = method;
-                break;
-            }
-        }
+        final Method target = BeanDescriptor.getDescriptor( o.getClass() ).getIdMethod();
 
         if(target == null) {
             return String.format("%s#%s", SerializerVocabulary.INSTANCE, Integer.toHexString( o.hashCode()) );
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sindice.rdfcommons.beanmapper;
+
+import org.sindice.rdfcommons.beanmapper.annotations.Adapt;
+import org.sindice.rdfcommons.beanmapper.annotations.Id;
+import org.sindice.rdfcommons.beanmapper.annotations.Ignore;
+import org.sindice.rdfcommons.beanmapper.annotations.Static;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable description of the mapping of a class, built once by introspection and shared
+ * by the serializers and deserializers.
+ * <p>
+ * It holds the class <i>URL</i> and annotations, the {@link Id} and {@link Adapt} methods and the
+ * readable properties ordered by name, with their accessors, annotations, {@link Ignore} decisions
+ * and property <i>URL</i>s. The serialization direction uses the getter of a property,
+ * the deserialization direction its setter. Property values and new instances are accessed
+ * through cached {@link PropertyAccessor}s and default constructor.
+ * </p>
+ * <p>
+ * Descriptors are cached per class, this class is thread safe.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public final class BeanDescriptor {
+
+    private static final ConcurrentMap<Class<?>,BeanDescriptor> descriptors =
+            new ConcurrentHashMap<Class<?>,BeanDescriptor>();
+
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private final Class<?> type;
+
+    private final String classURL;
+
+    private final Annotation[] annotations;
+
+    private final boolean staticBean;
+
+    private final Method idMethod;
+
+    private final List<Method> adaptMethods;
+
+    private final List<BeanProperty> properties;
+
+    private final Map<String,BeanProperty> writableProperties;
+
+    private final Constructor<?> constructor;
+
+    /**
+     * Returns the descriptor of a class, building it at the first request.
+     *
+     * @param clazz the described class.
+     * @return the class descriptor.
+     * @throws IllegalArgumentException if the class cannot be introspected.
+     */
+    public static BeanDescriptor getDescriptor(Class<?> clazz) {
+        BeanDescriptor descriptor = descriptors.get(clazz);
+        if(descriptor == null) {
+            final BeanDescriptor created = new BeanDescriptor(clazz);
+            descriptor = descriptors.putIfAbsent(clazz, created);
+            if(descriptor == null) {
+                descriptor = created;
+            }
+        }
+        return descriptor;
+    }
+
+    private BeanDescriptor(Class<?> clazz) {
+        if(clazz == null) {
+            throw new NullPointerException("clazz cannot be null.");
+        }
+        type        = clazz;
+        classURL    = BaseMapper.getClassURL(clazz);
+        annotations = clazz.getAnnotations();
+        staticBean  = BaseMapper.definesAnnotation(annotations, Static.class);
+
+        Method id = null;
+        final List<Method> adapt = new ArrayList<Method>();
+        for(Method method : clazz.getMethods()) {
+            if(id == null && method.getAnnotation(Id.class) != null) {
+                id = method;
+            }
+            if(method.getAnnotation(Adapt.class) != null) {
+                adapt.add(method);
+            }
+        }
+        idMethod     = id;
+        adaptMethods = Collections.unmodifiableList(adapt);
+
+        final BeanInfo beanInfo;
+        try {
+            beanInfo = Introspector.getBeanInfo(clazz);
+        } catch (IntrospectionException ie) {
+            throw new IllegalArgumentException("Error while introspecting class " + clazz, ie);
+        }
+        final List<BeanProperty> beanProperties = new ArrayList<BeanProperty>();
+        final Map<String,BeanProperty> writable = new HashMap<String,BeanProperty>();
+        for(PropertyDescriptor propertyDescriptor : beanInfo.getPropertyDescriptors()) {
+            // Skipping self description and not readable properties.
+            if( "class".equals(propertyDescriptor.getName()) || propertyDescriptor.getReadMethod() == null ) {
+                continue;
+            }
+            final BeanProperty property = new BeanProperty(classURL, propertyDescriptor);
+            beanProperties.add(property);
+            if(property.getWriteURL() != null) {
+                writable.put(property.getWriteURL(), property);
+            }
+        }
+        properties         = Collections.unmodifiableList(beanProperties);
+        writableProperties = writable;
+        constructor        = findDefaultConstructor(clazz);
+    }
+
+    private static Constructor<?> findDefaultConstructor(Class<?> clazz) {
+        final Constructor<?> defaultConstructor;
+        try {
+            defaultConstructor = clazz.getDeclaredConstructor();
+        } catch (NoSuchMethodException nsme) {
+            return null;
+        }
+        PropertyAccessors.makeAccessible(defaultConstructor);
+        return defaultConstructor;
+    }
+
+    /**
+     * @return the described class.
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return the <i>URL</i> representing the class.
+     */
+    public String getClassURL() {
+        return classURL;
+    }
+
+    /**
+     * @return the class annotations, not to be modified.
+     */
+    public Annotation[] getAnnotations() {
+        return annotations;
+    }
+
+    /**
+     * @return <code>true</code> if the class is annotated as {@link Static}.
+     */
+    public boolean isStatic() {
+        return staticBean;
+    }
+
+    /**
+     * @return the first method annotated as {@link Id}, <code>null</code> if none.
+     */
+    public Method getIdMethod() {
+        return idMethod;
+    }
+
+    /**
+     * @return the methods annotated as {@link Adapt}.
+     */
+    public List<Method> getAdaptMethods() {
+        return adaptMethods;
+    }
+
+    /**
+     * @return the readable properties ordered by name, <i>class</i> excluded.
+     */
+    public List<BeanProperty> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Returns the writable property mapped on a property <i>URL</i>.
+     *
+     * @param writeURL the property <i>URL</i> resolved on the setter.
+     * @return the property, <code>null</code> if none.
+     */
+    public BeanProperty getWritableProperty(String writeURL) {
+        return writableProperties.get(writeURL);
+    }
+
+    /**
+     * Creates a new instance of the described class through its default constructor.
+     *
+     * @return the new instance.
+     * @throws InstantiationException if the class is abstract or has no default constructor.
+     * @throws IllegalAccessException if the constructor cannot be accessed.
+     * @throws InvocationTargetException if the constructor raises an exception.
+     */
+    public Object newInstance() throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        if(constructor == null) {
+            throw new InstantiationException("Cannot find default constructor for class " + type.getName());
+        }
+        return constructor.newInstance();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s, properties: %d]", getClass().getSimpleName(), type.getName(), properties.size());
+    }
+
+    /**
+     * Description of a readable bean property.
+     */
+    public static final class BeanProperty {
+
+        private final String name;
+
+        private final Class<?> type;
+
+        private final Method readMethod;
+
+        private final Method writeMethod;
+
+        private final Annotation[] readAnnotations;
+
+        private final Annotation[] writeAnnotations;
+
+        private final boolean readIgnored;
+
+        private final boolean writeIgnored;
+
+        private final String readURL;
+
+        private final String writeURL;
+
+        private final PropertyAccessor accessor;
+
+        private BeanProperty(String classURL, PropertyDescriptor propertyDescriptor) {
+            name             = propertyDescriptor.getName();
+            readMethod       = propertyDescriptor.getReadMethod();
+            writeMethod      = propertyDescriptor.getWriteMethod();
+            type             = writeMethod == null
+                    ? propertyDescriptor.getPropertyType() : writeMethod.getParameterTypes()[0];
+            readAnnotations  = readMethod.getAnnotations();
+            writeAnnotations = writeMethod == null ? NO_ANNOTATIONS : writeMethod.getAnnotations();
+            readIgnored      = BaseMapper.isIgnored(readMethod);
+            writeIgnored     = writeMethod != null && BaseMapper.isIgnored(writeMethod);
+            readURL          = BaseMapper.getPropertyURL(classURL, name, readMethod);
+            writeURL         = writeMethod == null ? null : BaseMapper.getPropertyURL(classURL, name, writeMethod);
+            accessor         = PropertyAccessors.create(readMethod, writeMethod);
+        }
+
+        /**
+         * @return the property name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the property type, the setter parameter type if any.
+         */
+        public Class<?> getType() {
+            return type;
+        }
+
+        /**
+         * @return the property getter.
+         */
+        public Method getReadMethod() {
+            return readMethod;
+        }
+
+        /**
+         * @return the property setter, <code>null</code> if the property is read only.
+         */
+        public Method getWriteMethod() {
+            return writeMethod;
+        }
+
+        /**
+         * @return the annotations of the getter, not to be modified.
+         */
+        public Annotation[] getReadAnnotations() {
+            return readAnnotations;
+        }
+
+        /**
+         * @return the annotations of the setter, not to be modified.
+         */
+        public Annotation[] getWriteAnnotations() {
+            return writeAnnotations;
+        }
+
+        /**
+         * @return <code>true</code> if the getter is marked as ignored.
+         */
+        public boolean isReadIgnored() {
+            return readIgnored;
+        }
+
+        /**
+         * @return <code>true</code> if the setter is marked as ignored.
+         */
+        public boolean isWriteIgnored() {
+            return writeIgnored;
+        }
+
+        /**
+         * @return the property <i>URL</i> resolved on the getter.
+         */
+        public String getReadURL() {
+            return readURL;
+        }
+
+        /**
+         * @return the property <i>URL</i> resolved on the setter, <code>null</code> if the property is read only.
+         */
+        public String getWriteURL() {
+            return writeURL;
+        }
+
+        /**
+         * @return the property value accessor.
+         */
+        public PropertyAccessor getAccessor() {
+            return accessor;
+        }
+
+        /**
+         * Reads the property value.
+         *
+         * @param bean the bean to read from.
+         * @return the property value.
+         * @throws InvocationTargetException if the getter raises an exception.
+         * @throws IllegalAccessException if the getter cannot be accessed.
+         */
+        public Object read(Object bean) throws InvocationTargetException, IllegalAccessException {
+            return accessor.get(bean);
+        }
+
+        /**
+         * Writes the property value.
+         *
+         * @param bean the bean to write to.
+         * @param value the property value.
+         * @throws InvocationTargetException if the setter raises an exception.
+         * @throws IllegalAccessException if the setter cannot be accessed.
+         */
+        public void write(Object bean, Object value) throws InvocationTargetException, IllegalAccessException {
+            accessor.set(bean, value);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+}
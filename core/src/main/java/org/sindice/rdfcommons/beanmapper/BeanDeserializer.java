@@ -17,12 +17,8 @@
 package org.sindice.rdfcommons.beanmapper;
 
 import org.sindice.rdfcommons.storage.ResultSet;
-import org.apache.commons.beanutils.BeanMap;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
-import java.util.Map;
-import java.util.Set;
 
 /**
  * Bean deserializer implementation.
@@ -40,7 +36,6 @@ public class BeanDeserializer extends BaseDeserializer {
         throw new UnsupportedOperationException();
     }
 
-    @SuppressWarnings("unchecked")
     public <T> T deserialize(
             DeserializationContext context,
             Class<T> clazz,
@@ -49,83 +44,87 @@ public class BeanDeserializer extends BaseDeserializer {
             QueryEndpoint endPoint
     ) throws DeserializationException {
 
+        final BeanDescriptor descriptor = BeanDescriptor.getDescriptor(clazz);
         final T bean;
         try {
-            bean = clazz.newInstance();
+            bean = clazz.cast( descriptor.newInstance() );
         } catch (Exception e) {
             throw new DeserializationException("Error while instantiating object.", e);
         }
         context.registerInstance(identifier, bean);
 
-        final String  classUrl = getClassURL( bean.getClass() );
-        final BeanMap beanMap  = new BeanMap(bean);
-        String propertyURL;
-        for (Map.Entry<String, Object> entry : (Set<Map.Entry<String, Object>>) beanMap.entrySet()) {
-
-            // Skipping self description.
-            if ("class".equals(entry.getKey())) {
-                continue;
-            }
-
-            final String propertyName = entry.getKey();
-            final Method propertyWriteMethod = beanMap.getWriteMethod(propertyName);
-            if(propertyWriteMethod == null) {
+        for(BeanDescriptor.BeanProperty property : descriptor.getProperties()) {
+            if(property.getWriteMethod() == null) {
                 throw new DeserializationException(
-                        String.format("Cannot find setter for property '%s' in bean %s", propertyName, bean)
+                        String.format("Cannot find setter for property '%s' in bean %s", property.getName(), bean)
                 );
             }
-            final Class propertyType = propertyWriteMethod.getParameterTypes()[0];
 
             // Skipping properties marked as ignored.
-            if (isIgnored(propertyWriteMethod)) {
+            if( property.isWriteIgnored() ) {
                 continue;
             }
             
-            final Object value = retrieveObject(
-                    classUrl, propertyName, propertyWriteMethod, identifier, endPoint, context
-            );
+            final Object value = retrieveObject(property.getWriteURL(), identifier, endPoint, context);
 
             // Skipping missing values.
             if(value == null) {
                 continue;
             }
 
-            Object deserializedValue = context.deserialize(
-                    context,
-                    propertyType,
-                    propertyWriteMethod.getAnnotations(),
-                    new Identifier(value, Identifier.Type.resource),
-                    endPoint
-            );
-
-            try {
-                propertyWriteMethod.invoke(bean, deserializedValue);
-            } catch (Exception e) {
-                throw new DeserializationException(
-                    String.format(
-                            "Error while setting value [%s] on bean [%s] using setter [%s].",
-                            value,
-                            bean,
-                            propertyWriteMethod
-                    )
-                    ,
-                    e
-                );
-            }
+            setProperty(context, bean, property, value, endPoint);
         }
 
         return bean;
     }
 
+    /**
+     * Deserializes a property value and sets it on a bean.
+     *
+     * @param context context used for deserialization.
+     * @param bean the bean to be populated.
+     * @param property the writable property.
+     * @param value the <i>RDF</i> value of the property.
+     * @param endPoint endpoint exposing the RDF dataset.
+     * @throws DeserializationException if the value cannot be deserialized or set.
+     */
+    static void setProperty(
+            DeserializationContext context,
+            Object bean,
+            BeanDescriptor.BeanProperty property,
+            Object value,
+            QueryEndpoint endPoint
+    ) throws DeserializationException {
+        Object deserializedValue = context.deserialize(
+                context,
+                property.getType(),
+                property.getWriteAnnotations(),
+                new Identifier(value, Identifier.Type.resource),
+                endPoint
+        );
+
+        try {
+            property.write(bean, deserializedValue);
+        } catch (Exception e) {
+            throw new DeserializationException(
+                String.format(
+                        "Error while setting value [%s] on bean [%s] using setter [%s].",
+                        value,
+                        bean,
+                        property.getWriteMethod()
+                )
+                ,
+                e
+            );
+        }
+    }
+
     private Object retrieveObject(
-            String classUrl,
-            String propertyName,
-            Method propertyWriteMethod,
+            String propertyURL,
             Identifier identifier,
             QueryEndpoint endPoint,
             DeserializationContext context
     ) {
-        final String propertyURL = getPropertyURL(classUrl, propertyName, propertyWriteMethod);
         endPoint.addQuery((String) identifier.getId(), propertyURL, "?value");
         ResultSet rs = endPoint.execute();
         if (!rs.hasNext()) {
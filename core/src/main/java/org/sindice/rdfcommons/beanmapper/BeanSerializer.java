@@ -16,15 +16,13 @@
 
 package org.sindice.rdfcommons.beanmapper;
 
-import org.apache.commons.beanutils.BeanMap;
 import org.sindice.rdfcommons.model.TripleSet;
 import org.sindice.rdfcommons.beanmapper.annotations.Adapt;
 import org.sindice.rdfcommons.vocabulary.RDFVocabulary;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
 
 import static org.sindice.rdfcommons.model.Triple.ObjectType;
 
@@ -53,38 +51,34 @@ public class BeanSerializer extends BaseSerializer<Object> {
           return new Identifier(getObjectURL(bean), Identifier.Type.resource);
     }
 
-    @SuppressWarnings("unchecked")    
     public Identifier serialize(SerializationContext context, Object bean, Annotation[] annotations, TripleSet buffer)
     throws SerializationException {
+        final BeanDescriptor descriptor;
+        try {
+            descriptor = BeanDescriptor.getDescriptor( bean.getClass() );
+        } catch (Exception e) {
+            throw new SerializationException(e);
+        }
 
         // Handling adapted object.
-        Object adapted = getAdapted(bean);
+        Object adapted = getAdapted(descriptor, bean);
         if(adapted != null) {
             return context.serialize(context, adapted, annotations, buffer);
         }
 
         // Handling common bean.
         try {
-            BeanMap beanMap = new BeanMap(bean);
-            final String classUrl = getClassURL( bean.getClass() );
             final String instanceUrl = getObjectURL(bean);
 
-            buffer.addTriple(instanceUrl, RDFVocabulary.TYPE, classUrl);
+            buffer.addTriple(instanceUrl, RDFVocabulary.TYPE, descriptor.getClassURL());
 
-            for (Map.Entry<String, Object> entry : (Set<Map.Entry<String, Object>>) beanMap.entrySet()) {
-                final String propertyName = entry.getKey();
-                final Method propertyReadMethod = beanMap.getReadMethod(propertyName);
-
-                // Skipping self description.
-                if ("class".equals(entry.getKey())) {
-                    continue;
-                }
+            for(BeanDescriptor.BeanProperty property : descriptor.getProperties()) {
                 // Skipping properties marked as ignored.
-                if( isIgnored(propertyReadMethod) ) {
+                if( property.isReadIgnored() ) {
                     continue;
                 }
                 // Avoid serialization of null values.
-                final Object propertyValue = entry.getValue();
+                final Object propertyValue = property.read(bean);
                 if(propertyValue == null) {
                     continue;
                 }
@@ -92,13 +86,13 @@ public class BeanSerializer extends BaseSerializer<Object> {
                 Identifier identifierEntry = context.serialize(
                         context,
                         propertyValue,
-                        getAnnotations(propertyReadMethod),
+                        property.getReadAnnotations(),
                         buffer
                 );
 
                 buffer.addTriple(
                         instanceUrl,
-                        getPropertyURL(classUrl, propertyName, propertyReadMethod),
+                        property.getReadURL(),
                         identifierEntry.getId(),
                         identifierEntry.isLiteral() ? ObjectType.literal : ObjectType.uri
                 );
@@ -113,29 +107,26 @@ public class BeanSerializer extends BaseSerializer<Object> {
     /**
      * Returns the adapted bean if any, <code>null</code> otherwise.
      *
+     * @param descriptor the descriptor of the bean class.
      * @param in input bean.
      * @return the adapted bean.
      * @throws SerializationException if an error occurs during the retrieval of the adapter.
      */
-    private Object getAdapted(Object in) throws SerializationException {
-        Method annotated = null;
-        for( Method m : in.getClass().getMethods() ) {
-            if(m.getAnnotation(Adapt.class) != null) {
-                if(annotated != null) {
-                    throw new SerializationException(
-                        String.format(
-                                "Just one method an be annotated with the the annotation %s. Found more than one.",
-                                Adapt.class
-                        )
-                    );
-                }
-                annotated = m;
-            }
-        }
-
-        if(annotated == null) {
+    private Object getAdapted(BeanDescriptor descriptor, Object in) throws SerializationException {
+        final List<Method> adaptMethods = descriptor.getAdaptMethods();
+        if( adaptMethods.isEmpty() ) {
             return null;
         }
+        if(adaptMethods.size() > 1) {
+            throw new SerializationException(
+                String.format(
+                        "Just one method an be annotated with the the annotation %s. Found more than one.",
+                        Adapt.class
+                )
+            );
+        }
+
+        final Method annotated = adaptMethods.get(0);
 
         if(annotated.getParameterTypes().length > 0) {
             throw new SerializationException(
@@ -24,18 +24,36 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This class performs the <i>RDF<i> to <i>bean</i> conversion.
+ * <p>
+ * The deserializer chosen for a class and its annotations is cached, the cache is
+ * discarded every time a deserializer is added or removed.
+ * </p>
  *
  * @author Michele Mostarda ( mostarda@fbk.eu )
  * @version $Id$
  */
 public class DeserializationManager {
 
-    private List<CriteriaDeserializer> deserializers;
+    /**
+     * Default maximum number of instances being assembled by a bulk deserialization.
+     */
+    public static final int DEFAULT_MAX_OPEN_INSTANCES = 1024;
+
+    private final List<CriteriaDeserializer> deserializers;
+
+    private volatile ConcurrentMap<DispatchKey,CriteriaDeserializer> dispatchCache;
 
     private Map<Identifier,Object> deserializedObjects;
 
@@ -44,7 +62,8 @@ public class DeserializationManager {
     private final InternalDeserializationContext internalDeserializationContext;
 
     public DeserializationManager() {
-        deserializers       = new ArrayList<CriteriaDeserializer>();
+        deserializers       = new CopyOnWriteArrayList<CriteriaDeserializer>();
+        dispatchCache       = new ConcurrentHashMap<DispatchKey,CriteriaDeserializer>();
         deserializedObjects = new HashMap<Identifier, Object>();
         internalDeserializationContext = new InternalDeserializationContext();
         issues              = new ArrayList<Issue>();
@@ -61,8 +80,15 @@ public class DeserializationManager {
      */
     public CriteriaDeserializer getDeserializerFor(Class clazz, Annotation[] annotations)
     throws DeserializationException {
+        final ConcurrentMap<DispatchKey,CriteriaDeserializer> cache = dispatchCache;
+        final DispatchKey key = new DispatchKey(clazz, annotations);
+        final CriteriaDeserializer cached = cache.get(key);
+        if(cached != null) {
+            return cached;
+        }
         for(CriteriaDeserializer deserializer : deserializers) {
             if(deserializer.acceptClass(clazz, annotations)) {
+                cache.put(key, deserializer);
                 return deserializer;
             }
         }
@@ -100,6 +126,138 @@ public class DeserializationManager {
         return deserializeInstancesOf(clazz, annotations, endPoint);
     }
 
+    /**
+     * Deserializes every instance of a bean class with a single query, equivalent to
+     * {@link #deserializeAll(Class, QueryEndpoint, InstanceHandler, int)}
+     * with {@link #DEFAULT_MAX_OPEN_INSTANCES}.
+     *
+     * @param clazz bean class to be deserialized.
+     * @param endPoint endpoint exposing the RDF data to be mapped to beans.
+     * @param handler handler receiving the deserialized beans.
+     * @return the number of deserialized beans.
+     * @throws DeserializationException if an error occurs while deserializing or handling a bean.
+     */
+    public <T> int deserializeAll(Class<T> clazz, QueryEndpoint endPoint, InstanceHandler<? super T> handler)
+    throws DeserializationException {
+        return deserializeAll(clazz, endPoint, handler, DEFAULT_MAX_OPEN_INSTANCES);
+    }
+
+    /**
+     * Deserializes every instance of a bean class streaming the <code>(instance, property, value)</code>
+     * rows of a single query, instead of querying every property of every instance.
+     * <p>
+     * The rows are grouped by instance while being consumed: at most <i>maxOpenInstances</i> beans are
+     * assembled at the same time and, when the limit is reached, the least recently updated one is completed
+     * and passed to the handler. The rows of an instance must therefore be close in the stream, as they are
+     * when the query engine evaluates the type pattern first: a row of an instance already completed would
+     * produce a partial duplicate bean, so it is detected and the deserialization fails. Only the identifiers
+     * of the completed instances are retained for the detection.
+     * Nested objects are deserialized with the usual queries and are not shared across the produced beans,
+     * since the deserialized objects are discarded after every bean.
+     * </p>
+     *
+     * @param clazz bean class to be deserialized.
+     * @param endPoint endpoint exposing the RDF data to be mapped to beans.
+     * @param handler handler receiving the deserialized beans.
+     * @param maxOpenInstances maximum number of beans assembled at the same time.
+     * @return the number of deserialized beans.
+     * @throws DeserializationException if the class is not a bean, the rows of an instance are received
+     *         after its completion or an error occurs while deserializing or handling a bean.
+     */
+    public <T> int deserializeAll(
+            Class<T> clazz,
+            QueryEndpoint endPoint,
+            InstanceHandler<? super T> handler,
+            int maxOpenInstances
+    ) throws DeserializationException {
+        if(endPoint == null) {
+            throw new NullPointerException("endPoint cannot be null.");
+        }
+        if(handler == null) {
+            throw new NullPointerException("handler cannot be null.");
+        }
+        if(maxOpenInstances <= 0) {
+            throw new IllegalArgumentException("Invalid max open instances: " + maxOpenInstances);
+        }
+        clear();
+        if( ! (getDeserializerFor(clazz, clazz.getAnnotations()) instanceof BeanDeserializer) ) {
+            throw new DeserializationException(
+                    String.format("Cannot deserialize class %s in bulk: only beans are supported.", clazz)
+            );
+        }
+        final BeanDescriptor descriptor = BeanDescriptor.getDescriptor(clazz);
+        for(BeanDescriptor.BeanProperty property : descriptor.getProperties()) {
+            if(property.getWriteMethod() == null) {
+                throw new DeserializationException(
+                        String.format("Cannot find setter for property '%s' in class %s", property.getName(), clazz)
+                );
+            }
+        }
+
+        endPoint.addQuery("?instance", RDFVocabulary.TYPE, descriptor.getClassURL());
+        endPoint.addQuery("?instance", "?property", "?value");
+        final ResultSet rs = endPoint.execute();
+
+        // Instances being assembled, in access order.
+        final LinkedHashMap<String,Map<BeanDescriptor.BeanProperty,Object>> openInstances =
+                new LinkedHashMap<String,Map<BeanDescriptor.BeanProperty,Object>>(16, 0.75f, true);
+        // Identifiers of the instances already passed to the handler.
+        final Set<String> completedInstances = new HashSet<String>();
+        int count = 0;
+        String instance;
+        Object property;
+        Object value;
+        while(rs.hasNext()) {
+            instance = rs.getVariableString("?instance");
+            property = rs.getVariableValue("?property");
+            value    = rs.getVariableValue("?value");
+            rs.next();
+
+            Map<BeanDescriptor.BeanProperty,Object> values = openInstances.get(instance);
+            if(values == null) {
+                if( completedInstances.contains(instance) ) {
+                    throw new DeserializationException(
+                            String.format(
+                                    "Rows of instance [%s] received after its completion, " +
+                                    "increase the max open instances (%d).",
+                                    instance,
+                                    maxOpenInstances
+                            )
+                    );
+                }
+                if(openInstances.size() == maxOpenInstances) {
+                    final Iterator<Map.Entry<String,Map<BeanDescriptor.BeanProperty,Object>>> eldest =
+                            openInstances.entrySet().iterator();
+                    final Map.Entry<String,Map<BeanDescriptor.BeanProperty,Object>> entry = eldest.next();
+                    eldest.remove();
+                    completedInstances.add( entry.getKey() );
+                    completeInstance(clazz, descriptor, entry.getKey(), entry.getValue(), endPoint, handler);
+                    count++;
+                }
+                values = new HashMap<BeanDescriptor.BeanProperty,Object>();
+                openInstances.put(instance, values);
+            }
+
+            // The first value of a property wins, as in the per property retrieval.
+            final BeanDescriptor.BeanProperty writableProperty =
+                    property == null ? null : descriptor.getWritableProperty( property.toString() );
+            if(
+                    writableProperty != null
+                            &&
+                    ! writableProperty.isWriteIgnored()
+                            &&
+                    ! values.containsKey(writableProperty)
+            ) {
+                values.put(writableProperty, value);
+            }
+        }
+        for(Map.Entry<String,Map<BeanDescriptor.BeanProperty,Object>> entry : openInstances.entrySet()) {
+            completeInstance(clazz, descriptor, entry.getKey(), entry.getValue(), endPoint, handler);
+            count++;
+        }
+        return count;
+    }
+
     /**
      * Registers a deserializer within the manager.
      *
@@ -107,11 +265,14 @@ public class DeserializationManager {
      * @return <code>true</code> if the deserializer is effectively added,
      *         <code>false</code> otherwise.
      */
-    public boolean addDeserializer(CriteriaDeserializer deserializer) {
+    public synchronized boolean addDeserializer(CriteriaDeserializer deserializer) {
         if(deserializer == null) {
             throw new NullPointerException("deserializer cannot be null.");
         }
-        return deserializers.add(deserializer);
+        final boolean added = deserializers.add(deserializer);
+        // The cache is replaced after the list change, lookups still filling the old one are lost.
+        dispatchCache = new ConcurrentHashMap<DispatchKey,CriteriaDeserializer>();
+        return added;
     }
 
     /**
@@ -120,8 +281,12 @@ public class DeserializationManager {
      * @param deserializer deserializer to be deregistered.
      * @return <code>true</code> if the deserializer is effectively removed, <code>false</code> otherwise.
      */
-    public boolean removeDeserializer(CriteriaDeserializer deserializer) {
-        return deserializers.remove(deserializer);
+    public synchronized boolean removeDeserializer(CriteriaDeserializer deserializer) {
+        final boolean removed = deserializers.remove(deserializer);
+        if(removed) {
+            dispatchCache = new ConcurrentHashMap<DispatchKey,CriteriaDeserializer>();
+        }
+        return removed;
     }
 
     public List<Issue> getIssues() {
@@ -197,6 +362,50 @@ public class DeserializationManager {
         return result;
     }
 
+    /**
+     * Creates a bean from the values collected for an instance and passes it to the handler.
+     */
+    private <T> void completeInstance(
+            Class<T> clazz,
+            BeanDescriptor descriptor,
+            String instance,
+            Map<BeanDescriptor.BeanProperty,Object> values,
+            QueryEndpoint endPoint,
+            InstanceHandler<? super T> handler
+    ) throws DeserializationException {
+        final Identifier identifier = new Identifier(instance, Identifier.Type.resource);
+        final T bean;
+        try {
+            bean = clazz.cast( descriptor.newInstance() );
+        } catch (Exception e) {
+            throw new DeserializationException("Error while instantiating object.", e);
+        }
+        internalDeserializationContext.registerInstance(identifier, bean);
+        try {
+            for(BeanDescriptor.BeanProperty property : descriptor.getProperties()) {
+                if( property.isWriteIgnored() ) {
+                    continue;
+                }
+                final Object value = values.get(property);
+                if(value == null) {
+                    internalDeserializationContext.reportIssue(
+                            String.format(
+                                    "Cannot find triple for identifier [%s] and property[%s].",
+                                    identifier,
+                                    property.getWriteURL()
+                            )
+                    );
+                    continue;
+                }
+                BeanDeserializer.setProperty(internalDeserializationContext, bean, property, value, endPoint);
+            }
+        } finally {
+            // Bounding the memory: the objects of an instance are not retained after its completion.
+            deserializedObjects.clear();
+        }
+        handler.handleInstance(identifier, bean);
+    }
+
     protected void clear() {
         deserializedObjects.clear();
         issues.clear();
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sindice.rdfcommons.beanmapper;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+
+/**
+ * Key of the serializer and deserializer dispatch caches, made of a class
+ * and the annotations associated to it.
+ *
+ * @see SerializationManager#getSerializerFor(Class, Annotation[])
+ * @see DeserializationManager#getDeserializerFor(Class, Annotation[])
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+final class DispatchKey {
+
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    private final Class clazz;
+
+    private final Annotation[] annotations;
+
+    private final int hashCode;
+
+    DispatchKey(Class clazz, Annotation[] annotations) {
+        if(clazz == null) {
+            throw new NullPointerException("clazz cannot be null.");
+        }
+        this.clazz       = clazz;
+        this.annotations = annotations == null ? NO_ANNOTATIONS : annotations;
+        hashCode         = clazz.hashCode() * 31 + Arrays.hashCode(this.annotations);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if(obj == this) {
+            return true;
+        }
+        if( ! (obj instanceof DispatchKey) ) {
+            return false;
+        }
+        final DispatchKey other = (DispatchKey) obj;
+        return
+                hashCode == other.hashCode
+                        &&
+                clazz.equals(other.clazz)
+                        &&
+                (annotations == other.annotations || Arrays.equals(annotations, other.annotations));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s%s", clazz.getName(), Arrays.toString(annotations));
+    }
+
+}
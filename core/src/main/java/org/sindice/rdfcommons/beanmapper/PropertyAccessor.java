@@ -0,0 +1,59 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sindice.rdfcommons.beanmapper;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Accessor to the value of a bean property.
+ * Accessors are created once per property by {@link BeanDescriptor}
+ * and are shared across threads.
+ *
+ * @see PropertyAccessors
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public interface PropertyAccessor {
+
+    /**
+     * @return <code>true</code> if the property value can be written.
+     */
+    boolean isWritable();
+
+    /**
+     * Reads the property value.
+     *
+     * @param bean the bean to read from.
+     * @return the property value.
+     * @throws InvocationTargetException if the getter raises an exception.
+     * @throws IllegalAccessException if the getter cannot be accessed.
+     */
+    Object get(Object bean) throws InvocationTargetException, IllegalAccessException;
+
+    /**
+     * Writes the property value.
+     *
+     * @param bean the bean to write to.
+     * @param value the property value.
+     * @throws InvocationTargetException if the setter raises an exception.
+     * @throws IllegalAccessException if the setter cannot be accessed.
+     * @throws UnsupportedOperationException if the property is not writable.
+     */
+    void set(Object bean, Object value) throws InvocationTargetException, IllegalAccessException;
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sindice.rdfcommons.beanmapper;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Factory of {@link PropertyAccessor}s.
+ * <p>
+ * Created accessors invoke the property methods with the language access checks suppressed,
+ * which removes the per call caller verification of {@link Method#invoke(Object, Object[])} and
+ * lets the virtual machine bind them to its generated method accessors.
+ * When the suppression is denied, by a security manager or by the module system,
+ * the accessors fall back to plain checked reflection.
+ * </p>
+ * <p>
+ * The accessors don't use method handles: the handles of the properties would be kept in per class
+ * descriptors, not in constants, and the Java 7 and 8 compilers don't inline the invocation of such
+ * handles, which are then not faster than the inflated reflective accessors.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public final class PropertyAccessors {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private PropertyAccessors() {}
+
+    /**
+     * Creates an accessor for a property.
+     *
+     * @param readMethod the property getter.
+     * @param writeMethod the property setter, <code>null</code> if the property is read only.
+     * @return the property accessor.
+     */
+    public static PropertyAccessor create(Method readMethod, Method writeMethod) {
+        if(readMethod == null) {
+            throw new NullPointerException("readMethod cannot be null.");
+        }
+        final boolean accessible = makeAccessible(readMethod) && (writeMethod == null || makeAccessible(writeMethod));
+        return new MethodPropertyAccessor(readMethod, writeMethod, accessible);
+    }
+
+    /**
+     * Suppresses the access checks of a member.
+     *
+     * @param member the member to be made accessible.
+     * @return <code>true</code> if the checks have been suppressed, <code>false</code>
+     *         if the suppression has been denied.
+     */
+    static boolean makeAccessible(AccessibleObject member) {
+        try {
+            member.setAccessible(true);
+            return true;
+        } catch (RuntimeException re) {
+            return false;
+        }
+    }
+
+    /**
+     * Accessor invoking the property getter and setter.
+     */
+    private static final class MethodPropertyAccessor implements PropertyAccessor {
+
+        private final Method readMethod;
+
+        private final Method writeMethod;
+
+        private final boolean accessible;
+
+        private MethodPropertyAccessor(Method readMethod, Method writeMethod, boolean accessible) {
+            this.readMethod  = readMethod;
+            this.writeMethod = writeMethod;
+            this.accessible  = accessible;
+        }
+
+        public boolean isWritable() {
+            return writeMethod != null;
+        }
+
+        public Object get(Object bean) throws InvocationTargetException, IllegalAccessException {
+            return readMethod.invoke(bean, NO_ARGS);
+        }
+
+        public void set(Object bean, Object value) throws InvocationTargetException, IllegalAccessException {
+            if(writeMethod == null) {
+                throw new UnsupportedOperationException("Property is read only: " + readMethod);
+            }
+            writeMethod.invoke(bean, value);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s[%s, %s, accessible: %b]", getClass().getSimpleName(), readMethod, writeMethod, accessible
+            );
+        }
+    }
+
+}
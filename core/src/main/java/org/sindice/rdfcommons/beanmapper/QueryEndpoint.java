@@ -16,14 +16,34 @@
 
 package org.sindice.rdfcommons.beanmapper;
 
+import org.sindice.rdfcommons.model.IndexedTripleSet;
+import org.sindice.rdfcommons.model.Triple;
 import org.sindice.rdfcommons.storage.ResultSet;
 import org.sindice.rdfcommons.storage.SparqlEndpointException;
 import org.sindice.rdfcommons.model.TripleSet;
 import org.sindice.rdfcommons.query.QueryBuilder;
 import org.sindice.rdfcommons.storage.TripleStorage;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Endpoint to perform query on the triple data set.
+ * <p>
+ * An endpoint over a {@link TripleStorage} can work in <i>prefetch</i> mode: the first query on a subject
+ * retrieves its neighbourhood with a single <i>DESCRIBE</i> query, that is the triples having the subject
+ * as subject and the descriptions of the blank nodes it refers. The neighbourhood is kept in a local
+ * indexed triple set which answers every following query on the subject and on the blank nodes
+ * described in it, so that deserializing a bean costs a single remote query instead of one per property.
+ * Since the content of a <i>DESCRIBE</i> is implementation defined, subjects and blank nodes without
+ * triples in the neighbourhood are still queried on the storage.
+ * Queries with a variable subject are always sent to the storage. The prefetched triples are not
+ * refreshed, use {@link #clearPrefetched()} to discard them.
+ * </p>
  *
  * @author Michele Mostarda ( mostarda@fbk.eu )
  * @version $Id$
@@ -36,26 +56,55 @@ public class QueryEndpoint {
 
     private QueryBuilder queryBuilder = new QueryBuilder();
 
+    private final boolean prefetch;
+
+    private final List<String> subjects = new ArrayList<String>();
+
+    private final Map<String,TripleSet> neighbourhoods = new HashMap<String,TripleSet>();
+
+    // Subjects known to be missing from the prefetched triples.
+    private final Set<String> remoteSubjects = new HashSet<String>();
+
+    private int remoteQueries;
+
+    private int localQueries;
+
+    private int prefetchQueries;
+
     public QueryEndpoint(TripleSet ts) {
         if(ts == null) {
             throw new NullPointerException("triple set cannot be null.");
         }
         tripleSet = ts;
+        prefetch  = false;
     }
 
     public QueryEndpoint(TripleStorage ts) {
+        this(ts, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param ts the queried triple storage.
+     * @param prefetch if <code>true</code> the endpoint works in <i>prefetch</i> mode.
+     */
+    public QueryEndpoint(TripleStorage ts, boolean prefetch) {
         if(ts == null) {
             throw new NullPointerException("triple storage cannot be null.");
         }
         tripleStorage = ts;
+        this.prefetch = prefetch;
     }
 
     public void addQuery(String subCriteria, String predCriteria, String objCriteria) {
         queryBuilder.addQuery(subCriteria, predCriteria, objCriteria);
+        subjects.add(subCriteria);
     }
 
     public void removeQuery(String subCriteria, String predCriteria, String objCriteria) {
         queryBuilder.removeQuery(subCriteria, predCriteria, objCriteria);
+        subjects.remove(subCriteria);
     }
 
     public ResultSet execute() {
@@ -63,20 +112,137 @@ public class QueryEndpoint {
         try {
             if(tripleSet != null) {
                 return queryBuilder.execOnTriples(tripleSet);
-            } else {
-                try {
-                    return queryBuilder.execOnStorage(tripleStorage);
-                } catch (SparqlEndpointException see) {
-                    throw new RuntimeException("Error while performing query.", see);
-                }
+            }
+            final TripleSet neighbourhood = prefetch ? getNeighbourhood() : null;
+            if(neighbourhood != null) {
+                localQueries++;
+                return queryBuilder.execOnTriples(neighbourhood);
+            }
+            remoteQueries++;
+            try {
+                return queryBuilder.execOnStorage(tripleStorage);
+            } catch (SparqlEndpointException see) {
+                throw new RuntimeException("Error while performing query.", see);
             }
         } finally {
             queryBuilder.clear();
+            subjects.clear();
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the endpoint works in <i>prefetch</i> mode.
+     */
+    public boolean isPrefetch() {
+        return prefetch;
+    }
+
+    /**
+     * @return the number of queries sent to the storage, prefetch queries included.
+     */
+    public int getRemoteQueryCount() {
+        return remoteQueries + prefetchQueries;
+    }
+
+    /**
+     * @return the number of queries answered by the prefetched triples.
+     */
+    public int getLocalQueryCount() {
+        return localQueries;
+    }
+
+    /**
+     * @return the number of queries that would have been sent to the storage without prefetching.
+     */
+    public int getSavedQueryCount() {
+        return localQueries - prefetchQueries;
+    }
+
+    /**
+     * Discards the prefetched triples.
+     */
+    public void clearPrefetched() {
+        neighbourhoods.clear();
+        remoteSubjects.clear();
+    }
+
+    /**
+     * Returns the neighbourhood answering the current query, prefetching it if needed.
+     *
+     * @return the neighbourhood containing the triples of every subject of the query,
+     *         <code>null</code> if the query must be sent to the storage.
+     */
+    private TripleSet getNeighbourhood() {
+        TripleSet result = null;
+        for(String subject : subjects) {
+            TripleSet neighbourhood = neighbourhoods.get(subject);
+            if(neighbourhood == null) {
+                // Variables and blank nodes outside the known neighbourhoods cannot be described.
+                if( subject.startsWith("?") || subject.startsWith("_:") || remoteSubjects.contains(subject) ) {
+                    return null;
+                }
+                neighbourhood = describe(subject);
+                if(neighbourhood == null) {
+                    return null;
+                }
+            }
+            if(result != null && result != neighbourhood) {
+                return null;
+            }
+            result = neighbourhood;
         }
+        return result;
+    }
+
+    /**
+     * Retrieves the neighbourhood of a subject and registers it for the subject and for the blank nodes
+     * it refers, as long as their triples have been received.
+     * Every neighbourhood is a distinct set never modified after creation,
+     * so that result sets still being consumed are not affected by further prefetches.
+     *
+     * @return the neighbourhood, <code>null</code> if no triple of the subject has been received.
+     */
+    private TripleSet describe(String subject) {
+        final TripleSet described;
+        try {
+            described = tripleStorage.getSparqlEndPoint().processDescribeQuery(
+                    String.format("DESCRIBE <%s>", subject)
+            );
+        } catch (SparqlEndpointException see) {
+            throw new RuntimeException("Error while prefetching subject " + subject, see);
+        }
+        prefetchQueries++;
+        final IndexedTripleSet neighbourhood = new IndexedTripleSet(described);
+        if( ! neighbourhood.patternIterator(subject, null, null, null).hasNext() ) {
+            remoteSubjects.add(subject);
+            return null;
+        }
+        neighbourhoods.put(subject, neighbourhood);
+        for(Triple triple : neighbourhood) {
+            final String bnode = triple.getObjectAsString();
+            if( ! triple.isObjectBNode() || neighbourhoods.containsKey(bnode) ) {
+                continue;
+            }
+            if( neighbourhood.patternIterator(bnode, null, null, null).hasNext() ) {
+                neighbourhoods.put(bnode, neighbourhood);
+                remoteSubjects.remove(bnode);
+            } else {
+                remoteSubjects.add(bnode);
+            }
+        }
+        return neighbourhood;
     }
 
     private static boolean logicalXOR(boolean x, boolean y) {
         return ((x || y) && !(x && y));
     }
 
+    @Override
+    public String toString() {
+        return String.format(
+                "%s[prefetch: %b, remote queries: %d, local queries: %d, saved queries: %d]",
+                getClass().getSimpleName(), prefetch, getRemoteQueryCount(), localQueries, getSavedQueryCount()
+        );
+    }
+
 }
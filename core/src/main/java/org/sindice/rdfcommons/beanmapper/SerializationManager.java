@@ -20,13 +20,19 @@ import org.sindice.rdfcommons.model.TripleBuffer;
 import org.sindice.rdfcommons.model.TripleSet;
 
 import java.lang.annotation.Annotation;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This class performs the <i>bean<i> to <i>RDF</i> conversion.
+ * <p>
+ * The serializer chosen for a class and its annotations is cached, the cache is
+ * discarded every time a serializer is added or removed.
+ * </p>
  *
  * @author Michele Mostarda ( mostarda@fbk.eu )
  * @version $Id$
@@ -57,27 +63,44 @@ public class SerializationManager {
 
     private static final Identifier NULL = new Identifier(BaseSerializer.NULL_VALUE, Identifier.Type.literal);
 
-    private List<CriteriaSerializer> serializers;
+    private final List<CriteriaSerializer> serializers;
+
+    private volatile ConcurrentMap<DispatchKey,Serializer> dispatchCache;
 
     public SerializationManager() {
-        serializers = new ArrayList<CriteriaSerializer>();
+        serializers   = new CopyOnWriteArrayList<CriteriaSerializer>();
+        dispatchCache = new ConcurrentHashMap<DispatchKey,Serializer>();
         configureDefaultSerializers();
     }
 
-    public boolean addSerializer(CriteriaSerializer serializer) {
+    public synchronized boolean addSerializer(CriteriaSerializer serializer) {
         if(serializer == null) {
             throw new NullPointerException("serializer cannot be null.");
         }
-        return serializers.add(serializer);
+        final boolean added = serializers.add(serializer);
+        // The cache is replaced after the list change, lookups still filling the old one are lost.
+        dispatchCache = new ConcurrentHashMap<DispatchKey,Serializer>();
+        return added;
     }
 
-    public boolean removeSerializer(Serializer serializer) {
-        return serializers.remove(serializer);
+    public synchronized boolean removeSerializer(Serializer serializer) {
+        final boolean removed = serializers.remove(serializer);
+        if(removed) {
+            dispatchCache = new ConcurrentHashMap<DispatchKey,Serializer>();
+        }
+        return removed;
     }
 
     public Serializer getSerializerFor(Class clazz, Annotation[] annotations) throws SerializationException {
+        final ConcurrentMap<DispatchKey,Serializer> cache = dispatchCache;
+        final DispatchKey key = new DispatchKey(clazz, annotations);
+        final Serializer cached = cache.get(key);
+        if(cached != null) {
+            return cached;
+        }
         for(CriteriaSerializer serializer : serializers) {
             if(serializer.acceptClass(clazz, annotations)) {
+                cache.put(key, serializer);
                 return serializer;
             }
         }
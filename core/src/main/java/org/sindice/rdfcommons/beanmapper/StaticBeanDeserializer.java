@@ -18,13 +18,8 @@ package org.sindice.rdfcommons.beanmapper;
 
 import org.sindice.rdfcommons.storage.ResultSet;
 import org.sindice.rdfcommons.beanmapper.annotations.Static;
-import org.apache.commons.beanutils.BeanMap;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
 
 /**
  * Static deserializer for a generic <i>Bean</i>.
@@ -39,7 +34,7 @@ public class StaticBeanDeserializer extends BaseDeserializer {
     }
 
     public Identifier getIdentifier(Class clazz, Annotation[] annotations) {
-        return new Identifier( getClassURL(clazz), Identifier.Type.resource );
+        return new Identifier( BeanDescriptor.getDescriptor(clazz).getClassURL(), Identifier.Type.resource );
     }
 
     public <T> T deserialize(
@@ -54,12 +49,13 @@ public class StaticBeanDeserializer extends BaseDeserializer {
             throw new IllegalArgumentException("for static deserialization the identifier is expected to be null.");
         }
 
-        final Identifier staticIdentifier = getIdentifier(clazz, annotations);
+        final BeanDescriptor descriptor = BeanDescriptor.getDescriptor(clazz);
+        final Identifier staticIdentifier = new Identifier( descriptor.getClassURL(), Identifier.Type.resource );
 
         // Create the bean instance.
         final T instance;
         try {
-            instance = clazz.newInstance();
+            instance = clazz.cast( descriptor.newInstance() );
         } catch (Exception e) {
             throw new DeserializationException(
                     String.format("Error while creating instance of class %s: defualt constructor required.", clazz)
@@ -67,23 +63,7 @@ public class StaticBeanDeserializer extends BaseDeserializer {
         }
         context.registerInstance(staticIdentifier, instance);
 
-        // Define the bean map.
-        final BeanMap beanMap = new BeanMap(instance);
-
-        // Extracts the class property URLs.
-        final Map<String,Method> propertyURLs = new HashMap<String,Method>();
-        final String classURL = getClassURL(clazz);
-        String propertyName;
-        Method propertyWriteMethod;
-        for (Map.Entry<String, Object> entry : (Set<Map.Entry<String, Object>>) beanMap.entrySet()) {
-            // Skipping self description.
-            if ("class".equals(entry.getKey())) {
-                continue;
-            }
-            propertyName = entry.getKey();
-            propertyWriteMethod = beanMap.getWriteMethod(propertyName);
-            propertyURLs.put(getPropertyURL(classURL, propertyName, propertyWriteMethod), propertyWriteMethod);
-        }
+        BeanDescriptor.BeanProperty writableProperty;
 
         // Retrieve the class triples.
         endPoint.addQuery( (String) staticIdentifier.getId(), "?prop", "?value" );
@@ -92,18 +72,18 @@ public class StaticBeanDeserializer extends BaseDeserializer {
         // Coupling object properties with actual ones.
         Object property;
         Object value;
-        Class propertyType;
+        Class<?> propertyType;
         while (rs.hasNext()) {
             property = rs.getVariableValue("?prop");
             value    = rs.getVariableValue("?value");
             rs.next();
 
-            propertyWriteMethod = propertyURLs.get(property);
-            if (propertyWriteMethod == null) {
+            writableProperty = property instanceof String ? descriptor.getWritableProperty( (String) property ) : null;
+            if (writableProperty == null) {
                 context.reportIssue(String.format("Cannot find write method for property URL %s", property));
                 continue;
             }
-            propertyType = propertyWriteMethod.getParameterTypes()[0];
+            propertyType = writableProperty.getType();
 
             // Deserializing recursively.
             Object deserialized = context.deserialize(
@@ -115,12 +95,12 @@ public class StaticBeanDeserializer extends BaseDeserializer {
             );
 
             try {
-                propertyWriteMethod.invoke(instance, deserialized);
+                writableProperty.write(instance, deserialized);
             } catch (Exception e) {
                 throw new DeserializationException(
                         String.format(
                                 "Error while invoking write method %s of instance %s on value %s[%s]",
-                                propertyWriteMethod,
+                                writableProperty.getWriteMethod(),
                                 instance,
                                 deserialized,
                                 deserialized.getClass()
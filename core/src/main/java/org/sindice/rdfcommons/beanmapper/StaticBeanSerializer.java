@@ -16,14 +16,10 @@
 
 package org.sindice.rdfcommons.beanmapper;
 
-import org.apache.commons.beanutils.BeanMap;
 import org.sindice.rdfcommons.model.TripleSet;
 import org.sindice.rdfcommons.beanmapper.annotations.Static;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
-import java.util.Map;
-import java.util.Set;
 
 import static org.sindice.rdfcommons.model.Triple.ObjectType;
 
@@ -46,40 +42,32 @@ public class StaticBeanSerializer extends BaseSerializer<Object> {
     public Identifier getIdentifier(
             SerializationContext context, Object bean, Annotation[] annotations, TripleSet buffer
     ) {
-        return new Identifier(getClassURL(bean.getClass()), Identifier.Type.resource);
+        return new Identifier(BeanDescriptor.getDescriptor( bean.getClass() ).getClassURL(), Identifier.Type.resource);
     }
 
     public Identifier serialize(SerializationContext context, Object bean, Annotation[] annotations,  TripleSet buffer)
     throws SerializationException {
         try {
-            BeanMap beanMap = new BeanMap(bean);
-            final String classURL = getClassURL( bean.getClass() );
-            for(Map.Entry<String,Object> entry : (Set<Map.Entry<String,Object>>) beanMap.entrySet() ) {
-
-                final String propertyName = entry.getKey();
-                final Method propertyReadMethod = beanMap.getReadMethod(propertyName);
-
-                // Skipping self description.
-                if( "class".equals(propertyName) ) {
-                    continue;
-                }
+            final BeanDescriptor descriptor = BeanDescriptor.getDescriptor( bean.getClass() );
+            final String classURL = descriptor.getClassURL();
+            for(BeanDescriptor.BeanProperty property : descriptor.getProperties()) {
                 // Skipping properties marked as ignored.
-                if( isIgnored(propertyReadMethod) ) {
+                if( property.isReadIgnored() ) {
                     continue;
                 }
 
-                Object propertyValue = entry.getValue();
+                Object propertyValue = property.read(bean);
 
                 Identifier identifierEntry = context.serialize(
                         context,
                         propertyValue,
-                        getAnnotations(propertyReadMethod),
+                        property.getReadAnnotations(),
                         buffer
                 );
 
                 buffer.addTriple(
                         classURL,
-                        getPropertyURL(classURL, propertyName, propertyReadMethod),
+                        property.getReadURL(),
                         identifierEntry.getId(),
                         identifierEntry.isLiteral() ? ObjectType.literal : ObjectType.uri
                 );
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.model;
+
+/**
+ * Strategy generating the identifiers of new blank nodes.
+ * Implementations must be thread safe and never return the same identifier twice.
+ *
+ * @see TripleImpl#setBNodeIdGenerator(BNodeIdGenerator)
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public interface BNodeIdGenerator {
+
+    /**
+     * @return a new unique blank node identifier.
+     */
+    String nextIdentifier();
+
+    /**
+     * @return <code>true</code> if the generated identifiers are <i>IRIs</i> and must be typed
+     *         as resources rather than blank nodes.
+     */
+    boolean isIRI();
+
+}
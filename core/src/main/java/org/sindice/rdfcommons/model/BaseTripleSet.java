@@ -0,0 +1,222 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.model;
+
+import org.sindice.rdfcommons.model.Triple.ObjectType;
+import org.sindice.rdfcommons.model.Triple.SubjectType;
+import org.sindice.rdfcommons.serialization.NQuadsEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Base class for {@link TripleSet} implementations.
+ * It maps all the convenience methods of the interface on a small set of
+ * primitive operations that every implementation must provide.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public abstract class BaseTripleSet implements TripleSet {
+
+    /**
+     * Checks whether a triple matches a pattern. Every <code>null</code> criteria matches any value.
+     *
+     * @param triple the triple to be checked.
+     * @param sub the subject criteria.
+     * @param pred the predicate criteria.
+     * @param obj the object criteria.
+     * @param subjectType the subject type criteria.
+     * @param objectType the object type criteria.
+     * @param graph the graph criteria.
+     * @return <code>true</code> if the triple matches the pattern, <code>false</code> otherwise.
+     */
+    protected static boolean matchPattern(
+            Triple triple,
+            String sub, String pred, Object obj,
+            SubjectType subjectType, ObjectType objectType, String graph
+    ) {
+        return (sub == null || sub.equals(triple.getSubject()))
+                &&
+                (subjectType == null || subjectType.equals(triple.getSubjectType()))
+                &&
+                (pred == null || pred.equals(triple.getPredicate()))
+                &&
+                (obj == null || obj.equals(triple.getObject()))
+                &&
+                (objectType == null || objectType.equals(triple.getObjectType()))
+                &&
+                (graph == null || graph.equals(triple.getGraph()));
+    }
+
+    public <O> void addTriple(String sub, String pred, O obj, String graph) {
+        internalAdd( new TripleImpl<O>(sub, pred, obj, graph) );
+    }
+
+    public <O> void addTriple(String sub, String pred, O obj) {
+        internalAdd( new TripleImpl<O>(sub, pred, obj) );
+    }
+
+    public <O> void addTriple(String sub, String pred, O obj, ObjectType objectType, String graph) {
+        internalAdd( new TripleImpl<O>(sub, pred, obj, objectType, graph) );
+    }
+
+    public <O> void addTriple(String sub, String pred, O obj, ObjectType objectType) {
+        internalAdd( new TripleImpl<O>(sub, pred, obj, objectType) );
+    }
+
+    public <O> void addTriple(
+            String sub, String pred, O obj, SubjectType subjectType, ObjectType objectType, String graph
+    ) {
+        internalAdd( new TripleImpl<O>(sub, pred, obj, subjectType, objectType, graph) );
+    }
+
+    public <O> void addTriple(
+            String sub, String pred, O obj,
+            SubjectType subjectType, ObjectType objectType
+    ) {
+        internalAdd( new TripleImpl<O>(sub, pred, obj, subjectType, objectType) );
+    }
+
+    public void addTriple(Triple triple) {
+        if(triple == null) {
+            throw new NullPointerException("triple cannot be null");
+        }
+        internalAdd(triple);
+    }
+
+    public void removeTriple(Triple triple) {
+        if(triple == null) {
+            throw new NullPointerException("triple cannot be null");
+        }
+        internalRemove(triple);
+    }
+
+    public <O> String addBNodeSubjectTriple(String pred, O obj, ObjectType objectType, String graph) {
+        Triple triple = TripleImpl.createBNodeSubjectTriple(pred, obj, objectType, graph);
+        internalAdd(triple);
+        return triple.getSubject();
+    }
+
+    public <O> String addBNodeSubjectTriple(String pred, O obj, ObjectType objectType) {
+        return addBNodeSubjectTriple(pred, obj, objectType, null);
+    }
+
+    public String addBNodeObjectTriple(String sub, String pred, SubjectType subjectType, String graph) {
+        Triple triple = TripleImpl.createBNodeObjectTriple(sub, pred, subjectType, graph);
+        internalAdd(triple);
+        return triple.getObjectAsString();
+    }
+
+    public String addBNodeObjectTriple(String sub, String pred, SubjectType subjectType) {
+        return addBNodeObjectTriple(sub, pred, subjectType, null);
+    }
+
+    public <O> void removeTriple(String sub, String pred, O obj, String graph) {
+        internalRemove( new TripleImpl<O>(sub, pred, obj, graph) );
+    }
+
+    public <O> void removeTriple(String sub, String pred, O obj) {
+        internalRemove( new TripleImpl<O>(sub, pred, obj) );
+    }
+
+    public <O> void removeTriple(String sub, String pred, O obj, ObjectType objectType) {
+        internalRemove( new TripleImpl<O>(sub, pred, obj, objectType) );
+    }
+
+    public <O> boolean containsTriple(String sub, String pred, O obj) {
+        return containsTriple(sub, pred, obj, SubjectType.uri, ObjectType.uri, null);
+    }
+
+    public <O> boolean containsTriple(String sub, String pred, O obj, ObjectType objectType) {
+        return containsTriple(sub, pred, obj, SubjectType.uri, objectType, null);
+    }
+
+    public <O> boolean containsTriple(
+            String sub, String pred, O obj,
+            SubjectType subjectType, ObjectType objectType
+    ) {
+        return containsTriple(sub, pred, obj, subjectType, objectType, null);
+    }
+
+    public <O> boolean containsTriplePattern(
+            String sub, String pred, O obj,
+            SubjectType subjectType, ObjectType objectType
+    ) {
+        return containsTriplePattern(sub, pred, obj, subjectType, objectType, null);
+    }
+
+    public <O> TripleSet getTriplesWithPattern(
+            String sub, String pred, O obj,
+            SubjectType subjectType, ObjectType objectType
+    ) {
+        return getTriplesWithPattern(sub, pred, obj, subjectType, objectType, null);
+    }
+
+    public void add(TripleSet ts) {
+        for(Triple triple : ts) {
+            addTriple(triple);
+        }
+    }
+
+    public void remove(TripleSet ts) {
+        for(Triple triple : ts) {
+            removeTriple(triple);
+        }
+    }
+
+    public TripleIterator tripleIterator() {
+        return new TripleIteratorImpl( iterator() );
+    }
+
+    public void toNQuads(PrintStream printStream) {
+        final NQuadsEncoder encoder = new NQuadsEncoder(printStream);
+        try {
+            for(Triple triple : this) {
+                encoder.writeQuad(triple);
+            }
+            encoder.flush();
+        } catch (IOException ioe) {
+            throw new RuntimeException("Error while writing N-Quads.", ioe);
+        }
+    }
+
+    @Override
+    public String toString() {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PrintStream ps = new PrintStream(baos);
+        toNQuads(ps);
+        ps.close();
+        return baos.toString();
+    }
+
+    /**
+     * Adds a triple to the set.
+     *
+     * @param triple the not <code>null</code> triple to be added.
+     */
+    protected abstract void internalAdd(Triple triple);
+
+    /**
+     * Removes a triple from the set.
+     *
+     * @param triple the not <code>null</code> triple to be removed.
+     */
+    protected abstract void internalRemove(Triple triple);
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link BNodeIdGenerator} producing short base 36 identifiers like <i>b1f3k2_9z</i>, made of
+ * a prefix unique for the generator instance and of a counter.
+ * <p>
+ * The counter is shared without locks: every thread reserves a range of values with a single
+ * atomic increment and then generates the identifiers of the range without any synchronization,
+ * so generation scales with the number of threads. Identifiers generated by different threads are
+ * unique but not ordered.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class CompactBNodeIdGenerator implements BNodeIdGenerator {
+
+    /**
+     * Default number of counter values reserved by a thread at once.
+     */
+    public static final int DEFAULT_RANGE_SIZE = 1024;
+
+    private static final int RADIX = 36;
+
+    private static final char[] DIGITS = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private final char[] prefix;
+
+    private final int rangeSize;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * Per thread range of reserved values: <code>{next, end}</code>.
+     */
+    private final ThreadLocal<long[]> range = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[]{0, 0};
+        }
+    };
+
+    /**
+     * Constructor.
+     *
+     * @param prefix prefix of the generated identifiers, must start with a letter.
+     * @param rangeSize number of counter values reserved by a thread at once.
+     */
+    public CompactBNodeIdGenerator(String prefix, int rangeSize) {
+        if(prefix == null) {
+            throw new NullPointerException("prefix cannot be null.");
+        }
+        if(prefix.length() == 0 || ! Character.isLetter( prefix.charAt(0) ) ) {
+            throw new IllegalArgumentException( String.format("Invalid prefix [%s]", prefix) );
+        }
+        if(rangeSize <= 0) {
+            throw new IllegalArgumentException("rangeSize must be greater than zero.");
+        }
+        this.prefix = prefix.toCharArray();
+        this.rangeSize = rangeSize;
+    }
+
+    /**
+     * Constructor, the prefix is derived from the current time and the range size is
+     * {@link #DEFAULT_RANGE_SIZE}.
+     */
+    public CompactBNodeIdGenerator() {
+        this( "b" + Long.toString( System.currentTimeMillis(), RADIX ) + "_", DEFAULT_RANGE_SIZE );
+    }
+
+    public String nextIdentifier() {
+        final long[] current = range.get();
+        if(current[0] == current[1]) {
+            current[0] = counter.getAndAdd(rangeSize);
+            current[1] = current[0] + rangeSize;
+        }
+        return encode( current[0]++ );
+    }
+
+    public boolean isIRI() {
+        return false;
+    }
+
+    /**
+     * Encodes a counter value appending its base 36 digits to the prefix, with a single allocation
+     * for the identifier characters.
+     *
+     * @param value the counter value.
+     * @return the identifier.
+     */
+    private String encode(long value) {
+        final char[] digits = new char[13];
+        int pos = digits.length;
+        do {
+            digits[--pos] = DIGITS[ (int) (value % RADIX) ];
+            value /= RADIX;
+        } while(value > 0);
+        final int length = digits.length - pos;
+        final char[] id = new char[prefix.length + length];
+        System.arraycopy(prefix, 0, id, 0, prefix.length);
+        System.arraycopy(digits, pos, id, prefix.length, length);
+        return new String(id);
+    }
+
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.model;
+
+import org.sindice.rdfcommons.model.Triple.ObjectType;
+import org.sindice.rdfcommons.model.Triple.SubjectType;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Compact {@link TripleSet} implementation storing every triple as a tuple of
+ * integer identifiers assigned by a {@link TermDictionary}.
+ * <p>
+ * Triples are kept in parallel primitive columns and deduplicated through an
+ * open addressing hash table over the identifiers, so equality checks are integer
+ * comparisons. {@link Triple} instances are materialized only when accessed,
+ * while {@link #tripleIterator()} decodes the terms directly from the columns.
+ * </p>
+ * <p>
+ * The dictionary can be shared among many sets, the results of the pattern methods
+ * share the dictionary of the originating set. Terms are never removed from the dictionary.
+ * Removing a triple moves the last triple of the set in the position of the removed one.
+ * Operations accepting a <code>null</code> graph for removal and containment checks
+ * act on the triple in any graph, consistently with {@link TripleImpl#equals(Object)}.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class DictionaryTripleSet extends BaseTripleSet {
+
+    private static final int NO_GRAPH = -1;
+
+    private static final int ANY = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final SubjectType[] SUBJECT_TYPES = SubjectType.values();
+    private static final ObjectType[]  OBJECT_TYPES  = ObjectType.values();
+
+    private final TermDictionary dictionary;
+
+    private int[]  subjects;
+    private int[]  predicates;
+    private int[]  objects;
+    private int[]  graphs;
+    private byte[] types;
+
+    private int size;
+
+    /**
+     * Number of triples declaring a graph.
+     */
+    private int graphTriples;
+
+    /**
+     * Open addressing table containing <i>row + 1</i>, <code>0</code> marks an empty slot.
+     */
+    private int[] table;
+
+    public DictionaryTripleSet(TermDictionary dictionary) {
+        if(dictionary == null) {
+            throw new NullPointerException("dictionary cannot be null.");
+        }
+        this.dictionary = dictionary;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    public DictionaryTripleSet() {
+        this( new TermDictionary() );
+    }
+
+    public DictionaryTripleSet(TripleSet ts) {
+        this();
+        add(ts);
+    }
+
+    /**
+     * @return the dictionary used to encode the terms of this set.
+     */
+    public TermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public <O> boolean containsTriple(
+            String sub, String pred, O obj, SubjectType subjectType, ObjectType objectType, String graph
+    ) {
+        if(subjectType == null || objectType == null) {
+            return containsTriplePattern(sub, pred, obj, subjectType, objectType, graph);
+        }
+        final int s = dictionary.lookup(sub);
+        final int p = dictionary.lookup(pred);
+        final int o = dictionary.lookup(obj);
+        if(s == TermDictionary.NOT_FOUND || p == TermDictionary.NOT_FOUND || o == TermDictionary.NOT_FOUND) {
+            return false;
+        }
+        final byte t = encodeTypes(subjectType, objectType);
+        if(graph != null) {
+            final int g = dictionary.lookup(graph);
+            return g != TermDictionary.NOT_FOUND && findRow(s, p, o, g, t) >= 0;
+        }
+        return findRow(s, p, o, NO_GRAPH, t) >= 0 || (graphTriples > 0 && scanRow(s, p, o, t) >= 0);
+    }
+
+    public <O> boolean containsTriplePattern(
+            String sub, String pred, O obj, SubjectType subjectType, ObjectType objectType, String graph
+    ) {
+        final int[] pattern = encodePattern(sub, pred, obj, graph);
+        if(pattern == null) {
+            return false;
+        }
+        for(int row = 0; row < size; row++) {
+            if( matchRow(row, pattern, subjectType, objectType) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public <O> TripleSet getTriplesWithPattern(
+            String sub, String pred, O obj, SubjectType subjectType, ObjectType objectType, String graph
+    ) {
+        final DictionaryTripleSet result = new DictionaryTripleSet(dictionary);
+        final int[] pattern = encodePattern(sub, pred, obj, graph);
+        if(pattern == null) {
+            return result;
+        }
+        for(int row = 0; row < size; row++) {
+            if( matchRow(row, pattern, subjectType, objectType) ) {
+                result.addRow(subjects[row], predicates[row], objects[row], graphs[row], types[row]);
+            }
+        }
+        return result;
+    }
+
+    public Triple getTriple(int i) {
+        if(i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException( String.format("Invalid index %d, size %d", i, size) );
+        }
+        return materialize(i);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+        graphTriples = 0;
+        Arrays.fill(table, 0);
+    }
+
+    public Iterator<Triple> iterator() {
+        return getTriples().iterator();
+    }
+
+    public TripleIterator tripleIterator() {
+        return new DictionaryTripleIterator();
+    }
+
+    public List<Triple> getTriples() {
+        return new AbstractList<Triple>() {
+            @Override
+            public Triple get(int i) {
+                return getTriple(i);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public TripleSet getTriples(TripleFilter filter) {
+        final DictionaryTripleSet result = new DictionaryTripleSet(dictionary);
+        for(int row = 0; row < size; row++) {
+            if( filter.acceptTriple( materialize(row) ) ) {
+                result.addRow(subjects[row], predicates[row], objects[row], graphs[row], types[row]);
+            }
+        }
+        return result;
+    }
+
+    protected void internalAdd(Triple triple) {
+        addRow(
+                dictionary.encode( triple.getSubject()   ),
+                dictionary.encode( triple.getPredicate() ),
+                dictionary.encode( triple.getObject()    ),
+                triple.getGraph() == null ? NO_GRAPH : dictionary.encode( triple.getGraph() ),
+                encodeTypes( triple.getSubjectType(), triple.getObjectType() )
+        );
+    }
+
+    protected void internalRemove(Triple triple) {
+        final int s = dictionary.lookup( triple.getSubject()   );
+        final int p = dictionary.lookup( triple.getPredicate() );
+        final int o = dictionary.lookup( triple.getObject()    );
+        if(s == TermDictionary.NOT_FOUND || p == TermDictionary.NOT_FOUND || o == TermDictionary.NOT_FOUND) {
+            return;
+        }
+        final byte t = encodeTypes( triple.getSubjectType(), triple.getObjectType() );
+        if(triple.getGraph() != null) {
+            final int g = dictionary.lookup( triple.getGraph() );
+            if(g != TermDictionary.NOT_FOUND) {
+                removeRow( findRow(s, p, o, g, t) );
+            }
+            return;
+        }
+        removeRow( findRow(s, p, o, NO_GRAPH, t) );
+        int row;
+        while(graphTriples > 0 && (row = scanRow(s, p, o, t)) >= 0) {
+            removeRow(row);
+        }
+    }
+
+    private static byte encodeTypes(SubjectType subjectType, ObjectType objectType) {
+        return (byte) (subjectType.ordinal() << 2 | objectType.ordinal());
+    }
+
+    private static int hash(int s, int p, int o, int g, byte t) {
+        int h = s;
+        h = h * 0x9E3779B1 + p;
+        h = h * 0x9E3779B1 + o;
+        h = h * 0x9E3779B1 + g;
+        h = h * 0x9E3779B1 + t;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Encodes the bound positions of a pattern, unbound positions are mapped to {@link #ANY}.
+     *
+     * @return the encoded pattern or <code>null</code> if a bound term is unknown.
+     */
+    private int[] encodePattern(String sub, String pred, Object obj, String graph) {
+        final int[] pattern = new int[4];
+        final Object[] terms = new Object[]{sub, pred, obj, graph};
+        for(int i = 0; i < terms.length; i++) {
+            if(terms[i] == null) {
+                pattern[i] = ANY;
+                continue;
+            }
+            pattern[i] = dictionary.lookup(terms[i]);
+            if(pattern[i] == TermDictionary.NOT_FOUND) {
+                return null;
+            }
+        }
+        return pattern;
+    }
+
+    private boolean matchRow(int row, int[] pattern, SubjectType subjectType, ObjectType objectType) {
+        return
+                (pattern[0] == ANY || pattern[0] == subjects[row])
+                        &&
+                (pattern[1] == ANY || pattern[1] == predicates[row])
+                        &&
+                (pattern[2] == ANY || pattern[2] == objects[row])
+                        &&
+                (pattern[3] == ANY || pattern[3] == graphs[row])
+                        &&
+                (subjectType == null || subjectType.ordinal() == types[row] >> 2)
+                        &&
+                (objectType  == null || objectType.ordinal()  == (types[row] & 3));
+    }
+
+    private Triple materialize(int row) {
+        final byte t = types[row];
+        return new TripleImpl<Object>(
+                (String) dictionary.decode( subjects[row]   ),
+                (String) dictionary.decode( predicates[row] ),
+                dictionary.decode( objects[row] ),
+                SUBJECT_TYPES[t >> 2],
+                OBJECT_TYPES[t & 3],
+                graphs[row] == NO_GRAPH ? null : (String) dictionary.decode( graphs[row] )
+        );
+    }
+
+    private void allocate(int capacity) {
+        subjects   = new int[capacity];
+        predicates = new int[capacity];
+        objects    = new int[capacity];
+        graphs     = new int[capacity];
+        types      = new byte[capacity];
+        table      = new int[capacity * 2];
+    }
+
+    private void addRow(int s, int p, int o, int g, byte t) {
+        if(findRow(s, p, o, g, t) >= 0) {
+            return;
+        }
+        if(size == subjects.length) {
+            grow();
+        }
+        subjects[size]   = s;
+        predicates[size] = p;
+        objects[size]    = o;
+        graphs[size]     = g;
+        types[size]      = t;
+        insertSlot(size);
+        if(g != NO_GRAPH) {
+            graphTriples++;
+        }
+        size++;
+    }
+
+    private void grow() {
+        final int capacity = subjects.length * 2;
+        subjects   = Arrays.copyOf(subjects  , capacity);
+        predicates = Arrays.copyOf(predicates, capacity);
+        objects    = Arrays.copyOf(objects   , capacity);
+        graphs     = Arrays.copyOf(graphs    , capacity);
+        types      = Arrays.copyOf(types     , capacity);
+        table = new int[capacity * 2];
+        for(int row = 0; row < size; row++) {
+            insertSlot(row);
+        }
+    }
+
+    private int rowHash(int row) {
+        return hash(subjects[row], predicates[row], objects[row], graphs[row], types[row]);
+    }
+
+    private void insertSlot(int row) {
+        final int mask = table.length - 1;
+        int i = rowHash(row) & mask;
+        while(table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = row + 1;
+    }
+
+    private int findSlot(int row) {
+        final int mask = table.length - 1;
+        int i = rowHash(row) & mask;
+        while(table[i] != row + 1) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private int findRow(int s, int p, int o, int g, byte t) {
+        final int mask = table.length - 1;
+        int i = hash(s, p, o, g, t) & mask;
+        int row;
+        while(table[i] != 0) {
+            row = table[i] - 1;
+            if(
+                    subjects[row] == s && predicates[row] == p && objects[row] == o
+                            &&
+                    graphs[row] == g && types[row] == t
+            ) {
+                return row;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the first row matching the triple in any graph.
+     */
+    private int scanRow(int s, int p, int o, byte t) {
+        for(int row = 0; row < size; row++) {
+            if(subjects[row] == s && predicates[row] == p && objects[row] == o && types[row] == t) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private void removeRow(int row) {
+        if(row < 0) {
+            return;
+        }
+        deleteSlot( findSlot(row) );
+        if(graphs[row] != NO_GRAPH) {
+            graphTriples--;
+        }
+        final int last = size - 1;
+        if(row != last) {
+            table[ findSlot(last) ] = row + 1;
+            subjects[row]   = subjects[last];
+            predicates[row] = predicates[last];
+            objects[row]    = objects[last];
+            graphs[row]     = graphs[last];
+            types[row]      = types[last];
+        }
+        size--;
+    }
+
+    /**
+     * Deletes a slot of the linear probing table shifting back the following entries.
+     */
+    private void deleteSlot(int slot) {
+        final int mask = table.length - 1;
+        int i = slot;
+        int j = slot;
+        table[i] = 0;
+        while(true) {
+            j = (j + 1) & mask;
+            if(table[j] == 0) {
+                return;
+            }
+            final int k = rowHash(table[j] - 1) & mask;
+            final boolean inRange = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+            if(inRange) {
+                continue;
+            }
+            table[i] = table[j];
+            table[j] = 0;
+            i = j;
+        }
+    }
+
+    /**
+     * {@link TripleIterator} decoding the terms directly from the columns.
+     */
+    class DictionaryTripleIterator implements TripleIterator {
+
+        private int row = -1;
+
+        public boolean hasNext() {
+            return row + 1 < size;
+        }
+
+        public void next() {
+            row++;
+        }
+
+        public String subject() {
+            return (String) dictionary.decode( subjects[row] );
+        }
+
+        public String predicate() {
+            return (String) dictionary.decode( predicates[row] );
+        }
+
+        public Object object() {
+            return dictionary.decode( objects[row] );
+        }
+
+        public String objectStr() {
+            final Object object = object();
+            return object instanceof String ? (String) object : materialize(row).getObjectAsString();
+        }
+
+        public boolean isBlankSubject() {
+            return types[row] >> 2 == SubjectType.bnode.ordinal();
+        }
+
+        public boolean isBlankObject() {
+            return (types[row] & 3) == ObjectType.bnode.ordinal();
+        }
+
+        public boolean isObjLiteral() {
+            return (types[row] & 3) == ObjectType.literal.ordinal();
+        }
+    }
+
+}
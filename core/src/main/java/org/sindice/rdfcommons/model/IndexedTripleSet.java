@@ -0,0 +1,418 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.model;
+
+import org.sindice.rdfcommons.model.Triple.ObjectType;
+import org.sindice.rdfcommons.model.Triple.SubjectType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * {@link TripleSet} implementation keeping a hash index for every triple position
+ * (subject, predicate, object and graph).
+ * <p>
+ * Differently from {@link TripleBuffer} this set has <i>set semantics</i>:
+ * a triple is contained at most once for every graph, additions and removals
+ * cost <i>O(1)</i> and pattern lookups with at least one bound position
+ * cost proportionally to the smallest index entry involved in the pattern.
+ * </p>
+ * <p>
+ * Removing a triple moves the last triple of the set in the position of the removed one,
+ * so the order returned by {@link #getTriple(int)} is the insertion order only until the
+ * first removal.
+ * </p>
+ * <p>
+ * Operations accepting a <code>null</code> graph (or a triple without graph) for removal
+ * and containment checks act on the triple in any graph, consistently with
+ * {@link TripleImpl#equals(Object)}.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class IndexedTripleSet extends BaseTripleSet {
+
+    private final List<Triple> triples;
+
+    private final Map<QuadKey,Integer> positions;
+
+    private final Map<String,Set<QuadKey>> subjectIndex;
+    private final Map<String,Set<QuadKey>> predicateIndex;
+    private final Map<Object,Set<QuadKey>> objectIndex;
+    private final Map<String,Set<QuadKey>> graphIndex;
+
+    public IndexedTripleSet() {
+        triples        = new ArrayList<Triple>();
+        positions      = new HashMap<QuadKey,Integer>();
+        subjectIndex   = new HashMap<String,Set<QuadKey>>();
+        predicateIndex = new HashMap<String,Set<QuadKey>>();
+        objectIndex    = new HashMap<Object,Set<QuadKey>>();
+        graphIndex     = new HashMap<String,Set<QuadKey>>();
+    }
+
+    public IndexedTripleSet(Collection<Triple> triplesList) {
+        this();
+        for(Triple triple : triplesList) {
+            addTriple(triple);
+        }
+    }
+
+    public IndexedTripleSet(TripleSet ts) {
+        this();
+        add(ts);
+    }
+
+    public IndexedTripleSet(Triple... triples) {
+        this();
+        for(Triple triple : triples) {
+            addTriple(triple);
+        }
+    }
+
+    /**
+     * Checks whether the exact triple, graph included, is contained in this set.
+     *
+     * @param triple the triple to be checked.
+     * @return <code>true</code> if contained, <code>false</code> otherwise.
+     */
+    public boolean containsTriple(Triple triple) {
+        if(triple.getGraph() != null) {
+            return positions.containsKey( new QuadKey(triple) );
+        }
+        return containsTriplePattern(
+                triple.getSubject(), triple.getPredicate(), triple.getObject(),
+                triple.getSubjectType(), triple.getObjectType(), null
+        );
+    }
+
+    public <O> boolean containsTriple(
+            String sub, String pred, O obj, SubjectType subjectType, ObjectType objectType, String graph
+    ) {
+        if(graph != null && subjectType != null && objectType != null) {
+            return positions.containsKey(
+                    new QuadKey( new TripleImpl<O>(sub, pred, obj, subjectType, objectType, graph) )
+            );
+        }
+        return containsTriplePattern(sub, pred, obj, subjectType, objectType, graph);
+    }
+
+    public <O> boolean containsTriplePattern(
+            String sub, String pred, O obj, SubjectType subjectType, ObjectType objectType, String graph
+    ) {
+        final Collection<QuadKey> candidates = findCandidates(sub, pred, obj, graph);
+        if(candidates == null) {
+            for(Triple triple : triples) {
+                if(matchPattern(triple, sub, pred, obj, subjectType, objectType, graph)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for(QuadKey candidate : candidates) {
+            if(matchPattern(candidate.triple, sub, pred, obj, subjectType, objectType, graph)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public <O> TripleSet getTriplesWithPattern(
+            String sub, String pred, O obj, SubjectType subjectType, ObjectType objectType, String graph
+    ) {
+        final List<Triple> result = new ArrayList<Triple>();
+        final Collection<QuadKey> candidates = findCandidates(sub, pred, obj, graph);
+        if(candidates == null) {
+            for(Triple triple : triples) {
+                if(matchPattern(triple, sub, pred, obj, subjectType, objectType, graph)) {
+                    result.add(triple);
+                }
+            }
+        } else {
+            for(QuadKey candidate : candidates) {
+                if(matchPattern(candidate.triple, sub, pred, obj, subjectType, objectType, graph)) {
+                    result.add(candidate.triple);
+                }
+            }
+        }
+        // The matches are distinct, a buffer avoids indexing them again.
+        return new TripleBuffer(result);
+    }
+
+    /**
+     * Returns the number of triples matching the given pattern without materializing them.
+     *
+     * @param sub the triple subject, if <code>null</code> matches any value.
+     * @param pred the triple predicate, if <code>null</code> matches any value.
+     * @param obj the triple object, if <code>null</code> matches any value.
+     * @param graph the triple graph, if <code>null</code> matches any value.
+     * @return the upper bound of the triples matching the pattern.
+     */
+    public int estimatePatternSize(String sub, String pred, Object obj, String graph) {
+        final Collection<QuadKey> candidates = findCandidates(sub, pred, obj, graph);
+        return candidates == null ? triples.size() : candidates.size();
+    }
+
+    /**
+     * Returns the triples matching the given pattern one at a time, without materializing them.
+     * The set must not be modified while iterating.
+     *
+     * @param sub the triple subject, if <code>null</code> matches any value.
+     * @param pred the triple predicate, if <code>null</code> matches any value.
+     * @param obj the triple object, if <code>null</code> matches any value.
+     * @param graph the triple graph, if <code>null</code> matches any value.
+     * @return the iterator over the matching triples.
+     */
+    public Iterator<Triple> patternIterator(
+            final String sub, final String pred, final Object obj, final String graph
+    ) {
+        final Collection<QuadKey> candidates = findCandidates(sub, pred, obj, graph);
+        final Iterator<Triple> all = candidates == null ? triples.iterator() : null;
+        final Iterator<QuadKey> indexed = candidates == null ? null : candidates.iterator();
+        return new Iterator<Triple>() {
+
+            private Triple next;
+
+            public boolean hasNext() {
+                while(next == null) {
+                    final Triple candidate;
+                    if(all != null) {
+                        if( ! all.hasNext() ) {
+                            return false;
+                        }
+                        candidate = all.next();
+                    } else {
+                        if( ! indexed.hasNext() ) {
+                            return false;
+                        }
+                        candidate = indexed.next().triple;
+                    }
+                    if( matchPattern(candidate, sub, pred, obj, null, null, graph) ) {
+                        next = candidate;
+                    }
+                }
+                return true;
+            }
+
+            public Triple next() {
+                if( ! hasNext() ) {
+                    throw new NoSuchElementException();
+                }
+                final Triple result = next;
+                next = null;
+                return result;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    public Triple getTriple(int i) {
+        return triples.get(i);
+    }
+
+    public int getSize() {
+        return triples.size();
+    }
+
+    public void clear() {
+        triples.clear();
+        positions.clear();
+        subjectIndex.clear();
+        predicateIndex.clear();
+        objectIndex.clear();
+        graphIndex.clear();
+    }
+
+    public Iterator<Triple> iterator() {
+        return getTriples().iterator();
+    }
+
+    public List<Triple> getTriples() {
+        return Collections.unmodifiableList(triples);
+    }
+
+    public TripleSet getTriples(TripleFilter filter) {
+        final IndexedTripleSet result = new IndexedTripleSet();
+        for(Triple triple : triples) {
+            if( filter.acceptTriple(triple) ) {
+                result.internalAdd(triple);
+            }
+        }
+        return result;
+    }
+
+    protected void internalAdd(Triple triple) {
+        final QuadKey key = new QuadKey(triple);
+        if(positions.containsKey(key)) {
+            return;
+        }
+        positions.put(key, triples.size());
+        triples.add(triple);
+        addToIndex(subjectIndex  , triple.getSubject()  , key);
+        addToIndex(predicateIndex, triple.getPredicate(), key);
+        addToIndex(objectIndex   , triple.getObject()   , key);
+        addToIndex(graphIndex    , triple.getGraph()    , key);
+    }
+
+    protected void internalRemove(Triple triple) {
+        if(triple.getGraph() != null) {
+            removeKey( new QuadKey(triple) );
+            return;
+        }
+        final Set<QuadKey> candidates = subjectIndex.get( triple.getSubject() );
+        if(candidates == null) {
+            return;
+        }
+        final List<QuadKey> toBeRemoved = new ArrayList<QuadKey>();
+        for(QuadKey candidate : candidates) {
+            if( triple.equals(candidate.triple) ) {
+                toBeRemoved.add(candidate);
+            }
+        }
+        for(QuadKey key : toBeRemoved) {
+            removeKey(key);
+        }
+    }
+
+    private void removeKey(QuadKey key) {
+        final Integer position = positions.remove(key);
+        if(position == null) {
+            return;
+        }
+        final Triple removed = triples.get(position);
+        final int last = triples.size() - 1;
+        if(position != last) {
+            final Triple moved = triples.get(last);
+            triples.set(position, moved);
+            positions.put(new QuadKey(moved), position);
+        }
+        triples.remove(last);
+        removeFromIndex(subjectIndex  , removed.getSubject()  , key);
+        removeFromIndex(predicateIndex, removed.getPredicate(), key);
+        removeFromIndex(objectIndex   , removed.getObject()   , key);
+        removeFromIndex(graphIndex    , removed.getGraph()    , key);
+    }
+
+    /**
+     * Returns the smallest index entry among the bound positions of a pattern.
+     *
+     * @return the candidate triples, <code>null</code> if no position is bound.
+     */
+    private Collection<QuadKey> findCandidates(String sub, String pred, Object obj, String graph) {
+        Collection<QuadKey> best = null;
+        if(sub != null) {
+            best = smallest(best, subjectIndex.get(sub));
+        }
+        if(pred != null) {
+            best = smallest(best, predicateIndex.get(pred));
+        }
+        if(obj != null) {
+            best = smallest(best, objectIndex.get(obj));
+        }
+        if(graph != null) {
+            best = smallest(best, graphIndex.get(graph));
+        }
+        return best;
+    }
+
+    private Collection<QuadKey> smallest(Collection<QuadKey> current, Set<QuadKey> candidate) {
+        if(candidate == null) {
+            return Collections.emptySet();
+        }
+        if(current == null || candidate.size() < current.size()) {
+            return candidate;
+        }
+        return current;
+    }
+
+    private <K> void addToIndex(Map<K,Set<QuadKey>> index, K value, QuadKey key) {
+        Set<QuadKey> entry = index.get(value);
+        if(entry == null) {
+            entry = new LinkedHashSet<QuadKey>();
+            index.put(value, entry);
+        }
+        entry.add(key);
+    }
+
+    private <K> void removeFromIndex(Map<K,Set<QuadKey>> index, K value, QuadKey key) {
+        final Set<QuadKey> entry = index.get(value);
+        if(entry == null) {
+            return;
+        }
+        entry.remove(key);
+        if(entry.isEmpty()) {
+            index.remove(value);
+        }
+    }
+
+    /**
+     * Identifies a triple inside a graph, since {@link TripleImpl#equals(Object)} ignores the graph.
+     */
+    static class QuadKey {
+
+        final Triple triple;
+
+        private final int hash;
+
+        QuadKey(Triple triple) {
+            this.triple = triple;
+            int h = triple.getSubject().hashCode();
+            h = 31 * h + triple.getPredicate().hashCode();
+            h = 31 * h + triple.getObject().hashCode();
+            h = 31 * h + triple.getSubjectType().ordinal();
+            h = 31 * h + triple.getObjectType().ordinal();
+            h = 31 * h + (triple.getGraph() == null ? 0 : triple.getGraph().hashCode());
+            hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(o == this) {
+                return true;
+            }
+            if(! (o instanceof QuadKey)) {
+                return false;
+            }
+            final QuadKey other = (QuadKey) o;
+            if(hash != other.hash) {
+                return false;
+            }
+            final String graph = triple.getGraph();
+            return
+                    (graph == null ? other.triple.getGraph() == null : graph.equals(other.triple.getGraph()))
+                            &&
+                    triple.equals(other.triple);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.model;
+
+/**
+ * {@link BNodeIdGenerator} producing <i>skolem IRIs</i> like
+ * <i>http://example.org/.well-known/genid/b1f3k2_9z</i>, globally unique identifiers that can
+ * replace blank nodes when the data is exchanged among different stores.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class SkolemBNodeIdGenerator implements BNodeIdGenerator {
+
+    /**
+     * Path of the skolem IRIs.
+     */
+    public static final String GENID_PATH = "/.well-known/genid/";
+
+    private final String base;
+
+    private final BNodeIdGenerator local;
+
+    /**
+     * Constructor.
+     *
+     * @param authority the IRI authority, like <i>http://example.org</i>.
+     * @param local generator of the local part of the IRIs.
+     */
+    public SkolemBNodeIdGenerator(String authority, BNodeIdGenerator local) {
+        if(authority == null) {
+            throw new NullPointerException("authority cannot be null.");
+        }
+        if(local == null) {
+            throw new NullPointerException("local cannot be null.");
+        }
+        this.base  = authority.endsWith("/")
+                ? authority.substring(0, authority.length() - 1) + GENID_PATH
+                : authority + GENID_PATH;
+        this.local = local;
+    }
+
+    /**
+     * Constructor, the local parts are generated by a {@link CompactBNodeIdGenerator}.
+     *
+     * @param authority the IRI authority.
+     */
+    public SkolemBNodeIdGenerator(String authority) {
+        this( authority, new CompactBNodeIdGenerator() );
+    }
+
+    /**
+     * @return the common prefix of the generated IRIs.
+     */
+    public String getBase() {
+        return base;
+    }
+
+    public String nextIdentifier() {
+        return base.concat( local.nextIdentifier() );
+    }
+
+    /**
+     * @return always <code>true</code>, skolem identifiers are <i>IRIs</i>.
+     */
+    public boolean isIRI() {
+        return true;
+    }
+
+}
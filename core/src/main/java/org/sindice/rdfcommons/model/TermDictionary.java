@@ -0,0 +1,101 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bidirectional dictionary mapping the terms of a triple
+ * (<i>URI</i>s, blank node identifiers and literal objects) to dense integer identifiers.
+ * Identifiers are assigned incrementally starting from <code>0</code> and never reused.
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @see DictionaryTripleSet
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class TermDictionary {
+
+    /**
+     * Identifier returned for terms not present in the dictionary.
+     */
+    public static final int NOT_FOUND = -1;
+
+    private final Map<Object,Integer> termToId;
+
+    private final List<Object> idToTerm;
+
+    public TermDictionary() {
+        termToId = new HashMap<Object,Integer>();
+        idToTerm = new ArrayList<Object>();
+    }
+
+    /**
+     * Returns the identifier of a term, adding it to the dictionary if needed.
+     *
+     * @param term the term to be encoded.
+     * @return the term identifier.
+     */
+    public int encode(Object term) {
+        if(term == null) {
+            throw new NullPointerException("term cannot be null.");
+        }
+        final Integer id = termToId.get(term);
+        if(id != null) {
+            return id;
+        }
+        final int newId = idToTerm.size();
+        idToTerm.add(term);
+        termToId.put(term, newId);
+        return newId;
+    }
+
+    /**
+     * Returns the identifier of a term without modifying the dictionary.
+     *
+     * @param term the term to be looked up.
+     * @return the term identifier or {@link #NOT_FOUND} if the term is unknown.
+     */
+    public int lookup(Object term) {
+        final Integer id = termToId.get(term);
+        return id == null ? NOT_FOUND : id;
+    }
+
+    /**
+     * Returns the term associated to an identifier.
+     *
+     * @param id a valid identifier.
+     * @return the associated term.
+     * @throws IndexOutOfBoundsException if the identifier is not defined.
+     */
+    public Object decode(int id) {
+        return idToTerm.get(id);
+    }
+
+    /**
+     * @return the number of terms in the dictionary.
+     */
+    public int size() {
+        return idToTerm.size();
+    }
+
+}
@@ -19,8 +19,6 @@ package org.sindice.rdfcommons.model;
 import org.sindice.rdfcommons.model.Triple.ObjectType;
 import org.sindice.rdfcommons.model.Triple.SubjectType;
 
-import java.io.ByteArrayOutputStream;
-import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -33,7 +31,7 @@ import java.util.List;
  * @author Michele Mostarda ( mostarda@fbk.eu )
  * @version $Id$
  */
-public class TripleBuffer implements TripleSet {
+public class TripleBuffer extends BaseTripleSet {
 
     private final List<Triple> triples;
 
@@ -53,100 +51,13 @@ public class TripleBuffer implements TripleSet {
         this( Arrays.asList(triples) );
     }
 
-    public <O> void addTriple(String sub, String pred, O obj, String graph) {
-        internalAdd( new TripleImpl<O>(sub, pred, obj, graph) );
-    }
-
-    public <O> void addTriple(String sub, String pred, O obj) {
-        internalAdd( new TripleImpl<O>(sub, pred, obj) );
-    }
-
-    public <O> void addTriple(String sub, String pred, O obj, ObjectType objectType, String graph) {
-        internalAdd( new TripleImpl<O>(sub, pred, obj, objectType, graph) );
-    }
-
-    public <O> void addTriple(String sub, String pred, O obj, ObjectType objectType) {
-        internalAdd( new TripleImpl<O>(sub, pred, obj, objectType) );
-    }
-
-    public <O> void addTriple(
-            String sub, String pred, O obj, SubjectType subjectType, ObjectType objectType, String graph
-    ) {
-        internalAdd( new TripleImpl<O>(sub, pred, obj, objectType, graph) );
-    }
-
-    public <O> void addTriple(
-            String sub, String pred, O obj,
-            SubjectType subjectType, ObjectType objectType
-    ) {
-        internalAdd( new TripleImpl<O>(sub, pred, obj, subjectType, objectType) );
-    }
-
-    public void addTriple(Triple triple) {
-        if(triple == null) {
-            throw new NullPointerException("triple cannot be null");
-        }
-        internalAdd(triple);
-    }
-
-    public void removeTriple(Triple triple) {
-        if(triple == null) {
-            throw new NullPointerException("triple cannot be null");
-        }
-        internalRemove(triple);
-    }
-
-    public <O> String addBNodeSubjectTriple(String pred, O obj, ObjectType objectType, String graph) {
-        Triple triple = TripleImpl.createBNodeSubjectTriple(pred, obj, objectType, graph);
-        internalAdd(triple);
-        return triple.getSubject();
-    }
-
-    public <O> String addBNodeSubjectTriple(String pred, O obj, ObjectType objectType) {
-        return addBNodeSubjectTriple(pred, obj, objectType, null);
-    }
-
-    public String addBNodeObjectTriple(String sub, String pred, SubjectType subjectType, String graph) {
-         Triple triple = TripleImpl.createBNodeObjectTriple(sub, pred, subjectType, graph);
-        internalAdd(triple);
-        return triple.getObjectAsString();
-    }
-
-    public String addBNodeObjectTriple(String sub, String pred, SubjectType subjectType) {
-        return addBNodeObjectTriple(sub, pred, subjectType, null);
-    }
-
-    public <O> void removeTriple(String sub, String pred, O obj, String graph) {
-        triples.remove( new TripleImpl<O>(sub, pred, obj, graph)  );
-    }
-
-    public <O> void removeTriple(String sub, String pred, O obj) {
-        triples.remove( new TripleImpl<O>(sub, pred, obj)  );
-    }
-
-    public <O> void removeTriple(String sub, String pred, O obj, ObjectType objectType) {
-        triples.remove( new TripleImpl<O>(sub, pred, obj, objectType)  );
-    }
-
     public <O> boolean containsTriple(
             String sub, String pred, O obj, SubjectType subjectType, ObjectType objectType, String graph
     ) {
-        return triples.contains( new TripleImpl<O>(sub, pred, obj, objectType) );
-    }
-
-    public <O> boolean containsTriple(String sub, String pred, O obj) {
-        return triples.contains( new TripleImpl<O>(sub, pred, obj) );
-    }
-
-    public <O> boolean containsTriple(String sub, String pred, O obj, ObjectType objectType) {
-        return triples.contains( new TripleImpl<O>(sub, pred, obj, objectType)  );
-    }
-
-    public <O> boolean containsTriple(
-            String sub, String pred, O obj,
-            SubjectType subjectType, ObjectType objectType
-    ) {
-        return triples.contains( new TripleImpl<O>(sub, pred, obj, subjectType, objectType) );
+        if(subjectType == null || objectType == null) {
+            return containsTriplePattern(sub, pred, obj, subjectType, objectType, graph);
+        }
+        return triples.contains( new TripleImpl<O>(sub, pred, obj, subjectType, objectType, graph) );
     }
 
     public <O> boolean containsTriplePattern(
@@ -160,13 +71,6 @@ public class TripleBuffer implements TripleSet {
         return false;
     }
 
-    public <O> boolean containsTriplePattern(
-            String sub, String pred, O obj,
-            SubjectType subjectType, ObjectType objectType
-    ) {
-        return containsTriplePattern(sub, pred, obj, subjectType, objectType, null);
-    }
-
     public <O> TripleSet getTriplesWithPattern(
             String sub, String pred, O obj, SubjectType subjectType, ObjectType objectType, String graph
     ) {
@@ -179,29 +83,10 @@ public class TripleBuffer implements TripleSet {
         return result;
     }
 
-    public <O> TripleSet getTriplesWithPattern(
-            String sub, String pred, O obj,
-            SubjectType subjectType, ObjectType objectType
-    ) {
-        return getTriplesWithPattern(sub, pred, obj, subjectType, objectType, null);
-    }
-
     public Triple getTriple(int i) {
         return triples.get(i);
     }
 
-    public void add(TripleSet ts) {
-        for(Triple triple : ts) {
-            addTriple(triple);
-        }
-    }
-
-    public void remove(TripleSet ts) {
-        for(Triple triple : ts) {
-            removeTriple(triple);
-        }
-    }
-
     public int getSize() {
         return triples.size();
     }
@@ -210,10 +95,6 @@ public class TripleBuffer implements TripleSet {
         triples.clear();
     }
 
-    public TripleIterator tripleIterator() {
-        return new TripleIteratorImpl( triples.iterator() );
-    }
-
     public Iterator<Triple> iterator() {
         return triples.iterator();
     }
@@ -231,47 +112,15 @@ public class TripleBuffer implements TripleSet {
         }
         return new TripleBuffer(result);
     }
-    
-    public void toNQuads(PrintStream printStream) {
-        for(Triple triple : triples) {
-            printStream.print( triple.toNQuadsString() );
-            printStream.println(" .");
-        }
-    }
 
     @Override
-    public String toString() {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PrintStream ps = new PrintStream(baos);
-        toNQuads(ps);
-        ps.close();
-        return baos.toString();
-    }
-
     protected void internalAdd(Triple triple) {
         triples.add(triple);
     }
 
+    @Override
     protected void internalRemove(Triple triple) {
         triples.remove(triple);
     }
 
-    private <O> boolean matchPattern(
-            Triple triple,
-            String sub, String pred, O obj,
-            SubjectType subjectType, ObjectType objectType, String graph
-    ) {
-        return (sub == null || sub.equals(triple.getSubject()))
-                &&
-                (subjectType == null || subjectType.equals(triple.getSubjectType()))
-                &&
-                (pred == null || pred.equals(triple.getPredicate()))
-                &&
-                (obj == null || obj.equals(triple.getObject()))
-                &&
-                (objectType == null || objectType.equals(triple.getObjectType()))
-                &&
-                (graph == null || graph.equals(triple.getGraph()));
-    }
-
 }
@@ -28,9 +28,7 @@ import java.util.Date;
  */
 public class TripleImpl<O> implements Triple<O> {
 
-    private static final long BLANK_NODE_BASE = System.currentTimeMillis();
-
-    private static long counter = 0;
+    private static volatile BNodeIdGenerator bnodeIdGenerator = new CompactBNodeIdGenerator();
 
     private final String subject;
     private final String predicate;
@@ -41,31 +39,64 @@ public class TripleImpl<O> implements Triple<O> {
     private final SubjectType subjectType;
     private final ObjectType  objectType;
 
-    public static synchronized String nextBNodeIdentifier() {
-        return String.format("%s_%s", BLANK_NODE_BASE, counter++);
+    /**
+     * @return the generator of the blank node identifiers.
+     */
+    public static BNodeIdGenerator getBNodeIdGenerator() {
+        return bnodeIdGenerator;
     }
 
-    public synchronized static <O> Triple createBNodeSubjectTriple(
+    /**
+     * Sets the generator of the blank node identifiers, by default a {@link CompactBNodeIdGenerator}.
+     *
+     * @param generator the new generator.
+     */
+    public static void setBNodeIdGenerator(BNodeIdGenerator generator) {
+        if(generator == null) {
+            throw new NullPointerException("generator cannot be null.");
+        }
+        bnodeIdGenerator = generator;
+    }
+
+    public static String nextBNodeIdentifier() {
+        return bnodeIdGenerator.nextIdentifier();
+    }
+
+    /**
+     * Creates a triple with a new blank node subject, typed as {@link SubjectType#uri} if the
+     * current generator produces <i>IRIs</i>.
+     */
+    public static <O> Triple createBNodeSubjectTriple(
             String pred, O obj, ObjectType objectType, String graph
     ) {
-        final String blank = nextBNodeIdentifier();
-        return new TripleImpl<O>(blank, pred, obj, SubjectType.bnode, objectType, graph);
+        final BNodeIdGenerator generator = bnodeIdGenerator;
+        final String blank = generator.nextIdentifier();
+        return new TripleImpl<O>(
+                blank, pred, obj, generator.isIRI() ? SubjectType.uri : SubjectType.bnode, objectType, graph
+        );
     }
 
-    public synchronized static <O> Triple createBNodeSubjectTriple(
+    public static <O> Triple createBNodeSubjectTriple(
             String pred, O obj, ObjectType objectType
     ) {
         return createBNodeSubjectTriple(pred, obj, objectType, null);
     }
 
-    public synchronized static Triple createBNodeObjectTriple(
+    /**
+     * Creates a triple with a new blank node object, typed as {@link ObjectType#uri} if the
+     * current generator produces <i>IRIs</i>.
+     */
+    public static Triple createBNodeObjectTriple(
             String sub, String pred, SubjectType subjectType, String graph
     ) {
-        final String blank = nextBNodeIdentifier();
-        return new TripleImpl<String>(sub, pred, blank, subjectType, ObjectType.bnode, graph);
+        final BNodeIdGenerator generator = bnodeIdGenerator;
+        final String blank = generator.nextIdentifier();
+        return new TripleImpl<String>(
+                sub, pred, blank, subjectType, generator.isIRI() ? ObjectType.uri : ObjectType.bnode, graph
+        );
     }
 
-    public synchronized static Triple createBNodeObjectTriple(
+    public static Triple createBNodeObjectTriple(
             String sub, String pred, SubjectType subjectType
     ) {
         return createBNodeObjectTriple(sub, pred, subjectType, null);
@@ -81,6 +112,8 @@ public class TripleImpl<O> implements Triple<O> {
      * <tr><th> Character </th><th> Escaped As </th></tr>
      * <tr><td> " </td><td> \" </td></tr>
      * <tr><td> \ </td><td> \\ </td></tr>
+     * <tr><td> line feed </td><td> \n </td></tr>
+     * <tr><td> carriage return </td><td> \r </td></tr>
      * </table>
      * <p/>
      *
@@ -95,6 +128,10 @@ public class TripleImpl<O> implements Triple<O> {
                 out.append("\\\"");
             } else if (character == '\\') {
                 out.append("\\\\");
+            } else if (character == '\n') {
+                out.append("\\n");
+            } else if (character == '\r') {
+                out.append("\\r");
             } else {
                 out.append(character);
             }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.model.mapped;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory maps a file as a sequence of fixed size segments, lazily mapped on first access.
+ * This allows to address files larger than the <i>2GB</i> limit of a single {@link MappedByteBuffer}.
+ * Callers are responsible to never read or write values crossing a segment boundary.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+class MappedSegments implements Closeable {
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private final int segmentSize;
+
+    private final List<MappedByteBuffer> segments;
+
+    MappedSegments(File f, int segmentSize) throws IOException {
+        if(segmentSize <= 0) {
+            throw new IllegalArgumentException("segmentSize must be positive.");
+        }
+        this.file        = new RandomAccessFile(f, "rw");
+        this.channel     = file.getChannel();
+        this.segmentSize = segmentSize;
+        this.segments    = new ArrayList<MappedByteBuffer>();
+    }
+
+    int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * @param position an absolute position.
+     * @return the number of bytes between the position and the end of its segment.
+     */
+    int remaining(long position) {
+        return segmentSize - offset(position);
+    }
+
+    byte getByte(long position) {
+        return segment(position).get( offset(position) );
+    }
+
+    void putByte(long position, byte b) {
+        segment(position).put( offset(position), b );
+    }
+
+    int getInt(long position) {
+        return segment(position).getInt( offset(position) );
+    }
+
+    void putInt(long position, int v) {
+        segment(position).putInt( offset(position), v );
+    }
+
+    long getLong(long position) {
+        return segment(position).getLong( offset(position) );
+    }
+
+    void putLong(long position, long v) {
+        segment(position).putLong( offset(position), v );
+    }
+
+    void getBytes(long position, byte[] dst) {
+        final ByteBuffer view = segment(position).duplicate();
+        view.position( offset(position) );
+        view.get(dst);
+    }
+
+    void putBytes(long position, byte[] src) {
+        final ByteBuffer view = segment(position).duplicate();
+        view.position( offset(position) );
+        view.put(src);
+    }
+
+    /**
+     * Compares a byte sequence with the file content at the given position.
+     */
+    boolean equalBytes(long position, byte[] expected) {
+        final MappedByteBuffer segment = segment(position);
+        final int offset = offset(position);
+        for(int i = 0; i < expected.length; i++) {
+            if(segment.get(offset + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the mapped content on disk.
+     */
+    void force() {
+        for(MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Releases the file, the mapped segments are released by the garbage collector.
+     *
+     * @throws IOException if an error occurs while closing the file.
+     */
+    public void close() throws IOException {
+        force();
+        segments.clear();
+        channel.close();
+        file.close();
+    }
+
+    private int offset(long position) {
+        return (int) (position % segmentSize);
+    }
+
+    private MappedByteBuffer segment(long position) {
+        final int index = (int) (position / segmentSize);
+        while(segments.size() <= index) {
+            try {
+                segments.add(
+                        channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * segmentSize, segmentSize)
+                );
+            } catch (IOException ioe) {
+                throw new RuntimeException("Error while mapping segment " + segments.size(), ioe);
+            }
+        }
+        return segments.get(index);
+    }
+
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.model.mapped;
+
+import org.sindice.rdfcommons.adapter.DefaultDatatypeLiteral;
+import org.sindice.rdfcommons.adapter.DefaultLanguageLiteral;
+import org.sindice.rdfcommons.model.DatatypeLiteral;
+import org.sindice.rdfcommons.model.LanguageLiteral;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleImpl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Term dictionary whose content lives outside the <i>Java</i> heap.
+ * <p>
+ * The encoded terms are appended to the memory mapped <i>terms.dat</i> file,
+ * the <i>terms.off</i> file maps every identifier to the offset, length and hash
+ * of its term. The lookup hash table is kept in a direct buffer and rebuilt
+ * from <i>terms.off</i> when an existing dictionary is reopened.
+ * </p>
+ * <p>
+ * Literal objects are stored as their string value plus the datatype or language,
+ * and decoded as {@link DefaultDatatypeLiteral} or {@link DefaultLanguageLiteral} instances.
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class MappedTermDictionary implements Closeable {
+
+    /**
+     * Identifier returned for terms not present in the dictionary.
+     */
+    public static final int NOT_FOUND = -1;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final long MAGIC = 0x5244435445524D53L;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int ENTRY_SIZE = 16;
+
+    private static final int DATA_SEGMENT_SIZE = 1 << 26;
+
+    private static final int ENTRIES_SEGMENT_SIZE = ENTRY_SIZE << 20;
+
+    private static final int INITIAL_TABLE_CAPACITY = 1 << 12;
+
+    private static final byte KIND_PLAIN    = 0;
+    private static final byte KIND_LANGUAGE = 1;
+    private static final byte KIND_DATATYPE = 2;
+
+    private final MappedSegments data;
+
+    private final MappedSegments entries;
+
+    private int count;
+
+    private long dataEnd;
+
+    /**
+     * Open addressing table of <i>id + 1</i>, <code>0</code> marks an empty slot.
+     */
+    private ByteBuffer table;
+
+    private int capacity;
+
+    /**
+     * Opens the dictionary stored in the given directory, creating it if needed.
+     *
+     * @param directory the dictionary directory.
+     * @throws IOException if an error occurs while opening the files.
+     */
+    public MappedTermDictionary(File directory) throws IOException {
+        if( !directory.isDirectory() && !directory.mkdirs() ) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        final boolean exists = new File(directory, "terms.off").exists();
+        data    = new MappedSegments(new File(directory, "terms.dat"), DATA_SEGMENT_SIZE);
+        entries = new MappedSegments(new File(directory, "terms.off"), ENTRIES_SEGMENT_SIZE);
+        if(exists && entries.getLong(0) == MAGIC) {
+            count   = entries.getInt(8);
+            dataEnd = entries.getLong(16);
+        } else {
+            count   = 0;
+            dataEnd = 0;
+            entries.putLong(0, MAGIC);
+            writeHeader();
+        }
+        capacity = INITIAL_TABLE_CAPACITY;
+        while(capacity < count * 2) {
+            capacity <<= 1;
+        }
+        rebuildTable();
+    }
+
+    /**
+     * Returns the identifier of a term, adding it to the dictionary if needed.
+     *
+     * @param term the term to be encoded.
+     * @return the term identifier.
+     */
+    public int encode(Object term) {
+        final byte[] bytes = toBytes(term);
+        final int hash = hash(bytes);
+        final int found = find(bytes, hash);
+        if(found != NOT_FOUND) {
+            return found;
+        }
+        if(bytes.length > DATA_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Term too large: " + bytes.length + " bytes.");
+        }
+        if(data.remaining(dataEnd) < bytes.length) {
+            dataEnd += data.remaining(dataEnd);
+        }
+        data.putBytes(dataEnd, bytes);
+        final int id = count;
+        final long entry = entryPosition(id);
+        entries.putLong(entry, dataEnd);
+        entries.putInt(entry + 8, hash);
+        entries.putInt(entry + 12, bytes.length);
+        dataEnd += bytes.length;
+        count++;
+        writeHeader();
+        if(count * 2 > capacity) {
+            capacity <<= 1;
+            rebuildTable();
+        } else {
+            insertSlot(id, hash);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the identifier of a term without modifying the dictionary.
+     *
+     * @param term the term to be looked up.
+     * @return the term identifier or {@link #NOT_FOUND} if the term is unknown.
+     */
+    public int lookup(Object term) {
+        final byte[] bytes = toBytes(term);
+        return find(bytes, hash(bytes));
+    }
+
+    /**
+     * Returns the term associated to an identifier.
+     *
+     * @param id a valid identifier.
+     * @return the associated term.
+     */
+    public Object decode(int id) {
+        if(id < 0 || id >= count) {
+            throw new IndexOutOfBoundsException("Unknown identifier " + id);
+        }
+        final long entry = entryPosition(id);
+        final byte[] bytes = new byte[ entries.getInt(entry + 12) ];
+        data.getBytes(entries.getLong(entry), bytes);
+        return fromBytes(bytes);
+    }
+
+    /**
+     * @return the number of terms in the dictionary.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Writes the dictionary content on disk.
+     */
+    public void flush() {
+        data.force();
+        entries.force();
+    }
+
+    public void close() throws IOException {
+        data.close();
+        entries.close();
+        table = null;
+    }
+
+    /**
+     * Encodes a term as a byte sequence.
+     */
+    static byte[] toBytes(Object term) {
+        if(term == null) {
+            throw new NullPointerException("term cannot be null.");
+        }
+        if(term instanceof String) {
+            return encode(KIND_PLAIN, null, (String) term);
+        }
+        if(term instanceof LanguageLiteral) {
+            final LanguageLiteral literal = (LanguageLiteral) term;
+            return encode(KIND_LANGUAGE, literal.getLanguage(), literal.getValue());
+        }
+        if(term instanceof DatatypeLiteral) {
+            final DatatypeLiteral literal = (DatatypeLiteral) term;
+            return encode(KIND_DATATYPE, literal.getDatatype(), literal.getValue());
+        }
+        final Triple probe = new TripleImpl<Object>("", "", term, Triple.ObjectType.literal);
+        final String datatype = probe.getLiteralDatatype();
+        if(datatype != null) {
+            return encode(KIND_DATATYPE, datatype, probe.getObjectAsString());
+        }
+        return encode(KIND_PLAIN, null, probe.getObjectAsString());
+    }
+
+    private static byte[] encode(byte kind, String aux, String value) {
+        final byte[] valueBytes = value.getBytes(UTF8);
+        if(aux == null) {
+            final byte[] out = new byte[valueBytes.length + 1];
+            out[0] = kind;
+            System.arraycopy(valueBytes, 0, out, 1, valueBytes.length);
+            return out;
+        }
+        final byte[] auxBytes = aux.getBytes(UTF8);
+        final ByteBuffer out = ByteBuffer.allocate(1 + 4 + auxBytes.length + valueBytes.length);
+        out.put(kind).putInt(auxBytes.length).put(auxBytes).put(valueBytes);
+        return out.array();
+    }
+
+    private static Object fromBytes(byte[] bytes) {
+        if(bytes[0] == KIND_PLAIN) {
+            return new String(bytes, 1, bytes.length - 1, UTF8);
+        }
+        final ByteBuffer in = ByteBuffer.wrap(bytes);
+        final byte kind = in.get();
+        final int auxLength = in.getInt();
+        final String aux = new String(bytes, 5, auxLength, UTF8);
+        final String value = new String(bytes, 5 + auxLength, bytes.length - 5 - auxLength, UTF8);
+        if(kind == KIND_LANGUAGE) {
+            return new DefaultLanguageLiteral(value, aux);
+        }
+        return new DefaultDatatypeLiteral<String>(aux, value);
+    }
+
+    private static int hash(byte[] bytes) {
+        final int h = Arrays.hashCode(bytes);
+        return h ^ (h >>> 16);
+    }
+
+    private static long entryPosition(int id) {
+        return HEADER_SIZE + (long) id * ENTRY_SIZE;
+    }
+
+    private void writeHeader() {
+        entries.putInt(8, count);
+        entries.putLong(16, dataEnd);
+    }
+
+    private int find(byte[] bytes, int hash) {
+        final int mask = capacity - 1;
+        int slot = hash & mask;
+        int value;
+        while( (value = table.getInt(slot * 4)) != 0 ) {
+            final int id = value - 1;
+            final long entry = entryPosition(id);
+            if(
+                    entries.getInt(entry + 8)  == hash
+                            &&
+                    entries.getInt(entry + 12) == bytes.length
+                            &&
+                    data.equalBytes(entries.getLong(entry), bytes)
+            ) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    private void insertSlot(int id, int hash) {
+        final int mask = capacity - 1;
+        int slot = hash & mask;
+        while(table.getInt(slot * 4) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table.putInt(slot * 4, id + 1);
+    }
+
+    private void rebuildTable() {
+        table = ByteBuffer.allocateDirect(capacity * 4);
+        for(int id = 0; id < count; id++) {
+            insertSlot(id, entries.getInt(entryPosition(id) + 8));
+        }
+    }
+
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.model.mapped;
+
+import org.sindice.rdfcommons.model.BaseTripleSet;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.Triple.ObjectType;
+import org.sindice.rdfcommons.model.Triple.SubjectType;
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.model.TripleFilter;
+import org.sindice.rdfcommons.model.TripleImpl;
+import org.sindice.rdfcommons.model.TripleIterator;
+import org.sindice.rdfcommons.model.TripleSet;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link TripleSet} implementation storing the encoded quads and the term dictionary
+ * in memory mapped files, so that the data set size is not bounded by the <i>Java</i> heap
+ * and a set can be reopened without parsing its source again.
+ * <p>
+ * Every quad is a fixed size record of term identifiers assigned by a
+ * {@link MappedTermDictionary}. Like {@link TripleBuffer} this set has list semantics:
+ * additions are appends, removals and pattern lookups scan the records comparing
+ * identifiers, and {@link #getTriplesIterator(String, String, Object, String)} evaluates
+ * a pattern lazily without materializing the matching triples.
+ * Removing a triple moves the last record in the position of the removed one.
+ * </p>
+ * <p>
+ * Data is written to the mapped pages immediately, {@link #flush()} forces it to disk.
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class MappedTripleSet extends BaseTripleSet implements Closeable {
+
+    private static final long MAGIC = 0x5244435155414453L;
+
+    private static final int RECORD_SIZE = 20;
+
+    private static final int SEGMENT_SIZE = RECORD_SIZE << 20;
+
+    private static final int NO_GRAPH = -1;
+
+    private static final int ANY = -1;
+
+    private static final SubjectType[] SUBJECT_TYPES = SubjectType.values();
+    private static final ObjectType[]  OBJECT_TYPES  = ObjectType.values();
+
+    private final MappedTermDictionary dictionary;
+
+    private final MappedSegments quads;
+
+    private int size;
+
+    /**
+     * Opens the triple set stored in the given directory, creating it if needed.
+     *
+     * @param directory the directory containing the set files.
+     * @throws IOException if an error occurs while opening the files.
+     */
+    public MappedTripleSet(File directory) throws IOException {
+        dictionary = new MappedTermDictionary(directory);
+        final boolean exists = new File(directory, "quads.dat").exists();
+        quads = new MappedSegments(new File(directory, "quads.dat"), SEGMENT_SIZE);
+        if(exists && quads.getLong(0) == MAGIC) {
+            size = quads.getInt(8);
+        } else {
+            quads.putLong(0, MAGIC);
+            writeSize(0);
+        }
+    }
+
+    /**
+     * @return the dictionary used to encode the terms of this set.
+     */
+    public MappedTermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public <O> boolean containsTriple(
+            String sub, String pred, O obj, SubjectType subjectType, ObjectType objectType, String graph
+    ) {
+        return containsTriplePattern(sub, pred, obj, subjectType, objectType, graph);
+    }
+
+    public <O> boolean containsTriplePattern(
+            String sub, String pred, O obj, SubjectType subjectType, ObjectType objectType, String graph
+    ) {
+        final int[] pattern = encodePattern(sub, pred, obj, graph);
+        return pattern != null && nextMatch(0, pattern, subjectType, objectType) >= 0;
+    }
+
+    public <O> TripleSet getTriplesWithPattern(
+            String sub, String pred, O obj, SubjectType subjectType, ObjectType objectType, String graph
+    ) {
+        final TripleBuffer result = new TripleBuffer();
+        final int[] pattern = encodePattern(sub, pred, obj, graph);
+        if(pattern == null) {
+            return result;
+        }
+        int row = 0;
+        while( (row = nextMatch(row, pattern, subjectType, objectType)) >= 0 ) {
+            result.addTriple( materialize(row) );
+            row++;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a lazy iterator over the triples matching the given pattern.
+     *
+     * @param sub the triple subject, if <code>null</code> matches any value.
+     * @param pred the triple predicate, if <code>null</code> matches any value.
+     * @param obj the triple object, if <code>null</code> matches any value.
+     * @param graph the triple graph, if <code>null</code> matches any value.
+     * @return the iterator over the matching triples.
+     */
+    public TripleIterator getTriplesIterator(String sub, String pred, Object obj, String graph) {
+        final int[] pattern = encodePattern(sub, pred, obj, graph);
+        if(pattern == null) {
+            return new MappedTripleIterator(null);
+        }
+        return new MappedTripleIterator(pattern);
+    }
+
+    public Triple getTriple(int i) {
+        if(i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException( String.format("Invalid index %d, size %d", i, size) );
+        }
+        return materialize(i);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void clear() {
+        writeSize(0);
+    }
+
+    public Iterator<Triple> iterator() {
+        return getTriples().iterator();
+    }
+
+    public TripleIterator tripleIterator() {
+        return new MappedTripleIterator( new int[]{ANY, ANY, ANY, ANY} );
+    }
+
+    public List<Triple> getTriples() {
+        return new AbstractList<Triple>() {
+            @Override
+            public Triple get(int i) {
+                return getTriple(i);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public TripleSet getTriples(TripleFilter filter) {
+        final TripleBuffer result = new TripleBuffer();
+        Triple triple;
+        for(int row = 0; row < size; row++) {
+            triple = materialize(row);
+            if( filter.acceptTriple(triple) ) {
+                result.addTriple(triple);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forces the content of the set on disk.
+     */
+    public void flush() {
+        dictionary.flush();
+        quads.force();
+    }
+
+    /**
+     * Flushes and closes the set, that cannot be used anymore.
+     *
+     * @throws IOException if an error occurs while closing the files.
+     */
+    public void close() throws IOException {
+        quads.close();
+        dictionary.close();
+    }
+
+    protected void internalAdd(Triple triple) {
+        final long position = recordPosition(size);
+        quads.putInt(position     , dictionary.encode( triple.getSubject()   ));
+        quads.putInt(position + 4 , dictionary.encode( triple.getPredicate() ));
+        quads.putInt(position + 8 , dictionary.encode( triple.getObject()    ));
+        quads.putInt(position + 12, triple.getGraph() == null ? NO_GRAPH : dictionary.encode( triple.getGraph() ));
+        quads.putInt(position + 16, encodeTypes(triple.getSubjectType(), triple.getObjectType()));
+        writeSize(size + 1);
+    }
+
+    protected void internalRemove(Triple triple) {
+        final int[] pattern = encodePattern(
+                triple.getSubject(), triple.getPredicate(), triple.getObject(), triple.getGraph()
+        );
+        if(pattern == null) {
+            return;
+        }
+        final int row = nextMatch(0, pattern, triple.getSubjectType(), triple.getObjectType());
+        if(row < 0) {
+            return;
+        }
+        final int last = size - 1;
+        if(row != last) {
+            final long from = recordPosition(last);
+            final long to   = recordPosition(row);
+            for(int offset = 0; offset < RECORD_SIZE; offset += 4) {
+                quads.putInt(to + offset, quads.getInt(from + offset));
+            }
+        }
+        writeSize(last);
+    }
+
+    private static long recordPosition(int row) {
+        return (row + 1L) * RECORD_SIZE;
+    }
+
+    private static int encodeTypes(SubjectType subjectType, ObjectType objectType) {
+        return subjectType.ordinal() << 2 | objectType.ordinal();
+    }
+
+    private void writeSize(int newSize) {
+        size = newSize;
+        quads.putInt(8, newSize);
+    }
+
+    /**
+     * Encodes the bound positions of a pattern, unbound positions are mapped to {@link #ANY}.
+     *
+     * @return the encoded pattern or <code>null</code> if a bound term is unknown.
+     */
+    private int[] encodePattern(String sub, String pred, Object obj, String graph) {
+        final int[] pattern = new int[4];
+        final Object[] terms = new Object[]{sub, pred, obj, graph};
+        for(int i = 0; i < terms.length; i++) {
+            if(terms[i] == null) {
+                pattern[i] = ANY;
+                continue;
+            }
+            pattern[i] = dictionary.lookup(terms[i]);
+            if(pattern[i] == MappedTermDictionary.NOT_FOUND) {
+                return null;
+            }
+        }
+        return pattern;
+    }
+
+    /**
+     * Returns the first row matching the pattern starting from the given one, <code>-1</code> if none.
+     */
+    private int nextMatch(int from, int[] pattern, SubjectType subjectType, ObjectType objectType) {
+        long position;
+        int types;
+        for(int row = from; row < size; row++) {
+            position = recordPosition(row);
+            if(
+                    (pattern[0] == ANY || pattern[0] == quads.getInt(position))
+                            &&
+                    (pattern[1] == ANY || pattern[1] == quads.getInt(position + 4))
+                            &&
+                    (pattern[2] == ANY || pattern[2] == quads.getInt(position + 8))
+                            &&
+                    (pattern[3] == ANY || pattern[3] == quads.getInt(position + 12))
+            ) {
+                types = quads.getInt(position + 16);
+                if(
+                        (subjectType == null || subjectType.ordinal() == types >> 2)
+                                &&
+                        (objectType  == null || objectType.ordinal()  == (types & 3))
+                ) {
+                    return row;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private Triple materialize(int row) {
+        final long position = recordPosition(row);
+        final int types = quads.getInt(position + 16);
+        final int graph = quads.getInt(position + 12);
+        return new TripleImpl<Object>(
+                (String) dictionary.decode( quads.getInt(position) ),
+                (String) dictionary.decode( quads.getInt(position + 4) ),
+                dictionary.decode( quads.getInt(position + 8) ),
+                SUBJECT_TYPES[types >> 2],
+                OBJECT_TYPES[types & 3],
+                graph == NO_GRAPH ? null : (String) dictionary.decode(graph)
+        );
+    }
+
+    /**
+     * {@link TripleIterator} scanning the records matching a pattern.
+     */
+    class MappedTripleIterator implements TripleIterator {
+
+        private final int[] pattern;
+
+        private int current = -1;
+
+        private int next;
+
+        MappedTripleIterator(int[] pattern) {
+            this.pattern = pattern;
+            this.next = pattern == null ? -1 : nextMatch(0, pattern, null, null);
+        }
+
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        public void next() {
+            if(next < 0) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = nextMatch(current + 1, pattern, null, null);
+        }
+
+        public String subject() {
+            return (String) dictionary.decode( quads.getInt(recordPosition(current)) );
+        }
+
+        public String predicate() {
+            return (String) dictionary.decode( quads.getInt(recordPosition(current) + 4) );
+        }
+
+        public Object object() {
+            return dictionary.decode( quads.getInt(recordPosition(current) + 8) );
+        }
+
+        public String objectStr() {
+            final Object object = object();
+            return object instanceof String ? (String) object : materialize(current).getObjectAsString();
+        }
+
+        public boolean isBlankSubject() {
+            return types() >> 2 == SubjectType.bnode.ordinal();
+        }
+
+        public boolean isBlankObject() {
+            return (types() & 3) == ObjectType.bnode.ordinal();
+        }
+
+        public boolean isObjLiteral() {
+            return (types() & 3) == ObjectType.literal.ordinal();
+        }
+
+        private int types() {
+            return quads.getInt(recordPosition(current) + 16);
+        }
+    }
+
+}
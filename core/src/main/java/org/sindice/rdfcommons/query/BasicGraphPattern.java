@@ -0,0 +1,124 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.query;
+
+import org.sindice.rdfcommons.model.TripleFilter;
+import org.sindice.rdfcommons.model.TripleSet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conjunction of triple patterns evaluated over a {@link TripleSet}
+ * with the same hash join strategy used for {@link MatchChain}s.
+ * <p>
+ * Pattern terms starting with <i>?</i> are variables, any other term is a constant.
+ * Unlike a {@link Match}, a pattern accepts any object constant and an optional
+ * {@link TripleFilter} applied to the matching triples, allowing for example to
+ * compare literals by lexical form.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class BasicGraphPattern {
+
+    private final List<JoinPlan.Pattern> patterns = new ArrayList<JoinPlan.Pattern>();
+
+    private final List<String> vars = new ArrayList<String>();
+
+    /**
+     * Checks whether a term is a variable.
+     *
+     * @param term the term to be checked.
+     * @return <code>true</code> if the term is a variable name.
+     */
+    public static boolean isVariable(Object term) {
+        return JoinPlan.Pattern.isVariable(term);
+    }
+
+    /**
+     * Adds a triple pattern.
+     *
+     * @param sub the subject constant or variable.
+     * @param pred the predicate constant or variable.
+     * @param obj the object constant or variable.
+     * @return this pattern.
+     */
+    public BasicGraphPattern addPattern(String sub, String pred, Object obj) {
+        return addPattern(sub, pred, obj, null);
+    }
+
+    /**
+     * Adds a triple pattern whose matches must satisfy also a filter.
+     *
+     * @param sub the subject constant or variable.
+     * @param pred the predicate constant or variable.
+     * @param obj the object constant or variable, <code>null</code> matches any object.
+     * @param filter the filter, can be <code>null</code>.
+     * @return this pattern.
+     */
+    public BasicGraphPattern addPattern(String sub, String pred, Object obj, TripleFilter filter) {
+        if(sub == null || pred == null) {
+            throw new NullPointerException("subject and predicate cannot be null.");
+        }
+        final JoinPlan.Pattern pattern = new JoinPlan.Pattern(sub, pred, obj, filter, null);
+        patterns.add(pattern);
+        for(Object term : new Object[]{sub, pred, obj}) {
+            if( isVariable(term) && ! vars.contains(term) ) {
+                vars.add( (String) term );
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of patterns.
+     */
+    public int size() {
+        return patterns.size();
+    }
+
+    /**
+     * @return <code>true</code> if no patterns have been added.
+     */
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    /**
+     * @return the variables of the patterns, in order of appearance.
+     */
+    public String[] getVars() {
+        return vars.toArray( new String[vars.size()] );
+    }
+
+    /**
+     * Evaluates the patterns over a triple set.
+     *
+     * @param in the input triples, must not be modified while the result is consumed.
+     * @param limit the maximum number of rows, {@link StreamingResultSet#NO_LIMIT} for no limit.
+     * @return the lazy result set.
+     */
+    public StreamingResultSet evaluate(TripleSet in, int limit) {
+        if( patterns.isEmpty() ) {
+            throw new IllegalStateException("No patterns defined.");
+        }
+        return new StreamingResultSet( JoinPlan.create(getVars(), patterns, in), limit );
+    }
+
+}
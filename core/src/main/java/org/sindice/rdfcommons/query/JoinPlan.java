@@ -0,0 +1,512 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.query;
+
+import org.sindice.rdfcommons.model.IndexedTripleSet;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleFilter;
+import org.sindice.rdfcommons.model.TripleSet;
+import org.sindice.rdfcommons.storage.InMemoryResultSet;
+import org.sindice.rdfcommons.storage.ResultSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Execution plan of a {@link MatchChain} or of a list of triple patterns over a {@link TripleSet}.
+ * <p>
+ * The triples matching the constant positions of every pattern are retrieved once
+ * through {@link TripleSet#getTriplesWithPattern(String, String, Object,
+ * org.sindice.rdfcommons.model.Triple.SubjectType, org.sindice.rdfcommons.model.Triple.ObjectType, String)},
+ * that is index backed for indexed sets. The patterns are then ordered greedily: the plan starts
+ * from the pattern with the lowest cardinality and proceeds with the cheapest pattern sharing a variable
+ * with the already bound ones, falling back to the cheapest remaining pattern to postpone cross products.
+ * </p>
+ * <p>
+ * Over an {@link IndexedTripleSet} the pattern cardinalities are estimated on the indexes and the
+ * triples of a step are collected only when needed: the driving step is scanned lazily and the
+ * others are collected when first probed, so that an evaluation stopped early, as for a
+ * <i>LIMIT</i> or an <i>ASK</i>, does not visit every pattern.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+class JoinPlan {
+
+    private final String[] vars;
+
+    private final Step[] steps;
+
+    /**
+     * Creates the plan for the given query over the given triples.
+     *
+     * @param qry the query to be planned.
+     * @param in the input triples.
+     * @return the created plan.
+     */
+    static JoinPlan create(MatchChain qry, TripleSet in) {
+        final List<Pattern> patterns = new ArrayList<Pattern>();
+        for(Match match : qry.getMatches()) {
+            patterns.add( new Pattern(match.getSub(), match.getPred(), match.getObj(), null, match) );
+        }
+        return create(qry.getVars(), patterns, in);
+    }
+
+    /**
+     * Creates the plan for a list of patterns over the given triples.
+     *
+     * @param vars the result variables, every variable of the patterns must be listed.
+     * @param patterns the patterns to be joined.
+     * @param in the input triples.
+     * @return the created plan.
+     */
+    static JoinPlan create(String[] vars, List<Pattern> patterns, TripleSet in) {
+        final Map<String,Integer> varIndexes = new HashMap<String,Integer>();
+        for(int i = 0; i < vars.length; i++) {
+            varIndexes.put(vars[i], i);
+        }
+
+        final List<Pattern> remaining = new ArrayList<Pattern>(patterns);
+        final List<TripleSet> candidates = new ArrayList<TripleSet>();
+        final List<Integer> sizes = new ArrayList<Integer>();
+        for(Pattern pattern : remaining) {
+            if(in instanceof IndexedTripleSet) {
+                candidates.add(null);
+                sizes.add( ((IndexedTripleSet) in).estimatePatternSize(
+                        (String) pattern.constant(0), (String) pattern.constant(1), pattern.constant(2), null
+                ) );
+            } else {
+                final TripleSet candidate = collect(in, pattern);
+                candidates.add(candidate);
+                sizes.add( candidate.getSize() );
+            }
+        }
+
+        final boolean[] bound = new boolean[vars.length];
+        final Step[] steps = new Step[remaining.size()];
+        for(int s = 0; s < steps.length; s++) {
+            int best = -1;
+            boolean bestConnected = false;
+            for(int i = 0; i < remaining.size(); i++) {
+                final boolean connected = isConnected(remaining.get(i), varIndexes, bound);
+                final int size = sizes.get(i);
+                if(
+                        best == -1
+                                ||
+                        (connected && !bestConnected)
+                                ||
+                        (connected == bestConnected && size < sizes.get(best))
+                ) {
+                    best = i;
+                    bestConnected = connected;
+                }
+            }
+            sizes.remove(best);
+            steps[s] = new Step( remaining.remove(best), in, candidates.remove(best), varIndexes, bound );
+        }
+        return new JoinPlan(vars, steps);
+    }
+
+    private static TripleSet collect(TripleSet in, Pattern pattern) {
+        final TripleSet candidate = in.getTriplesWithPattern(
+                (String) pattern.constant(0), (String) pattern.constant(1), pattern.constant(2), null, null, null
+        );
+        return pattern.filter == null ? candidate : candidate.getTriples(pattern.filter);
+    }
+
+    private static boolean isConnected(Pattern pattern, Map<String,Integer> varIndexes, boolean[] bound) {
+        for(int p = 0; p < 3; p++) {
+            if( pattern.isVariable(p) && bound[ varIndexes.get( (String) pattern.terms[p] ) ] ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private JoinPlan(String[] vars, Step[] steps) {
+        this.vars  = vars;
+        this.steps = steps;
+    }
+
+    /**
+     * @return the result variables, in the order declared by the query.
+     */
+    String[] getVars() {
+        return vars;
+    }
+
+    /**
+     * @return the ordered join steps.
+     */
+    Step[] getSteps() {
+        return steps;
+    }
+
+    /**
+     * Returns the value bound by a triple position.
+     *
+     * @param triple the triple.
+     * @param position the position, <code>0</code> subject, <code>1</code> predicate, <code>2</code> object.
+     * @return the entry representing the value.
+     */
+    static InMemoryResultSet.VarEntry valueOf(Triple triple, int position) {
+        switch (position) {
+            case 0:
+                return new InMemoryResultSet.VarEntry(
+                        triple.getSubject(),
+                        triple.isSubjectBNode() ? ResultSet.VariableType.BLANK : ResultSet.VariableType.RESOURCE
+                );
+            case 1:
+                return new InMemoryResultSet.VarEntry( triple.getPredicate() );
+            default:
+                if(triple.isObjectLiteral()) {
+                    return new InMemoryResultSet.VarEntry( triple.getObject(), ResultSet.VariableType.LITERAL );
+                }
+                return new InMemoryResultSet.VarEntry(
+                        triple.getObjectAsString(),
+                        triple.isObjectBNode() ? ResultSet.VariableType.BLANK : ResultSet.VariableType.RESOURCE
+                );
+        }
+    }
+
+    /**
+     * A triple pattern, whose terms are either constants or variable names starting with <i>?</i>.
+     */
+    static class Pattern {
+
+        private final Object[] terms;
+
+        private final TripleFilter filter;
+
+        private final Object source;
+
+        /**
+         * Constructor.
+         *
+         * @param sub the subject constant or variable.
+         * @param pred the predicate constant or variable.
+         * @param obj the object constant or variable, <code>null</code> matches any object.
+         * @param filter optional filter the matching triples must satisfy.
+         * @param source the object this pattern has been created from.
+         */
+        Pattern(String sub, String pred, Object obj, TripleFilter filter, Object source) {
+            this.terms  = new Object[]{sub, pred, obj};
+            this.filter = filter;
+            this.source = source;
+        }
+
+        Object getSource() {
+            return source;
+        }
+
+        boolean isVariable(int position) {
+            return isVariable( terms[position] );
+        }
+
+        static boolean isVariable(Object term) {
+            return term instanceof String && ((String) term).length() > 0 && ((String) term).charAt(0) == '?';
+        }
+
+        private Object constant(int position) {
+            return isVariable(position) ? null : terms[position];
+        }
+    }
+
+    /**
+     * A step of the plan, joining a {@link Pattern} with the rows produced by the previous steps.
+     */
+    static class Step {
+
+        private final Pattern pattern;
+
+        private final TripleSet in;
+
+        /**
+         * Triples matching the pattern, collected on demand.
+         */
+        private TripleSet triples;
+
+        /**
+         * Row index of the variable in every triple position, <code>-1</code> for constants.
+         */
+        private final int[] positionVars = new int[3];
+
+        /**
+         * Positions whose variable has been bound by a previous step.
+         */
+        private final int[] joinPositions;
+
+        /**
+         * Positions binding a new variable.
+         */
+        private final int[] bindPositions;
+
+        /**
+         * Positions repeating a variable bound by a previous position of the same pattern.
+         */
+        private final int[] repeatedPositions;
+
+        private Map<JoinKey,List<Triple>> hashTable;
+
+        private Step(
+                Pattern pattern, TripleSet in, TripleSet triples, Map<String,Integer> varIndexes, boolean[] bound
+        ) {
+            this.pattern = pattern;
+            this.in      = in;
+            this.triples = triples;
+            final List<Integer> join     = new ArrayList<Integer>();
+            final List<Integer> bind     = new ArrayList<Integer>();
+            final List<Integer> repeated = new ArrayList<Integer>();
+            for(int p = 0; p < 3; p++) {
+                if( ! pattern.isVariable(p) ) {
+                    positionVars[p] = -1;
+                    continue;
+                }
+                final int varIndex = varIndexes.get( (String) pattern.terms[p] );
+                positionVars[p] = varIndex;
+                if(bound[varIndex]) {
+                    if( join.contains(firstPosition(varIndex, p)) || bind.contains(firstPosition(varIndex, p)) ) {
+                        repeated.add(p);
+                    } else {
+                        join.add(p);
+                    }
+                } else {
+                    bind.add(p);
+                    bound[varIndex] = true;
+                }
+            }
+            joinPositions     = toArray(join);
+            bindPositions     = toArray(bind);
+            repeatedPositions = toArray(repeated);
+        }
+
+        Pattern getPattern() {
+            return pattern;
+        }
+
+        TripleSet getTriples() {
+            if(triples == null) {
+                triples = collect(in, pattern);
+            }
+            return triples;
+        }
+
+        /**
+         * Returns the triples of this step one at a time, to be used for the driving step
+         * whose input row binds no variable.
+         * Over an indexed set the triples are matched lazily while iterating, otherwise the collected
+         * triples are returned in reverse order as done by the former stack based evaluation.
+         *
+         * @return the iterator over the triples of the step.
+         */
+        Iterator<Triple> scan() {
+            final Iterator<Triple> source;
+            if(triples == null && in instanceof IndexedTripleSet) {
+                source = ((IndexedTripleSet) in).patternIterator(
+                        (String) pattern.constant(0), (String) pattern.constant(1), pattern.constant(2), null
+                );
+            } else {
+                source = reverse( getTriples().getTriples() );
+            }
+            return new Iterator<Triple>() {
+
+                private Triple next;
+
+                public boolean hasNext() {
+                    while(next == null && source.hasNext()) {
+                        final Triple candidate = source.next();
+                        if(
+                                (pattern.filter == null || pattern.filter.acceptTriple(candidate))
+                                        &&
+                                matchesRepeated(candidate)
+                        ) {
+                            next = candidate;
+                        }
+                    }
+                    return next != null;
+                }
+
+                public Triple next() {
+                    if( ! hasNext() ) {
+                        throw new NoSuchElementException();
+                    }
+                    final Triple result = next;
+                    next = null;
+                    return result;
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        /**
+         * Returns the triples of this step compatible with a row,
+         * building the hash table on the join variables at the first invocation.
+         *
+         * @param row the row bound by the previous steps.
+         * @return the list of compatible triples, never <code>null</code>.
+         */
+        List<Triple> probe(InMemoryResultSet.VarEntry[] row) {
+            if(hashTable == null) {
+                hashTable = buildHashTable();
+            }
+            final Object[] key = new Object[joinPositions.length];
+            for(int i = 0; i < joinPositions.length; i++) {
+                key[i] = row[ positionVars[ joinPositions[i] ] ];
+            }
+            final List<Triple> result = hashTable.get( new JoinKey(key) );
+            return result == null ? new ArrayList<Triple>(0) : result;
+        }
+
+        /**
+         * Returns the triples of this step compatible with a row in reverse order,
+         * consistently with {@link #scan()}.
+         *
+         * @param row the row bound by the previous steps.
+         * @return the iterator over the compatible triples.
+         */
+        Iterator<Triple> probeIterator(InMemoryResultSet.VarEntry[] row) {
+            return reverse( probe(row) );
+        }
+
+        private static Iterator<Triple> reverse(final List<Triple> list) {
+            return new Iterator<Triple>() {
+
+                private int cursor = list.size();
+
+                public boolean hasNext() {
+                    return cursor > 0;
+                }
+
+                public Triple next() {
+                    if(cursor == 0) {
+                        throw new NoSuchElementException();
+                    }
+                    return list.get(--cursor);
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        /**
+         * Extends a row with the variables bound by a triple.
+         *
+         * @param row the row to be extended.
+         * @param triple a triple returned by {@link #probe(InMemoryResultSet.VarEntry[])} for the row.
+         * @return the extended row.
+         */
+        InMemoryResultSet.VarEntry[] extend(InMemoryResultSet.VarEntry[] row, Triple triple) {
+            final InMemoryResultSet.VarEntry[] extended = row.clone();
+            for(int p : bindPositions) {
+                extended[ positionVars[p] ] = valueOf(triple, p);
+            }
+            return extended;
+        }
+
+        private Map<JoinKey,List<Triple>> buildHashTable() {
+            final Map<JoinKey,List<Triple>> table = new HashMap<JoinKey,List<Triple>>();
+            for(Triple triple : getTriples()) {
+                if( ! matchesRepeated(triple) ) {
+                    continue;
+                }
+                final Object[] key = new Object[joinPositions.length];
+                for(int i = 0; i < joinPositions.length; i++) {
+                    key[i] = valueOf(triple, joinPositions[i]);
+                }
+                final JoinKey joinKey = new JoinKey(key);
+                List<Triple> bucket = table.get(joinKey);
+                if(bucket == null) {
+                    bucket = new ArrayList<Triple>(1);
+                    table.put(joinKey, bucket);
+                }
+                bucket.add(triple);
+            }
+            return table;
+        }
+
+        private boolean matchesRepeated(Triple triple) {
+            for(int p : repeatedPositions) {
+                final InMemoryResultSet.VarEntry value = valueOf(triple, p);
+                for(int q = 0; q < p; q++) {
+                    if( positionVars[q] == positionVars[p] && ! new JoinKey(value).equals(new JoinKey(valueOf(triple, q))) ) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private int firstPosition(int varIndex, int before) {
+            for(int q = 0; q < before; q++) {
+                if(positionVars[q] == varIndex) {
+                    return q;
+                }
+            }
+            return -1;
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            final int[] result = new int[list.size()];
+            for(int i = 0; i < result.length; i++) {
+                result[i] = list.get(i);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Hash key over a list of variable values, comparing both values and types.
+     */
+    static class JoinKey {
+
+        private final Object[] values;
+
+        private final int hash;
+
+        JoinKey(Object... entries) {
+            values = new Object[entries.length * 2];
+            for(int i = 0; i < entries.length; i++) {
+                final InMemoryResultSet.VarEntry entry = (InMemoryResultSet.VarEntry) entries[i];
+                values[i * 2]     = entry.getValue();
+                values[i * 2 + 1] = entry.getType();
+            }
+            hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof JoinKey && hash == ((JoinKey) o).hash && Arrays.equals(values, ((JoinKey) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
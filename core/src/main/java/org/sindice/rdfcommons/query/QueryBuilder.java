@@ -108,13 +108,27 @@ public class QueryBuilder {
 
     /**
      * Executes the built query on the given triple set.
+     * The result rows are computed on demand while consuming the result set,
+     * the triple set must not be modified in the meanwhile.
      *
      * @param ts input triple set.
      * @return result set.
      */
     public ResultSet execOnTriples(TripleSet ts) {
+        return execOnTriples(ts, StreamingResultSet.NO_LIMIT);
+    }
+
+    /**
+     * Executes the built query on the given triple set returning at most <i>limit</i> rows.
+     * The evaluation stops as soon as the limit has been reached.
+     *
+     * @param ts input triple set.
+     * @param limit the maximum number of rows, {@link StreamingResultSet#NO_LIMIT} for no limit.
+     * @return result set.
+     */
+    public ResultSet execOnTriples(TripleSet ts, int limit) {
         TripleSetQueryExecutor queryExecutor = new TripleSetQueryExecutor();
-        return queryExecutor.filter(matchChain, ts);
+        return queryExecutor.stream(matchChain, ts, limit);
     }
 
     public String[] getVars() {
@@ -0,0 +1,821 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.query;
+
+import org.sindice.rdfcommons.adapter.DefaultDatatypeLiteral;
+import org.sindice.rdfcommons.adapter.DefaultLanguageLiteral;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleFilter;
+import org.sindice.rdfcommons.storage.SparqlEndPoint;
+import org.sindice.rdfcommons.vocabulary.RDFVocabulary;
+import org.sindice.rdfcommons.vocabulary.XMLSchemaTypes;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Parsed representation of a <i>SPARQL</i> query.
+ * <p>
+ * The supported subset covers the <i>SELECT</i>, <i>CONSTRUCT</i>, <i>DESCRIBE</i> and <i>ASK</i>
+ * forms over basic graph patterns: <i>PREFIX</i> and <i>BASE</i> declarations, <i>FROM</i> clauses,
+ * nested groups, the <i>;</i> and <i>,</i> abbreviations, blank nodes, typed and language literals,
+ * <i>DISTINCT</i>, <i>LIMIT</i> and <i>OFFSET</i>. Constants can also be written without angle brackets,
+ * as produced by {@link QueryBuilder#toSparqlSelect()}.
+ * Other constructs, like <i>OPTIONAL</i>, <i>UNION</i> and <i>FILTER</i>, are rejected.
+ * </p>
+ * <p>
+ * Terms are represented as strings: variables start with <i>?</i>, blank nodes with <i>_:</i>,
+ * any other string is a resource. Literals are represented by {@link LiteralTerm}s.
+ * Blank nodes in the <i>WHERE</i> clause are converted to variables excluded from <i>SELECT *</i>.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class SparqlQuery {
+
+    /**
+     * Prefix of the variables generated for the blank nodes in the <i>WHERE</i> clause.
+     */
+    public static final String BLANK_VARIABLE_PREFIX = "?_:";
+
+    private static final Set<String> UNSUPPORTED = new HashSet<String>(
+            Arrays.asList(
+                    "OPTIONAL", "UNION", "FILTER", "GRAPH", "MINUS", "BIND", "VALUES", "SERVICE",
+                    "ORDER", "GROUP", "HAVING", "NAMED"
+            )
+    );
+
+    private static final Pattern NUMBER = Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+
+    private static final String XSD_HASH = XMLSchemaTypes.XML_SCHEMA + "#";
+
+    private static final String XSD_SLASH = XMLSchemaTypes.XML_SCHEMA + "/";
+
+    private static final Set<String> NUMERIC_TYPES = new HashSet<String>(
+            Arrays.asList(
+                    XMLSchemaTypes.BYTE, XMLSchemaTypes.SHORT, XMLSchemaTypes.INT, XMLSchemaTypes.LONG,
+                    XMLSchemaTypes.FLOAT, XMLSchemaTypes.DOUBLE,
+                    XSD_SLASH + "integer", XSD_SLASH + "decimal", XSD_SLASH + "nonNegativeInteger",
+                    XSD_SLASH + "positiveInteger", XSD_SLASH + "negativeInteger", XSD_SLASH + "nonPositiveInteger",
+                    XSD_SLASH + "unsignedLong", XSD_SLASH + "unsignedInt", XSD_SLASH + "unsignedShort",
+                    XSD_SLASH + "unsignedByte"
+            )
+    );
+
+    private SparqlEndPoint.QueryType type;
+
+    private boolean distinct;
+
+    private final List<String> projection = new ArrayList<String>();
+
+    private final List<String> fromGraphs = new ArrayList<String>();
+
+    private final BasicGraphPattern where = new BasicGraphPattern();
+
+    private final List<Object[]> template = new ArrayList<Object[]>();
+
+    private final List<String> describeTerms = new ArrayList<String>();
+
+    private int limit  = StreamingResultSet.NO_LIMIT;
+
+    private int offset = 0;
+
+    /**
+     * Parses a <i>SPARQL</i> query.
+     *
+     * @param qry the query string.
+     * @return the parsed query.
+     * @throws IllegalArgumentException if the query is invalid or not supported.
+     */
+    public static SparqlQuery parse(String qry) {
+        if(qry == null) {
+            throw new NullPointerException("qry cannot be null.");
+        }
+        final SparqlQuery query = new SparqlQuery();
+        new Parser( tokenize(qry), query ).parse();
+        return query;
+    }
+
+    private SparqlQuery() {}
+
+    /**
+     * @return the query form.
+     */
+    public SparqlEndPoint.QueryType getType() {
+        return type;
+    }
+
+    /**
+     * @return <code>true</code> if the <i>SELECT</i> requires distinct results.
+     */
+    public boolean isDistinct() {
+        return distinct;
+    }
+
+    /**
+     * @return the projected variables, the <i>WHERE</i> variables for <i>SELECT *</i>.
+     */
+    public String[] getProjection() {
+        if( ! projection.isEmpty() ) {
+            return projection.toArray( new String[projection.size()] );
+        }
+        final List<String> vars = new ArrayList<String>();
+        for(String var : where.getVars()) {
+            if( ! var.startsWith(BLANK_VARIABLE_PREFIX) ) {
+                vars.add(var);
+            }
+        }
+        return vars.toArray( new String[vars.size()] );
+    }
+
+    /**
+     * @return the graphs declared with <i>FROM</i> clauses.
+     */
+    public List<String> getFromGraphs() {
+        return Collections.unmodifiableList(fromGraphs);
+    }
+
+    /**
+     * @return the <i>WHERE</i> clause, empty for a <i>DESCRIBE</i> of constant resources.
+     */
+    public BasicGraphPattern getWhere() {
+        return where;
+    }
+
+    /**
+     * @return the <i>CONSTRUCT</i> template, every element is a subject, predicate, object term array.
+     */
+    public List<Object[]> getTemplate() {
+        return Collections.unmodifiableList(template);
+    }
+
+    /**
+     * @return the resources and variables to be described.
+     */
+    public List<String> getDescribeTerms() {
+        return Collections.unmodifiableList(describeTerms);
+    }
+
+    /**
+     * @return the maximum number of solutions, {@link StreamingResultSet#NO_LIMIT} if not specified.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the number of solutions to be skipped.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Literal term of a query, matching triple objects by lexical form, datatype and language.
+     */
+    public static class LiteralTerm implements TripleFilter {
+
+        private final String lexical;
+
+        private final String datatype;
+
+        private final String language;
+
+        /**
+         * Constructor.
+         *
+         * @param lexical the lexical form.
+         * @param datatype the datatype, can be <code>null</code>.
+         * @param language the language, can be <code>null</code>.
+         */
+        public LiteralTerm(String lexical, String datatype, String language) {
+            if(lexical == null) {
+                throw new NullPointerException("lexical cannot be null.");
+            }
+            this.lexical  = lexical;
+            this.datatype = normalizeDatatype(datatype);
+            this.language = language;
+        }
+
+        public String getLexical() {
+            return lexical;
+        }
+
+        public String getDatatype() {
+            return datatype;
+        }
+
+        public String getLanguage() {
+            return language;
+        }
+
+        /**
+         * @return <code>true</code> if the literal has neither a datatype nor a language.
+         */
+        public boolean isPlain() {
+            return datatype == null && language == null;
+        }
+
+        /**
+         * @return the literal as triple object.
+         */
+        public Object toObject() {
+            if(language != null) {
+                return new DefaultLanguageLiteral(lexical, language);
+            }
+            if(datatype != null) {
+                return new DefaultDatatypeLiteral<String>(datatype, lexical);
+            }
+            return lexical;
+        }
+
+        public boolean acceptTriple(Triple triple) {
+            if( ! triple.isObjectLiteral() ) {
+                return false;
+            }
+            final String tripleLanguage = triple.getLiteralLanguage();
+            if(language != null || tripleLanguage != null) {
+                return
+                        language != null && language.equalsIgnoreCase(tripleLanguage)
+                                &&
+                        lexical.equals( triple.getObjectAsString() );
+            }
+            final String tripleDatatype = normalizeDatatype( triple.getLiteralDatatype() );
+            if(datatype == null || XMLSchemaTypes.STRING.equals(datatype)) {
+                return
+                        (tripleDatatype == null || XMLSchemaTypes.STRING.equals(tripleDatatype))
+                                &&
+                        lexical.equals( triple.getObjectAsString() );
+            }
+            if( NUMERIC_TYPES.contains(datatype) && NUMERIC_TYPES.contains(tripleDatatype) ) {
+                try {
+                    return new BigDecimal(lexical).compareTo( new BigDecimal(triple.getObjectAsString()) ) == 0;
+                } catch (NumberFormatException nfe) {
+                    return false;
+                }
+            }
+            return datatype.equals(tripleDatatype) && lexical.equals( triple.getObjectAsString() );
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append('"').append(lexical).append('"');
+            if(language != null) {
+                sb.append('@').append(language);
+            } else if(datatype != null) {
+                sb.append("^^<").append(datatype).append('>');
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Maps the standard <i>XML Schema</i> namespace to the one used by {@link XMLSchemaTypes}.
+         */
+        private static String normalizeDatatype(String datatype) {
+            if(datatype != null && datatype.startsWith(XSD_HASH)) {
+                return XSD_SLASH + datatype.substring( XSD_HASH.length() );
+            }
+            return datatype;
+        }
+    }
+
+    /* Tokenization. */
+
+    private enum TokenType {
+        IRI,
+        VAR,
+        STRING,
+        LANG,
+        DATATYPE_MARKER,
+        PUNCT,
+        WORD
+    }
+
+    private static class Token {
+
+        final TokenType type;
+        final String text;
+
+        Token(TokenType type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+
+        boolean is(String punct) {
+            return type == TokenType.PUNCT && text.equals(punct);
+        }
+
+        boolean isKeyword(String keyword) {
+            return type == TokenType.WORD && text.equalsIgnoreCase(keyword);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private static List<Token> tokenize(String qry) {
+        final List<Token> tokens = new ArrayList<Token>();
+        final int length = qry.length();
+        int i = 0;
+        while(i < length) {
+            final char c = qry.charAt(i);
+            if( Character.isWhitespace(c) ) {
+                i++;
+            } else if(c == '#') {
+                while(i < length && qry.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if(c == '<') {
+                final int end = qry.indexOf('>', i);
+                if(end < 0) {
+                    throw new IllegalArgumentException( String.format("Unterminated IRI at %d", i) );
+                }
+                tokens.add( new Token(TokenType.IRI, qry.substring(i + 1, end)) );
+                i = end + 1;
+            } else if(c == '?' || c == '$') {
+                int end = i + 1;
+                while(end < length && isNameChar(qry.charAt(end))) {
+                    end++;
+                }
+                if(end == i + 1) {
+                    throw new IllegalArgumentException( String.format("Invalid variable at %d", i) );
+                }
+                tokens.add( new Token(TokenType.VAR, "?" + qry.substring(i + 1, end)) );
+                i = end;
+            } else if(c == '"' || c == '\'') {
+                i = readString(qry, i, tokens);
+            } else if(c == '@') {
+                int end = i + 1;
+                while(end < length && (Character.isLetterOrDigit(qry.charAt(end)) || qry.charAt(end) == '-')) {
+                    end++;
+                }
+                tokens.add( new Token(TokenType.LANG, qry.substring(i + 1, end)) );
+                i = end;
+            } else if(c == '^' && i + 1 < length && qry.charAt(i + 1) == '^') {
+                tokens.add( new Token(TokenType.DATATYPE_MARKER, "^^") );
+                i += 2;
+            } else if("{}();,*[]".indexOf(c) >= 0 || (c == '.' && ! continuesWord(qry, i))) {
+                tokens.add( new Token(TokenType.PUNCT, String.valueOf(c)) );
+                i++;
+            } else {
+                int end = i;
+                while(end < length && isWordChar(qry, end)) {
+                    end++;
+                }
+                tokens.add( new Token(TokenType.WORD, qry.substring(i, end)) );
+                i = end;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static boolean isWordChar(String qry, int i) {
+        final char c = qry.charAt(i);
+        if( Character.isWhitespace(c) || "{}();,<\"'^".indexOf(c) >= 0 ) {
+            return false;
+        }
+        return c != '.' || continuesWord(qry, i);
+    }
+
+    /**
+     * A dot continues a word if followed by a character that can be part of a word.
+     */
+    private static boolean continuesWord(String qry, int i) {
+        if(i + 1 >= qry.length()) {
+            return false;
+        }
+        final char next = qry.charAt(i + 1);
+        return ! Character.isWhitespace(next) && "{}();,<\"'.#".indexOf(next) < 0;
+    }
+
+    private static int readString(String qry, int begin, List<Token> tokens) {
+        final char quote = qry.charAt(begin);
+        final boolean isLong = qry.startsWith( new String(new char[]{quote, quote, quote}), begin );
+        int i = begin + (isLong ? 3 : 1);
+        final StringBuilder sb = new StringBuilder();
+        while(true) {
+            if(i >= qry.length()) {
+                throw new IllegalArgumentException( String.format("Unterminated string at %d", begin) );
+            }
+            final char c = qry.charAt(i);
+            if(c == '\\') {
+                if(i + 1 >= qry.length()) {
+                    throw new IllegalArgumentException( String.format("Invalid escape at %d", i) );
+                }
+                final char e = qry.charAt(i + 1);
+                switch (e) {
+                    case 't': sb.append('\t'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if(i + 6 > qry.length()) {
+                            throw new IllegalArgumentException( String.format("Invalid escape at %d", i) );
+                        }
+                        sb.append( (char) Integer.parseInt(qry.substring(i + 2, i + 6), 16) );
+                        i += 4;
+                        break;
+                    default: sb.append(e);
+                }
+                i += 2;
+            } else if(c == quote && (! isLong || qry.startsWith(new String(new char[]{quote, quote, quote}), i))) {
+                tokens.add( new Token(TokenType.STRING, sb.toString()) );
+                return i + (isLong ? 3 : 1);
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Recursive descent parser filling a {@link SparqlQuery}.
+     */
+    private static class Parser {
+
+        private final List<Token> tokens;
+
+        private final SparqlQuery query;
+
+        private final Map<String,String> prefixes = new HashMap<String,String>();
+
+        private String base;
+
+        private int position;
+
+        private int anonymousCounter;
+
+        Parser(List<Token> tokens, SparqlQuery query) {
+            this.tokens = tokens;
+            this.query  = query;
+        }
+
+        void parse() {
+            parsePrologue();
+            final Token form = next();
+            if( form.isKeyword("SELECT") ) {
+                query.type = SparqlEndPoint.QueryType.select;
+                parseSelectClause();
+                parseDatasetClauses();
+                parseWhereClause(true);
+            } else if( form.isKeyword("CONSTRUCT") ) {
+                query.type = SparqlEndPoint.QueryType.construct;
+                parseConstructTemplate();
+                parseDatasetClauses();
+                parseWhereClause(true);
+            } else if( form.isKeyword("DESCRIBE") ) {
+                query.type = SparqlEndPoint.QueryType.describe;
+                parseDescribeClause();
+                parseDatasetClauses();
+                parseWhereClause(false);
+            } else if( form.isKeyword("ASK") ) {
+                query.type = SparqlEndPoint.QueryType.ask;
+                parseDatasetClauses();
+                parseWhereClause(true);
+            } else {
+                throw new IllegalArgumentException( String.format("Unknown query form '%s'", form) );
+            }
+            parseSolutionModifiers();
+            if(position < tokens.size()) {
+                throw new IllegalArgumentException( String.format("Unexpected token '%s'", peek()) );
+            }
+        }
+
+        private void parsePrologue() {
+            while(true) {
+                if( peekKeyword("PREFIX") ) {
+                    next();
+                    final Token name = next();
+                    if(name.type != TokenType.WORD || ! name.text.endsWith(":")) {
+                        throw new IllegalArgumentException( String.format("Invalid prefix '%s'", name) );
+                    }
+                    prefixes.put( name.text.substring(0, name.text.length() - 1), expect(TokenType.IRI).text );
+                } else if( peekKeyword("BASE") ) {
+                    next();
+                    base = expect(TokenType.IRI).text;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void parseSelectClause() {
+            if( peekKeyword("DISTINCT") || peekKeyword("REDUCED") ) {
+                query.distinct = next().isKeyword("DISTINCT");
+            }
+            if( peekPunct("*") ) {
+                next();
+                return;
+            }
+            while( position < tokens.size() && peek().type == TokenType.VAR ) {
+                query.projection.add( next().text );
+            }
+            if(query.projection.isEmpty()) {
+                throw new IllegalArgumentException("Expected variables or '*' after SELECT.");
+            }
+        }
+
+        private void parseDescribeClause() {
+            if( peekPunct("*") ) {
+                next();
+                return;
+            }
+            while(position < tokens.size()) {
+                final Token token = peek();
+                if(token.type == TokenType.VAR) {
+                    query.describeTerms.add( next().text );
+                } else if(
+                        token.type == TokenType.IRI
+                                ||
+                        (token.type == TokenType.WORD && ! isClauseKeyword(token))
+                ) {
+                    query.describeTerms.add( (String) parseTerm(Position.subject) );
+                } else {
+                    break;
+                }
+            }
+            if(query.describeTerms.isEmpty()) {
+                throw new IllegalArgumentException("Expected resources, variables or '*' after DESCRIBE.");
+            }
+        }
+
+        private void parseDatasetClauses() {
+            while( peekKeyword("FROM") ) {
+                next();
+                checkSupported( peek() );
+                query.fromGraphs.add( (String) parseTerm(Position.subject) );
+            }
+        }
+
+        private void parseWhereClause(boolean required) {
+            if( peekKeyword("WHERE") ) {
+                next();
+            } else if( ! peekPunct("{") ) {
+                if(required) {
+                    throw new IllegalArgumentException("Expected WHERE clause.");
+                }
+                return;
+            }
+            parseGroup(false);
+            if(query.type == SparqlEndPoint.QueryType.describe && query.describeTerms.isEmpty()) {
+                query.describeTerms.addAll( Arrays.asList(query.getProjection()) );
+            }
+        }
+
+        private void parseConstructTemplate() {
+            parseGroup(true);
+        }
+
+        private void parseGroup(boolean isTemplate) {
+            expectPunct("{");
+            while(true) {
+                final Token token = peek();
+                if( token.is("}") ) {
+                    next();
+                    return;
+                }
+                if( token.is("{") ) {
+                    parseGroup(isTemplate);
+                } else if( token.is(".") ) {
+                    next();
+                } else {
+                    checkSupported(token);
+                    parseTriplesSameSubject(isTemplate);
+                }
+            }
+        }
+
+        private void parseTriplesSameSubject(boolean isTemplate) {
+            final Object sub = parseTerm(Position.subject);
+            while(true) {
+                final Object pred = parseTerm(Position.predicate);
+                while(true) {
+                    addTriple( isTemplate, sub, pred, parseTerm(Position.object) );
+                    if( peekPunct(",") ) {
+                        next();
+                    } else {
+                        break;
+                    }
+                }
+                if( ! peekPunct(";") ) {
+                    return;
+                }
+                next();
+                if( peekPunct(".") || peekPunct("}") ) {
+                    return;
+                }
+            }
+        }
+
+        private void addTriple(boolean isTemplate, Object sub, Object pred, Object obj) {
+            if(isTemplate) {
+                query.template.add( new Object[]{sub, pred, obj} );
+                return;
+            }
+            final String patternSub  = toPatternTerm(sub);
+            final String patternPred = toPatternTerm(pred);
+            if(obj instanceof LiteralTerm) {
+                final LiteralTerm literal = (LiteralTerm) obj;
+                query.where.addPattern(patternSub, patternPred, literal.isPlain() ? literal.getLexical() : null, literal);
+            } else {
+                query.where.addPattern(patternSub, patternPred, toPatternTerm(obj));
+            }
+        }
+
+        private String toPatternTerm(Object term) {
+            final String s = (String) term;
+            return s.startsWith("_:") ? "?" + s : s;
+        }
+
+        private void parseSolutionModifiers() {
+            while(position < tokens.size()) {
+                final Token token = next();
+                if( token.isKeyword("LIMIT") ) {
+                    query.limit = parseInteger();
+                } else if( token.isKeyword("OFFSET") ) {
+                    query.offset = parseInteger();
+                } else {
+                    checkSupported(token);
+                    throw new IllegalArgumentException( String.format("Unexpected token '%s'", token) );
+                }
+            }
+        }
+
+        private int parseInteger() {
+            final Token token = next();
+            try {
+                final int value = Integer.parseInt(token.text);
+                if(value < 0) {
+                    throw new NumberFormatException();
+                }
+                return value;
+            } catch (NumberFormatException nfe) {
+                throw new IllegalArgumentException( String.format("Expected non negative integer, found '%s'", token) );
+            }
+        }
+
+        private Object parseTerm(Position termPosition) {
+            final Token token = next();
+            switch (token.type) {
+                case VAR:
+                    return token.text;
+                case IRI:
+                    return resolve(token.text);
+                case STRING:
+                    checkLiteralPosition(token, termPosition);
+                    if( position < tokens.size() && peek().type == TokenType.LANG ) {
+                        return new LiteralTerm(token.text, null, next().text);
+                    }
+                    if( position < tokens.size() && peek().type == TokenType.DATATYPE_MARKER ) {
+                        next();
+                        return new LiteralTerm(token.text, (String) parseTerm(Position.subject), null);
+                    }
+                    return new LiteralTerm(token.text, null, null);
+                case PUNCT:
+                    if( token.is("[") ) {
+                        expectPunct("]");
+                        return "_:anonymous" + anonymousCounter++;
+                    }
+                    throw new IllegalArgumentException( String.format("Unexpected token '%s'", token) );
+                case WORD:
+                    return parseWord(token, termPosition);
+                default:
+                    throw new IllegalArgumentException( String.format("Unexpected token '%s'", token) );
+            }
+        }
+
+        private Object parseWord(Token token, Position termPosition) {
+            final String text = token.text;
+            if(termPosition == Position.predicate && text.equals("a")) {
+                return RDFVocabulary.TYPE;
+            }
+            if( text.startsWith("_:") ) {
+                return text;
+            }
+            if(termPosition == Position.object) {
+                if( text.equals("true") || text.equals("false") ) {
+                    return new LiteralTerm(text, XMLSchemaTypes.BOOLEAN, null);
+                }
+                if( NUMBER.matcher(text).matches() ) {
+                    final String datatype;
+                    if( text.indexOf('e') >= 0 || text.indexOf('E') >= 0 ) {
+                        datatype = XMLSchemaTypes.DOUBLE;
+                    } else if( text.indexOf('.') >= 0 ) {
+                        datatype = XSD_SLASH + "decimal";
+                    } else {
+                        datatype = XSD_SLASH + "integer";
+                    }
+                    return new LiteralTerm(text, datatype, null);
+                }
+            }
+            checkSupported(token);
+            final int colon = text.indexOf(':');
+            if(colon >= 0) {
+                final String namespace = prefixes.get( text.substring(0, colon) );
+                if(namespace != null) {
+                    return namespace + text.substring(colon + 1);
+                }
+            }
+            return text;
+        }
+
+        private String resolve(String iri) {
+            if(base != null && iri.indexOf(':') < 0) {
+                return base + iri;
+            }
+            return iri;
+        }
+
+        private void checkLiteralPosition(Token token, Position termPosition) {
+            if(termPosition != Position.object) {
+                throw new IllegalArgumentException(
+                        String.format("Literal '%s' not allowed in %s position", token, termPosition)
+                );
+            }
+        }
+
+        private void checkSupported(Token token) {
+            if( token.type == TokenType.WORD && UNSUPPORTED.contains(token.text.toUpperCase()) ) {
+                throw new IllegalArgumentException( String.format("Unsupported SPARQL feature '%s'", token) );
+            }
+        }
+
+        private boolean isClauseKeyword(Token token) {
+            return token.isKeyword("WHERE") || token.isKeyword("FROM")
+                    || token.isKeyword("LIMIT") || token.isKeyword("OFFSET");
+        }
+
+        private Token peek() {
+            if(position >= tokens.size()) {
+                throw new IllegalArgumentException("Unexpected end of query.");
+            }
+            return tokens.get(position);
+        }
+
+        private boolean peekKeyword(String keyword) {
+            return position < tokens.size() && tokens.get(position).isKeyword(keyword);
+        }
+
+        private boolean peekPunct(String punct) {
+            return position < tokens.size() && tokens.get(position).is(punct);
+        }
+
+        private Token next() {
+            final Token token = peek();
+            position++;
+            return token;
+        }
+
+        private Token expect(TokenType type) {
+            final Token token = next();
+            if(token.type != type) {
+                throw new IllegalArgumentException( String.format("Expected %s, found '%s'", type, token) );
+            }
+            return token;
+        }
+
+        private void expectPunct(String punct) {
+            if( ! next().is(punct) ) {
+                throw new IllegalArgumentException( String.format("Expected '%s'", punct) );
+            }
+        }
+    }
+
+    private enum Position {
+        subject,
+        predicate,
+        object
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.query;
+
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.storage.InMemoryResultSet;
+import org.sindice.rdfcommons.storage.ResultSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link ResultSet} computing the rows of a {@link JoinPlan} on demand.
+ * <p>
+ * The plan steps are evaluated depth first: the driving step is scanned lazily and every row
+ * produced by a step probes the hash table of the next one, so a row is computed only when
+ * requested by {@link #hasNext()} and the result is never materialized. The evaluation
+ * stops as soon as the optional limit has been reached.
+ * </p>
+ * <p>
+ * The input triple set must not be modified while the result set is being consumed.
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class StreamingResultSet implements ResultSet {
+
+    /**
+     * Limit value meaning that all the rows must be returned.
+     */
+    public static final int NO_LIMIT = -1;
+
+    private final String[] variables;
+
+    private final Map<String,Integer> varToIndex;
+
+    private final JoinPlan.Step[] steps;
+
+    private final int limit;
+
+    /**
+     * Input row of every step.
+     */
+    private final InMemoryResultSet.VarEntry[][] inputs;
+
+    /**
+     * Triples compatible with the input row of every step, still to be visited.
+     */
+    private final List<Iterator<Triple>> candidates;
+
+    private int depth;
+
+    private int returned;
+
+    private InMemoryResultSet.VarEntry[] current;
+
+    /**
+     * Constructor.
+     *
+     * @param plan the plan to be evaluated.
+     * @param limit the maximum number of rows to be returned, {@link #NO_LIMIT} for no limit.
+     */
+    StreamingResultSet(JoinPlan plan, int limit) {
+        if(limit < 0 && limit != NO_LIMIT) {
+            throw new IllegalArgumentException( String.format("Invalid limit %d", limit) );
+        }
+        this.variables  = plan.getVars();
+        this.varToIndex = new HashMap<String,Integer>();
+        for(int i = 0; i < variables.length; i++) {
+            varToIndex.put(variables[i], i);
+        }
+        this.steps      = plan.getSteps();
+        this.limit      = limit;
+        this.inputs     = new InMemoryResultSet.VarEntry[steps.length][];
+        this.candidates = new ArrayList<Iterator<Triple>>(steps.length);
+        for(int i = 0; i < steps.length; i++) {
+            candidates.add(null);
+        }
+        if(limit == 0 || steps.length == 0) {
+            depth = -1;
+        } else {
+            enterStep(0, new InMemoryResultSet.VarEntry[variables.length]);
+        }
+    }
+
+    public boolean hasNext() {
+        if(current == null) {
+            current = nextRow();
+        }
+        return current != null;
+    }
+
+    public void next() {
+        if( ! hasNext() ) {
+            throw new NoSuchElementException();
+        }
+        current = null;
+    }
+
+    public Object getVariableValue(String var) {
+        return getEntry(var).getValue();
+    }
+
+    public String getVariableString(String var) {
+        return (String) getVariableValue(var);
+    }
+
+    public VariableType getVariableType(String var) {
+        return getEntry(var).getType();
+    }
+
+    public String[] getVariables() {
+        return Arrays.copyOf(variables, variables.length);
+    }
+
+    /**
+     * @return the number of rows returned so far.
+     */
+    public int getReturnedCount() {
+        return returned;
+    }
+
+    private InMemoryResultSet.VarEntry getEntry(String var) {
+        final Integer i = varToIndex.get(var);
+        if(i == null) {
+            throw new IllegalArgumentException( String.format("Unknown variable [%s]", var) );
+        }
+        if( ! hasNext() ) {
+            throw new NoSuchElementException("The result set has been consumed.");
+        }
+        return current[i];
+    }
+
+    /**
+     * Computes the next row, visiting the candidates of every step in the order returned by the step.
+     *
+     * @return the next row or <code>null</code> if the result has been consumed.
+     */
+    private InMemoryResultSet.VarEntry[] nextRow() {
+        if(limit != NO_LIMIT && returned >= limit) {
+            depth = -1;
+        }
+        while(depth >= 0) {
+            final Iterator<Triple> stepCandidates = candidates.get(depth);
+            if( ! stepCandidates.hasNext() ) {
+                candidates.set(depth, null);
+                depth--;
+                continue;
+            }
+            final Triple triple = stepCandidates.next();
+            final InMemoryResultSet.VarEntry[] row = steps[depth].extend(inputs[depth], triple);
+            if(depth == steps.length - 1) {
+                returned++;
+                return row;
+            }
+            enterStep(depth + 1, row);
+        }
+        return null;
+    }
+
+    private void enterStep(int step, InMemoryResultSet.VarEntry[] input) {
+        depth = step;
+        inputs[step] = input;
+        candidates.set( step, step == 0 ? steps[step].scan() : steps[step].probeIterator(input) );
+    }
+
+}
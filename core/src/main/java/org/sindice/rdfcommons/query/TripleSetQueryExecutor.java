@@ -19,19 +19,16 @@ package org.sindice.rdfcommons.query;
 import org.sindice.rdfcommons.storage.InMemoryResultSet;
 import org.sindice.rdfcommons.storage.ResultSet;
 import org.sindice.rdfcommons.model.Triple;
-import org.sindice.rdfcommons.model.TripleBuffer;
-import org.sindice.rdfcommons.model.TripleFilter;
 import org.sindice.rdfcommons.model.TripleSet;
 
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.Stack;
 
 
 /**
- * Executes a {@link Query}.
+ * Executes a {@link Query} over a {@link TripleSet}.
  *
  * @author Michele Mostarda ( mostarda@fbk.eu )
  * @version $Id$
@@ -122,6 +119,10 @@ public class TripleSetQueryExecutor {
             throw new IllegalArgumentException();
         }
 
+        List<List<Triple>> triples = new ArrayList<List<Triple>>(sets.length);
+        for(TripleSet set : sets) {
+            triples.add( set.getTriples() );
+        }
         int[] indexes = new int[sets.length];
         int cursor = 0;
         Match match;
@@ -132,8 +133,7 @@ public class TripleSetQueryExecutor {
             Set<String> processedVars = new HashSet<String>();
             for(int i = 0; i < matches.length; i++) {
                 match = matches[i];
-                List<Triple> triples = sets[i].getTriples();  // TODO: this MUST be optimized.
-                Triple triple = triples.get(indexes[i]);
+                Triple triple = triples.get(i).get(indexes[i]);
 
                 if(match.isSubVar()) {
                     if( ! processedVars.contains(match.getSub()) ) {
@@ -171,6 +171,31 @@ public class TripleSetQueryExecutor {
         }
     }
 
+    /**
+     * Evaluates a {@link MatchChain} over a triple set, computing the rows on demand.
+     * The matches are ordered by a {@link JoinPlan} and joined with hash joins on the shared variables,
+     * the result variables preserve the order declared by the query.
+     *
+     * @param qry the query to be evaluated.
+     * @param in the input triples, must not be modified while the result is consumed.
+     * @param limit the maximum number of rows, {@link StreamingResultSet#NO_LIMIT} for no limit.
+     * @return the lazy result set.
+     */
+    protected StreamingResultSet stream(MatchChain qry, TripleSet in, int limit) {
+        if(qry.isEmpty()) {
+            throw new IllegalArgumentException("qry cannot be empty.");
+        }
+        return new StreamingResultSet( JoinPlan.create(qry, in), limit );
+    }
+
+    /**
+     * Evaluates a {@link MatchChain} over a triple set, materializing the result.
+     *
+     * @param qry the query to be evaluated.
+     * @param in the input triples.
+     * @return the result set.
+     * @see #stream(MatchChain, org.sindice.rdfcommons.model.TripleSet, int)
+     */
     protected ResultSet filter(MatchChain qry, TripleSet in) {
         if(qry.isEmpty()) {
             throw new IllegalArgumentException("qry cannot be empty.");
@@ -182,76 +207,20 @@ public class TripleSetQueryExecutor {
             return rs;
         }
 
-        // Creating initial results.
-        TripleSet matchSet = in.getTriples( new InternalFilter( qry.get(0) ) );
-        Stack<TripleSet> partialResults = new Stack<TripleSet>();
-        for(Triple triple : matchSet) {
-            partialResults.push( new TripleBuffer(triple) );
-        }
-
-        Match previous = qry.get(0);
-        Match currentMatch;
-        TripleSet nextPartial;
-        while( ! partialResults.isEmpty() ) {
-
-            nextPartial = partialResults.peek();
-
-            for(Triple triple : nextPartial) {
-
-                boolean completed = true;
-                for(int i = 1; i < qry.size(); i++) {
-
-                    currentMatch = qry.get(i);
-
-                    Match newMatch = createMatch(triple, previous, currentMatch);
-                    matchSet = in.getTriples( new InternalFilter(newMatch) );
-
-                    if(matchSet.getSize() == 0) {
-                        completed = false;
-                        // Removing incomplete results.
-                        for(int j = 1; j < i; j++) {
-                            partialResults.pop();
-                        }
-                        break;
-                    }
-
-                    partialResults.push(matchSet);
-
-                }
-
-                if(completed) {
-                    TripleSet[] sets = new TripleSet[qry.size()];
-                    for(int i = qry.size() - 1; i >= 0; i--) {
-                        sets[i] = partialResults.pop();
-                    }
-                    multiply(qry.getMatches(), sets, rs);
-                }
-
+        final StreamingResultSet stream = stream(qry, in, StreamingResultSet.NO_LIMIT);
+        final String[] vars = stream.getVariables();
+        InMemoryResultSet.VarEntry[] row;
+        while(stream.hasNext()) {
+            row = new InMemoryResultSet.VarEntry[vars.length];
+            for(int i = 0; i < vars.length; i++) {
+                row[i] = new InMemoryResultSet.VarEntry(
+                        stream.getVariableValue(vars[i]), stream.getVariableType(vars[i])
+                );
             }
-
+            rs.addResult(row);
+            stream.next();
         }
-
         return rs;
     }
 
-    class InternalFilter implements TripleFilter {
-
-        private Match match;
-
-        InternalFilter(Match m) {
-            match = m;
-        }
-
-        public boolean acceptTriple(Triple triple) {
-            return
-            ( match.isSubVar()  || triple.getSubject().equals( match.getSub())   )
-                    &&
-            ( match.isPredVar() || triple.getPredicate().equals(match.getPred()) )
-                    &&
-            ( match.isObjVar()  || triple.getObject().equals( match.getObj())    );
-
-        }
-    }
-
-
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.serialization;
+
+import java.nio.charset.Charset;
+
+/**
+ * Constants of the binary triple format written by {@link BinaryTripleWriter}
+ * and read by {@link BinaryTripleReader}.
+ * <p>
+ * A stream starts with the magic bytes <code>RDFB</code> followed by the version byte and
+ * continues with a sequence of blocks. Every block is framed as
+ * <code>varint(length) payload crc32(payload)</code>, where the checksum is a big endian integer,
+ * and the stream ends with an empty block. The first byte of a payload carries the block flags,
+ * then the statements follow up to the end of the payload.
+ * </p>
+ * <p>
+ * Every statement starts with a flags byte declaring the kind of subject, object and the presence
+ * of the graph, then lists its terms. <i>URI</i>s and blank nodes are coded with
+ * separate dictionaries: a term is written as the <code>varint</code> of its identifier and, when the
+ * identifier is equal to the size of the dictionary, the term definition follows. Literals are either
+ * shared through a third dictionary, with identifiers shifted by one, or written inline after a
+ * <code>0</code>. A literal definition is a type tag followed by the value, the primitive types and the
+ * dates are written as native binary values.
+ * </p>
+ * <p>
+ * Strings are written as the <code>varint</code> length of their <i>UTF-8</i> encoding followed
+ * by the bytes, signed integers use the <i>zig-zag</i> encoding.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+final class BinaryTripleFormat {
+
+    static final byte[] MAGIC = { 'R', 'D', 'F', 'B' };
+
+    static final int VERSION = 1;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // Block flags.
+
+    static final int BLOCK_RESET_DICTIONARIES = 0x01;
+
+    // Statement flags.
+
+    static final int SUBJECT_BNODE  = 0x01;
+
+    static final int OBJECT_BNODE   = 0x02;
+
+    static final int OBJECT_LITERAL = 0x04;
+
+    static final int GRAPH          = 0x08;
+
+    // Literal tags.
+
+    static final int LITERAL_PLAIN    = 0;
+
+    static final int LITERAL_LANGUAGE = 1;
+
+    static final int LITERAL_DATATYPE = 2;
+
+    static final int LITERAL_BOOLEAN  = 3;
+
+    static final int LITERAL_BYTE     = 4;
+
+    static final int LITERAL_SHORT    = 5;
+
+    static final int LITERAL_INT      = 6;
+
+    static final int LITERAL_LONG     = 7;
+
+    static final int LITERAL_FLOAT    = 8;
+
+    static final int LITERAL_DOUBLE   = 9;
+
+    static final int LITERAL_DATE     = 10;
+
+    /**
+     * Literal identifier marking an inline literal.
+     */
+    static final int INLINE_LITERAL = 0;
+
+    private BinaryTripleFormat() {}
+
+}
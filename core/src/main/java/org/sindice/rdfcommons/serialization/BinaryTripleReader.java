@@ -0,0 +1,331 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.serialization;
+
+import org.sindice.rdfcommons.adapter.DefaultDatatypeLiteral;
+import org.sindice.rdfcommons.adapter.DefaultLanguageLiteral;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleImpl;
+import org.sindice.rdfcommons.model.TripleSet;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.sindice.rdfcommons.serialization.BinaryTripleFormat.*;
+
+/**
+ * Streaming reader of the binary triple format described in {@link BinaryTripleFormat}.
+ * <p>
+ * Blocks are read entirely and verified against their checksum before decoding, the terms are
+ * shared through the dictionaries so repeated terms are decoded once and returned as the same instance.
+ * Literals written as primitive values are returned as the corresponding boxed objects,
+ * the other literals as {@link String}, {@link DefaultLanguageLiteral} or {@link DefaultDatatypeLiteral}
+ * holding the lexical form.
+ * </p>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @see BinaryTripleWriter
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class BinaryTripleReader {
+
+    private final InputStream is;
+
+    private final CRC32 crc = new CRC32();
+
+    private final List<String> uris = new ArrayList<String>();
+
+    private final List<String> bnodes = new ArrayList<String>();
+
+    private final List<Object> literals = new ArrayList<Object>();
+
+    private byte[] block = new byte[BinaryTripleWriter.DEFAULT_BLOCK_SIZE + 1024];
+
+    private int position;
+
+    private int limit;
+
+    private int blockCount;
+
+    private boolean ended;
+
+    /**
+     * Constructor.
+     *
+     * @param is the input stream to read from.
+     * @throws IOException if the stream doesn't start with a valid header.
+     */
+    public BinaryTripleReader(InputStream is) throws IOException {
+        if(is == null) {
+            throw new NullPointerException("is cannot be null.");
+        }
+        this.is = is;
+        final byte[] header = new byte[MAGIC.length + 1];
+        readFully(header, header.length);
+        for(int i = 0; i < MAGIC.length; i++) {
+            if(header[i] != MAGIC[i]) {
+                throw new IOException("Not a binary triple stream.");
+            }
+        }
+        if(header[MAGIC.length] != VERSION) {
+            throw new IOException("Unsupported binary triple format version: " + header[MAGIC.length]);
+        }
+    }
+
+    /**
+     * Reads the next triple.
+     *
+     * @return the triple or <code>null</code> if the end of the stream has been reached.
+     * @throws IOException if an error occurs while reading or the stream is corrupted.
+     */
+    public Triple readTriple() throws IOException {
+        if(position == limit && ! nextBlock()) {
+            return null;
+        }
+        try {
+            final int flags = readByte();
+            final String subject   = readTerm( (flags & SUBJECT_BNODE) != 0 ? bnodes : uris );
+            final String predicate = readTerm(uris);
+            final Object object;
+            final Triple.ObjectType objectType;
+            if( (flags & OBJECT_LITERAL) != 0 ) {
+                object     = readLiteral();
+                objectType = Triple.ObjectType.literal;
+            } else if( (flags & OBJECT_BNODE) != 0 ) {
+                object     = readTerm(bnodes);
+                objectType = Triple.ObjectType.bnode;
+            } else {
+                object     = readTerm(uris);
+                objectType = Triple.ObjectType.uri;
+            }
+            final String graph = (flags & GRAPH) != 0 ? readTerm(uris) : null;
+            return new TripleImpl<Object>(
+                    subject,
+                    predicate,
+                    object,
+                    (flags & SUBJECT_BNODE) != 0 ? Triple.SubjectType.bnode : Triple.SubjectType.uri,
+                    objectType,
+                    graph
+            );
+        } catch (ArrayIndexOutOfBoundsException aioobe) {
+            throw new IOException("Truncated statement in block " + blockCount);
+        }
+    }
+
+    /**
+     * Reads all the remaining triples into a triple set.
+     *
+     * @param tripleSet the triple set to be filled.
+     * @return the number of triples read.
+     * @throws IOException if an error occurs while reading or the stream is corrupted.
+     */
+    public int read(TripleSet tripleSet) throws IOException {
+        int count = 0;
+        Triple triple;
+        while( (triple = readTriple()) != null ) {
+            tripleSet.addTriple(triple);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Closes the input stream.
+     *
+     * @throws IOException if an error occurs while closing.
+     */
+    public void close() throws IOException {
+        is.close();
+    }
+
+    private boolean nextBlock() throws IOException {
+        if(ended) {
+            return false;
+        }
+        int length = 0;
+        for(int shift = 0; ; shift += 7) {
+            final int b = is.read();
+            if(b == -1) {
+                throw new EOFException("Missing end of stream marker.");
+            }
+            if(shift > 28) {
+                throw new IOException("Invalid block length.");
+            }
+            length |= (b & 0x7F) << shift;
+            if( (b & 0x80) == 0 ) {
+                break;
+            }
+        }
+        if(length == 0) {
+            ended = true;
+            return false;
+        }
+        if(block.length < length + 4) {
+            block = new byte[length + 4];
+        }
+        readFully(block, length + 4);
+        crc.reset();
+        crc.update(block, 0, length);
+        final int expected =
+                (block[length] & 0xFF) << 24 | (block[length + 1] & 0xFF) << 16 |
+                (block[length + 2] & 0xFF) << 8 | (block[length + 3] & 0xFF);
+        blockCount++;
+        if( (int) crc.getValue() != expected ) {
+            throw new IOException("Checksum mismatch in block " + blockCount);
+        }
+        position = 0;
+        limit    = length;
+        if( (readByte() & BLOCK_RESET_DICTIONARIES) != 0 ) {
+            uris.clear();
+            bnodes.clear();
+            literals.clear();
+        }
+        return position < limit || nextBlock();
+    }
+
+    private void readFully(byte[] buffer, int length) throws IOException {
+        int read = 0;
+        while(read < length) {
+            final int r = is.read(buffer, read, length - read);
+            if(r == -1) {
+                throw new EOFException("Unexpected end of stream.");
+            }
+            read += r;
+        }
+    }
+
+    private String readTerm(List<String> dictionary) throws IOException {
+        final int id = readVarInt();
+        if(id < dictionary.size()) {
+            return dictionary.get(id);
+        }
+        if(id != dictionary.size()) {
+            throw new IOException("Undefined term identifier " + id + " in block " + blockCount);
+        }
+        final String term = readString();
+        dictionary.add(term);
+        return term;
+    }
+
+    private Object readLiteral() throws IOException {
+        final int id = readVarInt();
+        if(id == INLINE_LITERAL) {
+            return readLiteralDefinition();
+        }
+        if(id - 1 < literals.size()) {
+            return literals.get(id - 1);
+        }
+        if(id - 1 != literals.size()) {
+            throw new IOException("Undefined literal identifier " + id + " in block " + blockCount);
+        }
+        final Object literal = readLiteralDefinition();
+        literals.add(literal);
+        return literal;
+    }
+
+    private Object readLiteralDefinition() throws IOException {
+        final int tag = readByte();
+        switch(tag) {
+            case LITERAL_PLAIN:
+                return readString();
+            case LITERAL_LANGUAGE:
+                final String label = readString();
+                return new DefaultLanguageLiteral( label, readString() );
+            case LITERAL_DATATYPE:
+                final String value = readString();
+                return new DefaultDatatypeLiteral<String>( readTerm(uris), value );
+            case LITERAL_BOOLEAN:
+                return readByte() != 0;
+            case LITERAL_BYTE:
+                return (byte) readByte();
+            case LITERAL_SHORT:
+                return (short) unZigZag( readVarLong() );
+            case LITERAL_INT:
+                return (int) unZigZag( readVarLong() );
+            case LITERAL_LONG:
+                return unZigZag( readVarLong() );
+            case LITERAL_FLOAT:
+                return Float.intBitsToFloat( (int) readFixed(4) );
+            case LITERAL_DOUBLE:
+                return Double.longBitsToDouble( readFixed(8) );
+            case LITERAL_DATE:
+                return new Date( unZigZag( readVarLong() ) );
+            default:
+                throw new IOException("Unknown literal type " + tag + " in block " + blockCount);
+        }
+    }
+
+    private String readString() throws IOException {
+        final int length = readVarInt();
+        if(length > limit - position) {
+            throw new IOException("Truncated string in block " + blockCount);
+        }
+        final String result = new String(block, position, length, UTF8);
+        position += length;
+        return result;
+    }
+
+    private int readByte() {
+        if(position >= limit) {
+            throw new ArrayIndexOutOfBoundsException(position);
+        }
+        return block[position++] & 0xFF;
+    }
+
+    private long readFixed(int bytes) {
+        long value = 0;
+        for(int i = 0; i < bytes; i++) {
+            value = (value << 8) | readByte();
+        }
+        return value;
+    }
+
+    private int readVarInt() {
+        int value = 0;
+        for(int shift = 0; ; shift += 7) {
+            final int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if( (b & 0x80) == 0 ) {
+                return value;
+            }
+        }
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for(int shift = 0; ; shift += 7) {
+            final int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if( (b & 0x80) == 0 ) {
+                return value;
+            }
+        }
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.serialization;
+
+import org.sindice.rdfcommons.model.DatatypeLiteral;
+import org.sindice.rdfcommons.model.LanguageLiteral;
+import org.sindice.rdfcommons.model.TermDictionary;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleSet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.zip.CRC32;
+
+import static org.sindice.rdfcommons.serialization.BinaryTripleFormat.*;
+
+/**
+ * Streaming writer of the binary triple format described in {@link BinaryTripleFormat}.
+ * <p>
+ * Statements are accumulated in a block buffer which is framed and written to the output stream
+ * once it reaches the block size. When the dictionaries exceed the configured size they are
+ * cleared at the beginning of the next block, bounding the memory used by long streams.
+ * </p>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @see BinaryTripleReader
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class BinaryTripleWriter {
+
+    /**
+     * Default size of the written blocks.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Default maximum number of terms kept in the dictionaries.
+     */
+    public static final int DEFAULT_MAX_DICTIONARY_SIZE = 1024 * 1024;
+
+    /**
+     * Literals longer than this are always written inline.
+     */
+    private static final int MAX_SHARED_LITERAL_LENGTH = 64;
+
+    private final OutputStream os;
+
+    private final int blockSize;
+
+    private final int maxDictionarySize;
+
+    private final CRC32 crc = new CRC32();
+
+    private final byte[] frame = new byte[5];
+
+    private byte[] block;
+
+    private int position;
+
+    private TermDictionary uris;
+
+    private TermDictionary bnodes;
+
+    private TermDictionary literals;
+
+    private boolean resetPending;
+
+    private long triplesWritten;
+
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param os the output stream to write to.
+     * @param blockSize the size of the written blocks.
+     * @param maxDictionarySize the maximum number of terms kept in the dictionaries.
+     * @throws IOException if an error occurs while writing the header.
+     */
+    public BinaryTripleWriter(OutputStream os, int blockSize, int maxDictionarySize) throws IOException {
+        if(os == null) {
+            throw new NullPointerException("os cannot be null.");
+        }
+        if(blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid block size: " + blockSize);
+        }
+        if(maxDictionarySize <= 0) {
+            throw new IllegalArgumentException("Invalid dictionary size: " + maxDictionarySize);
+        }
+        this.os                = os;
+        this.blockSize         = blockSize;
+        this.maxDictionarySize = maxDictionarySize;
+        block = new byte[blockSize + 1024];
+        resetDictionaries();
+        os.write(MAGIC);
+        os.write(VERSION);
+        startBlock();
+    }
+
+    /**
+     * Constructor with default block and dictionary sizes.
+     *
+     * @param os the output stream to write to.
+     * @throws IOException if an error occurs while writing the header.
+     */
+    public BinaryTripleWriter(OutputStream os) throws IOException {
+        this(os, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_DICTIONARY_SIZE);
+    }
+
+    /**
+     * @return the number of triples written so far.
+     */
+    public long getTriplesWritten() {
+        return triplesWritten;
+    }
+
+    /**
+     * Writes a triple.
+     *
+     * @param triple the triple to be written.
+     * @throws IOException if an error occurs while writing.
+     */
+    public void writeTriple(Triple triple) throws IOException {
+        if(closed) {
+            throw new IllegalStateException("The writer has been closed.");
+        }
+        final String graph = triple.getGraph();
+        int flags = 0;
+        if( triple.isSubjectBNode() ) {
+            flags |= SUBJECT_BNODE;
+        }
+        if( triple.isObjectBNode() ) {
+            flags |= OBJECT_BNODE;
+        } else if( triple.isObjectLiteral() ) {
+            flags |= OBJECT_LITERAL;
+        }
+        if(graph != null) {
+            flags |= GRAPH;
+        }
+        writeByte(flags);
+        writeTerm( triple.isSubjectBNode() ? bnodes : uris, triple.getSubject() );
+        writeTerm( uris, triple.getPredicate() );
+        if( triple.isObjectLiteral() ) {
+            writeLiteral(triple);
+        } else {
+            writeTerm( triple.isObjectBNode() ? bnodes : uris, triple.getObjectAsString() );
+        }
+        if(graph != null) {
+            writeTerm(uris, graph);
+        }
+        triplesWritten++;
+        if(position >= blockSize) {
+            writeBlock();
+            startBlock();
+        }
+    }
+
+    /**
+     * Writes all the triples of a triple set.
+     *
+     * @param tripleSet the triples to be written.
+     * @throws IOException if an error occurs while writing.
+     */
+    public void write(TripleSet tripleSet) throws IOException {
+        for(Triple triple : tripleSet) {
+            writeTriple(triple);
+        }
+    }
+
+    /**
+     * Writes the pending statements as a block and flushes the output stream.
+     *
+     * @throws IOException if an error occurs while writing.
+     */
+    public void flush() throws IOException {
+        if(position > 1) {
+            writeBlock();
+            startBlock();
+        }
+        os.flush();
+    }
+
+    /**
+     * Writes the pending statements and the end of stream marker and flushes the output stream,
+     * leaving it open.
+     *
+     * @throws IOException if an error occurs while writing.
+     */
+    public void finish() throws IOException {
+        if(closed) {
+            return;
+        }
+        if(position > 1) {
+            writeBlock();
+        }
+        os.write(0);
+        os.flush();
+        closed = true;
+    }
+
+    /**
+     * Finishes the stream and closes the output stream.
+     *
+     * @throws IOException if an error occurs while writing.
+     */
+    public void close() throws IOException {
+        finish();
+        os.close();
+    }
+
+    private void resetDictionaries() {
+        uris     = new TermDictionary();
+        bnodes   = new TermDictionary();
+        literals = new TermDictionary();
+    }
+
+    private void startBlock() {
+        position = 0;
+        if( resetPending ) {
+            resetDictionaries();
+            resetPending = false;
+            writeByte(BLOCK_RESET_DICTIONARIES);
+        } else {
+            writeByte(0);
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        crc.reset();
+        crc.update(block, 0, position);
+        final int checksum = (int) crc.getValue();
+        int length = position;
+        int f = 0;
+        while( (length & ~0x7F) != 0 ) {
+            frame[f++] = (byte) ((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        frame[f++] = (byte) length;
+        os.write(frame, 0, f);
+        os.write(block, 0, position);
+        os.write(checksum >>> 24);
+        os.write(checksum >>> 16);
+        os.write(checksum >>> 8);
+        os.write(checksum);
+        if(uris.size() + bnodes.size() + literals.size() > maxDictionarySize) {
+            resetPending = true;
+        }
+    }
+
+    private void writeTerm(TermDictionary dictionary, String term) {
+        final int size = dictionary.size();
+        final int id = dictionary.encode(term);
+        writeVarInt(id);
+        if(id == size) {
+            writeString(term);
+        }
+    }
+
+    private void writeLiteral(Triple triple) {
+        final Object object = triple.getObject();
+        if(object instanceof Boolean) {
+            writeVarInt(INLINE_LITERAL);
+            writeByte(LITERAL_BOOLEAN);
+            writeByte( (Boolean) object ? 1 : 0 );
+        } else if(object instanceof Byte) {
+            writeVarInt(INLINE_LITERAL);
+            writeByte(LITERAL_BYTE);
+            writeByte( (Byte) object );
+        } else if(object instanceof Short) {
+            writeVarInt(INLINE_LITERAL);
+            writeByte(LITERAL_SHORT);
+            writeVarLong( zigZag( (Short) object ) );
+        } else if(object instanceof Integer) {
+            writeVarInt(INLINE_LITERAL);
+            writeByte(LITERAL_INT);
+            writeVarLong( zigZag( (Integer) object ) );
+        } else if(object instanceof Long) {
+            writeVarInt(INLINE_LITERAL);
+            writeByte(LITERAL_LONG);
+            writeVarLong( zigZag( (Long) object ) );
+        } else if(object instanceof Float) {
+            writeVarInt(INLINE_LITERAL);
+            writeByte(LITERAL_FLOAT);
+            writeFixed( Float.floatToIntBits( (Float) object ), 4 );
+        } else if(object instanceof Double) {
+            writeVarInt(INLINE_LITERAL);
+            writeByte(LITERAL_DOUBLE);
+            writeFixed( Double.doubleToLongBits( (Double) object ), 8 );
+        } else if(object instanceof Date) {
+            writeVarInt(INLINE_LITERAL);
+            writeByte(LITERAL_DATE);
+            writeVarLong( zigZag( ((Date) object).getTime() ) );
+        } else {
+            final String label = triple.getObjectAsString();
+            final boolean shareable =
+                    (object instanceof String || object instanceof LanguageLiteral || object instanceof DatatypeLiteral)
+                            &&
+                    label.length() <= MAX_SHARED_LITERAL_LENGTH;
+            if(shareable) {
+                final int size = literals.size();
+                final int id = literals.encode(object);
+                writeVarInt(id + 1);
+                if(id != size) {
+                    return;
+                }
+            } else {
+                writeVarInt(INLINE_LITERAL);
+            }
+            final String datatype = triple.getLiteralDatatype();
+            final String language = triple.getLiteralLanguage();
+            if(datatype != null) {
+                writeByte(LITERAL_DATATYPE);
+                writeString(label);
+                writeTerm(uris, datatype);
+            } else if(language != null) {
+                writeByte(LITERAL_LANGUAGE);
+                writeString(label);
+                writeString(language);
+            } else {
+                writeByte(LITERAL_PLAIN);
+                writeString(label);
+            }
+        }
+    }
+
+    private void writeString(String s) {
+        final int length = s.length();
+        // Fast path for ASCII strings.
+        int ascii = 0;
+        while(ascii < length && s.charAt(ascii) < 0x80) {
+            ascii++;
+        }
+        if(ascii == length) {
+            writeVarInt(length);
+            ensureCapacity(length);
+            for(int i = 0; i < length; i++) {
+                block[position++] = (byte) s.charAt(i);
+            }
+            return;
+        }
+        final byte[] bytes = s.getBytes(UTF8);
+        writeVarInt(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, block, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeByte(int b) {
+        ensureCapacity(1);
+        block[position++] = (byte) b;
+    }
+
+    private void writeFixed(long value, int bytes) {
+        ensureCapacity(bytes);
+        for(int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+            block[position++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeVarInt(int value) {
+        ensureCapacity(5);
+        while( (value & ~0x7F) != 0 ) {
+            block[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        block[position++] = (byte) value;
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        while( (value & ~0x7FL) != 0 ) {
+            block[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        block[position++] = (byte) value;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if(block.length - position < bytes) {
+            final byte[] larger = new byte[ Math.max(block.length * 2, position + bytes) ];
+            System.arraycopy(block, 0, larger, 0, position);
+            block = larger;
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+}
@@ -3,8 +3,8 @@ package org.sindice.rdfcommons.serialization;
 import org.sindice.rdfcommons.model.Triple;
 import org.sindice.rdfcommons.model.TripleSet;
 
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintStream;
 
 /**
  * Default implementation of
@@ -24,28 +24,23 @@ public class DefaultNQuadsSerializer implements NQuadsSerializer {
     }
 
     public void serialize(final TripleSet tripleSet, final OutputStream os) {
-        final PrintStream ps = new PrintStream(os);
+        final NQuadsEncoder encoder = new NQuadsEncoder(os);
         try {
-            printNQuads(tripleSet, ps);
-        } finally {
-            ps.flush();
+            for(Triple triple : tripleSet) {
+                serialize(triple, encoder);
+            }
+            encoder.flush();
+        } catch (IOException ioe) {
+            throw new RuntimeException("Error while serializing triple set.", ioe);
         }
     }
 
-    private void printNQuads(TripleSet ts, PrintStream ps) {
-        for(Triple triple : ts) {
-            serialize(triple, ps);
-        }
-    }
-
-    private void serialize(final Triple triple, final PrintStream ps) {
-        ps.print( triple.toNTriplesString() );
-        ps.print(' ');
-        ps.print('<');
-        ps.print(graph);
-        ps.print('>');
-        ps.print('.');
-        ps.print('\n');
+    private void serialize(final Triple triple, final NQuadsEncoder encoder) throws IOException {
+        encoder.writeTerms(triple);
+        encoder.writeASCII(' ');
+        encoder.writeIRI(graph);
+        encoder.writeASCII('.');
+        encoder.writeASCII('\n');
     }
 
 }
@@ -0,0 +1,470 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.serialization;
+
+import org.sindice.rdfcommons.model.Triple;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts and optionally deduplicates a stream of triples larger than the available memory.
+ * <p>
+ * The added triples are buffered up to a memory budget, then sorted and spilled to a temporary
+ * file as a run in the binary triple format. When all the triples have been added the runs are merged
+ * with a <i>k</i>-way merge, dropping the duplicates if requested. If the triples fit the budget no file
+ * is written at all. The size of the buffered triples is estimated from the length of their terms.
+ * </p>
+ * <p>
+ * Usage: call {@link #addTriple(Triple)} for every triple, then {@link #readTriple()} until it returns
+ * <code>null</code> and finally {@link #close()} to delete the temporary files.
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class ExternalTripleSorter {
+
+    /**
+     * The sort orders.
+     */
+    public enum Order {
+        /**
+         * Subject, predicate, object, graph.
+         */
+        SPOG,
+        /**
+         * Graph, subject, predicate, object.
+         */
+        GSPO
+    }
+
+    /**
+     * Default memory budget in bytes.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64 * 1024 * 1024;
+
+    /**
+     * Maximum number of runs merged at once.
+     */
+    public static final int MAX_MERGE_WIDTH = 64;
+
+    /**
+     * Estimated size of a buffered triple without its terms.
+     */
+    private static final int TRIPLE_OVERHEAD = 160;
+
+    private final Order order;
+
+    private final boolean unique;
+
+    private final long memoryBudget;
+
+    private final File tempDir;
+
+    private final Comparator<Triple> comparator;
+
+    private final List<Triple> buffer = new ArrayList<Triple>();
+
+    private final List<File> runs = new ArrayList<File>();
+
+    private long bufferSize;
+
+    private long triplesAdded;
+
+    private int runsSpilled;
+
+    private PriorityQueue<Cursor> queue;
+
+    private Triple last;
+
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param order the sort order.
+     * @param unique if <code>true</code> the duplicate triples are dropped.
+     * @param memoryBudget the estimated amount of memory used to buffer triples, in bytes.
+     * @param tempDir the directory of the temporary files, <code>null</code> for the system default.
+     */
+    public ExternalTripleSorter(Order order, boolean unique, long memoryBudget, File tempDir) {
+        if(order == null) {
+            throw new NullPointerException("order cannot be null.");
+        }
+        if(memoryBudget <= 0) {
+            throw new IllegalArgumentException("Invalid memory budget: " + memoryBudget);
+        }
+        this.order        = order;
+        this.unique       = unique;
+        this.memoryBudget = memoryBudget;
+        this.tempDir      = tempDir;
+        this.comparator   = getComparator(order);
+    }
+
+    /**
+     * Constructor with the default memory budget and temporary directory.
+     *
+     * @param order the sort order.
+     * @param unique if <code>true</code> the duplicate triples are dropped.
+     */
+    public ExternalTripleSorter(Order order, boolean unique) {
+        this(order, unique, DEFAULT_MEMORY_BUDGET, null);
+    }
+
+    /**
+     * Returns a comparator sorting triples in the given order. Two triples are equal for the comparator
+     * if they have the same <i>N-Quads</i> representation.
+     *
+     * @param order the sort order.
+     * @return the comparator.
+     */
+    public static Comparator<Triple> getComparator(Order order) {
+        return order == Order.GSPO ? new GSPOComparator() : new SPOGComparator();
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public boolean isUnique() {
+        return unique;
+    }
+
+    /**
+     * @return the number of triples added so far.
+     */
+    public long getTriplesAdded() {
+        return triplesAdded;
+    }
+
+    /**
+     * @return the number of runs spilled to disk so far.
+     */
+    public int getRunsSpilled() {
+        return runsSpilled;
+    }
+
+    /**
+     * Adds a triple to be sorted.
+     *
+     * @param triple the triple.
+     * @throws IOException if an error occurs while spilling a run.
+     */
+    public void addTriple(Triple triple) throws IOException {
+        if(queue != null || closed) {
+            throw new IllegalStateException("Triples cannot be added once the reading has started.");
+        }
+        buffer.add(triple);
+        bufferSize += estimateSize(triple);
+        triplesAdded++;
+        if(bufferSize >= memoryBudget) {
+            spill();
+        }
+    }
+
+    /**
+     * Returns the next triple in sort order. The first invocation ends the adding phase.
+     *
+     * @return the next triple or <code>null</code> if all the triples have been read.
+     * @throws IOException if an error occurs while reading the runs.
+     */
+    public Triple readTriple() throws IOException {
+        if(closed) {
+            throw new IllegalStateException("The sorter has been closed.");
+        }
+        if(queue == null) {
+            startMerge();
+        }
+        while( ! queue.isEmpty() ) {
+            final Cursor cursor = queue.poll();
+            final Triple triple = cursor.current;
+            if( cursor.advance() ) {
+                queue.add(cursor);
+            } else {
+                cursor.close();
+            }
+            if( unique && last != null && comparator.compare(last, triple) == 0 ) {
+                continue;
+            }
+            last = triple;
+            return triple;
+        }
+        return null;
+    }
+
+    /**
+     * Releases the buffered triples and deletes the temporary files.
+     *
+     * @throws IOException if an error occurs while closing the runs.
+     */
+    public void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        buffer.clear();
+        try {
+            if(queue != null) {
+                for(Cursor cursor : queue) {
+                    cursor.close();
+                }
+            }
+        } finally {
+            for(File run : runs) {
+                run.delete();
+            }
+            runs.clear();
+        }
+    }
+
+    private void startMerge() throws IOException {
+        Collections.sort(buffer, comparator);
+        while(runs.size() + (buffer.isEmpty() ? 0 : 1) > MAX_MERGE_WIDTH) {
+            mergeRuns();
+        }
+        queue = new PriorityQueue<Cursor>(
+                runs.size() + 1,
+                new Comparator<Cursor>() {
+                    public int compare(Cursor c1, Cursor c2) {
+                        final int result = comparator.compare(c1.current, c2.current);
+                        return result != 0 ? result : c1.index - c2.index;
+                    }
+                }
+        );
+        if( ! buffer.isEmpty() ) {
+            final Cursor cursor = new Cursor( buffer, runs.size() );
+            if( cursor.advance() ) {
+                queue.add(cursor);
+            }
+        }
+        for(int i = 0; i < runs.size(); i++) {
+            final Cursor cursor = new Cursor( runs.get(i), i );
+            if( cursor.advance() ) {
+                queue.add(cursor);
+            } else {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Sorts the buffered triples and writes them to a new run.
+     */
+    private void spill() throws IOException {
+        Collections.sort(buffer, comparator);
+        final File run = createRun();
+        final BinaryTripleWriter writer = openRun(run);
+        try {
+            Triple previous = null;
+            for(Triple triple : buffer) {
+                if( unique && previous != null && comparator.compare(previous, triple) == 0 ) {
+                    continue;
+                }
+                writer.writeTriple(triple);
+                previous = triple;
+            }
+        } finally {
+            writer.close();
+        }
+        buffer.clear();
+        bufferSize = 0;
+        runsSpilled++;
+    }
+
+    /**
+     * Merges the first {@link #MAX_MERGE_WIDTH} runs into a new one.
+     */
+    private void mergeRuns() throws IOException {
+        final List<File> merging = new ArrayList<File>( runs.subList(0, MAX_MERGE_WIDTH) );
+        runs.subList(0, MAX_MERGE_WIDTH).clear();
+        final PriorityQueue<Cursor> mergeQueue = new PriorityQueue<Cursor>(
+                merging.size(),
+                new Comparator<Cursor>() {
+                    public int compare(Cursor c1, Cursor c2) {
+                        return comparator.compare(c1.current, c2.current);
+                    }
+                }
+        );
+        final File run = createRun();
+        final BinaryTripleWriter writer = openRun(run);
+        try {
+            for(int i = 0; i < merging.size(); i++) {
+                final Cursor cursor = new Cursor( merging.get(i), i );
+                if( cursor.advance() ) {
+                    mergeQueue.add(cursor);
+                } else {
+                    cursor.close();
+                }
+            }
+            Triple previous = null;
+            while( ! mergeQueue.isEmpty() ) {
+                final Cursor cursor = mergeQueue.poll();
+                final Triple triple = cursor.current;
+                if( cursor.advance() ) {
+                    mergeQueue.add(cursor);
+                } else {
+                    cursor.close();
+                }
+                if( unique && previous != null && comparator.compare(previous, triple) == 0 ) {
+                    continue;
+                }
+                writer.writeTriple(triple);
+                previous = triple;
+            }
+        } finally {
+            writer.close();
+            for(Cursor cursor : mergeQueue) {
+                cursor.close();
+            }
+            for(File merged : merging) {
+                merged.delete();
+            }
+        }
+    }
+
+    private File createRun() throws IOException {
+        final File run = File.createTempFile("triples", ".run", tempDir);
+        runs.add(run);
+        return run;
+    }
+
+    private BinaryTripleWriter openRun(File run) throws IOException {
+        return new BinaryTripleWriter(
+                new BufferedOutputStream( new FileOutputStream(run), BinaryTripleWriter.DEFAULT_BLOCK_SIZE )
+        );
+    }
+
+    private static long estimateSize(Triple triple) {
+        final String graph = triple.getGraph();
+        return TRIPLE_OVERHEAD + 2L * (
+                triple.getSubject().length() +
+                triple.getPredicate().length() +
+                triple.getObjectAsString().length() +
+                (graph == null ? 0 : graph.length())
+        );
+    }
+
+    private static int compare(String s1, String s2) {
+        if(s1 == s2) {
+            return 0;
+        }
+        if(s1 == null) {
+            return -1;
+        }
+        if(s2 == null) {
+            return 1;
+        }
+        return s1.compareTo(s2);
+    }
+
+    private static int compareSubject(Triple t1, Triple t2) {
+        final int result = compare( t1.getSubject(), t2.getSubject() );
+        return result != 0 ? result : t1.getSubjectType().compareTo( t2.getSubjectType() );
+    }
+
+    private static int compareObject(Triple t1, Triple t2) {
+        int result = compare( t1.getObjectAsString(), t2.getObjectAsString() );
+        if(result != 0) {
+            return result;
+        }
+        result = t1.getObjectType().compareTo( t2.getObjectType() );
+        if(result != 0 || ! t1.isObjectLiteral() ) {
+            return result;
+        }
+        result = compare( t1.getLiteralDatatype(), t2.getLiteralDatatype() );
+        return result != 0 ? result : compare( t1.getLiteralLanguage(), t2.getLiteralLanguage() );
+    }
+
+    private static class SPOGComparator implements Comparator<Triple> {
+        public int compare(Triple t1, Triple t2) {
+            int result = compareSubject(t1, t2);
+            if(result != 0) {
+                return result;
+            }
+            result = ExternalTripleSorter.compare( t1.getPredicate(), t2.getPredicate() );
+            if(result != 0) {
+                return result;
+            }
+            result = compareObject(t1, t2);
+            return result != 0 ? result : ExternalTripleSorter.compare( t1.getGraph(), t2.getGraph() );
+        }
+    }
+
+    private static class GSPOComparator implements Comparator<Triple> {
+        private final SPOGComparator spog = new SPOGComparator();
+
+        public int compare(Triple t1, Triple t2) {
+            final int result = ExternalTripleSorter.compare( t1.getGraph(), t2.getGraph() );
+            return result != 0 ? result : spog.compare(t1, t2);
+        }
+    }
+
+    /**
+     * Position within a sorted run, either in memory or on disk.
+     */
+    private static class Cursor {
+
+        private final int index;
+
+        private final BinaryTripleReader reader;
+
+        private final List<Triple> triples;
+
+        private int position;
+
+        private Triple current;
+
+        private Cursor(File run, int index) throws IOException {
+            this.index   = index;
+            this.reader  = new BinaryTripleReader( new BufferedInputStream( new FileInputStream(run) ) );
+            this.triples = null;
+        }
+
+        private Cursor(List<Triple> triples, int index) {
+            this.index   = index;
+            this.reader  = null;
+            this.triples = triples;
+        }
+
+        private boolean advance() throws IOException {
+            if(reader != null) {
+                current = reader.readTriple();
+            } else {
+                current = position < triples.size() ? triples.get(position++) : null;
+            }
+            return current != null;
+        }
+
+        private void close() throws IOException {
+            if(reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.serialization;
+
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleSet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Encodes triples as <i>N-Triples</i> and <i>N-Quads</i> statements directly into
+ * a reusable <i>UTF-8</i> byte buffer.
+ * <p>
+ * The terms of a triple are encoded and escaped in place, no intermediate strings are created,
+ * and the buffer is written to the underlying {@link OutputStream} or {@link WritableByteChannel}
+ * only when full or on {@link #flush()}. Literals are escaped as in
+ * {@link org.sindice.rdfcommons.model.TripleImpl#toNTriplesString()}.
+ * </p>
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class NQuadsEncoder {
+
+    /**
+     * Default size of the encoding buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Minimum size of the encoding buffer, a surrogate pair takes four bytes.
+     */
+    private static final int MIN_BUFFER_SIZE = 16;
+
+    private static final byte[] STATEMENT_END = { ' ', '.', '\n' };
+
+    private final OutputStream os;
+
+    private final WritableByteChannel channel;
+
+    private final byte[] buffer;
+
+    private final ByteBuffer channelBuffer;
+
+    private int position;
+
+    private long bytesWritten;
+
+    /**
+     * Constructor.
+     *
+     * @param os the output stream to write to.
+     * @param bufferSize the size of the encoding buffer.
+     */
+    public NQuadsEncoder(OutputStream os, int bufferSize) {
+        if(os == null) {
+            throw new NullPointerException("os cannot be null.");
+        }
+        checkBufferSize(bufferSize);
+        this.os            = os;
+        this.channel       = null;
+        this.buffer        = new byte[bufferSize];
+        this.channelBuffer = null;
+    }
+
+    /**
+     * Constructor with default buffer size.
+     *
+     * @param os the output stream to write to.
+     */
+    public NQuadsEncoder(OutputStream os) {
+        this(os, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param channel the channel to write to.
+     * @param bufferSize the size of the encoding buffer.
+     */
+    public NQuadsEncoder(WritableByteChannel channel, int bufferSize) {
+        if(channel == null) {
+            throw new NullPointerException("channel cannot be null.");
+        }
+        checkBufferSize(bufferSize);
+        this.os            = null;
+        this.channel       = channel;
+        this.buffer        = new byte[bufferSize];
+        this.channelBuffer = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Constructor with default buffer size.
+     *
+     * @param channel the channel to write to.
+     */
+    public NQuadsEncoder(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @return the number of bytes written to the underlying output so far,
+     *         the bytes still in the buffer are not counted.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Writes a triple as <i>N-Triples</i> statement, ignoring its graph.
+     *
+     * @param triple the triple to be written.
+     * @throws IOException if an error occurs while writing.
+     */
+    public void writeTriple(Triple triple) throws IOException {
+        writeTerms(triple);
+        writeBytes(STATEMENT_END);
+    }
+
+    /**
+     * Writes a triple as <i>N-Quads</i> statement within its own graph.
+     * The graph is omitted if <code>null</code>.
+     *
+     * @param triple the triple to be written.
+     * @throws IOException if an error occurs while writing.
+     */
+    public void writeQuad(Triple triple) throws IOException {
+        writeQuad(triple, triple.getGraph());
+    }
+
+    /**
+     * Writes a triple as <i>N-Quads</i> statement within the given graph.
+     *
+     * @param triple the triple to be written.
+     * @param graph the graph of the statement, if <code>null</code> it is omitted.
+     * @throws IOException if an error occurs while writing.
+     */
+    public void writeQuad(Triple triple, String graph) throws IOException {
+        writeTerms(triple);
+        if(graph != null) {
+            writeASCII(' ');
+            writeIRI(graph);
+        }
+        writeBytes(STATEMENT_END);
+    }
+
+    /**
+     * Writes all the triples of a triple set as <i>N-Quads</i> statements.
+     *
+     * @param tripleSet the triples to be written.
+     * @throws IOException if an error occurs while writing.
+     */
+    public void write(TripleSet tripleSet) throws IOException {
+        for(Triple triple : tripleSet) {
+            writeQuad(triple);
+        }
+    }
+
+    /**
+     * Writes the subject, predicate and object of a triple separated by spaces,
+     * without statement terminator.
+     *
+     * @param triple the triple to be written.
+     * @throws IOException if an error occurs while writing.
+     */
+    public void writeTerms(Triple triple) throws IOException {
+        if( triple.isSubjectBNode() ) {
+            writeBNode( triple.getSubject() );
+        } else {
+            writeIRI( triple.getSubject() );
+        }
+        writeASCII(' ');
+        writeIRI( triple.getPredicate() );
+        writeASCII(' ');
+        switch( triple.getObjectType() ) {
+            case bnode:
+                writeBNode( triple.getObjectAsString() );
+                break;
+            case literal:
+                writeLiteral( triple.getObjectAsString(), triple.getLiteralDatatype(), triple.getLiteralLanguage() );
+                break;
+            default:
+                writeIRI( triple.getObjectAsString() );
+        }
+    }
+
+    /**
+     * Writes an <i>IRI</i> reference enclosed in angle brackets.
+     *
+     * @param iri the IRI to be written.
+     * @throws IOException if an error occurs while writing.
+     */
+    public void writeIRI(String iri) throws IOException {
+        writeASCII('<');
+        encode(iri, false);
+        writeASCII('>');
+    }
+
+    /**
+     * Writes a single <i>ASCII</i> character.
+     *
+     * @param c the character to be written.
+     * @throws IOException if an error occurs while writing.
+     */
+    public void writeASCII(char c) throws IOException {
+        if(c > 0x7F) {
+            throw new IllegalArgumentException("Not an ASCII character: " + c);
+        }
+        if(position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) c;
+    }
+
+    /**
+     * Writes the buffered bytes to the underlying output and flushes it.
+     *
+     * @throws IOException if an error occurs while writing.
+     */
+    public void flush() throws IOException {
+        drain();
+        if(os != null) {
+            os.flush();
+        }
+    }
+
+    private void writeBNode(String id) throws IOException {
+        writeASCII('_');
+        writeASCII(':');
+        encode(id, false);
+    }
+
+    private void writeLiteral(String label, String datatype, String language) throws IOException {
+        writeASCII('"');
+        encode(label, true);
+        writeASCII('"');
+        if(datatype != null) {
+            writeASCII('^');
+            writeASCII('^');
+            writeIRI(datatype);
+        } else if(language != null) {
+            writeASCII('@');
+            encode(language, false);
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if(buffer.length - position < bytes.length) {
+            drain();
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Encodes a string as <i>UTF-8</i> into the buffer. The available space is checked once per segment
+     * of characters that fits in the buffer, considering four bytes per character.
+     *
+     * @param in the string to be encoded.
+     * @param escape if <code>true</code> the string is escaped as literal label.
+     * @throws IOException if an error occurs while draining the buffer.
+     */
+    private void encode(String in, boolean escape) throws IOException {
+        final int length = in.length();
+        final byte[] out = buffer;
+        int i = 0;
+        while(i < length) {
+            if(out.length - position < MIN_BUFFER_SIZE) {
+                drain();
+            }
+            final int segmentEnd = Math.min(length, i + (out.length - position) / 4);
+            int p = position;
+            while(i < segmentEnd) {
+                final char c = in.charAt(i++);
+                if(c < 0x80) {
+                    if(escape) {
+                        switch(c) {
+                            case '"':
+                                out[p++] = '\\';
+                                out[p++] = '"';
+                                continue;
+                            case '\\':
+                                out[p++] = '\\';
+                                out[p++] = '\\';
+                                continue;
+                            case '\n':
+                                out[p++] = '\\';
+                                out[p++] = 'n';
+                                continue;
+                            case '\r':
+                                out[p++] = '\\';
+                                out[p++] = 'r';
+                                continue;
+                            default:
+                                break;
+                        }
+                    }
+                    out[p++] = (byte) c;
+                } else if(c < 0x800) {
+                    out[p++] = (byte) (0xC0 | (c >> 6));
+                    out[p++] = (byte) (0x80 | (c & 0x3F));
+                } else if( Character.isHighSurrogate(c) && i < length && Character.isLowSurrogate(in.charAt(i)) ) {
+                    final int codePoint = Character.toCodePoint(c, in.charAt(i++));
+                    out[p++] = (byte) (0xF0 | (codePoint >> 18));
+                    out[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    out[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    out[p++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    out[p++] = (byte) (0xE0 | (c >> 12));
+                    out[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    out[p++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            position = p;
+        }
+    }
+
+    private void drain() throws IOException {
+        if(position == 0) {
+            return;
+        }
+        if(os != null) {
+            os.write(buffer, 0, position);
+        } else {
+            channelBuffer.clear();
+            channelBuffer.limit(position);
+            while( channelBuffer.hasRemaining() ) {
+                channel.write(channelBuffer);
+            }
+        }
+        bytesWritten += position;
+        position = 0;
+    }
+
+    private static void checkBufferSize(int bufferSize) {
+        if(bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("The buffer size must be at least " + MIN_BUFFER_SIZE);
+        }
+    }
+
+}
@@ -0,0 +1,576 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sindice.rdfcommons.storage;
+
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.model.TripleSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link SparqlEndPoint} decorator caching the results of the queries.
+ * <p>
+ * Results are kept in a bounded <i>LRU</i> cache keyed on the query type and on the query text with
+ * the whitespace outside of the literals collapsed. Select results are materialized and every cache hit
+ * replays them through a new {@link ResultSet}, construct and describe results are returned as copies.
+ * Every entry expires after the time returned by {@link #getTimeToLive(QueryType, String)}.
+ * </p>
+ * <p>
+ * An entry depends on the graphs listed in the <i>FROM</i> and <i>FROM NAMED</i> clauses of its query,
+ * or on the whole storage when there are none. The owner of the endpoint must call {@link #invalidate(String)}
+ * whenever a graph is modified, {@link CachingTripleStorage} does it for every write.
+ * </p>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class CachingSparqlEndPoint implements SparqlEndPoint {
+
+    /**
+     * Default maximum number of cached results.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    /**
+     * Default time to live of the cached results, in milliseconds.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE = 5 * 60 * 1000;
+
+    private static final Pattern FROM_PATTERN = Pattern.compile("\\bFROM\\s+(?:NAMED\\s+)?<([^>]*)>",
+            Pattern.CASE_INSENSITIVE);
+
+    private final SparqlEndPoint delegate;
+
+    private final int maxEntries;
+
+    private final long timeToLive;
+
+    private final Map<String,Entry> cache;
+
+    /**
+     * Incremented at every invalidation, results computed across an invalidation are not cached.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong expirations = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the decorated endpoint.
+     * @param maxEntries the maximum number of cached results.
+     * @param timeToLive the default time to live of the cached results, in milliseconds.
+     */
+    public CachingSparqlEndPoint(SparqlEndPoint delegate, int maxEntries, long timeToLive) {
+        if(delegate == null) {
+            throw new NullPointerException("delegate cannot be null.");
+        }
+        if(maxEntries <= 0) {
+            throw new IllegalArgumentException("Invalid max entries: " + maxEntries);
+        }
+        if(timeToLive <= 0) {
+            throw new IllegalArgumentException("Invalid time to live: " + timeToLive);
+        }
+        this.delegate   = delegate;
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+        this.cache      = new LinkedHashMap<String,Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,Entry> eldest) {
+                if( size() > CachingSparqlEndPoint.this.maxEntries ) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Constructor with default size and time to live.
+     *
+     * @param delegate the decorated endpoint.
+     */
+    public CachingSparqlEndPoint(SparqlEndPoint delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * @return the decorated endpoint.
+     */
+    public SparqlEndPoint getDelegate() {
+        return delegate;
+    }
+
+    public ResultSet processSelectQuery(String qry) throws SparqlEndpointException {
+        final String key = createKey(QueryType.select, qry);
+        CachedResultSet cached = (CachedResultSet) lookup(key);
+        if(cached == null) {
+            final long expected = version.get();
+            cached = new CachedResultSet( delegate.processSelectQuery(qry) );
+            store(key, QueryType.select, qry, cached, expected);
+        }
+        return cached.replay();
+    }
+
+    public TripleSet processConstructQuery(String qry) throws SparqlEndpointException {
+        return processGraphQuery(QueryType.construct, qry);
+    }
+
+    public TripleSet processDescribeQuery(String qry) throws SparqlEndpointException {
+        return processGraphQuery(QueryType.describe, qry);
+    }
+
+    public boolean processAskQuery(String qry) throws SparqlEndpointException {
+        final String key = createKey(QueryType.ask, qry);
+        Boolean cached = (Boolean) lookup(key);
+        if(cached == null) {
+            final long expected = version.get();
+            cached = delegate.processAskQuery(qry);
+            store(key, QueryType.ask, qry, cached, expected);
+        }
+        return cached;
+    }
+
+    public EndpointResponse processQuery(String qry) throws SparqlEndpointException {
+        final QueryType queryType = getQueryType(qry);
+        switch (queryType) {
+            case select:
+                return new EndpointResponse( queryType, processSelectQuery(qry) );
+            case construct:
+                return new EndpointResponse( queryType, processConstructQuery(qry) );
+            case describe:
+                return new EndpointResponse( queryType, processDescribeQuery(qry) );
+            case ask:
+                return new EndpointResponse( queryType, processAskQuery(qry) );
+            default:
+                throw new SparqlEndpointException( String.format("Illegal query type for query[%s]", qry) );
+        }
+    }
+
+    public QueryType getQueryType(String qry) throws SparqlEndpointException {
+        return delegate.getQueryType(qry);
+    }
+
+    /**
+     * Removes the results depending on a graph.
+     *
+     * @param graph the modified graph, <code>null</code> to remove all the results.
+     */
+    public void invalidate(String graph) {
+        version.incrementAndGet();
+        synchronized (cache) {
+            final Iterator<Entry> entries = cache.values().iterator();
+            while( entries.hasNext() ) {
+                final Entry entry = entries.next();
+                if(graph == null || entry.graphs.isEmpty() || entry.graphs.contains(graph)) {
+                    entries.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all the cached results.
+     */
+    public void invalidateAll() {
+        invalidate(null);
+    }
+
+    /**
+     * @return the number of cached results.
+     */
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @return the number of queries answered from the cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of queries forwarded to the decorated endpoint.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of results removed to bound the cache size.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of results removed since expired.
+     */
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    /**
+     * @return the number of results removed by an invalidation.
+     */
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Size: %d, hits: %d, misses: %d, evictions: %d, expirations: %d, invalidations: %d",
+                getSize(), getHitCount(), getMissCount(), getEvictionCount(), getExpirationCount(),
+                getInvalidationCount()
+        );
+    }
+
+    /**
+     * Returns the time to live of the result of a query, override to customize it per query.
+     *
+     * @param queryType the type of the query.
+     * @param qry the query.
+     * @return the time to live in milliseconds, <code>0</code> to not cache the result.
+     */
+    protected long getTimeToLive(QueryType queryType, String qry) {
+        return timeToLive;
+    }
+
+    /**
+     * Returns the query text with the whitespace outside of the literals collapsed to single spaces.
+     *
+     * @param qry the query.
+     * @return the normalized query.
+     */
+    static String normalize(String qry) {
+        final StringBuilder sb = new StringBuilder( qry.length() );
+        char quote = 0;
+        boolean space = false;
+        for(int i = 0; i < qry.length(); i++) {
+            final char c = qry.charAt(i);
+            if(quote != 0) {
+                sb.append(c);
+                if(c == '\\' && i + 1 < qry.length()) {
+                    sb.append( qry.charAt(++i) );
+                } else if(c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            if( Character.isWhitespace(c) ) {
+                space = true;
+                continue;
+            }
+            if(space && sb.length() > 0) {
+                sb.append(' ');
+            }
+            space = false;
+            if(c == '"' || c == '\'') {
+                quote = c;
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the graphs listed in the dataset clauses of a query.
+     *
+     * @param qry the query.
+     * @return the graph <i>URI</i>s, empty if the query has no dataset clauses.
+     */
+    static Set<String> getQueryGraphs(String qry) {
+        final Matcher matcher = FROM_PATTERN.matcher( stripLiteralsAndComments(qry) );
+        Set<String> graphs = Collections.emptySet();
+        while( matcher.find() ) {
+            if( graphs.isEmpty() ) {
+                graphs = new HashSet<String>();
+            }
+            graphs.add( matcher.group(1) );
+        }
+        return graphs;
+    }
+
+    /**
+     * Returns the query text with the literals emptied and the comments removed,
+     * so that only the query syntax is searched for keywords. The <i>IRI</i>s are kept as they are.
+     *
+     * @param qry the query.
+     * @return the stripped query.
+     */
+    static String stripLiteralsAndComments(String qry) {
+        final StringBuilder sb = new StringBuilder( qry.length() );
+        int i = 0;
+        while(i < qry.length()) {
+            final char c = qry.charAt(i);
+            if(c == '"' || c == '\'') {
+                i = skipLiteral(qry, i);
+                sb.append("\"\"");
+            } else if(c == '#') {
+                while(i < qry.length() && qry.charAt(i) != '\n' && qry.charAt(i) != '\r') {
+                    i++;
+                }
+                sb.append(' ');
+            } else if(c == '<') {
+                final int end = skipIRI(qry, i);
+                sb.append(qry, i, end);
+                i = end;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the index following the short or long literal starting at the given index.
+     */
+    private static int skipLiteral(String qry, int start) {
+        final char quote = qry.charAt(start);
+        final String longQuote = new String( new char[]{quote, quote, quote} );
+        final boolean isLong = qry.startsWith(longQuote, start);
+        int i = start + (isLong ? longQuote.length() : 1);
+        while(i < qry.length()) {
+            final char c = qry.charAt(i);
+            if(c == '\\') {
+                i += 2;
+            } else if(isLong && qry.startsWith(longQuote, i)) {
+                return i + longQuote.length();
+            } else if(! isLong && c == quote) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return qry.length();
+    }
+
+    /**
+     * @return the index following the <i>IRI</i> starting at the given index, or the next index
+     *         if the <i>&lt;</i> character is an operator.
+     */
+    private static int skipIRI(String qry, int start) {
+        for(int i = start + 1; i < qry.length(); i++) {
+            final char c = qry.charAt(i);
+            if(c == '>') {
+                return i + 1;
+            }
+            if( Character.isWhitespace(c) || "<\"{}|^`".indexOf(c) != -1 ) {
+                break;
+            }
+        }
+        return start + 1;
+    }
+
+    private TripleSet processGraphQuery(QueryType queryType, String qry) throws SparqlEndpointException {
+        final String key = createKey(queryType, qry);
+        @SuppressWarnings("unchecked")
+        List<Triple> cached = (List<Triple>) lookup(key);
+        if(cached == null) {
+            final long expected = version.get();
+            final TripleSet result = queryType == QueryType.construct
+                    ? delegate.processConstructQuery(qry)
+                    : delegate.processDescribeQuery(qry);
+            cached = new ArrayList<Triple>();
+            for(Triple triple : result) {
+                cached.add(triple);
+            }
+            store(key, queryType, qry, cached, expected);
+        }
+        return new TripleBuffer( new ArrayList<Triple>(cached) );
+    }
+
+    private String createKey(QueryType queryType, String qry) {
+        if(qry == null) {
+            throw new NullPointerException("qry cannot be null.");
+        }
+        return queryType + ":" + normalize(qry);
+    }
+
+    private Object lookup(String key) {
+        synchronized (cache) {
+            final Entry entry = cache.get(key);
+            if(entry != null) {
+                if(entry.expiration > System.currentTimeMillis()) {
+                    hits.incrementAndGet();
+                    return entry.result;
+                }
+                cache.remove(key);
+                expirations.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private void store(String key, QueryType queryType, String qry, Object result, long expected) {
+        final long ttl = getTimeToLive(queryType, qry);
+        if(ttl <= 0) {
+            return;
+        }
+        final Entry entry = new Entry( result, getQueryGraphs(qry), System.currentTimeMillis() + ttl );
+        synchronized (cache) {
+            // Skips the results which may have been computed before a modification.
+            if(version.get() == expected) {
+                cache.put(key, entry);
+            }
+        }
+    }
+
+    /**
+     * A cached result.
+     */
+    private static class Entry {
+
+        private final Object result;
+
+        private final Set<String> graphs;
+
+        private final long expiration;
+
+        private Entry(Object result, Set<String> graphs, long expiration) {
+            this.result     = result;
+            this.graphs     = graphs;
+            this.expiration = expiration;
+        }
+    }
+
+    /**
+     * Materialized select result, replayed through independent cursors
+     * following the protocol of {@link InMemoryResultSet}.
+     */
+    private static class CachedResultSet {
+
+        private final String[] variables;
+
+        private final List<Map<String,InMemoryResultSet.VarEntry>> rows =
+                new ArrayList<Map<String,InMemoryResultSet.VarEntry>>();
+
+        private final List<Map<String,String>> strings = new ArrayList<Map<String,String>>();
+
+        private CachedResultSet(ResultSet resultSet) {
+            String[] header;
+            try {
+                header = resultSet.getVariables();
+            } catch (RuntimeException re) {
+                // Variables available only once positioned on a row.
+                header = new String[0];
+            }
+            variables = header;
+            while( resultSet.hasNext() ) {
+                final Map<String,InMemoryResultSet.VarEntry> row =
+                        new LinkedHashMap<String,InMemoryResultSet.VarEntry>();
+                final Map<String,String> rowStrings = new LinkedHashMap<String,String>();
+                for(String var : resultSet.getVariables()) {
+                    row.put(
+                            var,
+                            new InMemoryResultSet.VarEntry(
+                                    resultSet.getVariableValue(var), resultSet.getVariableType(var)
+                            )
+                    );
+                    try {
+                        rowStrings.put( var, resultSet.getVariableString(var) );
+                    } catch (RuntimeException re) {
+                        // Not available as string, reported at replay.
+                    }
+                }
+                rows.add(row);
+                strings.add(rowStrings);
+                resultSet.next();
+            }
+        }
+
+        private ResultSet replay() {
+            return new ResultSet() {
+
+                private int index;
+
+                public boolean hasNext() {
+                    return index < rows.size();
+                }
+
+                public void next() {
+                    index++;
+                }
+
+                public Object getVariableValue(String var) {
+                    return getEntry(var).getValue();
+                }
+
+                public String getVariableString(String var) {
+                    getEntry(var);
+                    final Map<String,String> rowStrings = strings.get(index);
+                    if( ! rowStrings.containsKey(var) ) {
+                        throw new IllegalStateException( String.format("Variable [%s] has no string value.", var) );
+                    }
+                    return rowStrings.get(var);
+                }
+
+                public VariableType getVariableType(String var) {
+                    return getEntry(var).getType();
+                }
+
+                public String[] getVariables() {
+                    if(index >= rows.size()) {
+                        return variables.clone();
+                    }
+                    final Set<String> rowVariables = rows.get(index).keySet();
+                    return rowVariables.toArray( new String[rowVariables.size()] );
+                }
+
+                private InMemoryResultSet.VarEntry getEntry(String var) {
+                    final InMemoryResultSet.VarEntry entry = rows.get(index).get(var);
+                    if(entry == null) {
+                        throw new IllegalArgumentException( String.format("Unknown variable [%s]", var) );
+                    }
+                    return entry;
+                }
+            };
+        }
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sindice.rdfcommons.storage;
+
+import org.sindice.rdfcommons.model.TripleIterator;
+import org.sindice.rdfcommons.model.TripleSet;
+
+/**
+ * {@link TripleStorage} decorator exposing a {@link CachingSparqlEndPoint} over the endpoint
+ * of the decorated storage. Every store, remove and clear invalidates the cached results depending
+ * on the modified graph, the writes on the default graph invalidate all of them.
+ * The endpoint is created at the first request and discarded when the storage is closed.
+ * <p>
+ * Modifications performed directly on the decorated storage are not detected,
+ * only the time to live bounds the staleness of the results in that case.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class CachingTripleStorage implements TripleStorage {
+
+    private final TripleStorage delegate;
+
+    private final int maxEntries;
+
+    private final long timeToLive;
+
+    private CachingSparqlEndPoint sparqlEndPoint;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the decorated storage.
+     * @param maxEntries the maximum number of cached results.
+     * @param timeToLive the default time to live of the cached results, in milliseconds.
+     */
+    public CachingTripleStorage(TripleStorage delegate, int maxEntries, long timeToLive) {
+        if(delegate == null) {
+            throw new NullPointerException("delegate cannot be null.");
+        }
+        if(maxEntries <= 0) {
+            throw new IllegalArgumentException("Invalid max entries: " + maxEntries);
+        }
+        if(timeToLive <= 0) {
+            throw new IllegalArgumentException("Invalid time to live: " + timeToLive);
+        }
+        this.delegate   = delegate;
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Constructor with default cache size and time to live.
+     *
+     * @param delegate the decorated storage.
+     */
+    public CachingTripleStorage(TripleStorage delegate) {
+        this(delegate, CachingSparqlEndPoint.DEFAULT_MAX_ENTRIES, CachingSparqlEndPoint.DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * @return the decorated storage.
+     */
+    public TripleStorage getDelegate() {
+        return delegate;
+    }
+
+    public void openStorage(TripleStorageConfig config) throws StorageException {
+        delegate.openStorage(config);
+    }
+
+    public void closeStorage() throws StorageException {
+        synchronized (this) {
+            if(sparqlEndPoint != null) {
+                sparqlEndPoint.invalidateAll();
+                sparqlEndPoint = null;
+            }
+        }
+        delegate.closeStorage();
+    }
+
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    public void store(TripleSet ts) throws StorageException {
+        try {
+            delegate.store(ts);
+        } finally {
+            invalidate(null);
+        }
+    }
+
+    public void store(String graph, TripleSet ts) throws StorageException {
+        try {
+            delegate.store(graph, ts);
+        } finally {
+            invalidate(graph);
+        }
+    }
+
+    public void remove(TripleSet ts) throws StorageException {
+        try {
+            delegate.remove(ts);
+        } finally {
+            invalidate(null);
+        }
+    }
+
+    public void remove(String graph, TripleSet ts) throws StorageException {
+        try {
+            delegate.remove(graph, ts);
+        } finally {
+            invalidate(graph);
+        }
+    }
+
+    public TripleIterator getTriplesIterator(TripleStorageFilter tripleFilter) throws StorageException {
+        return delegate.getTriplesIterator(tripleFilter);
+    }
+
+    public TripleIterator getTriplesIterator(String graph, TripleStorageFilter tripleFilter)
+    throws StorageException {
+        return delegate.getTriplesIterator(graph, tripleFilter);
+    }
+
+    public TripleSet getTriples(TripleStorageFilter tripleFilter) throws StorageException {
+        return delegate.getTriples(tripleFilter);
+    }
+
+    public TripleSet getTriples(String graph, TripleStorageFilter tripleFilter) throws StorageException {
+        return delegate.getTriples(graph, tripleFilter);
+    }
+
+    /**
+     * @return the caching endpoint.
+     */
+    public synchronized CachingSparqlEndPoint getSparqlEndPoint() {
+        if(sparqlEndPoint == null) {
+            sparqlEndPoint = new CachingSparqlEndPoint( delegate.getSparqlEndPoint(), maxEntries, timeToLive );
+        }
+        return sparqlEndPoint;
+    }
+
+    public void clear(String graph) throws StorageException {
+        try {
+            delegate.clear(graph);
+        } finally {
+            invalidate(graph);
+        }
+    }
+
+    public void clearAll() throws StorageException {
+        try {
+            delegate.clearAll();
+        } finally {
+            invalidate(null);
+        }
+    }
+
+    private void invalidate(String graph) {
+        final CachingSparqlEndPoint endPoint;
+        synchronized (this) {
+            endPoint = sparqlEndPoint;
+        }
+        if(endPoint != null) {
+            endPoint.invalidate(graph);
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.storage;
+
+/**
+ * Creates, validates and destroys the connections managed by a {@link ConnectionPool}.
+ *
+ * @param <C> the connection type.
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public interface ConnectionFactory<C> {
+
+    /**
+     * Opens a new connection.
+     *
+     * @return the connection.
+     * @throws StorageException if the connection cannot be established.
+     */
+    C createConnection() throws StorageException;
+
+    /**
+     * Checks whether an idle connection can still be used.
+     *
+     * @param connection the connection to be checked.
+     * @return <code>true</code> if the connection is usable, <code>false</code> if it must be destroyed.
+     */
+    boolean validateConnection(C connection);
+
+    /**
+     * Closes a connection, errors must be handled by the implementation.
+     *
+     * @param connection the connection to be closed.
+     */
+    void destroyConnection(C connection);
+
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.storage;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of connections created by a {@link ConnectionFactory}.
+ * <p>
+ * At most <i>maxSize</i> connections are borrowed at the same time, {@link #borrow()} waits up to
+ * the borrow timeout for a connection to be returned. Returned connections are kept idle and reused
+ * most recent first, they are validated before being borrowed again and destroyed once idle
+ * for longer than the maximum idle time. Every borrowed connection must be given back
+ * with {@link #release(Object)}, or with {@link #invalidate(Object)} if it is no longer usable.
+ * </p>
+ * <p>
+ * Many pools can share the thread evicting their idle connections and a {@link SharedConnectionLimit}
+ * on the connections open in all of them, see {@link #ConnectionPool(ConnectionFactory, int, long, long,
+ * ScheduledExecutorService, SharedConnectionLimit)}.
+ * </p>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @param <C> the connection type.
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class ConnectionPool<C> {
+
+    /**
+     * Default maximum number of borrowed connections.
+     */
+    public static final int DEFAULT_MAX_SIZE = 8;
+
+    /**
+     * Default maximum idle time in milliseconds.
+     */
+    public static final long DEFAULT_MAX_IDLE_TIME = 60 * 1000;
+
+    /**
+     * Default borrow timeout in milliseconds.
+     */
+    public static final long DEFAULT_BORROW_TIMEOUT = 30 * 1000;
+
+    private final ConnectionFactory<C> factory;
+
+    private final int maxSize;
+
+    private final long maxIdleTime;
+
+    private final long borrowTimeout;
+
+    private final Semaphore permits;
+
+    /**
+     * Limit shared with other pools, <code>null</code> if there is no shared limit.
+     * Every open connection, borrowed or idle, holds one of its permits.
+     */
+    private final SharedConnectionLimit sharedLimit;
+
+    /**
+     * Idle connections, the most recently returned first.
+     */
+    private final LinkedBlockingDeque<IdleConnection<C>> idle = new LinkedBlockingDeque<IdleConnection<C>>();
+
+    private final Set<C> borrowed = Collections.newSetFromMap( new ConcurrentHashMap<C,Boolean>() );
+
+    /**
+     * Evictor owned by the pool, <code>null</code> if shared or if the idle connections are never evicted.
+     */
+    private final ScheduledExecutorService evictor;
+
+    private final ScheduledFuture<?> eviction;
+
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param factory the connection factory.
+     * @param maxSize the maximum number of borrowed connections.
+     * @param maxIdleTime the time after which an idle connection is destroyed, in milliseconds,
+     *                    <code>0</code> to never evict idle connections.
+     * @param borrowTimeout the maximum time waited for a connection, in milliseconds.
+     * @param sharedEvictor the executor evicting the idle connections, not shut down by the pool,
+     *                      <code>null</code> to let the pool create its own.
+     * @param sharedLimit the limit on the connections open in all the pools sharing it,
+     *                    <code>null</code> for no shared limit.
+     */
+    public ConnectionPool(
+            ConnectionFactory<C> factory,
+            int maxSize,
+            long maxIdleTime,
+            long borrowTimeout,
+            ScheduledExecutorService sharedEvictor,
+            SharedConnectionLimit sharedLimit
+    ) {
+        if(factory == null) {
+            throw new NullPointerException("factory cannot be null.");
+        }
+        if(maxSize <= 0) {
+            throw new IllegalArgumentException("Invalid max size: " + maxSize);
+        }
+        if(maxIdleTime < 0) {
+            throw new IllegalArgumentException("Invalid max idle time: " + maxIdleTime);
+        }
+        if(borrowTimeout < 0) {
+            throw new IllegalArgumentException("Invalid borrow timeout: " + borrowTimeout);
+        }
+        this.factory       = factory;
+        this.maxSize       = maxSize;
+        this.maxIdleTime   = maxIdleTime;
+        this.borrowTimeout = borrowTimeout;
+        this.permits       = new Semaphore(maxSize, true);
+        this.sharedLimit   = sharedLimit;
+        if(maxIdleTime > 0) {
+            evictor = sharedEvictor == null ? createEvictor() : null;
+            final long period = Math.max(1, maxIdleTime / 2);
+            eviction = (sharedEvictor == null ? evictor : sharedEvictor).scheduleWithFixedDelay(
+                    new Runnable() {
+                        public void run() {
+                            evictIdle();
+                        }
+                    },
+                    period, period, TimeUnit.MILLISECONDS
+            );
+        } else {
+            evictor  = null;
+            eviction = null;
+        }
+        if(sharedLimit != null) {
+            sharedLimit.register(this);
+        }
+    }
+
+    /**
+     * Constructor with its own evictor and no shared limit.
+     *
+     * @param factory the connection factory.
+     * @param maxSize the maximum number of borrowed connections.
+     * @param maxIdleTime the time after which an idle connection is destroyed, in milliseconds,
+     *                    <code>0</code> to never evict idle connections.
+     * @param borrowTimeout the maximum time waited for a connection, in milliseconds.
+     */
+    public ConnectionPool(ConnectionFactory<C> factory, int maxSize, long maxIdleTime, long borrowTimeout) {
+        this(factory, maxSize, maxIdleTime, borrowTimeout, null, null);
+    }
+
+    /**
+     * Constructor with default sizes and timeouts.
+     *
+     * @param factory the connection factory.
+     */
+    public ConnectionPool(ConnectionFactory<C> factory) {
+        this(factory, DEFAULT_MAX_SIZE, DEFAULT_MAX_IDLE_TIME, DEFAULT_BORROW_TIMEOUT);
+    }
+
+    /**
+     * Borrows a connection, reusing an idle one if available.
+     *
+     * @return the borrowed connection.
+     * @throws StorageException if no connection is available within the borrow timeout
+     *         or a new connection cannot be established.
+     */
+    public C borrow() throws StorageException {
+        checkOpen();
+        final long deadline = System.currentTimeMillis() + borrowTimeout;
+        try {
+            if( ! permits.tryAcquire(borrowTimeout, TimeUnit.MILLISECONDS) ) {
+                throw new StorageException(
+                        String.format("No connection available within %d ms, %d borrowed.", borrowTimeout, maxSize)
+                );
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while waiting for a connection.", ie);
+        }
+        try {
+            IdleConnection<C> candidate;
+            while( (candidate = idle.pollFirst()) != null ) {
+                boolean valid = false;
+                try {
+                    valid = factory.validateConnection(candidate.connection);
+                } finally {
+                    if( ! valid ) {
+                        destroy(candidate.connection);
+                    }
+                }
+                if(valid) {
+                    borrowed.add(candidate.connection);
+                    return candidate.connection;
+                }
+            }
+        } catch (RuntimeException re) {
+            permits.release();
+            throw re;
+        }
+        acquireShared(deadline);
+        try {
+            final C connection = factory.createConnection();
+            borrowed.add(connection);
+            return connection;
+        } catch (StorageException se) {
+            releaseShared();
+            permits.release();
+            throw se;
+        } catch (RuntimeException re) {
+            releaseShared();
+            permits.release();
+            throw re;
+        }
+    }
+
+    /**
+     * Gives back a borrowed connection, making it available to other borrowers.
+     *
+     * @param connection the borrowed connection.
+     * @throws IllegalArgumentException if the connection has not been borrowed from this pool.
+     */
+    public void release(C connection) {
+        if( ! borrowed.remove(connection) ) {
+            throw new IllegalArgumentException("The connection has not been borrowed from this pool.");
+        }
+        try {
+            // Other pools waiting for the shared limit get the connection slot.
+            if( closed || (sharedLimit != null && sharedLimit.hasWaiters()) ) {
+                destroy(connection);
+                return;
+            }
+            final IdleConnection<C> returned = new IdleConnection<C>(connection, System.currentTimeMillis());
+            idle.offerFirst(returned);
+            // The pool could have been closed meanwhile.
+            if( closed && idle.remove(returned) ) {
+                destroy(connection);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Gives back a borrowed connection which is no longer usable, destroying it.
+     *
+     * @param connection the borrowed connection.
+     * @throws IllegalArgumentException if the connection has not been borrowed from this pool.
+     */
+    public void invalidate(C connection) {
+        if( ! borrowed.remove(connection) ) {
+            throw new IllegalArgumentException("The connection has not been borrowed from this pool.");
+        }
+        try {
+            destroy(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Destroys the connections idle for longer than the maximum idle time.
+     * This method is invoked periodically by the pool.
+     *
+     * @return the number of destroyed connections.
+     */
+    public int evictIdle() {
+        if(maxIdleTime == 0) {
+            return 0;
+        }
+        final long expiration = System.currentTimeMillis() - maxIdleTime;
+        int evicted = 0;
+        final Iterator<IdleConnection<C>> iterator = idle.descendingIterator();
+        while( iterator.hasNext() ) {
+            final IdleConnection<C> candidate = iterator.next();
+            if(candidate.since > expiration) {
+                break;
+            }
+            if( idle.removeLastOccurrence(candidate) ) {
+                destroy(candidate.connection);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * @return the maximum number of borrowed connections.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the number of connections currently borrowed.
+     */
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    /**
+     * @return the number of idle connections.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * @return <code>true</code> if the pool has been closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes the pool if it holds neither borrowed nor idle connections, so that a pool
+     * no longer used can be dropped. A connection borrowed concurrently is destroyed when given back.
+     *
+     * @return <code>true</code> if the pool has been closed.
+     */
+    public boolean closeIfUnused() {
+        if( closed || ! borrowed.isEmpty() || ! idle.isEmpty() ) {
+            return false;
+        }
+        close();
+        return true;
+    }
+
+    /**
+     * Closes the pool destroying the idle connections. The connections still borrowed
+     * are destroyed when given back.
+     */
+    public void close() {
+        closed = true;
+        if(eviction != null) {
+            eviction.cancel(false);
+        }
+        if(evictor != null) {
+            evictor.shutdownNow();
+        }
+        if(sharedLimit != null) {
+            sharedLimit.unregister(this);
+        }
+        IdleConnection<C> candidate;
+        while( (candidate = idle.pollFirst()) != null ) {
+            destroy(candidate.connection);
+        }
+    }
+
+    /**
+     * Destroys the idle connection returned least recently,
+     * used by the {@link SharedConnectionLimit} to reclaim a connection slot.
+     *
+     * @return <code>true</code> if a connection has been destroyed.
+     */
+    boolean destroyOldestIdle() {
+        final IdleConnection<C> candidate = idle.pollLast();
+        if(candidate == null) {
+            return false;
+        }
+        destroy(candidate.connection);
+        return true;
+    }
+
+    private static ScheduledExecutorService createEvictor() {
+        return Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "connection-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private void acquireShared(long deadline) throws StorageException {
+        if(sharedLimit == null) {
+            return;
+        }
+        try {
+            if( ! sharedLimit.acquire(this, Math.max(0, deadline - System.currentTimeMillis())) ) {
+                permits.release();
+                throw new StorageException(
+                        String.format("No connection available within %d ms, shared limit reached.", borrowTimeout)
+                );
+            }
+        } catch (InterruptedException ie) {
+            permits.release();
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while waiting for a connection.", ie);
+        }
+    }
+
+    private void releaseShared() {
+        if(sharedLimit != null) {
+            sharedLimit.release();
+        }
+    }
+
+    /**
+     * Destroys an open connection giving back its shared permit.
+     */
+    private void destroy(C connection) {
+        try {
+            factory.destroyConnection(connection);
+        } finally {
+            releaseShared();
+        }
+    }
+
+    private void checkOpen() {
+        if(closed) {
+            throw new IllegalStateException("The pool has been closed.");
+        }
+    }
+
+    private static class IdleConnection<C> {
+
+        private final C connection;
+
+        private final long since;
+
+        private IdleConnection(C connection, long since) {
+            this.connection = connection;
+            this.since      = since;
+        }
+    }
+
+}
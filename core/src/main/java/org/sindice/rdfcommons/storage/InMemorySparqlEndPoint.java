@@ -0,0 +1,339 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.storage;
+
+import org.sindice.rdfcommons.model.IndexedTripleSet;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleImpl;
+import org.sindice.rdfcommons.model.TripleSet;
+import org.sindice.rdfcommons.query.BasicGraphPattern;
+import org.sindice.rdfcommons.query.SparqlQuery;
+import org.sindice.rdfcommons.query.StreamingResultSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Embedded {@link SparqlEndPoint} evaluating queries over the graphs of a {@link TripleStorageInMemoryImpl}.
+ * <p>
+ * Queries are parsed by {@link SparqlQuery}, see its documentation for the supported subset, and their
+ * basic graph patterns are evaluated with indexed lookups and hash joins. Without <i>FROM</i> clauses
+ * a query is evaluated over the default graph, otherwise over the union of the listed named graphs.
+ * A <i>DESCRIBE</i> returns the triples having the described resources as subject, following the
+ * blank node objects.
+ * </p>
+ * <p>
+ * The results are computed while holding the read locks of the queried graphs and returned materialized.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class InMemorySparqlEndPoint implements SparqlEndPoint {
+
+    private final TripleStorageInMemoryImpl storage;
+
+    /**
+     * Constructor.
+     *
+     * @param storage the storage to be queried.
+     */
+    public InMemorySparqlEndPoint(TripleStorageInMemoryImpl storage) {
+        if(storage == null) {
+            throw new NullPointerException("storage cannot be null.");
+        }
+        this.storage = storage;
+    }
+
+    public ResultSet processSelectQuery(String qry) throws SparqlEndpointException {
+        return select( parse(qry, QueryType.select) );
+    }
+
+    public TripleSet processConstructQuery(String qry) throws SparqlEndpointException {
+        return construct( parse(qry, QueryType.construct) );
+    }
+
+    public TripleSet processDescribeQuery(String qry) throws SparqlEndpointException {
+        return describe( parse(qry, QueryType.describe) );
+    }
+
+    public boolean processAskQuery(String qry) throws SparqlEndpointException {
+        return ask( parse(qry, QueryType.ask) );
+    }
+
+    public EndpointResponse processQuery(String qry) throws SparqlEndpointException {
+        final SparqlQuery query = parse(qry, null);
+        switch (query.getType()) {
+            case select:
+                return new EndpointResponse( QueryType.select, select(query) );
+            case construct:
+                return new EndpointResponse( QueryType.construct, construct(query) );
+            case describe:
+                return new EndpointResponse( QueryType.describe, describe(query) );
+            case ask:
+                return new EndpointResponse( QueryType.ask, ask(query) );
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    public QueryType getQueryType(String qry) throws SparqlEndpointException {
+        return parse(qry, null).getType();
+    }
+
+    private SparqlQuery parse(String qry, QueryType expected) throws SparqlEndpointException {
+        final SparqlQuery query;
+        try {
+            query = SparqlQuery.parse(qry);
+        } catch (IllegalArgumentException iae) {
+            throw new SparqlEndpointException( String.format("Invalid query [%s]: %s", qry, iae.getMessage()), iae );
+        }
+        if(expected != null && query.getType() != expected) {
+            throw new SparqlEndpointException(
+                    String.format("Expected %s query, found %s query.", expected, query.getType())
+            );
+        }
+        return query;
+    }
+
+    private ResultSet select(SparqlQuery query) throws SparqlEndpointException {
+        final String[] projection = query.getProjection();
+        if(projection.length == 0) {
+            throw new SparqlEndpointException("The query doesn't select any variable.");
+        }
+        final Set<String> whereVars = new HashSet<String>( Arrays.asList(query.getWhere().getVars()) );
+        for(String var : projection) {
+            if( ! whereVars.contains(var) ) {
+                throw new SparqlEndpointException( String.format("Unknown variable [%s]", var) );
+            }
+        }
+        final InMemoryResultSet result = new InMemoryResultSet(projection);
+        final Set<List<Object>> seen = query.isDistinct() ? new HashSet<List<Object>>() : null;
+        final TripleStorageInMemoryImpl.ReadView view = storage.openReadView( query.getFromGraphs() );
+        try {
+            final ResultSet solutions = evaluate(query, view, seen == null ? solutionLimit(query) : StreamingResultSet.NO_LIMIT);
+            int skipped = 0;
+            while(
+                    solutions.hasNext()
+                            &&
+                    (query.getLimit() == StreamingResultSet.NO_LIMIT || result.size() < query.getLimit())
+            ) {
+                final InMemoryResultSet.VarEntry[] row = new InMemoryResultSet.VarEntry[projection.length];
+                final List<Object> key = seen == null ? null : new ArrayList<Object>(projection.length * 2);
+                for(int i = 0; i < projection.length; i++) {
+                    row[i] = new InMemoryResultSet.VarEntry(
+                            solutions.getVariableValue(projection[i]), solutions.getVariableType(projection[i])
+                    );
+                    if(key != null) {
+                        key.add( row[i].getValue() );
+                        key.add( row[i].getType()  );
+                    }
+                }
+                solutions.next();
+                if(key != null && ! seen.add(key)) {
+                    continue;
+                }
+                if(skipped < query.getOffset()) {
+                    skipped++;
+                    continue;
+                }
+                result.addResult(row);
+            }
+        } finally {
+            view.close();
+        }
+        return result;
+    }
+
+    private TripleSet construct(SparqlQuery query) throws SparqlEndpointException {
+        final TripleSet result = new IndexedTripleSet();
+        final List<Object[]> template = query.getTemplate();
+        final Set<String> whereVars = new HashSet<String>( Arrays.asList(query.getWhere().getVars()) );
+        final TripleStorageInMemoryImpl.ReadView view = storage.openReadView( query.getFromGraphs() );
+        try {
+            final ResultSet solutions = skip( evaluate(query, view, solutionLimit(query)), query.getOffset() );
+            final Map<String,String> blankNodes = new HashMap<String,String>();
+            while( solutions.hasNext() ) {
+                blankNodes.clear();
+                for(Object[] triple : template) {
+                    final Triple instance = instantiate(triple, solutions, whereVars, blankNodes);
+                    if(instance != null) {
+                        result.addTriple(instance);
+                    }
+                }
+                solutions.next();
+            }
+        } finally {
+            view.close();
+        }
+        return result;
+    }
+
+    private TripleSet describe(SparqlQuery query) throws SparqlEndpointException {
+        final TripleSet result = new IndexedTripleSet();
+        final TripleStorageInMemoryImpl.ReadView view = storage.openReadView( query.getFromGraphs() );
+        try {
+            final TripleSet dataset = view.getTriples();
+            final LinkedList<String> pending = new LinkedList<String>();
+            final List<String> variables = new ArrayList<String>();
+            for(String term : query.getDescribeTerms()) {
+                if( BasicGraphPattern.isVariable(term) ) {
+                    variables.add(term);
+                } else {
+                    pending.add(term);
+                }
+            }
+            if( ! variables.isEmpty() ) {
+                if( query.getWhere().isEmpty() ) {
+                    throw new SparqlEndpointException("Cannot describe variables without a WHERE clause.");
+                }
+                final Set<String> whereVars = new HashSet<String>( Arrays.asList(query.getWhere().getVars()) );
+                final ResultSet solutions = skip( evaluate(query, view, solutionLimit(query)), query.getOffset() );
+                while( solutions.hasNext() ) {
+                    for(String variable : variables) {
+                        if(
+                                whereVars.contains(variable)
+                                        &&
+                                solutions.getVariableType(variable) != ResultSet.VariableType.LITERAL
+                        ) {
+                            pending.add( solutions.getVariableString(variable) );
+                        }
+                    }
+                    solutions.next();
+                }
+            }
+            final Set<String> described = new HashSet<String>();
+            while( ! pending.isEmpty() ) {
+                final String resource = pending.removeFirst();
+                if( ! described.add(resource) ) {
+                    continue;
+                }
+                for(Triple triple : dataset.getTriplesWithPattern(resource, null, null, null, null, null)) {
+                    result.addTriple(triple);
+                    if( triple.isObjectBNode() ) {
+                        pending.add( triple.getObjectAsString() );
+                    }
+                }
+            }
+        } finally {
+            view.close();
+        }
+        return result;
+    }
+
+    private boolean ask(SparqlQuery query) throws SparqlEndpointException {
+        final TripleStorageInMemoryImpl.ReadView view = storage.openReadView( query.getFromGraphs() );
+        try {
+            return evaluate(query, view, 1).hasNext();
+        } finally {
+            view.close();
+        }
+    }
+
+    /**
+     * Evaluates the <i>WHERE</i> clause of a query.
+     *
+     * @param query the query.
+     * @param view the view over the query dataset.
+     * @param limit the maximum number of solutions.
+     * @return the solutions.
+     */
+    private ResultSet evaluate(SparqlQuery query, TripleStorageInMemoryImpl.ReadView view, int limit)
+    throws SparqlEndpointException {
+        if( query.getWhere().isEmpty() ) {
+            throw new SparqlEndpointException("Empty WHERE clause.");
+        }
+        return query.getWhere().evaluate( view.getTriples(), limit );
+    }
+
+    /**
+     * @return the number of solutions needed to apply the query limit and offset.
+     */
+    private static int solutionLimit(SparqlQuery query) {
+        return query.getLimit() == StreamingResultSet.NO_LIMIT
+                ? StreamingResultSet.NO_LIMIT
+                : query.getLimit() + query.getOffset();
+    }
+
+    private static ResultSet skip(ResultSet solutions, int offset) {
+        for(int i = 0; i < offset && solutions.hasNext(); i++) {
+            solutions.next();
+        }
+        return solutions;
+    }
+
+    /**
+     * Instantiates a template triple with a solution.
+     *
+     * @return the triple or <code>null</code> if the solution doesn't produce a valid triple.
+     */
+    private static Triple instantiate(
+            Object[] terms, ResultSet solution, Set<String> solutionVars, Map<String,String> blankNodes
+    ) {
+        final Object[] values = new Object[3];
+        final ResultSet.VariableType[] types = new ResultSet.VariableType[3];
+        for(int p = 0; p < 3; p++) {
+            final Object term = terms[p];
+            if( term instanceof SparqlQuery.LiteralTerm ) {
+                values[p] = ((SparqlQuery.LiteralTerm) term).toObject();
+                types[p]  = ResultSet.VariableType.LITERAL;
+            } else if( BasicGraphPattern.isVariable(term) ) {
+                if( ! solutionVars.contains(term) ) {
+                    return null;
+                }
+                values[p] = solution.getVariableValue( (String) term );
+                types[p]  = solution.getVariableType( (String) term );
+            } else if( ((String) term).startsWith("_:") ) {
+                String blankNode = blankNodes.get(term);
+                if(blankNode == null) {
+                    blankNode = TripleImpl.nextBNodeIdentifier();
+                    blankNodes.put( (String) term, blankNode );
+                }
+                values[p] = blankNode;
+                types[p]  = TripleImpl.getBNodeIdGenerator().isIRI()
+                        ? ResultSet.VariableType.RESOURCE : ResultSet.VariableType.BLANK;
+            } else {
+                values[p] = term;
+                types[p]  = ResultSet.VariableType.RESOURCE;
+            }
+        }
+        if(
+                types[0] == ResultSet.VariableType.LITERAL
+                        ||
+                types[1] != ResultSet.VariableType.RESOURCE
+        ) {
+            return null;
+        }
+        return new TripleImpl<Object>(
+                (String) values[0],
+                (String) values[1],
+                values[2],
+                types[0] == ResultSet.VariableType.BLANK ? Triple.SubjectType.bnode : Triple.SubjectType.uri,
+                types[2] == ResultSet.VariableType.LITERAL
+                        ? Triple.ObjectType.literal
+                        : types[2] == ResultSet.VariableType.BLANK ? Triple.ObjectType.bnode : Triple.ObjectType.uri,
+                null
+        );
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.storage;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limit on the connections open in a group of {@link ConnectionPool}s, counting both
+ * the borrowed and the idle ones.
+ * <p>
+ * When the limit is reached a pool needing a new connection destroys the oldest idle connection
+ * of another pool of the group, and the pools destroy the connections given back while other
+ * pools are waiting, instead of keeping them idle.
+ * </p>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class SharedConnectionLimit {
+
+    /**
+     * Maximum time waited before looking again for idle connections to be reclaimed, in milliseconds.
+     */
+    private static final long RECLAIM_PERIOD = 100;
+
+    private final int maxConnections;
+
+    private final Semaphore permits;
+
+    private final Set<ConnectionPool<?>> pools =
+            Collections.newSetFromMap( new ConcurrentHashMap<ConnectionPool<?>,Boolean>() );
+
+    /**
+     * Constructor.
+     *
+     * @param maxConnections the maximum number of connections open in all the pools.
+     */
+    public SharedConnectionLimit(int maxConnections) {
+        if(maxConnections <= 0) {
+            throw new IllegalArgumentException("Invalid max connections: " + maxConnections);
+        }
+        this.maxConnections = maxConnections;
+        this.permits        = new Semaphore(maxConnections, true);
+    }
+
+    /**
+     * @return the maximum number of connections open in all the pools.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return the number of connections that can still be opened.
+     */
+    public int getAvailableConnections() {
+        return permits.availablePermits();
+    }
+
+    void register(ConnectionPool<?> pool) {
+        pools.add(pool);
+    }
+
+    void unregister(ConnectionPool<?> pool) {
+        pools.remove(pool);
+    }
+
+    /**
+     * @return <code>true</code> if some pool is waiting for a connection to be closed.
+     */
+    boolean hasWaiters() {
+        return permits.hasQueuedThreads();
+    }
+
+    /**
+     * Acquires the right to open a connection, reclaiming the idle connections of the other pools
+     * while waiting.
+     *
+     * @param requester the pool opening the connection.
+     * @param timeout the maximum time waited, in milliseconds.
+     * @return <code>true</code> if the connection can be opened, <code>false</code> if the timeout elapsed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    boolean acquire(ConnectionPool<?> requester, long timeout) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeout;
+        while(true) {
+            if( permits.tryAcquire() ) {
+                return true;
+            }
+            if( reclaimIdle(requester) ) {
+                continue;
+            }
+            final long remaining = deadline - System.currentTimeMillis();
+            if(remaining <= 0) {
+                return false;
+            }
+            if( permits.tryAcquire( Math.min(remaining, RECLAIM_PERIOD), TimeUnit.MILLISECONDS ) ) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back the right of a connection which has been closed.
+     */
+    void release() {
+        permits.release();
+    }
+
+    private boolean reclaimIdle(ConnectionPool<?> requester) {
+        for(ConnectionPool<?> pool : pools) {
+            if(pool != requester && pool.destroyOldestIdle()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -16,6 +16,7 @@
 
 package org.sindice.rdfcommons.storage;
 
+import org.sindice.rdfcommons.model.IndexedTripleSet;
 import org.sindice.rdfcommons.model.Triple;
 import org.sindice.rdfcommons.model.TripleBuffer;
 import org.sindice.rdfcommons.model.TripleIterator;
@@ -23,28 +24,42 @@ import org.sindice.rdfcommons.model.TripleIteratorImpl;
 import org.sindice.rdfcommons.model.TripleSet;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Provides the default implementation of the {@link TripleStorage}.
+ * Graphs are kept in {@link IndexedTripleSet}s and can be queried through an {@link InMemorySparqlEndPoint}.
+ * <p>
+ * This class is thread safe: every graph is guarded by its own read write lock, so that writers of different
+ * graphs never contend and readers of the same graph proceed in parallel. Named graphs are created on first
+ * write. Iterators and triple sets returned by this storage are copies not affected by later modifications.
+ * </p>
  *
  * @author Michele Mostarda ( mostarda@fbk.eu )
  * @version $Id$
  */
 public class TripleStorageInMemoryImpl implements TripleStorage {
 
-    private TripleSet defaultGraph;
+    private final Graph defaultGraph;
 
-    private Map<String,TripleSet> namedGraphs;
+    private final ConcurrentMap<String,Graph> namedGraphs;
+
+    private final SparqlEndPoint sparqlEndPoint;
 
     /**
      * Public constructor. Don't need to pass for the {@link TripleStorageFactory}.
      */
     public TripleStorageInMemoryImpl() {
-        defaultGraph = new TripleBuffer();
-        namedGraphs  = new HashMap<String,TripleSet>();
+        defaultGraph   = new Graph();
+        namedGraphs    = new ConcurrentHashMap<String,Graph>();
+        sparqlEndPoint = new InMemorySparqlEndPoint(this);
     }
 
     public void openStorage(TripleStorageConfig config) {
@@ -59,92 +74,113 @@ public class TripleStorageInMemoryImpl implements TripleStorage {
         return true;
     }
 
-    public synchronized void store(TripleSet ts) throws StorageException {
+    public void store(TripleSet ts) throws StorageException {
         defaultGraph.add(ts);
     }
 
     public void store(String graph, TripleSet ts) throws StorageException {
-        TripleSet namedGraph = getGraph(graph);
-        namedGraph.add(ts);
+        getOrCreateGraph(graph).add(ts);
     }
 
-    public synchronized void remove(TripleSet ts) throws StorageException {
+    public void remove(TripleSet ts) throws StorageException {
         defaultGraph.remove(ts);
     }
 
     public void remove(String graph, TripleSet ts) throws StorageException {
-        TripleSet namedGraph = getGraph(graph);
-        namedGraph.remove(ts);
+        final Graph namedGraph = namedGraphs.get(graph);
+        if(namedGraph != null) {
+            namedGraph.remove(ts);
+        }
     }
 
-    public synchronized TripleIterator getTriplesIterator(TripleStorageFilter tripleFilter) {
-        return new TripleIteratorImpl(filterTriples(defaultGraph, tripleFilter).iterator());
+    public TripleIterator getTriplesIterator(TripleStorageFilter tripleFilter) {
+        return new TripleIteratorImpl( defaultGraph.filter(tripleFilter).iterator() );
     }
 
     public TripleIterator getTriplesIterator(String graph, TripleStorageFilter tripleFilter) {
-        TripleSet namedGraph = getGraph(graph);
-        return new TripleIteratorImpl(filterTriples(namedGraph, tripleFilter).iterator());
+        return new TripleIteratorImpl( filterNamedGraph(graph, tripleFilter).iterator() );
     }
 
-    public synchronized TripleSet getTriples(TripleStorageFilter tripleFilter) {
-        return new TripleBuffer(filterTriples(defaultGraph, tripleFilter));
+    public TripleSet getTriples(TripleStorageFilter tripleFilter) {
+        return new TripleBuffer( defaultGraph.filter(tripleFilter) );
     }
 
     public TripleSet getTriples(String graph, TripleStorageFilter tripleFilter) {
-        TripleSet namedGraph = getGraph(graph);
-        return new TripleBuffer(filterTriples(namedGraph, tripleFilter));
+        return new TripleBuffer( filterNamedGraph(graph, tripleFilter) );
     }
 
-
     public SparqlEndPoint getSparqlEndPoint() {
-        // TODO (LOW) this should be handled with an effective SPARQL Endpoint
-        throw new UnsupportedOperationException();
+        return sparqlEndPoint;
     }
 
     public void clear(String graph) {
-        TripleSet namedGraph = getGraph(graph);
-        namedGraph.clear();
+        final Graph namedGraph = namedGraphs.get(graph);
+        if(namedGraph != null) {
+            namedGraph.clear();
+        }
     }
 
-    public synchronized void clearAll() {
+    public void clearAll() {
         defaultGraph.clear();
+        for(Graph namedGraph : namedGraphs.values()) {
+            namedGraph.clear();
+        }
+    }
+
+    /**
+     * Acquires the read locks of the graphs a query must be evaluated on.
+     * The locks are acquired in graph name order, whatever the order of the requested graphs,
+     * so that two queries cannot wait for each other behind queued writers.
+     * The returned view must be closed to release the locks.
+     *
+     * @param graphs the named graphs, if empty the default graph is used.
+     * @return the view over the requested graphs.
+     */
+    ReadView openReadView(List<String> graphs) {
+        final List<Graph> locked = new ArrayList<Graph>();
+        if( graphs.isEmpty() ) {
+            locked.add(defaultGraph);
+        } else {
+            final SortedMap<String,Graph> sorted = new TreeMap<String,Graph>();
+            for(String graphName : graphs) {
+                final Graph namedGraph = namedGraphs.get(graphName);
+                if(namedGraph != null) {
+                    sorted.put(graphName, namedGraph);
+                }
+            }
+            locked.addAll( sorted.values() );
+        }
+        return new ReadView(locked);
     }
 
-    private TripleSet getGraph(String graph) {
-        TripleSet ts = namedGraphs.get(graph);
-        if(ts == null) {
-            ts = new TripleBuffer();
-            namedGraphs.put(graph, ts);
+    private Graph getOrCreateGraph(String graph) {
+        if(graph == null) {
+            throw new NullPointerException("graph cannot be null.");
         }
-        return ts;
-    }
-
-    private synchronized List<Triple> filterTriples(TripleSet ts, TripleStorageFilter tripleFilter) {
-        List<Triple> set = ts.getTriples();
-        List<Triple> result = new ArrayList<Triple>();
-
-        for (Triple triple : set) {
-            if (
-                    acceptSubject(tripleFilter, triple)
-                            &&
-                    matches( tripleFilter.getPredicateMatching(), triple.getPredicate() )
-                            &&
-                    acceptObject(tripleFilter, triple)
-            ) {
-                result.add(triple);
+        Graph namedGraph = namedGraphs.get(graph);
+        if(namedGraph == null) {
+            final Graph created = new Graph();
+            namedGraph = namedGraphs.putIfAbsent(graph, created);
+            if(namedGraph == null) {
+                namedGraph = created;
             }
         }
-        return result;
+        return namedGraph;
+    }
+
+    private List<Triple> filterNamedGraph(String graph, TripleStorageFilter tripleFilter) {
+        final Graph namedGraph = namedGraphs.get(graph);
+        return namedGraph == null ? new ArrayList<Triple>(0) : namedGraph.filter(tripleFilter);
     }
 
-    private boolean acceptSubject(TripleStorageFilter filter, Triple triple) {
+    private static boolean acceptSubject(TripleStorageFilter filter, Triple triple) {
         if (filter.requireSubjectBlank()) {
             return triple.isSubjectBNode();
         }
         return matches(filter.getSubjectMatching(), triple.getSubject() );
     }
 
-    private boolean acceptObject(TripleStorageFilter filter, Triple triple) {
+    private static boolean acceptObject(TripleStorageFilter filter, Triple triple) {
         if (filter.requireObjectBlank()) {
             return triple.isObjectBNode();
         }
@@ -154,8 +190,129 @@ public class TripleStorageInMemoryImpl implements TripleStorage {
             (! filter.requireLiteral() || triple.isObjectLiteral() == filter.requireLiteral());
     }
 
-    private boolean matches(Object match, Object value) {
+    private static boolean matches(Object match, Object value) {
         return match == null || match.equals(value);
     }
 
-}
\ No newline at end of file
+    /**
+     * A graph with its read write lock.
+     */
+    private static class Graph {
+
+        private final TripleSet triples = new IndexedTripleSet();
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        void add(TripleSet ts) {
+            final Lock writeLock = lock.writeLock();
+            writeLock.lock();
+            try {
+                triples.add(ts);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        void remove(TripleSet ts) {
+            final Lock writeLock = lock.writeLock();
+            writeLock.lock();
+            try {
+                triples.remove(ts);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        void clear() {
+            final Lock writeLock = lock.writeLock();
+            writeLock.lock();
+            try {
+                triples.clear();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        /**
+         * Returns the triples accepted by the filter, using the graph indexes for the bound terms.
+         */
+        List<Triple> filter(TripleStorageFilter tripleFilter) {
+            final List<Triple> result = new ArrayList<Triple>();
+            final Lock readLock = lock.readLock();
+            readLock.lock();
+            try {
+                final TripleSet candidates = triples.getTriplesWithPattern(
+                        tripleFilter.requireSubjectBlank() ? null : tripleFilter.getSubjectMatching(),
+                        tripleFilter.getPredicateMatching(),
+                        tripleFilter.requireObjectBlank()  ? null : tripleFilter.getObjectMatching(),
+                        null, null, null
+                );
+                for(Triple triple : candidates) {
+                    if( acceptSubject(tripleFilter, triple) && acceptObject(tripleFilter, triple) ) {
+                        result.add(triple);
+                    }
+                }
+            } finally {
+                readLock.unlock();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Read only view over a list of graphs, holding their read locks until closed.
+     */
+    static class ReadView {
+
+        private final List<Graph> graphs;
+
+        private final TripleSet triples;
+
+        private boolean closed;
+
+        private ReadView(List<Graph> graphs) {
+            this.graphs = graphs;
+            int acquired = 0;
+            try {
+                for(Graph graph : graphs) {
+                    graph.lock.readLock().lock();
+                    acquired++;
+                }
+                if(graphs.size() == 1) {
+                    triples = graphs.get(0).triples;
+                } else {
+                    triples = new IndexedTripleSet();
+                    for(Graph graph : graphs) {
+                        triples.add(graph.triples);
+                    }
+                }
+            } catch (RuntimeException re) {
+                for(int i = acquired - 1; i >= 0; i--) {
+                    graphs.get(i).lock.readLock().unlock();
+                }
+                throw re;
+            }
+        }
+
+        /**
+         * @return the triples of the view, not to be modified.
+         */
+        TripleSet getTriples() {
+            return triples;
+        }
+
+        /**
+         * Releases the read locks, in reverse acquisition order.
+         */
+        void close() {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            for(int i = graphs.size() - 1; i >= 0; i--) {
+                graphs.get(i).lock.readLock().unlock();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,521 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sindice.rdfcommons.storage;
+
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.model.TripleIterator;
+import org.sindice.rdfcommons.model.TripleSet;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link TripleStorage} decorator applying the store and remove operations asynchronously.
+ * <p>
+ * Writes are enqueued and applied to the decorated storage by background workers. All the operations on
+ * a graph are handled by the same worker, in submission order. Every worker drains up to
+ * <i>maxBatchSize</i> queued operations at a time and coalesces them into a single removal and a single
+ * store per graph: when the same triple is added and removed within a batch only the last operation
+ * is applied. When a queue is full the writers either wait or fail according to the {@link Backpressure}
+ * policy.
+ * </p>
+ * <p>
+ * Reads are served by the decorated storage and may not see the pending writes, use {@link #flush()}
+ * to wait for them. Errors raised by the decorated storage while applying a batch are reported
+ * by the next {@link #flush()} or {@link #closeStorage()}.
+ * Closing this storage applies the pending writes, stops the workers and closes the decorated storage.
+ * </p>
+ * <p>
+ * This class is thread safe.
+ * </p>
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class WriteBehindTripleStorage implements TripleStorage {
+
+    /**
+     * Behavior of the writers when the queue of a worker is full.
+     */
+    public enum Backpressure {
+        /**
+         * The writer waits for the queue to have room.
+         */
+        BLOCK,
+        /**
+         * The write fails with a {@link StorageException}.
+         */
+        FAIL
+    }
+
+    /**
+     * Default capacity of the write queue in operations.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Default maximum number of operations coalesced in a batch.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 128;
+
+    /**
+     * Interval used by the workers to check for termination, in milliseconds.
+     */
+    private static final long POLL_INTERVAL = 100;
+
+    private final TripleStorage delegate;
+
+    private final Backpressure backpressure;
+
+    private final int maxBatchSize;
+
+    private final Worker[] workers;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    private final AtomicLong batches = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the decorated storage.
+     * @param workers the number of background workers.
+     * @param queueCapacity the overall capacity of the write queues in operations.
+     * @param maxBatchSize the maximum number of operations coalesced in a batch.
+     * @param backpressure the behavior of the writers when a queue is full.
+     */
+    public WriteBehindTripleStorage(
+            TripleStorage delegate, int workers, int queueCapacity, int maxBatchSize, Backpressure backpressure
+    ) {
+        if(delegate == null) {
+            throw new NullPointerException("delegate cannot be null.");
+        }
+        if(backpressure == null) {
+            throw new NullPointerException("backpressure cannot be null.");
+        }
+        if(workers <= 0) {
+            throw new IllegalArgumentException("Invalid number of workers: " + workers);
+        }
+        if(queueCapacity < workers) {
+            throw new IllegalArgumentException("Invalid queue capacity: " + queueCapacity);
+        }
+        if(maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Invalid max batch size: " + maxBatchSize);
+        }
+        this.delegate     = delegate;
+        this.backpressure = backpressure;
+        this.maxBatchSize = maxBatchSize;
+        this.workers      = new Worker[workers];
+        for(int i = 0; i < workers; i++) {
+            this.workers[i] = new Worker(i, queueCapacity / workers);
+            this.workers[i].start();
+        }
+    }
+
+    /**
+     * Constructor with a single worker, default sizes and blocking writers.
+     *
+     * @param delegate the decorated storage.
+     */
+    public WriteBehindTripleStorage(TripleStorage delegate) {
+        this(delegate, 1, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_SIZE, Backpressure.BLOCK);
+    }
+
+    /**
+     * @return the decorated storage.
+     */
+    public TripleStorage getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return the number of operations waiting to be applied.
+     */
+    public long getPendingCount() {
+        long pending = 0;
+        for(Worker worker : workers) {
+            pending += worker.submitted.get() - worker.getCompleted();
+        }
+        return pending;
+    }
+
+    /**
+     * @return the number of batches applied to the decorated storage.
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * @return the number of triple operations discarded since overridden within their batch.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public void openStorage(TripleStorageConfig config) throws StorageException {
+        delegate.openStorage(config);
+    }
+
+    /**
+     * Applies the pending writes, stops the workers and closes the decorated storage.
+     *
+     * @throws StorageException if an asynchronous write failed or an error occurs while closing.
+     */
+    public void closeStorage() throws StorageException {
+        if( ! closed ) {
+            closed = true;
+            for(Worker worker : workers) {
+                try {
+                    worker.join();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new StorageException("Interrupted while stopping the workers.", ie);
+                }
+                // Operations enqueued concurrently with the close.
+                worker.applyQueued();
+            }
+        }
+        checkFailure();
+        delegate.closeStorage();
+    }
+
+    public boolean isOpen() {
+        return ! closed && delegate.isOpen();
+    }
+
+    public void store(TripleSet ts) throws StorageException {
+        enqueue(null, ts, true);
+    }
+
+    public void store(String graph, TripleSet ts) throws StorageException {
+        if(graph == null) {
+            throw new NullPointerException("graph cannot be null.");
+        }
+        enqueue(graph, ts, true);
+    }
+
+    public void remove(TripleSet ts) throws StorageException {
+        enqueue(null, ts, false);
+    }
+
+    public void remove(String graph, TripleSet ts) throws StorageException {
+        if(graph == null) {
+            throw new NullPointerException("graph cannot be null.");
+        }
+        enqueue(graph, ts, false);
+    }
+
+    public TripleIterator getTriplesIterator(TripleStorageFilter tripleFilter) throws StorageException {
+        return delegate.getTriplesIterator(tripleFilter);
+    }
+
+    public TripleIterator getTriplesIterator(String graph, TripleStorageFilter tripleFilter)
+    throws StorageException {
+        return delegate.getTriplesIterator(graph, tripleFilter);
+    }
+
+    public TripleSet getTriples(TripleStorageFilter tripleFilter) throws StorageException {
+        return delegate.getTriples(tripleFilter);
+    }
+
+    public TripleSet getTriples(String graph, TripleStorageFilter tripleFilter) throws StorageException {
+        return delegate.getTriples(graph, tripleFilter);
+    }
+
+    public SparqlEndPoint getSparqlEndPoint() {
+        return delegate.getSparqlEndPoint();
+    }
+
+    /**
+     * Applies the pending writes and clears the graph.
+     *
+     * @param graph the graph to be cleared.
+     * @throws StorageException if an asynchronous write failed or an error occurs while clearing.
+     */
+    public void clear(String graph) throws StorageException {
+        flush();
+        delegate.clear(graph);
+    }
+
+    /**
+     * Applies the pending writes and clears the storage.
+     *
+     * @throws StorageException if an asynchronous write failed or an error occurs while clearing.
+     */
+    public void clearAll() throws StorageException {
+        flush();
+        delegate.clearAll();
+    }
+
+    /**
+     * Waits for all the writes submitted before this call to be applied.
+     *
+     * @throws StorageException if an asynchronous write failed or the wait has been interrupted.
+     */
+    public void flush() throws StorageException {
+        awaitFlush(Long.MAX_VALUE);
+    }
+
+    /**
+     * Waits up to the given time for all the writes submitted before this call to be applied.
+     *
+     * @param timeout the maximum time to wait, in milliseconds.
+     * @return <code>true</code> if the writes have been applied, <code>false</code> if the timeout elapsed.
+     * @throws StorageException if an asynchronous write failed or the wait has been interrupted.
+     */
+    public boolean flush(long timeout) throws StorageException {
+        if(timeout < 0) {
+            throw new IllegalArgumentException("Invalid timeout: " + timeout);
+        }
+        final long now = System.currentTimeMillis();
+        return awaitFlush( timeout > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeout );
+    }
+
+    private boolean awaitFlush(long deadline) throws StorageException {
+        final long[] targets = new long[workers.length];
+        for(int i = 0; i < workers.length; i++) {
+            targets[i] = workers[i].submitted.get();
+        }
+        try {
+            for(int i = 0; i < workers.length; i++) {
+                if( ! workers[i].awaitCompleted(targets[i], deadline) ) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while flushing writes.", ie);
+        }
+        checkFailure();
+        return true;
+    }
+
+    private void enqueue(String graph, TripleSet ts, boolean add) throws StorageException {
+        if(ts == null) {
+            throw new NullPointerException("ts cannot be null.");
+        }
+        if(closed) {
+            throw new IllegalStateException("The storage has been closed.");
+        }
+        final List<Triple> triples = new ArrayList<Triple>();
+        for(Triple triple : ts) {
+            triples.add(triple);
+        }
+        final Worker worker = workers[ graph == null ? 0 : (graph.hashCode() & Integer.MAX_VALUE) % workers.length ];
+        worker.enqueue( new Operation(graph, triples, add) );
+    }
+
+    private void checkFailure() throws StorageException {
+        final Throwable cause = failure.getAndSet(null);
+        if(cause != null) {
+            throw new StorageException("Error while applying asynchronous writes.", cause);
+        }
+    }
+
+    /**
+     * Applies a list of operations coalescing them per graph.
+     */
+    private void apply(List<Operation> operations) {
+        final Map<String,Map<Triple,Boolean>> graphs = new LinkedHashMap<String,Map<Triple,Boolean>>();
+        int received = 0;
+        for(Operation operation : operations) {
+            Map<Triple,Boolean> pending = graphs.get(operation.graph);
+            if(pending == null) {
+                pending = new LinkedHashMap<Triple,Boolean>();
+                graphs.put(operation.graph, pending);
+            }
+            for(Triple triple : operation.triples) {
+                pending.remove(triple);
+                pending.put(triple, operation.add);
+                received++;
+            }
+        }
+        int applied = 0;
+        for(Map.Entry<String,Map<Triple,Boolean>> entry : graphs.entrySet()) {
+            final List<Triple> added   = new ArrayList<Triple>();
+            final List<Triple> removed = new ArrayList<Triple>();
+            for(Map.Entry<Triple,Boolean> pending : entry.getValue().entrySet()) {
+                (pending.getValue() ? added : removed).add( pending.getKey() );
+            }
+            applied += added.size() + removed.size();
+            try {
+                applyGraph(entry.getKey(), added, removed);
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+        coalesced.addAndGet(received - applied);
+        batches.incrementAndGet();
+    }
+
+    private void applyGraph(String graph, List<Triple> added, List<Triple> removed) throws StorageException {
+        if( ! removed.isEmpty() ) {
+            if(graph == null) {
+                delegate.remove( new TripleBuffer(removed) );
+            } else {
+                delegate.remove( graph, new TripleBuffer(removed) );
+            }
+        }
+        if( ! added.isEmpty() ) {
+            if(graph == null) {
+                delegate.store( new TripleBuffer(added) );
+            } else {
+                delegate.store( graph, new TripleBuffer(added) );
+            }
+        }
+    }
+
+    /**
+     * A queued store or remove operation.
+     */
+    private static class Operation {
+
+        private final String graph;
+
+        private final List<Triple> triples;
+
+        private final boolean add;
+
+        private Operation(String graph, List<Triple> triples, boolean add) {
+            this.graph   = graph;
+            this.triples = triples;
+            this.add     = add;
+        }
+    }
+
+    /**
+     * Background thread applying the operations of its queue.
+     */
+    private class Worker extends Thread {
+
+        private final BlockingQueue<Operation> queue;
+
+        private final AtomicLong submitted = new AtomicLong();
+
+        /**
+         * Number of applied operations, guarded by this worker.
+         */
+        private long completed;
+
+        private Worker(int index, int capacity) {
+            super("write-behind-worker-" + index);
+            setDaemon(true);
+            queue = new ArrayBlockingQueue<Operation>(capacity);
+        }
+
+        private void enqueue(Operation operation) throws StorageException {
+            // Counted before being queued so that flush never misses it.
+            submitted.incrementAndGet();
+            boolean queued = false;
+            try {
+                if(backpressure == Backpressure.BLOCK) {
+                    queue.put(operation);
+                    queued = true;
+                } else {
+                    queued = queue.offer(operation);
+                    if( ! queued ) {
+                        throw new StorageException("The write queue is full.");
+                    }
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new StorageException("Interrupted while enqueuing write.", ie);
+            } finally {
+                if( ! queued ) {
+                    synchronized (this) {
+                        completed++;
+                        notifyAll();
+                    }
+                }
+            }
+        }
+
+        private synchronized boolean awaitCompleted(long target, long deadline) throws InterruptedException {
+            while(completed < target) {
+                final long remaining = deadline - System.currentTimeMillis();
+                if(remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            return true;
+        }
+
+        private synchronized long getCompleted() {
+            return completed;
+        }
+
+        @Override
+        public void run() {
+            while(true) {
+                final Operation first;
+                try {
+                    first = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ie) {
+                    continue;
+                }
+                if(first == null) {
+                    if(closed && queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                final List<Operation> operations = new ArrayList<Operation>(maxBatchSize);
+                operations.add(first);
+                queue.drainTo(operations, maxBatchSize - 1);
+                applyBatch(operations);
+            }
+        }
+
+        /**
+         * Applies the operations left in the queue from the calling thread.
+         */
+        private void applyQueued() {
+            while( ! queue.isEmpty() ) {
+                final List<Operation> operations = new ArrayList<Operation>(maxBatchSize);
+                queue.drainTo(operations, maxBatchSize);
+                applyBatch(operations);
+            }
+        }
+
+        private void applyBatch(List<Operation> operations) {
+            try {
+                apply(operations);
+            } finally {
+                synchronized (this) {
+                    completed += operations.size();
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+}
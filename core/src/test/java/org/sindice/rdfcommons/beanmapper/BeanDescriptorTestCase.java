@@ -0,0 +1,97 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sindice.rdfcommons.beanmapper;
+
+import org.sindice.rdfcommons.beanmapper.annotations.Ignore;
+import org.sindice.rdfcommons.beanmapper.annotations.Namespace;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+/**
+ * Test case for the {@link BeanDescriptor} class.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class BeanDescriptorTestCase {
+
+    @Test
+    public void testDescriptor() throws Exception {
+        final Class<?> type = FakeBeanWithCustomIdTestCase.FakeBeanWithFakeId.class;
+        final BeanDescriptor descriptor = BeanDescriptor.getDescriptor(type);
+        Assert.assertSame( BeanDescriptor.getDescriptor(type), descriptor );
+        Assert.assertEquals( descriptor.getIdMethod().getName(), "getId" );
+        Assert.assertTrue( descriptor.getAdaptMethods().isEmpty() );
+
+        final List<BeanDescriptor.BeanProperty> properties = descriptor.getProperties();
+        Assert.assertEquals( properties.size(), 2 );
+        Assert.assertEquals( properties.get(0).getName(), "id" );
+        Assert.assertEquals( properties.get(1).getName(), "prop" );
+        Assert.assertEquals( properties.get(1).getReadURL(), "http://fake-bean-with-id/fake-prop" );
+        Assert.assertEquals(
+                properties.get(1).getWriteURL(),
+                descriptor.getClassURL() + "#prop"
+        );
+        Assert.assertEquals( properties.get(1).getType(), String.class );
+        Assert.assertEquals(
+                properties.get(1).read( new FakeBeanWithCustomIdTestCase.FakeBeanWithFakeId() ), "prop value"
+        );
+    }
+
+    @Test
+    public void testAnnotatedProperties() {
+        final BeanDescriptor descriptor = BeanDescriptor.getDescriptor(AnnotatedBean.class);
+        Assert.assertEquals( descriptor.getClassURL(), "http://org.sindice.rdfcommons.beanmapper/AnnotatedBean" );
+        Assert.assertNull( descriptor.getIdMethod() );
+        Assert.assertEquals( descriptor.getProperties().size(), 2 );
+
+        final BeanDescriptor.BeanProperty hidden = descriptor.getProperties().get(0);
+        Assert.assertTrue( hidden.isReadIgnored() );
+        Assert.assertFalse( hidden.isWriteIgnored() );
+
+        final BeanDescriptor.BeanProperty readOnly = descriptor.getProperties().get(1);
+        Assert.assertEquals( readOnly.getReadURL(), "http://test.namespace/readOnly" );
+        Assert.assertNull( readOnly.getWriteMethod() );
+        Assert.assertNull( readOnly.getWriteURL() );
+        Assert.assertEquals( readOnly.getType(), int.class );
+    }
+
+    @Test
+    public void testAdaptMethods() {
+        Assert.assertEquals( BeanDescriptor.getDescriptor(FakeAdapterBean.class).getAdaptMethods().size(), 1 );
+    }
+
+    @Namespace("http://test.namespace")
+    public static class AnnotatedBean {
+
+        @Ignore
+        public String getHidden() {
+            return "hidden";
+        }
+
+        public void setHidden(String hidden) {
+        }
+
+        public int getReadOnly() {
+            return 1;
+        }
+    }
+
+}
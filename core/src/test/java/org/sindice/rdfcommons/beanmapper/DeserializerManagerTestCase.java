@@ -16,12 +16,21 @@
 
 package org.sindice.rdfcommons.beanmapper;
 
+import org.sindice.rdfcommons.beanmapper.annotations.Id;
+import org.sindice.rdfcommons.model.Triple;
 import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.storage.InMemoryResultSet;
+import org.sindice.rdfcommons.storage.ResultSet;
+import org.sindice.rdfcommons.storage.StorageException;
+import org.sindice.rdfcommons.storage.TripleStorageInMemoryImpl;
+import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Test case for {@link DeserializationManager} class.
@@ -74,4 +83,169 @@ public class DeserializerManagerTestCase {
         assert fakeBean.equals(deserializedBean);
     }
 
+    @Test
+    public void testDeserializeAll()
+    throws SerializationException, DeserializationException, StorageException {
+        final SerializationManager serializationManager = new SerializationManager();
+        final TripleStorageInMemoryImpl storage = new TripleStorageInMemoryImpl();
+        final List<FlatBean> beans = new ArrayList<FlatBean>();
+        for(int i = 0; i < 10; i++) {
+            final FlatBean bean = new FlatBean("bean-" + i, "name " + i, i);
+            beans.add(bean);
+            storage.store( serializationManager.serializeObject(bean) );
+        }
+
+        for(int maxOpenInstances : new int[]{1, DeserializationManager.DEFAULT_MAX_OPEN_INSTANCES}) {
+            final QueryEndpoint queryEndpoint = new QueryEndpoint(storage);
+            final List<FlatBean> deserialized = new ArrayList<FlatBean>();
+            final int count = deserializationManager.deserializeAll(
+                    FlatBean.class,
+                    queryEndpoint,
+                    new InstanceHandler<FlatBean>() {
+                        public void handleInstance(Identifier identifier, FlatBean instance) {
+                            deserialized.add(instance);
+                        }
+                    },
+                    maxOpenInstances
+            );
+            Assert.assertEquals(count, beans.size());
+            Assert.assertEquals(deserialized.size(), beans.size());
+            Assert.assertTrue( deserialized.containsAll(beans) );
+            Assert.assertEquals( queryEndpoint.getRemoteQueryCount(), 1 );
+            Assert.assertFalse( deserializationManager.hasIssues() );
+        }
+
+        final QueryEndpoint queryEndpoint = new QueryEndpoint(storage);
+        Assert.assertTrue( deserializationManager.deserialize(FlatBean.class, queryEndpoint).containsAll(beans) );
+        Assert.assertEquals( queryEndpoint.getRemoteQueryCount(), 1 + beans.size() * 3 );
+    }
+
+    /**
+     * Tests that the rows of an instance received after its completion are rejected
+     * instead of producing a partial duplicate bean.
+     */
+    @Test
+    public void testDeserializeAllRejectsReopenedInstances() throws SerializationException {
+        final SerializationManager serializationManager = new SerializationManager();
+        final List<Triple> first  = new ArrayList<Triple>();
+        final List<Triple> second = new ArrayList<Triple>();
+        for(Triple triple : serializationManager.serializeObject( new FlatBean("bean-0", "name 0", 0) )) {
+            first.add(triple);
+        }
+        for(Triple triple : serializationManager.serializeObject( new FlatBean("bean-1", "name 1", 1) )) {
+            second.add(triple);
+        }
+        // The rows of the first instance are interleaved with the ones of the second.
+        final InMemoryResultSet rows = new InMemoryResultSet( new String[]{"?instance", "?property", "?value"} );
+        for(Triple triple : new Triple[]{first.get(0), second.get(0), first.get(1)}) {
+            rows.addResult(
+                    new InMemoryResultSet.VarEntry( triple.getSubject() ),
+                    new InMemoryResultSet.VarEntry( triple.getPredicate() ),
+                    new InMemoryResultSet.VarEntry( triple.getObject(), ResultSet.VariableType.LITERAL )
+            );
+        }
+        final QueryEndpoint queryEndpoint = new QueryEndpoint( new TripleBuffer() ) {
+            @Override
+            public ResultSet execute() {
+                super.execute();
+                return rows;
+            }
+        };
+        final List<FlatBean> deserialized = new ArrayList<FlatBean>();
+        try {
+            deserializationManager.deserializeAll(
+                    FlatBean.class,
+                    queryEndpoint,
+                    new InstanceHandler<FlatBean>() {
+                        public void handleInstance(Identifier identifier, FlatBean instance) {
+                            deserialized.add(instance);
+                        }
+                    },
+                    1
+            );
+            Assert.fail("Expected exception.");
+        } catch (DeserializationException de) {
+            Assert.assertTrue( de.getMessage().startsWith("Rows of instance") );
+        }
+        Assert.assertEquals(deserialized.size(), 1);
+    }
+
+    @Test
+    public void testDeserializeAllRejectsNonBeans() {
+        try {
+            deserializationManager.deserializeAll(
+                    String.class,
+                    new QueryEndpoint( new TripleBuffer() ),
+                    new InstanceHandler<String>() {
+                        public void handleInstance(Identifier identifier, String instance) {
+                            Assert.fail("Unexpected instance.");
+                        }
+                    }
+            );
+            Assert.fail("Expected exception.");
+        } catch (DeserializationException de) {
+            Assert.assertTrue( de.getMessage().startsWith("Cannot deserialize class") );
+        }
+    }
+
+    public static class FlatBean {
+
+        private String id;
+
+        private String name;
+
+        private int value;
+
+        public FlatBean() {}
+
+        public FlatBean(String id, String name, int value) {
+            this.id    = id;
+            this.name  = name;
+            this.value = value;
+        }
+
+        @Id
+        public String identifier() {
+            return "http://flat-bean/" + id;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if( ! (obj instanceof FlatBean) ) {
+                return false;
+            }
+            final FlatBean other = (FlatBean) obj;
+            return id.equals(other.id) && name.equals(other.name) && value == other.value;
+        }
+
+        @Override
+        public int hashCode() {
+            return id == null ? 0 : id.hashCode();
+        }
+    }
+
 }
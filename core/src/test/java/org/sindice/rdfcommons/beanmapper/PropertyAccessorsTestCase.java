@@ -0,0 +1,92 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sindice.rdfcommons.beanmapper;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test case for the {@link PropertyAccessors} class.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class PropertyAccessorsTestCase {
+
+    @Test
+    public void testAccessor() throws Exception {
+        final PropertyAccessor accessor = PropertyAccessors.create(
+                HiddenBean.class.getMethod("getValue"), HiddenBean.class.getMethod("setValue", int.class)
+        );
+        final HiddenBean bean = new HiddenBean();
+        Assert.assertTrue( accessor.isWritable() );
+        accessor.set(bean, 10);
+        Assert.assertEquals( accessor.get(bean), 10 );
+    }
+
+    @Test
+    public void testReadOnlyAccessor() throws Exception {
+        final PropertyAccessor accessor = PropertyAccessors.create( HiddenBean.class.getMethod("getName"), null );
+        Assert.assertFalse( accessor.isWritable() );
+        Assert.assertEquals( accessor.get( new HiddenBean() ), "hidden" );
+        try {
+            accessor.set( new HiddenBean(), "other" );
+            Assert.fail("Expected exception.");
+        } catch (UnsupportedOperationException uoe) {
+            Assert.assertTrue( uoe.getMessage().startsWith("Property is read only") );
+        }
+    }
+
+    @Test
+    public void testDescriptorAccess() throws Exception {
+        final BeanDescriptor descriptor = BeanDescriptor.getDescriptor(HiddenBean.class);
+        final HiddenBean bean = (HiddenBean) descriptor.newInstance();
+        final BeanDescriptor.BeanProperty value = descriptor.getWritableProperty( descriptor.getClassURL() + "#value" );
+        value.write(bean, 5);
+        Assert.assertEquals( value.read(bean), 5 );
+        Assert.assertNull( descriptor.getWritableProperty( descriptor.getClassURL() + "#name" ) );
+    }
+
+    @Test(expectedExceptions = InstantiationException.class)
+    public void testMissingDefaultConstructor() throws Exception {
+        BeanDescriptor.getDescriptor(Integer.class).newInstance();
+    }
+
+    /**
+     * Bean not accessible outside of this class.
+     */
+    private static class HiddenBean {
+
+        private int value;
+
+        private HiddenBean() {}
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+
+        public String getName() {
+            return "hidden";
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sindice.rdfcommons.beanmapper;
+
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.storage.StorageException;
+import org.sindice.rdfcommons.storage.TripleStorageInMemoryImpl;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Test case for the {@link QueryEndpoint} class.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class QueryEndpointTestCase {
+
+    @Test
+    public void testPrefetch() throws SerializationException, DeserializationException, StorageException {
+        final StaticFakeBean staticFakeBean = new StaticFakeBean();
+        final TripleBuffer tripleBuffer = new SerializationManager().serializeObject(staticFakeBean);
+        final TripleStorageInMemoryImpl storage = new TripleStorageInMemoryImpl();
+        storage.store(tripleBuffer);
+
+        final QueryEndpoint queryEndpoint = new QueryEndpoint(storage, true);
+        Assert.assertTrue( queryEndpoint.isPrefetch() );
+        final StaticFakeBean deserialized =
+                new DeserializationManager().staticDeserialize(StaticFakeBean.class, queryEndpoint);
+        Assert.assertEquals(deserialized, staticFakeBean);
+
+        // The whole bean has been retrieved with a single query.
+        Assert.assertEquals( queryEndpoint.getRemoteQueryCount(), 1 );
+        Assert.assertEquals( queryEndpoint.getLocalQueryCount(), 1 );
+        Assert.assertEquals( queryEndpoint.getSavedQueryCount(), 0 );
+
+        queryEndpoint.addQuery( BeanDescriptor.getDescriptor(StaticFakeBean.class).getClassURL(), "?p", "?o" );
+        Assert.assertTrue( queryEndpoint.execute().hasNext() );
+        Assert.assertEquals( queryEndpoint.getRemoteQueryCount(), 1 );
+        Assert.assertEquals( queryEndpoint.getSavedQueryCount(), 1 );
+
+        queryEndpoint.clearPrefetched();
+        queryEndpoint.addQuery( BeanDescriptor.getDescriptor(StaticFakeBean.class).getClassURL(), "?p", "?o" );
+        Assert.assertTrue( queryEndpoint.execute().hasNext() );
+        Assert.assertEquals( queryEndpoint.getRemoteQueryCount(), 2 );
+    }
+
+    /**
+     * Tests that only the blank nodes described in a neighbourhood are answered locally.
+     */
+    @Test
+    public void testBNodePrefetch() throws StorageException {
+        final TripleBuffer tripleBuffer = new TripleBuffer();
+        tripleBuffer.addTriple("http://s", "http://p", "b1", Triple.SubjectType.uri, Triple.ObjectType.bnode);
+        tripleBuffer.addTriple("http://s", "http://q", "b2", Triple.SubjectType.uri, Triple.ObjectType.bnode);
+        tripleBuffer.addTriple("b2", "http://r", "v", Triple.SubjectType.bnode, Triple.ObjectType.literal);
+        final TripleStorageInMemoryImpl storage = new TripleStorageInMemoryImpl();
+        storage.store(tripleBuffer);
+
+        final QueryEndpoint queryEndpoint = new QueryEndpoint(storage, true);
+        queryEndpoint.addQuery("http://s", "?p", "?o");
+        Assert.assertTrue( queryEndpoint.execute().hasNext() );
+        Assert.assertEquals( queryEndpoint.getRemoteQueryCount(), 1 );
+
+        queryEndpoint.addQuery("b2", "?p", "?o");
+        Assert.assertTrue( queryEndpoint.execute().hasNext() );
+        Assert.assertEquals( queryEndpoint.getRemoteQueryCount(), 1 );
+        Assert.assertEquals( queryEndpoint.getLocalQueryCount(), 2 );
+
+        // No triple of b1 has been received with the neighbourhood.
+        queryEndpoint.addQuery("b1", "?p", "?o");
+        queryEndpoint.execute();
+        Assert.assertEquals( queryEndpoint.getRemoteQueryCount(), 2 );
+
+        // Neither of a subject without triples, which is described only once.
+        for(int i = 0; i < 2; i++) {
+            queryEndpoint.addQuery("http://none", "?p", "?o");
+            Assert.assertFalse( queryEndpoint.execute().hasNext() );
+        }
+        Assert.assertEquals( queryEndpoint.getRemoteQueryCount(), 5 );
+    }
+
+    @Test
+    public void testBeanPrefetch() throws SerializationException, DeserializationException, StorageException {
+        final FakeBean fakeBean = new FakeBean();
+        final TripleStorageInMemoryImpl storage = new TripleStorageInMemoryImpl();
+        storage.store( new SerializationManager().serializeObject(fakeBean) );
+
+        final QueryEndpoint queryEndpoint = new QueryEndpoint(storage, true);
+        final Object[] deserialized = new DeserializationManager().deserialize(FakeBean.class, queryEndpoint).toArray();
+        Assert.assertEquals(deserialized.length, 1);
+        Assert.assertEquals(deserialized[0], fakeBean);
+
+        final QueryEndpoint plainEndpoint = new QueryEndpoint(storage);
+        Assert.assertEquals(
+                new DeserializationManager().deserialize(FakeBean.class, plainEndpoint).toArray()[0], fakeBean
+        );
+        Assert.assertEquals( plainEndpoint.getLocalQueryCount(), 0 );
+        Assert.assertTrue( queryEndpoint.getSavedQueryCount() > 0 );
+        Assert.assertEquals(
+                queryEndpoint.getRemoteQueryCount() + queryEndpoint.getSavedQueryCount(),
+                plainEndpoint.getRemoteQueryCount()
+        );
+    }
+
+}
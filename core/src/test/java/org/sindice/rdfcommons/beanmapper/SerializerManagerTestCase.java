@@ -23,11 +23,13 @@ import org.sindice.rdfcommons.model.TripleBuffer;
 import org.sindice.rdfcommons.model.TripleFilter;
 import org.sindice.rdfcommons.model.TripleSet;
 import org.sindice.rdfcommons.vocabulary.RDFSVocabulary;
+import org.testng.Assert;
 import org.testng.annotations.AfterTest;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
 import java.awt.*;
+import java.lang.annotation.Annotation;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -63,6 +65,29 @@ public class SerializerManagerTestCase {
         logger.debug("");
     }
 
+    @Test
+    public void testSerializerDispatchCache() throws SerializationException {
+        final SerializationManager manager = new SerializationManager();
+        final Serializer beanSerializer = manager.getSerializerFor(FakeBean.class, new Annotation[0]);
+        Assert.assertTrue(beanSerializer instanceof BeanSerializer);
+        Assert.assertSame( manager.getSerializerFor(FakeBean.class, new Annotation[0]), beanSerializer );
+        final Annotation[] staticAnnotations = StaticFakeBean.class.getAnnotations();
+        Assert.assertTrue(
+                manager.getSerializerFor(FakeBean.class, staticAnnotations) instanceof StaticBeanSerializer
+        );
+
+        // Removing a serializer discards the cached dispatch.
+        Assert.assertTrue( manager.removeSerializer(beanSerializer) );
+        try {
+            manager.getSerializerFor(FakeBean.class, new Annotation[0]);
+            Assert.fail("Expected exception.");
+        } catch (SerializationException se) {
+            Assert.assertTrue( se.getMessage().startsWith("Cannot find serialized for") );
+        }
+        manager.addSerializer( new BeanSerializer() );
+        Assert.assertTrue( manager.getSerializerFor(FakeBean.class, new Annotation[0]) instanceof BeanSerializer );
+    }
+
     @Test
     public void testSerializePrimitive() throws SerializationException {
         TripleBuffer tripleBuffer = serializationManager.serializeObject(12);
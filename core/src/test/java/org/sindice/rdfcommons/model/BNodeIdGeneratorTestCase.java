@@ -0,0 +1,137 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.model;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test case for the {@link BNodeIdGenerator} implementations.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class BNodeIdGeneratorTestCase {
+
+    private static final int THREADS = 8;
+
+    private static final int IDS_PER_THREAD = 5000;
+
+    @Test
+    public void testCompactIdentifiers() {
+        final CompactBNodeIdGenerator generator = new CompactBNodeIdGenerator("x", 4);
+        final List<String> ids = new ArrayList<String>();
+        for(int i = 0; i < 40; i++) {
+            ids.add( generator.nextIdentifier() );
+        }
+        Assert.assertEquals(ids.get(0) , "x0");
+        Assert.assertEquals(ids.get(10), "xa");
+        Assert.assertEquals(ids.get(36), "x10");
+        Assert.assertEquals(new HashSet<String>(ids).size(), ids.size());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidPrefix() {
+        new CompactBNodeIdGenerator("1", 4);
+    }
+
+    @Test
+    public void testSkolemIdentifiers() {
+        final SkolemBNodeIdGenerator generator = new SkolemBNodeIdGenerator(
+                "http://example.org/", new CompactBNodeIdGenerator("b", 1)
+        );
+        Assert.assertEquals(generator.getBase(), "http://example.org/.well-known/genid/");
+        Assert.assertEquals(generator.nextIdentifier(), "http://example.org/.well-known/genid/b0");
+        Assert.assertEquals(generator.nextIdentifier(), "http://example.org/.well-known/genid/b1");
+    }
+
+    /**
+     * Tests that identifiers generated concurrently are unique.
+     */
+    @Test
+    public void testConcurrentGeneration() throws Exception {
+        final CompactBNodeIdGenerator generator = new CompactBNodeIdGenerator();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final Set<String> ids = new HashSet<String>();
+        try {
+            final List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+            for(int t = 0; t < THREADS; t++) {
+                futures.add( executor.submit( new Callable<List<String>>() {
+                    public List<String> call() {
+                        final List<String> generated = new ArrayList<String>(IDS_PER_THREAD);
+                        for(int i = 0; i < IDS_PER_THREAD; i++) {
+                            generated.add( generator.nextIdentifier() );
+                        }
+                        return generated;
+                    }
+                }));
+            }
+            for(Future<List<String>> future : futures) {
+                ids.addAll( future.get() );
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(ids.size(), THREADS * IDS_PER_THREAD);
+    }
+
+    @Test
+    public void testTripleFactories() {
+        final BNodeIdGenerator previous = TripleImpl.getBNodeIdGenerator();
+        TripleImpl.setBNodeIdGenerator( new CompactBNodeIdGenerator("t", 8) );
+        try {
+            final Triple triple = TripleImpl.createBNodeObjectTriple("http://s", "http://p", Triple.SubjectType.uri);
+            Assert.assertEquals(triple.getObject(), "t0");
+            Assert.assertEquals(TripleImpl.nextBNodeIdentifier(), "t1");
+        } finally {
+            TripleImpl.setBNodeIdGenerator(previous);
+        }
+    }
+
+    /**
+     * Tests that the triples created with skolem identifiers are typed as resources.
+     */
+    @Test
+    public void testSkolemTripleFactories() {
+        final BNodeIdGenerator previous = TripleImpl.getBNodeIdGenerator();
+        TripleImpl.setBNodeIdGenerator(
+                new SkolemBNodeIdGenerator( "http://example.org", new CompactBNodeIdGenerator("t", 8) )
+        );
+        try {
+            final Triple object = TripleImpl.createBNodeObjectTriple("http://s", "http://p", Triple.SubjectType.uri);
+            Assert.assertEquals(object.getObjectType(), Triple.ObjectType.uri);
+            Assert.assertEquals(
+                    object.toNTriplesString(),
+                    "<http://s> <http://p> <http://example.org/.well-known/genid/t0>"
+            );
+            final Triple subject = TripleImpl.createBNodeSubjectTriple("http://p", "http://o", Triple.ObjectType.uri);
+            Assert.assertEquals(subject.getSubjectType(), Triple.SubjectType.uri);
+            Assert.assertEquals(subject.getSubject(), "http://example.org/.well-known/genid/t1");
+        } finally {
+            TripleImpl.setBNodeIdGenerator(previous);
+        }
+    }
+
+}
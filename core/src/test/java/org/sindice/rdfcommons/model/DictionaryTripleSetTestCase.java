@@ -0,0 +1,110 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.model;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.sindice.rdfcommons.model.Triple.ObjectType;
+import static org.sindice.rdfcommons.model.Triple.SubjectType;
+
+/**
+ * Test case for {@link DictionaryTripleSet} class.
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class DictionaryTripleSetTestCase {
+
+    private DictionaryTripleSet tripleSet;
+
+    @BeforeMethod
+    public void setUp() {
+        tripleSet = new DictionaryTripleSet();
+        tripleSet.addTriple("http://s1", "http://p1", "http://o1");
+        tripleSet.addTriple("http://s1", "http://p2", "lit1", ObjectType.literal);
+        tripleSet.addTriple("http://s2", "http://p1", "http://o1", "http://g1");
+        tripleSet.addTriple("http://s2", "http://p2", 10, ObjectType.literal, "http://g2");
+        tripleSet.addTriple("b1", "http://p1", "b2", SubjectType.bnode, ObjectType.bnode);
+    }
+
+    @Test
+    public void testDictionary() {
+        final TermDictionary dictionary = tripleSet.getDictionary();
+        Assert.assertEquals(dictionary.lookup("http://p1"), dictionary.lookup("http://p1"));
+        Assert.assertEquals(dictionary.decode( dictionary.lookup("http://s2") ), "http://s2");
+        Assert.assertEquals(dictionary.lookup("http://unknown"), TermDictionary.NOT_FOUND);
+        Assert.assertEquals(dictionary.size(), 11);
+    }
+
+    @Test
+    public void testSetSemantics() {
+        Assert.assertEquals(tripleSet.getSize(), 5);
+        tripleSet.addTriple("http://s1", "http://p1", "http://o1");
+        tripleSet.addTriple("http://s1", "http://p2", "lit1", ObjectType.literal);
+        Assert.assertEquals(tripleSet.getSize(), 5);
+        tripleSet.addTriple("http://s1", "http://p2", "lit1", ObjectType.uri);
+        Assert.assertEquals(tripleSet.getSize(), 6);
+    }
+
+    @Test
+    public void testContains() {
+        Assert.assertTrue( tripleSet.containsTriple("http://s1", "http://p1", "http://o1") );
+        Assert.assertTrue( tripleSet.containsTriple("http://s2", "http://p1", "http://o1") );
+        Assert.assertTrue( tripleSet.containsTriple("http://s1", "http://p2", "lit1", ObjectType.literal) );
+        Assert.assertFalse( tripleSet.containsTriple("http://s1", "http://p2", "lit1") );
+        Assert.assertFalse(
+                tripleSet.containsTriple(
+                        "http://s2", "http://p1", "http://o1", SubjectType.uri, ObjectType.uri, "http://g2"
+                )
+        );
+        Assert.assertTrue( tripleSet.containsTriple("b1", "http://p1", "b2", SubjectType.bnode, ObjectType.bnode) );
+    }
+
+    @Test
+    public void testPatterns() {
+        Assert.assertEquals( tripleSet.getTriplesWithPattern(null, "http://p1", null, null, null).getSize(), 3 );
+        Assert.assertEquals( tripleSet.getTriplesWithPattern(null, null, 10, null, null).getSize(), 1 );
+        Assert.assertEquals( tripleSet.getTriplesWithPattern(null, null, null, null, null, "http://g2").getSize(), 1);
+        Assert.assertEquals(
+                tripleSet.getTriplesWithPattern(null, null, null, null, ObjectType.literal).getSize(), 2
+        );
+        Assert.assertEquals( tripleSet.getTriplesWithPattern("http://none", null, null, null, null).getSize(), 0);
+    }
+
+    @Test
+    public void testRemoveAndIterate() {
+        tripleSet.removeTriple("http://s1", "http://p1", "http://o1");
+        tripleSet.removeTriple("http://s2", "http://p1", "http://o1");
+        Assert.assertEquals(tripleSet.getSize(), 3);
+        Assert.assertFalse( tripleSet.containsTriplePattern(null, null, "http://o1", null, null) );
+
+        int count = 0;
+        final TripleIterator iterator = tripleSet.tripleIterator();
+        while(iterator.hasNext()) {
+            iterator.next();
+            Assert.assertTrue( tripleSet.containsTriplePattern(iterator.subject(), iterator.predicate(), null, null, null) );
+            count++;
+        }
+        Assert.assertEquals(count, 3);
+
+        final TripleBuffer buffer = new TripleBuffer();
+        buffer.add(tripleSet);
+        Assert.assertEquals(buffer.toString(), tripleSet.toString());
+    }
+
+}
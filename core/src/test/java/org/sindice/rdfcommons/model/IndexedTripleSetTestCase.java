@@ -0,0 +1,119 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.model;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.sindice.rdfcommons.model.Triple.ObjectType;
+import static org.sindice.rdfcommons.model.Triple.SubjectType;
+
+/**
+ * Test case for {@link IndexedTripleSet} class.
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class IndexedTripleSetTestCase {
+
+    private IndexedTripleSet tripleSet;
+
+    @BeforeMethod
+    public void setUp() {
+        tripleSet = new IndexedTripleSet();
+        tripleSet.addTriple("http://s1", "http://p1", "http://o1");
+        tripleSet.addTriple("http://s1", "http://p2", "lit1", ObjectType.literal);
+        tripleSet.addTriple("http://s2", "http://p1", "http://o1", "http://g1");
+        tripleSet.addTriple("http://s2", "http://p2", 10, ObjectType.literal, "http://g2");
+        tripleSet.addTriple("b1", "http://p1", "b2", SubjectType.bnode, ObjectType.bnode);
+    }
+
+    @Test
+    public void testSetSemantics() {
+        Assert.assertEquals(tripleSet.getSize(), 5);
+        tripleSet.addTriple("http://s1", "http://p1", "http://o1");
+        tripleSet.addTriple("http://s2", "http://p1", "http://o1", "http://g1");
+        Assert.assertEquals(tripleSet.getSize(), 5);
+        tripleSet.addTriple("http://s1", "http://p1", "http://o1", "http://g1");
+        Assert.assertEquals(tripleSet.getSize(), 6);
+    }
+
+    @Test
+    public void testContains() {
+        Assert.assertTrue( tripleSet.containsTriple("http://s1", "http://p1", "http://o1") );
+        Assert.assertTrue( tripleSet.containsTriple("http://s2", "http://p1", "http://o1") );
+        Assert.assertTrue(
+                tripleSet.containsTriple(
+                        "http://s2", "http://p1", "http://o1", SubjectType.uri, ObjectType.uri, "http://g1"
+                )
+        );
+        Assert.assertFalse(
+                tripleSet.containsTriple(
+                        "http://s2", "http://p1", "http://o1", SubjectType.uri, ObjectType.uri, "http://g2"
+                )
+        );
+        Assert.assertTrue( tripleSet.containsTriple("b1", "http://p1", "b2", SubjectType.bnode, ObjectType.bnode) );
+        Assert.assertFalse( tripleSet.containsTriple("http://s3", "http://p1", "http://o1") );
+    }
+
+    @Test
+    public void testPatterns() {
+        Assert.assertEquals( tripleSet.getTriplesWithPattern(null, "http://p1", null, null, null).getSize(), 3 );
+        Assert.assertEquals( tripleSet.getTriplesWithPattern("http://s1", null, null, null, null).getSize(), 2 );
+        Assert.assertEquals( tripleSet.getTriplesWithPattern(null, null, "http://o1", null, null).getSize(), 2 );
+        Assert.assertEquals( tripleSet.getTriplesWithPattern(null, null, 10, null, null).getSize(), 1 );
+        Assert.assertEquals( tripleSet.getTriplesWithPattern(null, null, null, null, null, "http://g2").getSize(), 1);
+        Assert.assertEquals(
+                tripleSet.getTriplesWithPattern(null, "http://p1", null, SubjectType.bnode, null).getSize(), 1
+        );
+        Assert.assertEquals( tripleSet.getTriplesWithPattern("http://s3", "http://p1", null, null, null).getSize(), 0);
+        Assert.assertTrue( tripleSet.containsTriplePattern("http://s2", "http://p1", null, null, null, "http://g1") );
+        Assert.assertFalse( tripleSet.containsTriplePattern("http://s2", "http://p1", null, null, null, "http://g2") );
+        Assert.assertEquals( tripleSet.estimatePatternSize(null, "http://p2", null, null), 2 );
+    }
+
+    @Test
+    public void testRemove() {
+        tripleSet.removeTriple("http://s1", "http://p1", "http://o1");
+        Assert.assertEquals(tripleSet.getSize(), 4);
+        Assert.assertFalse( tripleSet.containsTriple("http://s1", "http://p1", "http://o1") );
+        Assert.assertEquals( tripleSet.getTriplesWithPattern(null, "http://p1", null, null, null).getSize(), 2 );
+
+        tripleSet.removeTriple("http://s2", "http://p1", "http://o1", "http://g2");
+        Assert.assertEquals(tripleSet.getSize(), 4);
+        tripleSet.removeTriple("http://s2", "http://p1", "http://o1", "http://g1");
+        Assert.assertEquals(tripleSet.getSize(), 3);
+        Assert.assertEquals( tripleSet.getTriplesWithPattern(null, null, null, null, null, "http://g1").getSize(), 0);
+
+        for(int i = 0; i < tripleSet.getSize(); i++) {
+            Assert.assertTrue( tripleSet.containsTriple( tripleSet.getTriple(i) ) );
+        }
+        tripleSet.clear();
+        Assert.assertEquals(tripleSet.getSize(), 0);
+        Assert.assertFalse( tripleSet.containsTriplePattern(null, "http://p1", null, null, null) );
+    }
+
+    @Test
+    public void testSameContentOfBuffer() {
+        final TripleBuffer buffer = new TripleBuffer();
+        buffer.add(tripleSet);
+        final IndexedTripleSet copy = new IndexedTripleSet(buffer);
+        Assert.assertEquals(copy.getSize(), buffer.getSize());
+        Assert.assertEquals(copy.toString(), buffer.toString());
+    }
+
+}
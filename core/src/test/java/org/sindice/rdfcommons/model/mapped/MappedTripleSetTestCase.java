@@ -0,0 +1,121 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.model.mapped;
+
+import org.sindice.rdfcommons.adapter.DefaultLanguageLiteral;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.model.TripleIterator;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.sindice.rdfcommons.model.Triple.ObjectType;
+import static org.sindice.rdfcommons.model.Triple.SubjectType;
+
+/**
+ * Test case for {@link MappedTripleSet} class.
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class MappedTripleSetTestCase {
+
+    private File directory;
+
+    private MappedTripleSet tripleSet;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        directory = File.createTempFile("mapped-triple-set", "");
+        Assert.assertTrue( directory.delete() );
+        tripleSet = new MappedTripleSet(directory);
+        tripleSet.addTriple("http://s1", "http://p1", "http://o1");
+        tripleSet.addTriple("http://s1", "http://p2", new DefaultLanguageLiteral("ciao", "it"), ObjectType.literal);
+        tripleSet.addTriple("http://s2", "http://p1", "http://o1", "http://g1");
+        tripleSet.addTriple("http://s2", "http://p2", 10, ObjectType.literal, "http://g2");
+        tripleSet.addTriple("b1", "http://p1", "b2", SubjectType.bnode, ObjectType.bnode);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        tripleSet.close();
+        for(File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testPatterns() {
+        Assert.assertEquals(tripleSet.getSize(), 5);
+        Assert.assertTrue( tripleSet.containsTriple("http://s1", "http://p1", "http://o1") );
+        Assert.assertFalse( tripleSet.containsTriple("http://s1", "http://p1", "http://o2") );
+        Assert.assertEquals( tripleSet.getTriplesWithPattern(null, "http://p1", null, null, null).getSize(), 3 );
+        Assert.assertEquals( tripleSet.getTriplesWithPattern(null, null, 10, null, null).getSize(), 1 );
+        Assert.assertEquals(
+                tripleSet.getTriplesWithPattern(null, null, new DefaultLanguageLiteral("ciao", "it"), null, null)
+                        .getSize(),
+                1
+        );
+        Assert.assertEquals( tripleSet.getTriplesWithPattern(null, null, null, null, null, "http://g1").getSize(), 1);
+
+        final TripleIterator iterator = tripleSet.getTriplesIterator("http://s2", null, null, null);
+        int count = 0;
+        while(iterator.hasNext()) {
+            iterator.next();
+            Assert.assertEquals(iterator.subject(), "http://s2");
+            count++;
+        }
+        Assert.assertEquals(count, 2);
+    }
+
+    @Test
+    public void testRemove() {
+        tripleSet.removeTriple("http://s1", "http://p1", "http://o1");
+        Assert.assertEquals(tripleSet.getSize(), 4);
+        Assert.assertFalse( tripleSet.containsTriple("http://s1", "http://p1", "http://o1") );
+        tripleSet.clear();
+        Assert.assertEquals(tripleSet.getSize(), 0);
+        Assert.assertFalse( tripleSet.tripleIterator().hasNext() );
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        final TripleBuffer expected = new TripleBuffer();
+        expected.add(tripleSet);
+        tripleSet.close();
+
+        tripleSet = new MappedTripleSet(directory);
+        Assert.assertEquals(tripleSet.getSize(), expected.getSize());
+        Assert.assertEquals(tripleSet.toString(), expected.toString());
+        for(Triple triple : expected) {
+            Assert.assertTrue(
+                    tripleSet.containsTriple(
+                            triple.getSubject(), triple.getPredicate(), triple.getObject(),
+                            triple.getSubjectType(), triple.getObjectType(), triple.getGraph()
+                    )
+            );
+        }
+        tripleSet.addTriple("http://s3", "http://p1", "http://o1");
+        Assert.assertEquals( tripleSet.getTriplesWithPattern(null, null, "http://o1", null, null).getSize(), 3 );
+    }
+
+}
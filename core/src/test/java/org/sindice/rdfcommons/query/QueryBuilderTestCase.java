@@ -89,7 +89,7 @@ public class QueryBuilderTestCase {
     /**
      * Tests the query execution on a complex match.
      */
-    //@Test TODO: reactivate this.
+    @Test
     public void testComplexMatchQuery() {
         QueryBuilder qb = new QueryBuilder();
         qb.addQuery("?a",  "2", "?c");
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.query;
+
+import org.sindice.rdfcommons.model.IndexedTripleSet;
+import org.sindice.rdfcommons.model.TripleSet;
+import org.sindice.rdfcommons.storage.InMemoryResultSet;
+import org.sindice.rdfcommons.storage.ResultSet;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Test case for the {@link StreamingResultSet} class.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class StreamingResultSetTestCase {
+
+    private static final int PEOPLE = 100;
+
+    private TripleSet tripleSet;
+
+    private QueryBuilder queryBuilder;
+
+    @BeforeMethod
+    public void setUp() {
+        tripleSet = new IndexedTripleSet();
+        for(int i = 0; i < PEOPLE; i++) {
+            tripleSet.addTriple("http://person/" + i, "http://knows", "http://person/" + ((i + 1) % PEOPLE));
+            tripleSet.addTriple("http://person/" + i, "http://age", "age" + (i % 10));
+        }
+        queryBuilder = new QueryBuilder();
+        queryBuilder.addQuery("?p", "http://knows", "?f");
+        queryBuilder.addQuery("?f", "http://age", "?a");
+    }
+
+    /**
+     * Tests that the streamed rows are the materialized ones, in the same order.
+     */
+    @Test
+    public void testSameAsMaterialized() {
+        final ResultSet stream = queryBuilder.execOnTriples(tripleSet);
+        Assert.assertTrue(stream instanceof StreamingResultSet);
+        final InMemoryResultSet expected = (InMemoryResultSet) new TripleSetQueryExecutor().filter(
+                getMatchChain(), tripleSet
+        );
+        Assert.assertEquals(expected.size(), PEOPLE);
+        int count = 0;
+        while(stream.hasNext()) {
+            Assert.assertTrue( expected.hasNext() );
+            for(String var : stream.getVariables()) {
+                Assert.assertEquals( stream.getVariableValue(var), expected.getVariableValue(var) );
+                Assert.assertEquals( stream.getVariableType(var) , expected.getVariableType(var)  );
+            }
+            stream.next();
+            expected.next();
+            count++;
+        }
+        Assert.assertFalse( expected.hasNext() );
+        Assert.assertEquals(count, PEOPLE);
+    }
+
+    /**
+     * Tests the early termination.
+     */
+    @Test
+    public void testLimit() {
+        final StreamingResultSet rs = (StreamingResultSet) queryBuilder.execOnTriples(tripleSet, 3);
+        int count = 0;
+        while(rs.hasNext()) {
+            Assert.assertNotNull( rs.getVariableString("?p") );
+            rs.next();
+            count++;
+        }
+        Assert.assertEquals(count, 3);
+        Assert.assertEquals(rs.getReturnedCount(), 3);
+        Assert.assertFalse( queryBuilder.execOnTriples(tripleSet, 0).hasNext() );
+    }
+
+    /**
+     * Tests the access after the end of the result.
+     */
+    @Test
+    public void testConsumed() {
+        queryBuilder.clear();
+        queryBuilder.addQuery("?p", "http://unknown", "?f");
+        final ResultSet rs = queryBuilder.execOnTriples(tripleSet);
+        Assert.assertFalse( rs.hasNext() );
+        try {
+            rs.getVariableValue("?p");
+            Assert.fail("Expected exception.");
+        } catch (NoSuchElementException nsee) {
+            // Expected.
+        }
+        try {
+            rs.getVariableValue("?unknown");
+            Assert.fail("Expected exception.");
+        } catch (IllegalArgumentException iae) {
+            // Expected.
+        }
+    }
+
+    /**
+     * Tests that an invalid limit is rejected.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidLimit() {
+        queryBuilder.execOnTriples(tripleSet, -2);
+    }
+
+    private MatchChain getMatchChain() {
+        final MatchChain matchChain = new MatchChain( queryBuilder.getContext() );
+        matchChain.add( new Match(queryBuilder.getContext(), "?p", "http://knows", "?f") );
+        matchChain.add( new Match(queryBuilder.getContext(), "?f", "http://age", "?a") );
+        return matchChain;
+    }
+
+}
@@ -16,11 +16,15 @@
 
 package org.sindice.rdfcommons.query;
 
+import org.sindice.rdfcommons.model.IndexedTripleSet;
+import org.sindice.rdfcommons.model.Triple;
 import org.sindice.rdfcommons.model.TripleImpl;
 import org.sindice.rdfcommons.storage.InMemoryResultSet;
 import org.sindice.rdfcommons.model.TripleBuffer;
 import org.sindice.rdfcommons.model.TripleSet;
+import org.sindice.rdfcommons.storage.ResultSet;
 import org.apache.log4j.Logger;
+import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -139,4 +143,140 @@ public class TripleSetQueryExecutorTestCase {
         assert imrs.size() == ts1.getSize() * ts2.getSize();
     }
 
+    /**
+     * Tests the {@link TripleSetQueryExecutor#filter(MatchChain, org.sindice.rdfcommons.model.TripleSet)}
+     * method on a multi pattern join.
+     */
+    @Test
+    public void testFilterJoin() {
+        final TripleSet ts = createPeopleSet( new TripleBuffer() );
+        matchChain.add( new Match(queryContext, "?p", "http://knows", "?f") );
+        matchChain.add( new Match(queryContext, "?f", "http://name"  , "?n") );
+        matchChain.add( new Match(queryContext, "?p", "http://type"  , "http://Person") );
+
+        final ResultSet rs = tripleSetQueryExecutor.filter(matchChain, ts);
+        Assert.assertEquals( rs.getVariables(), new String[]{"?p", "?f", "?n"} );
+        final Set<String> results = new HashSet<String>();
+        while(rs.hasNext()) {
+            results.add( rs.getVariableString("?p") + " " + rs.getVariableString("?f") + " " + rs.getVariableValue("?n") );
+            Assert.assertEquals( rs.getVariableType("?n"), ResultSet.VariableType.LITERAL );
+            rs.next();
+        }
+        Assert.assertEquals(
+                results,
+                new HashSet<String>( Arrays.asList("http://a http://b B", "http://a http://c C", "http://b http://c C") )
+        );
+    }
+
+    /**
+     * Tests that the result of a join does not depend on the input set implementation.
+     */
+    @Test
+    public void testFilterIndexed() {
+        matchChain.add( new Match(queryContext, "?p", "http://knows", "?f") );
+        matchChain.add( new Match(queryContext, "?f", "http://knows", "?g") );
+        final ResultSet expected = tripleSetQueryExecutor.filter( matchChain, createPeopleSet(new TripleBuffer()) );
+        final ResultSet actual = tripleSetQueryExecutor.filter( matchChain, createPeopleSet(new IndexedTripleSet()) );
+        Assert.assertEquals(actual.toString(), expected.toString());
+        Assert.assertEquals( ((InMemoryResultSet) actual).size(), 1 );
+    }
+
+    /**
+     * Tests a match repeating the same variable and a query without solutions.
+     */
+    @Test
+    public void testFilterRepeatedVariable() {
+        final TripleSet ts = createPeopleSet( new TripleBuffer() );
+        ts.addTriple("http://d", "http://knows", "http://d");
+        matchChain.add( new Match(queryContext, "?p", "http://knows", "?p") );
+        final InMemoryResultSet rs = (InMemoryResultSet) tripleSetQueryExecutor.filter(matchChain, ts);
+        Assert.assertEquals(rs.size(), 1);
+        Assert.assertEquals(rs.getVariableString("?p"), "http://d");
+
+        matchChain.add( new Match(queryContext, "?p", "http://name", "?n") );
+        Assert.assertEquals( ((InMemoryResultSet) tripleSetQueryExecutor.filter(matchChain, ts)).size(), 0 );
+    }
+
+    /**
+     * Tests that the {@link JoinPlan} starts from the most selective match
+     * and avoids cross products.
+     */
+    @Test
+    public void testJoinPlanOrder() {
+        final TripleSet ts = createPeopleSet( new IndexedTripleSet() );
+        final Match names   = new Match(queryContext, "?f", "http://name" , "?n");
+        final Match knows   = new Match(queryContext, "?p", "http://knows", "?f");
+        final Match persons = new Match(queryContext, "?x", "http://type" , "http://Person");
+        final Match first   = new Match(queryContext, "?p", "http://name" , "A");
+        matchChain.add(names);
+        matchChain.add(persons);
+        matchChain.add(knows);
+        matchChain.add(first);
+        final JoinPlan.Step[] steps = JoinPlan.create(matchChain, ts).getSteps();
+        Assert.assertEquals(steps.length, 4);
+        Assert.assertSame(steps[0].getPattern().getSource(), first);
+        Assert.assertSame(steps[1].getPattern().getSource(), knows);
+        Assert.assertSame(steps[2].getPattern().getSource(), names);
+        Assert.assertSame(steps[3].getPattern().getSource(), persons);
+    }
+
+    /**
+     * Tests that over an indexed set the driving match is scanned lazily
+     * and the other matches are collected only when probed.
+     */
+    @Test
+    public void testLazyEvaluation() {
+        final int[] collected = new int[1];
+        final TripleSet ts = createPeopleSet(
+                new IndexedTripleSet() {
+                    @Override
+                    public <O> TripleSet getTriplesWithPattern(
+                            String sub, String pred, O obj,
+                            Triple.SubjectType subjectType, Triple.ObjectType objectType, String graph
+                    ) {
+                        collected[0]++;
+                        return super.getTriplesWithPattern(sub, pred, obj, subjectType, objectType, graph);
+                    }
+                }
+        );
+        matchChain.add( new Match(queryContext, "?x", "http://type", "http://Person") );
+        final ResultSet limited = tripleSetQueryExecutor.stream(matchChain, ts, 1);
+        Assert.assertTrue( limited.hasNext() );
+        limited.next();
+        Assert.assertFalse( limited.hasNext() );
+        Assert.assertEquals(collected[0], 0);
+
+        // The driving match has no solutions, the other one is never collected.
+        matchChain.clear();
+        matchChain.add( new Match(queryContext, "?p", "http://name" , "Z") );
+        matchChain.add( new Match(queryContext, "?p", "http://knows", "?f") );
+        Assert.assertFalse( tripleSetQueryExecutor.stream(matchChain, ts, StreamingResultSet.NO_LIMIT).hasNext() );
+        Assert.assertEquals(collected[0], 0);
+
+        matchChain.clear();
+        matchChain.add( new Match(queryContext, "?p", "http://name" , "A") );
+        matchChain.add( new Match(queryContext, "?p", "http://knows", "?f") );
+        final ResultSet rs = tripleSetQueryExecutor.stream(matchChain, ts, StreamingResultSet.NO_LIMIT);
+        int count = 0;
+        while( rs.hasNext() ) {
+            count++;
+            rs.next();
+        }
+        Assert.assertEquals(count, 2);
+        Assert.assertEquals(collected[0], 1);
+    }
+
+    private TripleSet createPeopleSet(TripleSet ts) {
+        ts.addTriple("http://a", "http://type" , "http://Person");
+        ts.addTriple("http://b", "http://type" , "http://Person");
+        ts.addTriple("http://c", "http://type" , "http://Person");
+        ts.addTriple("http://a", "http://name" , "A", Triple.ObjectType.literal);
+        ts.addTriple("http://b", "http://name" , "B", Triple.ObjectType.literal);
+        ts.addTriple("http://c", "http://name" , "C", Triple.ObjectType.literal);
+        ts.addTriple("http://a", "http://knows", "http://b");
+        ts.addTriple("http://a", "http://knows", "http://c");
+        ts.addTriple("http://b", "http://knows", "http://c");
+        return ts;
+    }
+
 }
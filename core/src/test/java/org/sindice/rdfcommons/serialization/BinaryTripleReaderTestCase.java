@@ -0,0 +1,135 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.serialization;
+
+import org.sindice.rdfcommons.adapter.DefaultDatatypeLiteral;
+import org.sindice.rdfcommons.adapter.DefaultLanguageLiteral;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.model.TripleImpl;
+import org.sindice.rdfcommons.model.TripleSet;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.Iterator;
+
+/**
+ * Test case for the {@link BinaryTripleReader} and {@link BinaryTripleWriter} classes.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class BinaryTripleReaderTestCase {
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final TripleBuffer tb = new TripleBuffer();
+        tb.addTriple( new TripleImpl<String>("http://s1", "http://p1", "http://o1") );
+        tb.addTriple( new TripleImpl<String>("http://s1", "http://p1", "http://o1", "http://g") );
+        tb.addTriple("http://s1", "http://p2", "plain \u00e8 \u20ac", Triple.ObjectType.literal);
+        tb.addTriple("http://s1", "http://p2", new DefaultLanguageLiteral("ciao", "it"), Triple.ObjectType.literal);
+        tb.addTriple(
+                "http://s1", "http://p2",
+                new DefaultDatatypeLiteral<String>("http://dt", "value"), Triple.ObjectType.literal
+        );
+        tb.addTriple("http://s2", "http://p3", true, Triple.ObjectType.literal);
+        tb.addTriple("http://s2", "http://p3", (byte) -3, Triple.ObjectType.literal);
+        tb.addTriple("http://s2", "http://p3", (short) 300, Triple.ObjectType.literal);
+        tb.addTriple("http://s2", "http://p3", -123456, Triple.ObjectType.literal);
+        tb.addTriple("http://s2", "http://p3", Long.MIN_VALUE, Triple.ObjectType.literal);
+        tb.addTriple("http://s2", "http://p3", 1.5f, Triple.ObjectType.literal);
+        tb.addTriple("http://s2", "http://p3", Math.PI, Triple.ObjectType.literal);
+        tb.addTriple("http://s2", "http://p3", new Date(1262304000000L), Triple.ObjectType.literal);
+        tb.addTriple("b1", "http://p4", "b2", Triple.SubjectType.bnode, Triple.ObjectType.bnode);
+        final StringBuilder longLiteral = new StringBuilder();
+        for(int i = 0; i < 100; i++) {
+            longLiteral.append(i);
+        }
+        tb.addTriple("http://s3", "http://p5", longLiteral.toString(), Triple.ObjectType.literal);
+
+        final TripleSet result = new TripleBuffer();
+        Assert.assertEquals( new BinaryTripleReader( new ByteArrayInputStream( write(tb, 16, 1000) ) ).read(result), 15 );
+        final Iterator<Triple> expected = tb.iterator();
+        for(Triple triple : result) {
+            final Triple original = expected.next();
+            Assert.assertEquals( triple.toNQuadsString(), original.toNQuadsString() );
+            Assert.assertEquals( triple.getObject().getClass(), original.getObject().getClass() );
+        }
+        Assert.assertEquals(result.getTriple(12).getObject(), new Date(1262304000000L));
+    }
+
+    /**
+     * Tests that repeated terms are shared and that dictionaries are reset across blocks.
+     */
+    @Test
+    public void testDictionaryReset() throws IOException {
+        final TripleBuffer tb = new TripleBuffer();
+        for(int i = 0; i < 1000; i++) {
+            tb.addTriple("http://s/" + (i % 50), "http://p", "label " + (i % 7), Triple.ObjectType.literal);
+        }
+        final byte[] shared = write(tb, 1024, 1000);
+        final byte[] reset  = write(tb, 1024, 10);
+        Assert.assertTrue(shared.length < reset.length);
+        for(byte[] data : new byte[][]{shared, reset}) {
+            final BinaryTripleReader reader = new BinaryTripleReader( new ByteArrayInputStream(data) );
+            Triple triple;
+            int count = 0;
+            while( (triple = reader.readTriple()) != null ) {
+                Assert.assertEquals( triple, tb.getTriple(count++) );
+            }
+            Assert.assertEquals(count, tb.getSize());
+        }
+    }
+
+    @Test
+    public void testCorruptedBlock() throws IOException {
+        final TripleBuffer tb = new TripleBuffer();
+        tb.addTriple("http://s", "http://p", "http://o");
+        final byte[] data = write(tb, 1024, 1000);
+        data[10] ^= 0x01;
+        try {
+            new BinaryTripleReader( new ByteArrayInputStream(data) ).read( new TripleBuffer() );
+            Assert.fail("Expected exception.");
+        } catch (IOException ioe) {
+            Assert.assertTrue( ioe.getMessage().startsWith("Checksum mismatch") );
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testTruncatedStream() throws IOException {
+        final TripleBuffer tb = new TripleBuffer();
+        tb.addTriple("http://s", "http://p", "http://o");
+        final byte[] data = write(tb, 1024, 1000);
+        final byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        new BinaryTripleReader( new ByteArrayInputStream(truncated) ).read( new TripleBuffer() );
+    }
+
+    private byte[] write(TripleSet tripleSet, int blockSize, int dictionarySize) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final BinaryTripleWriter writer = new BinaryTripleWriter(baos, blockSize, dictionarySize);
+        writer.write(tripleSet);
+        writer.close();
+        Assert.assertEquals( writer.getTriplesWritten(), tripleSet.getSize() );
+        return baos.toByteArray();
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.serialization;
+
+import org.sindice.rdfcommons.adapter.DefaultLanguageLiteral;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleImpl;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Test case for the {@link ExternalTripleSorter} class.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class ExternalTripleSorterTestCase {
+
+    @Test
+    public void testInMemory() throws IOException {
+        final List<Triple> triples = createTriples(500, 100);
+        final ExternalTripleSorter sorter = new ExternalTripleSorter(ExternalTripleSorter.Order.SPOG, true);
+        checkSorted(sorter, triples);
+        Assert.assertEquals(sorter.getRunsSpilled(), 0);
+    }
+
+    /**
+     * Tests the spilling of the runs and their multi pass merge.
+     */
+    @Test
+    public void testSpilled() throws IOException {
+        final List<Triple> triples = createTriples(20000, 3000);
+        for(ExternalTripleSorter.Order order : ExternalTripleSorter.Order.values()) {
+            final File tempDir = createTempDir();
+            final ExternalTripleSorter sorter = new ExternalTripleSorter(order, true, 8 * 1024, tempDir);
+            try {
+                checkSorted(sorter, triples);
+                Assert.assertTrue(sorter.getRunsSpilled() > ExternalTripleSorter.MAX_MERGE_WIDTH);
+            } finally {
+                sorter.close();
+            }
+            Assert.assertEquals(tempDir.list().length, 0);
+            tempDir.delete();
+        }
+    }
+
+    @Test
+    public void testKeepDuplicates() throws IOException {
+        final List<Triple> triples = createTriples(5000, 100);
+        final ExternalTripleSorter sorter =
+                new ExternalTripleSorter(ExternalTripleSorter.Order.GSPO, false, 16 * 1024, null);
+        for(Triple triple : triples) {
+            sorter.addTriple(triple);
+        }
+        final List<Triple> expected = new ArrayList<Triple>(triples);
+        Collections.sort( expected, ExternalTripleSorter.getComparator(ExternalTripleSorter.Order.GSPO) );
+        Triple triple;
+        int count = 0;
+        while( (triple = sorter.readTriple()) != null ) {
+            Assert.assertEquals( triple.toNQuadsString(), expected.get(count++).toNQuadsString() );
+        }
+        Assert.assertEquals(count, triples.size());
+        sorter.close();
+    }
+
+    /**
+     * Tests that terms differing only in their type are not considered duplicates.
+     */
+    @Test
+    public void testTermTypes() throws IOException {
+        final ExternalTripleSorter sorter = new ExternalTripleSorter(ExternalTripleSorter.Order.SPOG, true);
+        sorter.addTriple( new TripleImpl<String>("http://s", "http://p", "x") );
+        sorter.addTriple( new TripleImpl<String>("http://s", "http://p", "x", Triple.ObjectType.literal) );
+        sorter.addTriple(
+                new TripleImpl<Object>("http://s", "http://p", new DefaultLanguageLiteral("x", "en"), Triple.ObjectType.literal)
+        );
+        sorter.addTriple(
+                new TripleImpl<String>("http://s", "http://p", "x", Triple.SubjectType.bnode, Triple.ObjectType.uri)
+        );
+        int count = 0;
+        while(sorter.readTriple() != null) {
+            count++;
+        }
+        Assert.assertEquals(count, 4);
+        sorter.close();
+    }
+
+    private void checkSorted(ExternalTripleSorter sorter, List<Triple> triples) throws IOException {
+        for(Triple triple : triples) {
+            sorter.addTriple(triple);
+        }
+        final TreeSet<Triple> expected = new TreeSet<Triple>( ExternalTripleSorter.getComparator( sorter.getOrder() ) );
+        expected.addAll(triples);
+        Triple triple;
+        int count = 0;
+        for(Triple expectedTriple : expected) {
+            triple = sorter.readTriple();
+            Assert.assertNotNull(triple);
+            Assert.assertEquals( triple.toNQuadsString(), expectedTriple.toNQuadsString() );
+            count++;
+        }
+        Assert.assertNull( sorter.readTriple() );
+        Assert.assertEquals( count, expected.size() );
+        Assert.assertTrue( expected.size() < triples.size() );
+    }
+
+    private List<Triple> createTriples(int count, int distinct) {
+        final Random random = new Random(7);
+        final List<Triple> triples = new ArrayList<Triple>();
+        for(int i = 0; i < count; i++) {
+            final int n = random.nextInt(distinct);
+            triples.add(
+                    new TripleImpl<Object>(
+                            "http://s/" + (n % 37),
+                            "http://p/" + (n % 5),
+                            n % 2 == 0 ? "literal " + n : n,
+                            Triple.SubjectType.uri,
+                            Triple.ObjectType.literal,
+                            n % 3 == 0 ? null : "http://g/" + (n % 3)
+                    )
+            );
+        }
+        return triples;
+    }
+
+    private File createTempDir() throws IOException {
+        final File dir = File.createTempFile("sorter", "");
+        dir.delete();
+        dir.mkdir();
+        return dir;
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.serialization;
+
+import org.sindice.rdfcommons.adapter.DefaultLanguageLiteral;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.model.TripleImpl;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+
+/**
+ * Test case for the {@link NQuadsEncoder} class.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class NQuadsEncoderTestCase {
+
+    /**
+     * Tests that the encoded statements match the string serialization of the triples.
+     */
+    @Test
+    public void testSameAsStringSerialization() throws IOException {
+        final TripleBuffer tb = createTriples();
+        final StringBuilder expected = new StringBuilder();
+        for(Triple triple : tb) {
+            expected.append( triple.toNTriplesString() ).append(" .\n");
+        }
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final NQuadsEncoder encoder = new NQuadsEncoder(baos);
+        for(Triple triple : tb) {
+            encoder.writeTriple(triple);
+        }
+        encoder.flush();
+        Assert.assertEquals( baos.toString("UTF-8"), expected.toString() );
+        Assert.assertEquals( encoder.getBytesWritten(), baos.size() );
+    }
+
+    @Test
+    public void testEscapingAndEncoding() throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final NQuadsEncoder encoder = new NQuadsEncoder(baos);
+        encoder.writeQuad(
+                new TripleImpl<String>(
+                        "http://s/\u00e8", "http://p", "a \"b\" \\ c\nd\u20ac\ud834\udd1e",
+                        Triple.SubjectType.uri, Triple.ObjectType.literal, "http://g"
+                )
+        );
+        encoder.writeQuad( new TripleImpl<String>("http://s", "http://p", "http://o") );
+        encoder.flush();
+        Assert.assertEquals(
+                baos.toString("UTF-8"),
+                "<http://s/\u00e8> <http://p> \"a \\\"b\\\" \\\\ c\\nd\u20ac\ud834\udd1e\" <http://g> .\n" +
+                "<http://s> <http://p> <http://o> .\n"
+        );
+    }
+
+    /**
+     * Tests the flushing of a buffer smaller than the written statements.
+     */
+    @Test
+    public void testSmallBuffer() throws IOException {
+        final TripleBuffer tb = createTriples();
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final NQuadsEncoder reference = new NQuadsEncoder(expected);
+        reference.write(tb);
+        reference.flush();
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final NQuadsEncoder encoder = new NQuadsEncoder(baos, 16);
+        encoder.write(tb);
+        encoder.flush();
+        Assert.assertEquals( baos.toByteArray(), expected.toByteArray() );
+    }
+
+    @Test
+    public void testChannel() throws IOException {
+        final TripleBuffer tb = createTriples();
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final NQuadsEncoder encoder = new NQuadsEncoder( Channels.newChannel(baos), 32 );
+        encoder.write(tb);
+        encoder.flush();
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        tb.toNQuads( new PrintStream(expected) );
+        Assert.assertEquals( baos.toByteArray(), expected.toByteArray() );
+        Assert.assertEquals( encoder.getBytesWritten(), baos.size() );
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidBufferSize() {
+        new NQuadsEncoder(new ByteArrayOutputStream(), 4);
+    }
+
+    private TripleBuffer createTriples() {
+        final TripleBuffer tb = new TripleBuffer();
+        tb.addTriple("http://s1", "http://p1", "http://o1");
+        tb.addTriple("http://s1", "http://p2", "a literal with \u00e0ccents and \"quotes\"", Triple.ObjectType.literal);
+        tb.addTriple("http://s2", "http://p3", 10, Triple.ObjectType.literal);
+        tb.addTriple("http://s2", "http://p4", new DefaultLanguageLiteral("ciao", "it"), Triple.ObjectType.literal);
+        tb.addTriple("b1", "http://p5", "b2", Triple.SubjectType.bnode, Triple.ObjectType.bnode);
+        return tb;
+    }
+
+}
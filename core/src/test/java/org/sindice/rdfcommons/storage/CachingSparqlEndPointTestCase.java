@@ -0,0 +1,175 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sindice.rdfcommons.storage;
+
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.model.TripleSet;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Test case for the {@link CachingSparqlEndPoint} and {@link CachingTripleStorage} classes.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class CachingSparqlEndPointTestCase {
+
+    private static final String SELECT_ALL = "SELECT ?s ?o WHERE { ?s <http://example.org/p> ?o }";
+
+    private CachingTripleStorage storage;
+
+    private CachingSparqlEndPoint endPoint;
+
+    @BeforeMethod
+    public void setUp() throws StorageException {
+        storage = new CachingTripleStorage( new TripleStorageInMemoryImpl() );
+        storage.store( triples("http://example.org/a", "http://example.org/b") );
+        storage.store( "http://example.org/g1", triples("http://example.org/c") );
+        storage.store( "http://example.org/g2", triples("http://example.org/d") );
+        endPoint = storage.getSparqlEndPoint();
+    }
+
+    @Test
+    public void testSelectReplay() throws SparqlEndpointException {
+        Assert.assertEquals( countRows(SELECT_ALL), 2 );
+        Assert.assertEquals( countRows("SELECT ?s ?o\nWHERE {  ?s <http://example.org/p>   ?o  }"), 2 );
+        Assert.assertEquals(endPoint.getMissCount(), 1);
+        Assert.assertEquals(endPoint.getHitCount(), 1);
+
+        // Cursors over the same cached result are independent.
+        final ResultSet first  = endPoint.processSelectQuery(SELECT_ALL);
+        final ResultSet second = endPoint.processSelectQuery(SELECT_ALL);
+        first.next();
+        first.next();
+        second.next();
+        Assert.assertFalse( first.hasNext() );
+        Assert.assertTrue( second.hasNext() );
+        Assert.assertEquals(
+                new HashSet<String>( Arrays.asList( second.getVariables() ) ),
+                new HashSet<String>( Arrays.asList("?s", "?o") )
+        );
+        Assert.assertEquals( second.getVariableType("?s"), ResultSet.VariableType.RESOURCE );
+        Assert.assertEquals( second.getVariableValue("?o"), "http://example.org/o" );
+    }
+
+    @Test
+    public void testGraphInvalidation() throws StorageException, SparqlEndpointException {
+        final String g1 = "SELECT ?s FROM <http://example.org/g1> WHERE { ?s ?p ?o }";
+        final String g2 = "SELECT ?s FROM <http://example.org/g2> WHERE { ?s ?p ?o }";
+        Assert.assertEquals( countRows(g1), 1 );
+        Assert.assertEquals( countRows(g2), 1 );
+        Assert.assertTrue( endPoint.processAskQuery("ASK { ?s ?p ?o }") );
+        Assert.assertEquals(endPoint.getSize(), 3);
+
+        storage.store( "http://example.org/g2", triples("http://example.org/e") );
+        Assert.assertEquals(endPoint.getInvalidationCount(), 2);
+        Assert.assertEquals( countRows(g1), 1 );
+        Assert.assertEquals( countRows(g2), 2 );
+        Assert.assertEquals(endPoint.getHitCount(), 1);
+
+        storage.remove( triples("http://example.org/a") );
+        Assert.assertEquals(endPoint.getSize(), 0);
+        storage.clear("http://example.org/g2");
+        Assert.assertEquals( countRows(g2), 0 );
+    }
+
+    @Test
+    public void testGraphQueryCopies() throws SparqlEndpointException {
+        final String construct = "CONSTRUCT { ?s <http://example.org/q> ?o } WHERE { ?s <http://example.org/p> ?o }";
+        final TripleSet first = endPoint.processConstructQuery(construct);
+        Assert.assertEquals(first.getSize(), 2);
+        first.clear();
+        Assert.assertEquals( endPoint.processConstructQuery(construct).getSize(), 2 );
+        Assert.assertEquals(endPoint.getHitCount(), 1);
+    }
+
+    @Test
+    public void testEvictionAndExpiration() throws SparqlEndpointException, InterruptedException {
+        final CachingSparqlEndPoint bounded = new CachingSparqlEndPoint(
+                storage.getDelegate().getSparqlEndPoint(), 2, 60 * 1000
+        ) {
+            @Override
+            protected long getTimeToLive(QueryType queryType, String qry) {
+                return queryType == QueryType.ask ? 1 : super.getTimeToLive(queryType, qry);
+            }
+        };
+        bounded.processSelectQuery("SELECT ?s WHERE { ?s ?p ?o }");
+        bounded.processSelectQuery("SELECT ?o WHERE { ?s ?p ?o }");
+        bounded.processSelectQuery("SELECT ?p WHERE { ?s ?p ?o }");
+        Assert.assertEquals(bounded.getSize(), 2);
+        Assert.assertEquals(bounded.getEvictionCount(), 1);
+
+        bounded.processAskQuery("ASK { ?s ?p ?o }");
+        Thread.sleep(10);
+        bounded.processAskQuery("ASK { ?s ?p ?o }");
+        Assert.assertEquals(bounded.getExpirationCount(), 1);
+        Assert.assertEquals(bounded.getMissCount(), 5);
+    }
+
+    @Test
+    public void testNormalize() {
+        Assert.assertEquals(
+                CachingSparqlEndPoint.normalize("  ASK\t{ ?s  ?p \"a  \\\"  b\" }\n"),
+                "ASK { ?s ?p \"a  \\\"  b\" }"
+        );
+        Assert.assertEquals(
+                CachingSparqlEndPoint.getQueryGraphs("SELECT * FROM <http://g1> from named <http://g2> WHERE {}"),
+                new HashSet<String>( Arrays.asList("http://g1", "http://g2") )
+        );
+    }
+
+    /**
+     * Tests that the dataset clauses are not searched within literals and comments.
+     */
+    @Test
+    public void testQueryGraphsIgnoreLiteralsAndComments() {
+        Assert.assertEquals(
+                CachingSparqlEndPoint.getQueryGraphs(
+                        "SELECT * FROM <http://g1#x> # FROM <http://comment>\n" +
+                        "WHERE { ?s <http://p#label> \"FROM <http://short> \\\" FROM <http://escaped>\" . " +
+                        "?s ?p '''a ' FROM <http://long>''' FILTER(?o < 3 && ?o > 1) }"
+                ),
+                new HashSet<String>( Arrays.asList("http://g1#x") )
+        );
+    }
+
+    private int countRows(String qry) throws SparqlEndpointException {
+        final ResultSet resultSet = endPoint.processSelectQuery(qry);
+        int rows = 0;
+        while( resultSet.hasNext() ) {
+            resultSet.next();
+            rows++;
+        }
+        return rows;
+    }
+
+    private static TripleSet triples(String... subjects) {
+        final TripleBuffer tb = new TripleBuffer();
+        for(String subject : subjects) {
+            tb.addTriple(subject, "http://example.org/p", "http://example.org/o", Triple.ObjectType.uri);
+        }
+        return tb;
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.storage;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test case for the {@link ConnectionPool} class.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class ConnectionPoolTestCase {
+
+    @Test
+    public void testReuse() throws StorageException {
+        final StubConnectionFactory factory = new StubConnectionFactory();
+        final ConnectionPool<StubConnection> pool = new ConnectionPool<StubConnection>(factory, 2, 0, 1000);
+        final StubConnection first = pool.borrow();
+        Assert.assertEquals(pool.getActiveCount(), 1);
+        pool.release(first);
+        Assert.assertEquals(pool.getActiveCount(), 0);
+        Assert.assertEquals(pool.getIdleCount(), 1);
+        Assert.assertSame(pool.borrow(), first);
+        Assert.assertEquals(factory.created.get(), 1);
+        pool.close();
+    }
+
+    @Test
+    public void testBorrowTimeout() throws StorageException {
+        final ConnectionPool<StubConnection> pool =
+                new ConnectionPool<StubConnection>(new StubConnectionFactory(), 2, 0, 50);
+        pool.borrow();
+        final StubConnection second = pool.borrow();
+        try {
+            pool.borrow();
+            Assert.fail("Expected exception.");
+        } catch (StorageException se) {
+            Assert.assertTrue( se.getMessage().startsWith("No connection available") );
+        }
+        pool.release(second);
+        Assert.assertSame(pool.borrow(), second);
+        pool.close();
+    }
+
+    @Test
+    public void testInvalidConnections() throws StorageException {
+        final StubConnectionFactory factory = new StubConnectionFactory();
+        final ConnectionPool<StubConnection> pool = new ConnectionPool<StubConnection>(factory, 2, 0, 1000);
+        final StubConnection first = pool.borrow();
+        pool.release(first);
+        first.valid = false;
+        final StubConnection second = pool.borrow();
+        Assert.assertNotSame(second, first);
+        Assert.assertTrue(first.destroyed);
+
+        pool.invalidate(second);
+        Assert.assertTrue(second.destroyed);
+        Assert.assertEquals(pool.getActiveCount(), 0);
+        Assert.assertEquals(pool.getIdleCount(), 0);
+        try {
+            pool.release(second);
+            Assert.fail("Expected exception.");
+        } catch (IllegalArgumentException iae) {
+            // Expected.
+        }
+        pool.close();
+    }
+
+    @Test
+    public void testIdleEviction() throws StorageException, InterruptedException {
+        final StubConnectionFactory factory = new StubConnectionFactory();
+        final ConnectionPool<StubConnection> pool = new ConnectionPool<StubConnection>(factory, 2, 50, 1000);
+        final StubConnection first  = pool.borrow();
+        final StubConnection second = pool.borrow();
+        pool.release(first);
+        pool.release(second);
+        Assert.assertEquals(pool.getIdleCount(), 2);
+        Thread.sleep(300);
+        Assert.assertEquals(pool.getIdleCount(), 0);
+        Assert.assertTrue(first.destroyed);
+        Assert.assertTrue(second.destroyed);
+        pool.close();
+    }
+
+    @Test
+    public void testClose() throws StorageException {
+        final ConnectionPool<StubConnection> pool =
+                new ConnectionPool<StubConnection>(new StubConnectionFactory(), 2, 0, 1000);
+        final StubConnection idle     = pool.borrow();
+        final StubConnection borrowed = pool.borrow();
+        pool.release(idle);
+        pool.close();
+        Assert.assertTrue(idle.destroyed);
+        Assert.assertFalse(borrowed.destroyed);
+        pool.release(borrowed);
+        Assert.assertTrue(borrowed.destroyed);
+    }
+
+    /**
+     * Tests pools sharing the evictor and the limit of open connections.
+     */
+    @Test
+    public void testSharedEvictorAndLimit() throws StorageException, InterruptedException {
+        final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor();
+        final SharedConnectionLimit limit = new SharedConnectionLimit(1);
+        try {
+            final ConnectionPool<StubConnection> first = new ConnectionPool<StubConnection>(
+                    new StubConnectionFactory(), 2, 100, 50, evictor, limit
+            );
+            final ConnectionPool<StubConnection> second = new ConnectionPool<StubConnection>(
+                    new StubConnectionFactory(), 2, 100, 50, evictor, limit
+            );
+            final StubConnection connection = first.borrow();
+            try {
+                second.borrow();
+                Assert.fail("Expected exception.");
+            } catch (StorageException se) {
+                Assert.assertTrue( se.getMessage().contains("shared limit") );
+            }
+            Assert.assertFalse( first.closeIfUnused() );
+
+            // The idle connections count against the limit, the second pool reclaims the one of the first.
+            first.release(connection);
+            Assert.assertEquals(first.getIdleCount(), 1);
+            Assert.assertEquals(limit.getAvailableConnections(), 0);
+            final StubConnection other = second.borrow();
+            Assert.assertTrue(connection.destroyed);
+            Assert.assertEquals(first.getIdleCount(), 0);
+            second.release(other);
+            Assert.assertEquals(limit.getAvailableConnections(), 0);
+
+            Thread.sleep(400);
+            Assert.assertTrue(other.destroyed);
+            Assert.assertEquals(second.getIdleCount(), 0);
+            Assert.assertEquals(limit.getAvailableConnections(), 1);
+            Assert.assertTrue( first.closeIfUnused() );
+            Assert.assertTrue( second.closeIfUnused() );
+            Assert.assertFalse( evictor.isShutdown() );
+        } finally {
+            evictor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that a connection given back while another pool waits for the shared limit is closed
+     * to let the waiting pool open its own.
+     */
+    @Test
+    public void testSharedLimitHandOver() throws Exception {
+        final SharedConnectionLimit limit = new SharedConnectionLimit(1);
+        final ConnectionPool<StubConnection> first = new ConnectionPool<StubConnection>(
+                new StubConnectionFactory(), 2, 0, 10000, null, limit
+        );
+        final ConnectionPool<StubConnection> second = new ConnectionPool<StubConnection>(
+                new StubConnectionFactory(), 2, 0, 10000, null, limit
+        );
+        final StubConnection connection = first.borrow();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<StubConnection> waiting = executor.submit( new Callable<StubConnection>() {
+                public StubConnection call() throws StorageException {
+                    return second.borrow();
+                }
+            });
+            Thread.sleep(200);
+            Assert.assertFalse( waiting.isDone() );
+            first.release(connection);
+            final StubConnection other = waiting.get(5, TimeUnit.SECONDS);
+            Assert.assertTrue(connection.destroyed);
+            Assert.assertEquals(first.getIdleCount(), 0);
+            second.release(other);
+            Assert.assertEquals(second.getIdleCount(), 1);
+        } finally {
+            executor.shutdownNow();
+            first.close();
+            second.close();
+        }
+        Assert.assertEquals(limit.getAvailableConnections(), 1);
+    }
+
+    /**
+     * Tests that concurrent borrowers never exceed the pool size.
+     */
+    @Test
+    public void testConcurrentBorrowers() throws Exception {
+        final StubConnectionFactory factory = new StubConnectionFactory();
+        final ConnectionPool<StubConnection> pool = new ConnectionPool<StubConnection>(factory, 3, 0, 10000);
+        final AtomicInteger inUse = new AtomicInteger();
+        final AtomicInteger maxInUse = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for(int i = 0; i < 200; i++) {
+            futures.add( executor.submit( new Callable<Object>() {
+                public Object call() throws Exception {
+                    final StubConnection connection = pool.borrow();
+                    try {
+                        final int current = inUse.incrementAndGet();
+                        synchronized (maxInUse) {
+                            maxInUse.set( Math.max(maxInUse.get(), current) );
+                        }
+                        Thread.yield();
+                        inUse.decrementAndGet();
+                    } finally {
+                        pool.release(connection);
+                    }
+                    return null;
+                }
+            }));
+        }
+        for(Future<Object> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assert.assertTrue(maxInUse.get() <= 3);
+        Assert.assertTrue(factory.created.get() <= 3);
+        Assert.assertEquals(pool.getActiveCount(), 0);
+        pool.close();
+    }
+
+    private static class StubConnection {
+        private volatile boolean valid = true;
+        private volatile boolean destroyed;
+    }
+
+    private static class StubConnectionFactory implements ConnectionFactory<StubConnection> {
+
+        private final AtomicInteger created = new AtomicInteger();
+
+        public StubConnection createConnection() {
+            created.incrementAndGet();
+            return new StubConnection();
+        }
+
+        public boolean validateConnection(StubConnection connection) {
+            return connection.valid;
+        }
+
+        public void destroyConnection(StubConnection connection) {
+            connection.destroyed = true;
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.storage;
+
+import org.sindice.rdfcommons.adapter.DefaultLanguageLiteral;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.model.TripleSet;
+import org.sindice.rdfcommons.query.QueryBuilder;
+import org.sindice.rdfcommons.vocabulary.RDFVocabulary;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Test case for the {@link InMemorySparqlEndPoint} class.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class InMemorySparqlEndPointTestCase {
+
+    private static final String PREFIXES =
+            "PREFIX ex: <http://example.org/> PREFIX xsd: <http://www.w3.org/2001/XMLSchema#> ";
+
+    private TripleStorageInMemoryImpl storage;
+
+    private SparqlEndPoint endPoint;
+
+    @BeforeMethod
+    public void setUp() throws StorageException {
+        storage = new TripleStorageInMemoryImpl();
+        final TripleBuffer tb = new TripleBuffer();
+        tb.addTriple("http://example.org/alice", RDFVocabulary.TYPE, "http://example.org/Person");
+        tb.addTriple("http://example.org/bob"  , RDFVocabulary.TYPE, "http://example.org/Person");
+        tb.addTriple("http://example.org/alice", "http://example.org/name", "Alice", Triple.ObjectType.literal);
+        tb.addTriple("http://example.org/bob"  , "http://example.org/name", "Bob"  , Triple.ObjectType.literal);
+        tb.addTriple("http://example.org/alice", "http://example.org/age" , 30     , Triple.ObjectType.literal);
+        tb.addTriple("http://example.org/bob"  , "http://example.org/age" , 25     , Triple.ObjectType.literal);
+        tb.addTriple("http://example.org/alice", "http://example.org/knows", "http://example.org/bob");
+        tb.addTriple(
+                "http://example.org/alice", "http://example.org/label",
+                new DefaultLanguageLiteral("alice", "en"), Triple.ObjectType.literal
+        );
+        tb.addTriple(
+                "http://example.org/alice", "http://example.org/address", "addr1",
+                Triple.SubjectType.uri, Triple.ObjectType.bnode
+        );
+        tb.addTriple(
+                "addr1", "http://example.org/city", "Galway",
+                Triple.SubjectType.bnode, Triple.ObjectType.literal
+        );
+        storage.store(tb);
+
+        final TripleBuffer named = new TripleBuffer();
+        named.addTriple("http://example.org/carol", "http://example.org/name", "Carol", Triple.ObjectType.literal);
+        storage.store("http://example.org/graph", named);
+
+        endPoint = storage.getSparqlEndPoint();
+    }
+
+    @Test
+    public void testSelect() throws SparqlEndpointException {
+        final ResultSet rs = endPoint.processSelectQuery(
+                PREFIXES + "SELECT ?n WHERE { ?p a ex:Person ; ex:knows ?f . ?f ex:name ?n }"
+        );
+        Assert.assertEquals(rs.getVariables(), new String[]{"?n"});
+        Assert.assertTrue( rs.hasNext() );
+        Assert.assertEquals(rs.getVariableValue("?n"), "Bob");
+        Assert.assertEquals(rs.getVariableType("?n"), ResultSet.VariableType.LITERAL);
+        rs.next();
+        Assert.assertFalse( rs.hasNext() );
+    }
+
+    @Test
+    public void testSelectLiterals() throws SparqlEndpointException {
+        Assert.assertEquals( countRows(PREFIXES + "SELECT ?p WHERE { ?p ex:age 30 }"), 1 );
+        Assert.assertEquals( countRows(PREFIXES + "SELECT ?p WHERE { ?p ex:age \"25\"^^xsd:int }"), 1 );
+        Assert.assertEquals( countRows(PREFIXES + "SELECT ?p WHERE { ?p ex:name 'Alice' }"), 1 );
+        Assert.assertEquals( countRows(PREFIXES + "SELECT ?p WHERE { ?p ex:label \"alice\"@en }"), 1 );
+        Assert.assertEquals( countRows(PREFIXES + "SELECT ?p WHERE { ?p ex:label \"alice\" }"), 0 );
+    }
+
+    @Test
+    public void testSelectModifiers() throws SparqlEndpointException {
+        Assert.assertEquals( countRows(PREFIXES + "SELECT * WHERE { ?s ?p ?o }"), 10 );
+        Assert.assertEquals( countRows(PREFIXES + "SELECT * WHERE { ?s ?p ?o } LIMIT 3"), 3 );
+        Assert.assertEquals( countRows(PREFIXES + "SELECT * WHERE { ?s ?p ?o } LIMIT 3 OFFSET 8"), 2 );
+        Assert.assertEquals( countRows(PREFIXES + "SELECT DISTINCT ?s WHERE { ?s ?p ?o }"), 3 );
+        Assert.assertEquals( countRows(PREFIXES + "SELECT ?s WHERE { ?s ex:address [] }"), 1 );
+        Assert.assertEquals( countRows("SELECT ?n FROM <http://example.org/graph> WHERE { ?s ?p ?n }"), 1 );
+    }
+
+    @Test
+    public void testQueryBuilderOnStorage() throws SparqlEndpointException {
+        final QueryBuilder qb = new QueryBuilder();
+        qb.addQuery("?p", "http://example.org/knows", "?f");
+        qb.addQuery("?f", "http://example.org/name", "?n");
+        final ResultSet rs = qb.execOnStorage(storage);
+        Assert.assertTrue( rs.hasNext() );
+        Assert.assertEquals(rs.getVariableValue("?n"), "Bob");
+    }
+
+    @Test
+    public void testConstruct() throws SparqlEndpointException {
+        final TripleSet ts = endPoint.processConstructQuery(
+                PREFIXES + "CONSTRUCT { ?f ex:knownBy ?p . ?f ex:tag _:t } WHERE { ?p ex:knows ?f }"
+        );
+        Assert.assertEquals(ts.getSize(), 2);
+        Assert.assertTrue(
+                ts.containsTriple(
+                        "http://example.org/bob", "http://example.org/knownBy", "http://example.org/alice",
+                        Triple.SubjectType.uri, Triple.ObjectType.uri
+                )
+        );
+        Assert.assertEquals(
+                ts.getTriplesWithPattern(null, "http://example.org/tag", null, null, Triple.ObjectType.bnode, null)
+                        .getSize(),
+                1
+        );
+    }
+
+    @Test
+    public void testDescribe() throws SparqlEndpointException {
+        final TripleSet ts = endPoint.processDescribeQuery(PREFIXES + "DESCRIBE ex:alice");
+        Assert.assertEquals(ts.getSize(), 7);
+        Assert.assertTrue( ts.containsTriplePattern("addr1", "http://example.org/city", null, null, null, null) );
+
+        final TripleSet known = endPoint.processDescribeQuery(PREFIXES + "DESCRIBE ?f WHERE { ?p ex:knows ?f }");
+        Assert.assertEquals(known.getSize(), 3);
+    }
+
+    @Test
+    public void testAsk() throws SparqlEndpointException {
+        Assert.assertTrue ( endPoint.processAskQuery(PREFIXES + "ASK { ex:alice ex:knows ex:bob }") );
+        Assert.assertFalse( endPoint.processAskQuery(PREFIXES + "ASK { ex:bob ex:knows ex:alice }") );
+    }
+
+    @Test
+    public void testProcessQuery() throws SparqlEndpointException {
+        Assert.assertEquals( endPoint.getQueryType("SELECT * WHERE {?s ?p ?o}"), SparqlEndPoint.QueryType.select );
+        final SparqlEndPoint.EndpointResponse response = endPoint.processQuery(
+                PREFIXES + "ASK WHERE { ?s ex:name \"Carol\" }"
+        );
+        Assert.assertEquals(response.getType(), SparqlEndPoint.QueryType.ask);
+        Assert.assertFalse( response.getAskResult() );
+    }
+
+    @Test
+    public void testInvalidQueries() {
+        final String[] queries = {
+                "SELECT ?s WHERE { ?s ?p ?o . OPTIONAL { ?s ?p ?x } }",
+                "SELECT ?s WHERE { ?s ?p ?o",
+                "SELECT ?x WHERE { ?s ?p ?o }",
+                "ASK { ?s ?p ?o }",
+        };
+        final Set<String> failed = new HashSet<String>();
+        for(String query : queries) {
+            try {
+                endPoint.processSelectQuery(query);
+            } catch (SparqlEndpointException see) {
+                failed.add(query);
+            }
+        }
+        Assert.assertEquals(failed.size(), queries.length);
+    }
+
+    private int countRows(String query) throws SparqlEndpointException {
+        final ResultSet rs = endPoint.processSelectQuery(query);
+        int count = 0;
+        while(rs.hasNext()) {
+            rs.next();
+            count++;
+        }
+        return count;
+    }
+
+}
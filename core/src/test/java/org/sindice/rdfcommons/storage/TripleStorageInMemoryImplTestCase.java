@@ -0,0 +1,205 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.storage;
+
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.model.TripleSet;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Test case for the {@link TripleStorageInMemoryImpl} class.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class TripleStorageInMemoryImplTestCase {
+
+    private static final int THREADS = 8;
+
+    private static final int BATCHES = 50;
+
+    private static final int BATCH_SIZE = 20;
+
+    private TripleStorageInMemoryImpl storage;
+
+    @BeforeMethod
+    public void setUp() {
+        storage = new TripleStorageInMemoryImpl();
+    }
+
+    @Test
+    public void testStoreAndFilter() throws StorageException {
+        final TripleBuffer tb = new TripleBuffer();
+        tb.addTriple("http://s1", "http://p1", "http://o1");
+        tb.addTriple("http://s1", "http://p2", "http://o2");
+        tb.addTriple("http://s2", "http://p1", "http://o1");
+        storage.store(tb);
+        storage.store("http://g", tb);
+
+        Assert.assertEquals( storage.getTriples( AllTriplesStorageFilter.getInstance() ).getSize(), 3 );
+        Assert.assertEquals(
+                storage.getTriples( new TripleStorageFilterImpl("http://s1", null, null, null, null) ).getSize(),
+                2
+        );
+        Assert.assertEquals(
+                storage.getTriples( "http://g", new TripleStorageFilterImpl(null, "http://p1", null, null, null) )
+                        .getSize(),
+                2
+        );
+        Assert.assertEquals( storage.getTriples( "http://unknown", AllTriplesStorageFilter.getInstance() ).getSize(), 0 );
+
+        storage.remove("http://g", tb);
+        Assert.assertEquals( storage.getTriples( "http://g", AllTriplesStorageFilter.getInstance() ).getSize(), 0 );
+        storage.clearAll();
+        Assert.assertEquals( storage.getTriples( AllTriplesStorageFilter.getInstance() ).getSize(), 0 );
+    }
+
+    /**
+     * Tests concurrent writers on the default and on named graphs together with concurrent readers.
+     */
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS * 2);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for(int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                futures.add(executor.submit( new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        for(int b = 0; b < BATCHES; b++) {
+                            final TripleSet batch = createBatch(thread, b);
+                            storage.store(batch);
+                            storage.store("http://graph/" + (thread % 2), batch);
+                        }
+                        return 0;
+                    }
+                }));
+                futures.add(executor.submit( new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        int reads = 0;
+                        for(int i = 0; i < BATCHES; i++) {
+                            storage.getTriples( "http://graph/" + (thread % 2), AllTriplesStorageFilter.getInstance() );
+                            storage.getSparqlEndPoint().processAskQuery("ASK { ?s <http://p> ?o }");
+                            reads++;
+                        }
+                        return reads;
+                    }
+                }));
+            }
+            for(Future<Integer> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        final int expected = THREADS * BATCHES * BATCH_SIZE;
+        Assert.assertEquals( storage.getTriples( AllTriplesStorageFilter.getInstance() ).getSize(), expected );
+        Assert.assertEquals(
+                storage.getTriples( "http://graph/0", AllTriplesStorageFilter.getInstance() ).getSize() +
+                storage.getTriples( "http://graph/1", AllTriplesStorageFilter.getInstance() ).getSize(),
+                expected
+        );
+    }
+
+    /**
+     * Tests that a query listing its graphs in reverse order does not hold any of them
+     * while waiting for a graph with a queued writer.
+     */
+    @Test
+    public void testOppositeGraphOrder() throws Exception {
+        final String graphA = "http://graph/a";
+        final String graphB = "http://graph/b";
+        storage.store( graphA, createBatch(0, 0) );
+        storage.store( graphB, createBatch(0, 0) );
+
+        final TripleStorageInMemoryImpl.ReadView held = storage.openReadView( Arrays.asList(graphA) );
+        final List<Thread> threads = new ArrayList<Thread>();
+        try {
+            threads.add( startAndAwaitBlocked( new Runnable() {
+                public void run() {
+                    try {
+                        storage.store( graphA, createBatch(0, 1) );
+                    } catch (StorageException se) {
+                        throw new RuntimeException(se);
+                    }
+                }
+            }));
+            threads.add( startAndAwaitBlocked( new Runnable() {
+                public void run() {
+                    storage.openReadView( Arrays.asList(graphB, graphA) ).close();
+                }
+            }));
+
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                final Future<Integer> writer = executor.submit( new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        storage.store( graphB, createBatch(0, 1) );
+                        return 0;
+                    }
+                });
+                try {
+                    writer.get(10, TimeUnit.SECONDS);
+                } catch (TimeoutException te) {
+                    Assert.fail("Deadlock between readers and writers.");
+                }
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            held.close();
+            for(Thread thread : threads) {
+                thread.join(10000);
+            }
+        }
+    }
+
+    private Thread startAndAwaitBlocked(Runnable runnable) throws InterruptedException {
+        final Thread thread = new Thread(runnable);
+        thread.start();
+        final long deadline = System.currentTimeMillis() + 10000;
+        while(thread.getState() != Thread.State.WAITING) {
+            if(System.currentTimeMillis() > deadline) {
+                Assert.fail("Thread not blocked on the graph lock.");
+            }
+            Thread.sleep(10);
+        }
+        return thread;
+    }
+
+    private TripleSet createBatch(int thread, int batch) {
+        final TripleBuffer tb = new TripleBuffer();
+        for(int i = 0; i < BATCH_SIZE; i++) {
+            tb.addTriple( String.format("http://s/%d/%d/%d", thread, batch, i), "http://p", "http://o" );
+        }
+        return tb;
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.sindice.rdfcommons.storage;
+
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.model.TripleSet;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test case for the {@link WriteBehindTripleStorage} class.
+ *
+ * @author Michele Mostarda ( mostarda@fbk.eu )
+ * @version $Id$
+ */
+public class WriteBehindTripleStorageTestCase {
+
+    @Test
+    public void testCoalescing() throws Exception {
+        final BlockingStorage delegate = new BlockingStorage();
+        final WriteBehindTripleStorage storage = new WriteBehindTripleStorage(
+                delegate, 1, 16, 16, WriteBehindTripleStorage.Backpressure.BLOCK
+        );
+        storage.store( triples("http://s1") );
+        Assert.assertTrue( delegate.started.await(5, TimeUnit.SECONDS) );
+
+        // Queued while the first batch is being applied, coalesced into a single batch.
+        storage.store( triples("http://s2", "http://s3") );
+        storage.remove( triples("http://s2") );
+        storage.store( "http://g", triples("http://s4") );
+        Assert.assertEquals(storage.getPendingCount(), 4);
+        Assert.assertFalse( storage.flush(50) );
+
+        delegate.release.countDown();
+        storage.flush();
+        Assert.assertEquals(storage.getPendingCount(), 0);
+        Assert.assertEquals(storage.getBatchCount(), 2);
+        Assert.assertEquals(storage.getCoalescedCount(), 1);
+        final TripleSet stored = delegate.getTriples( AllTriplesStorageFilter.getInstance() );
+        Assert.assertEquals(stored.getSize(), 2);
+        Assert.assertTrue( stored.containsTriple( "http://s1", "http://p", "http://o", Triple.SubjectType.uri, Triple.ObjectType.uri ) );
+        Assert.assertTrue( stored.containsTriple( "http://s3", "http://p", "http://o", Triple.SubjectType.uri, Triple.ObjectType.uri ) );
+        Assert.assertEquals( delegate.getTriples("http://g", AllTriplesStorageFilter.getInstance()).getSize(), 1 );
+        storage.closeStorage();
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        final BlockingStorage delegate = new BlockingStorage();
+        final WriteBehindTripleStorage storage = new WriteBehindTripleStorage(
+                delegate, 1, 1, 16, WriteBehindTripleStorage.Backpressure.FAIL
+        );
+        storage.store( triples("http://s1") );
+        Assert.assertTrue( delegate.started.await(5, TimeUnit.SECONDS) );
+        storage.store( triples("http://s2") );
+        try {
+            storage.store( triples("http://s3") );
+            Assert.fail("Expected exception.");
+        } catch (StorageException se) {
+            Assert.assertEquals( se.getMessage(), "The write queue is full." );
+        }
+        delegate.release.countDown();
+        storage.closeStorage();
+        Assert.assertEquals( delegate.getTriples( AllTriplesStorageFilter.getInstance() ).getSize(), 2 );
+        Assert.assertFalse( storage.isOpen() );
+    }
+
+    @Test
+    public void testFailureReported() throws Exception {
+        final WriteBehindTripleStorage storage = new WriteBehindTripleStorage(
+                new TripleStorageInMemoryImpl() {
+                    @Override
+                    public void store(TripleSet ts) throws StorageException {
+                        throw new StorageException("Store failed.");
+                    }
+                }
+        );
+        storage.store( triples("http://s1") );
+        try {
+            storage.flush();
+            Assert.fail("Expected exception.");
+        } catch (StorageException se) {
+            Assert.assertEquals( se.getCause().getMessage(), "Store failed." );
+        }
+        // The failure is reported once.
+        storage.flush();
+        storage.closeStorage();
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        final TripleStorageInMemoryImpl delegate = new TripleStorageInMemoryImpl();
+        final WriteBehindTripleStorage storage = new WriteBehindTripleStorage(
+                delegate, 2, 8, 4, WriteBehindTripleStorage.Backpressure.BLOCK
+        );
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for(int t = 0; t < 4; t++) {
+            final int thread = t;
+            futures.add( executor.submit( new Callable<Object>() {
+                public Object call() throws StorageException {
+                    for(int i = 0; i < 100; i++) {
+                        final String subject = "http://s" + thread + "_" + i;
+                        storage.store( "http://g" + (i % 3), triples(subject) );
+                        if(i % 2 == 0) {
+                            storage.remove( "http://g" + (i % 3), triples(subject) );
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for(Future<Object> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        storage.flush();
+
+        int stored = 0;
+        for(int g = 0; g < 3; g++) {
+            stored += delegate.getTriples("http://g" + g, AllTriplesStorageFilter.getInstance()).getSize();
+        }
+        Assert.assertEquals(stored, 200);
+        storage.closeStorage();
+    }
+
+    private static TripleSet triples(String... subjects) {
+        final TripleBuffer tb = new TripleBuffer();
+        for(String subject : subjects) {
+            tb.addTriple(subject, "http://p", "http://o");
+        }
+        return tb;
+    }
+
+    /**
+     * Storage holding the first store operation until released.
+     */
+    private static class BlockingStorage extends TripleStorageInMemoryImpl {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void store(TripleSet ts) throws StorageException {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ie) {
+                throw new StorageException("Interrupted.", ie);
+            }
+            super.store(ts);
+        }
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.adapter.sesame;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.sindice.rdfcommons.adapter.sesame.binary.BinaryRDFWriter;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.serialization.ExternalTripleSorter;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * {@link org.openrdf.rio.RDFHandler} forwarding the received statements to a wrapped handler
+ * sorted and optionally deduplicated through an {@link ExternalTripleSorter}, thus
+ * spilling to disk the streams exceeding the memory budget.
+ * The statements are forwarded when {@link #endRDF()} is invoked, namespaces and comments
+ * are forwarded as soon as they are received. Typed literals are kept in their lexical form.
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class SortingRDFHandler implements RDFHandler {
+
+    private final ValueFactory valueFactory = new ValueFactoryImpl();
+
+    private final RDFHandler handler;
+
+    private final ExternalTripleSorter.Order order;
+
+    private final boolean unique;
+
+    private final long memoryBudget;
+
+    private final File tempDir;
+
+    private ExternalTripleSorter sorter;
+
+    /**
+     * Constructor.
+     *
+     * @param handler the handler receiving the sorted statements.
+     * @param order the sort order.
+     * @param unique if <code>true</code> the duplicate statements are dropped.
+     * @param memoryBudget the estimated amount of memory used to buffer statements, in bytes.
+     * @param tempDir the directory of the temporary files, <code>null</code> for the system default.
+     */
+    public SortingRDFHandler(
+            RDFHandler handler, ExternalTripleSorter.Order order, boolean unique, long memoryBudget, File tempDir
+    ) {
+        if(handler == null) {
+            throw new NullPointerException("handler cannot be null.");
+        }
+        if(order == null) {
+            throw new NullPointerException("order cannot be null.");
+        }
+        if(memoryBudget <= 0) {
+            throw new IllegalArgumentException("Invalid memory budget: " + memoryBudget);
+        }
+        this.handler      = handler;
+        this.order        = order;
+        this.unique       = unique;
+        this.memoryBudget = memoryBudget;
+        this.tempDir      = tempDir;
+    }
+
+    /**
+     * Constructor with the default memory budget and temporary directory.
+     *
+     * @param handler the handler receiving the sorted statements.
+     * @param order the sort order.
+     * @param unique if <code>true</code> the duplicate statements are dropped.
+     */
+    public SortingRDFHandler(RDFHandler handler, ExternalTripleSorter.Order order, boolean unique) {
+        this(handler, order, unique, ExternalTripleSorter.DEFAULT_MEMORY_BUDGET, null);
+    }
+
+    public void startRDF() throws RDFHandlerException {
+        if(sorter != null) {
+            throw new IllegalStateException("Parsing already started.");
+        }
+        sorter = new ExternalTripleSorter(order, unique, memoryBudget, tempDir);
+        handler.startRDF();
+    }
+
+    public void endRDF() throws RDFHandlerException {
+        if(sorter == null) {
+            throw new IllegalStateException("Parsing never started.");
+        }
+        try {
+            Triple triple;
+            while( (triple = sorter.readTriple()) != null ) {
+                handler.handleStatement( toStatement(triple) );
+            }
+        } catch (IOException ioe) {
+            throw new RDFHandlerException("Error while merging the sorted statements.", ioe);
+        } finally {
+            closeSorter();
+        }
+        handler.endRDF();
+    }
+
+    public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+        handler.handleNamespace(prefix, uri);
+    }
+
+    public void handleStatement(Statement statement) throws RDFHandlerException {
+        if(sorter == null) {
+            throw new IllegalStateException("Cannot handle statement without start parsing first.");
+        }
+        try {
+            sorter.addTriple( BinaryRDFWriter.toTriple(statement) );
+        } catch (IOException ioe) {
+            closeSorter();
+            throw new RDFHandlerException("Error while spilling the sorted statements.", ioe);
+        }
+    }
+
+    public void handleComment(String comment) throws RDFHandlerException {
+        handler.handleComment(comment);
+    }
+
+    private void closeSorter() throws RDFHandlerException {
+        try {
+            sorter.close();
+        } catch (IOException ioe) {
+            throw new RDFHandlerException("Error while deleting the sorted runs.", ioe);
+        } finally {
+            sorter = null;
+        }
+    }
+
+    private Statement toStatement(Triple triple) {
+        final Resource subject = triple.isSubjectBNode()
+                ? valueFactory.createBNode( triple.getSubject() )
+                : valueFactory.createURI( triple.getSubject() );
+        final URI predicate = valueFactory.createURI( triple.getPredicate() );
+        final Value object;
+        if( triple.isObjectBNode() ) {
+            object = valueFactory.createBNode( triple.getObjectAsString() );
+        } else if( triple.isObjectLiteral() ) {
+            final String datatype = triple.getLiteralDatatype();
+            final String language = triple.getLiteralLanguage();
+            if(datatype != null) {
+                object = valueFactory.createLiteral( triple.getObjectAsString(), valueFactory.createURI(datatype) );
+            } else if(language != null) {
+                object = valueFactory.createLiteral( triple.getObjectAsString(), language );
+            } else {
+                object = valueFactory.createLiteral( triple.getObjectAsString() );
+            }
+        } else {
+            object = valueFactory.createURI( triple.getObjectAsString() );
+        }
+        final String graph = triple.getGraph();
+        return graph == null
+                ? valueFactory.createStatement(subject, predicate, object)
+                : valueFactory.createStatement(subject, predicate, object, valueFactory.createURI(graph));
+    }
+
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.adapter.sesame.binary;
+
+import org.openrdf.rio.RDFFormat;
+
+/**
+ * Defines the binary triple format of
+ * {@link org.sindice.rdfcommons.serialization.BinaryTripleWriter}.
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class BinaryRDF {
+
+    /**
+     * Returns the format associate to the binary triple format.
+     */
+    public static RDFFormat FORMAT =
+               RDFFormat.register("BinaryRDF", "application/x-rdfcommons-binary", "brf", null);
+
+    private BinaryRDF(){}
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.adapter.sesame.binary;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.Value;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.helpers.RDFParserBase;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.serialization.BinaryTripleReader;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * {@link org.openrdf.rio.RDFParser} reading the binary triple format
+ * through a {@link BinaryTripleReader}.
+ * The base <i>URI</i> is ignored since the format contains only absolute <i>URI</i>s.
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class BinaryRDFParser extends RDFParserBase {
+
+    public RDFFormat getRDFFormat() {
+        return BinaryRDF.FORMAT;
+    }
+
+    public void parse(Reader reader, String baseURI) {
+        throw new UnsupportedOperationException("The binary format cannot be read from a character stream.");
+    }
+
+    public synchronized void parse(InputStream is, String baseURI)
+    throws IOException, RDFParseException, RDFHandlerException {
+        if(is == null) {
+            throw new NullPointerException("the input stream cannot be null.");
+        }
+        final BinaryTripleReader reader = new BinaryTripleReader( new BufferedInputStream(is, 64 * 1024) );
+        if(getRDFHandler() != null) {
+            getRDFHandler().startRDF();
+        }
+        try {
+            Triple triple;
+            while( (triple = reader.readTriple()) != null ) {
+                if(getRDFHandler() != null) {
+                    getRDFHandler().handleStatement(
+                            createStatement(
+                                    createSubject(triple),
+                                    createURI( triple.getPredicate() ),
+                                    createObject(triple),
+                                    triple.getGraph() == null ? null : createURI( triple.getGraph() )
+                            )
+                    );
+                }
+            }
+        } finally {
+            clear();
+        }
+        if(getRDFHandler() != null) {
+            getRDFHandler().endRDF();
+        }
+    }
+
+    private Resource createSubject(Triple triple) throws RDFParseException {
+        return triple.isSubjectBNode() ? createBNode( triple.getSubject() ) : createURI( triple.getSubject() );
+    }
+
+    private Value createObject(Triple triple) throws RDFParseException {
+        if( triple.isObjectBNode() ) {
+            return createBNode( triple.getObjectAsString() );
+        }
+        if( ! triple.isObjectLiteral() ) {
+            return createURI( triple.getObjectAsString() );
+        }
+        final String datatype = triple.getLiteralDatatype();
+        return createLiteral(
+                triple.getObjectAsString(),
+                datatype == null ? triple.getLiteralLanguage() : null,
+                datatype == null ? null : createURI(datatype)
+        );
+    }
+
+}
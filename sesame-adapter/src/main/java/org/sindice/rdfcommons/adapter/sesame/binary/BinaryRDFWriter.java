@@ -0,0 +1,145 @@
+/**
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.adapter.sesame.binary;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFWriter;
+import org.sindice.rdfcommons.adapter.DefaultDatatypeLiteral;
+import org.sindice.rdfcommons.adapter.DefaultLanguageLiteral;
+import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleImpl;
+import org.sindice.rdfcommons.serialization.BinaryTripleWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link org.openrdf.rio.RDFWriter} producing the binary triple format
+ * through a {@link BinaryTripleWriter}.
+ * Typed literals are written with their lexical form, namespaces are ignored.
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class BinaryRDFWriter implements RDFWriter {
+
+    /**
+     * The output stream.
+     */
+    private final OutputStream os;
+
+    /**
+     * The triple writer, active between start and end.
+     */
+    private BinaryTripleWriter writer;
+
+    public BinaryRDFWriter(OutputStream os) {
+        if(os == null) {
+            throw new NullPointerException("the output stream cannot be null.");
+        }
+        this.os = os;
+    }
+
+    public RDFFormat getRDFFormat() {
+        return BinaryRDF.FORMAT;
+    }
+
+    public void startRDF() throws RDFHandlerException {
+        if(writer != null) {
+            throw new IllegalStateException("Parsing already started.");
+        }
+        try {
+            writer = new BinaryTripleWriter(os);
+        } catch (IOException ioe) {
+            throw new RDFHandlerException("Error while writing header.", ioe);
+        }
+    }
+
+    public void endRDF() throws RDFHandlerException {
+        if(writer == null) {
+            throw new IllegalStateException("Parsing never started.");
+        }
+        try {
+            writer.finish();
+        } catch (IOException ioe) {
+            throw new RDFHandlerException("Error while flushing writer.", ioe);
+        } finally {
+            writer = null;
+        }
+    }
+
+    public void handleNamespace(String ns, String uri) throws RDFHandlerException {
+        // Empty.
+    }
+
+    public void handleStatement(Statement statement) throws RDFHandlerException {
+        if(writer == null) {
+            throw new IllegalStateException("Cannot handle statement without start parsing first.");
+        }
+        try {
+            writer.writeTriple( toTriple(statement) );
+        } catch (IOException ioe) {
+            throw new RDFHandlerException("An error occurred while writing statement.", ioe);
+        }
+    }
+
+    public void handleComment(String comment) throws RDFHandlerException {
+        // Empty.
+    }
+
+    /**
+     * Converts a statement to a triple keeping the literals in their lexical form.
+     *
+     * @param statement the statement to be converted.
+     * @return the converted triple.
+     */
+    public static Triple toTriple(Statement statement) {
+        final Resource subject = statement.getSubject();
+        final Value    object  = statement.getObject();
+        final Resource context = statement.getContext();
+        final Object value;
+        final Triple.ObjectType objectType;
+        if(object instanceof Literal) {
+            final Literal literal = (Literal) object;
+            if(literal.getDatatype() != null) {
+                value = new DefaultDatatypeLiteral<String>( literal.getDatatype().stringValue(), literal.stringValue() );
+            } else if(literal.getLanguage() != null) {
+                value = new DefaultLanguageLiteral( literal.stringValue(), literal.getLanguage() );
+            } else {
+                value = literal.stringValue();
+            }
+            objectType = Triple.ObjectType.literal;
+        } else {
+            value = object.stringValue();
+            objectType = object instanceof BNode ? Triple.ObjectType.bnode : Triple.ObjectType.uri;
+        }
+        return new TripleImpl<Object>(
+                subject.stringValue(),
+                statement.getPredicate().stringValue(),
+                value,
+                subject instanceof BNode ? Triple.SubjectType.bnode : Triple.SubjectType.uri,
+                objectType,
+                context == null ? null : context.stringValue()
+        );
+    }
+
+}
@@ -32,21 +32,43 @@ import org.openrdf.rio.RDFParseException;
 import org.openrdf.rio.helpers.RDFParserBase;
 import org.sindice.rdfcommons.util.ReaderInputStream;
 
-import java.io.BufferedInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 
 /**
  * <i>N-Quads</i> parser implementation based on the
  * {@link org.openrdf.rio.RDFParser} interface.
  * See the format specification <a href="http://sw.deri.org/2008/07/n-quads/">here</a>.
+ * <p>
+ * The input is read in large blocks through a {@link ReadableByteChannel}, using the file channel
+ * when parsing a {@link FileInputStream}. Every complete line is tokenized in place on the block bytes
+ * and only the term contents are decoded from <i>UTF-8</i>. The location listener is notified once
+ * per line.
+ * </p>
  *
  * @author Michele Mostarda (mostarda@fbk.eu)
  * @see org.openrdf.rio.RDFParser
  */
 public class NQuadsParser extends RDFParserBase {
 
+    /**
+     * Default size of the read blocks.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Initial size of the read blocks, a block grows to contain lines longer than it.
+     */
+    private final int bufferSize;
+
     /**
      * Location listener acquired when parsing started.
      */
@@ -58,11 +80,42 @@ public class NQuadsParser extends RDFParserBase {
     private RDFHandler rdfHandler;
 
     /**
-     * Current row, col and marker trackers.
+     * Input channel and current block.
+     */
+    private ReadableByteChannel channel;
+    private byte[] buffer;
+
+    /**
+     * Start of the unparsed data, end of the valid data in the block and end of stream flag.
      */
-    private int row, col, mark;
+    private int start, limit;
+    private boolean eos;
 
-    public NQuadsParser() {}
+    /**
+     * Current row, start, end and cursor within the parsed line.
+     */
+    private int row, lineStart, lineEnd, pos;
+
+    /**
+     * <code>true</code> if the parsed line is the last one of the stream.
+     */
+    private boolean lastLine;
+
+    /**
+     * Constructor.
+     *
+     * @param bufferSize the initial size of the read blocks.
+     */
+    public NQuadsParser(int bufferSize) {
+        if(bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be greater than zero.");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    public NQuadsParser() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
 
     public RDFFormat getRDFFormat() {
         return NQuads.FORMAT;
@@ -70,7 +123,7 @@ public class NQuadsParser extends RDFParserBase {
 
     public void parse(Reader reader, String s)
     throws IOException, RDFParseException, RDFHandlerException {
-        ReaderInputStream readerInputStream = new ReaderInputStream(reader);
+        ReaderInputStream readerInputStream = new ReaderInputStream(reader, UTF8.name());
         parse(readerInputStream, s);
     }
 
@@ -84,223 +137,310 @@ public class NQuadsParser extends RDFParserBase {
         }
 
         try {
-            row = col = 1;
+            row = 0;
+            start = limit = 0;
+            eos = false;
+            buffer  = new byte[bufferSize];
+            channel = is instanceof FileInputStream ? ((FileInputStream) is).getChannel() : Channels.newChannel(is);
 
             locationListener = getParseLocationListener();
             rdfHandler = getRDFHandler();
 
             setBaseURI(baseURI);
 
-            BufferedInputStream bis = new BufferedInputStream(is);
             if( rdfHandler != null ) {
                 rdfHandler.startRDF();
             }
-            while( parseLine(bis) ) {
-                nextRow();
-            }
+            parseLines();
         } finally {
             if(rdfHandler != null) {
                 rdfHandler.endRDF();
             }
+            buffer  = null;
+            channel = null;
             clear();
             clearBNodeIDMap();
         }
     }
 
     /**
-     * Moves to the next row, resets the column.
+     * Parses all the lines of the input channel.
+     *
+     * @throws IOException
+     * @throws RDFParseException
+     * @throws RDFHandlerException
      */
-    private void nextRow() {
-        col = 0;
-        row++;
-        if(locationListener != null) {
-            locationListener.parseLocationUpdate(row, col);
+    private void parseLines() throws IOException, RDFParseException, RDFHandlerException {
+        int scan = start;
+        while(true) {
+            final int newLine = indexOf( (byte) '\n', scan, limit );
+            if(newLine != -1) {
+                parseLine(start, newLine, false);
+                start = scan = newLine + 1;
+                continue;
+            }
+            if(eos) {
+                if(start < limit) {
+                    parseLine(start, limit, true);
+                }
+                return;
+            }
+            final int scanned = limit - start;
+            fill();
+            scan = start + scanned;
         }
     }
 
     /**
-     * Moves to the next column.
+     * Reads the next block, preserving the unparsed data and growing the block if it is full.
+     *
+     * @throws IOException
      */
-    private void nextCol() {
-        col++;
-        if(locationListener != null) {
-            locationListener.parseLocationUpdate(row, col);
+    private void fill() throws IOException {
+        if(start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            limit -= start;
+            start  = 0;
+        }
+        if(limit == buffer.length) {
+            final byte[] larger = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, larger, 0, limit);
+            buffer = larger;
+        }
+        final int read = channel.read( ByteBuffer.wrap(buffer, limit, buffer.length - limit) );
+        if(read == -1) {
+            eos = true;
+        } else {
+            limit += read;
         }
     }
 
     /**
-     * Reads the next char.
+     * Parsers an <i>NQuads</i> line.
      *
-     * @param bis
-     * @return the next read char.
+     * @param from the first byte of the line.
+     * @param to the end of the line, exclusive of the line terminator.
+     * @param last <code>true</code> if the line is the last of the stream.
      * @throws IOException
+     * @throws RDFParseException
+     * @throws RDFHandlerException
      */
-    private char readChar(BufferedInputStream bis) throws IOException {
-        final int c = bis.read();
-        if(c == -1) {
-            throw new EOS();
+    private void parseLine(int from, int to, boolean last)
+    throws IOException, RDFParseException, RDFHandlerException {
+        row++;
+        lineStart = pos = from;
+        lineEnd   = to;
+        lastLine  = last;
+
+        // Consumes empty line or line comment.
+        consumeSpaces();
+        if(pos == lineEnd || buffer[pos] == '#') {
+            notifyLocation();
+            return;
+        }
+
+        Resource sub = parseSubject();
+        consumeSpaces();
+        URI pred = parseURI();
+        consumeSpaces();
+        Value obj = parseObject();
+        consumeSpaces();
+        URI graph = parseURI();
+        consumeSpaces();
+        assertChar('.');
+        consumeSpaces();
+        if(pos < lineEnd && buffer[pos] != '#') {
+            throw fatalError("Unexpected content after the end of the statement.");
         }
-        nextCol();
-        return (char) c;
+
+        notifyLocation();
+        notifyStatement(sub, pred, obj, graph);
     }
 
     /**
-     * Marks the buffered input stream with the current location.
-     *
-     * @param bis
+     * Notifies the location at the end of the current line.
      */
-    private void mark(BufferedInputStream bis) {
-        mark = col;
-        bis.mark(Integer.MAX_VALUE);
+    private void notifyLocation() {
+        if(locationListener != null) {
+            locationListener.parseLocationUpdate( row, column(lineEnd) - 1 );
+        }
     }
 
     /**
-     * Resets the buffered input stream and update the new location.
+     * Computes the column of a position within the current line, counting <i>UTF-8</i> characters.
      *
-     * @param bis
-     * @throws IOException
+     * @param position position within the current line.
+     * @return the column starting from 1.
      */
-    private void reset(BufferedInputStream bis) throws IOException {
-        col = mark;
-        bis.reset();
-        if(locationListener != null) {
-            locationListener.parseLocationUpdate(row, col);
+    private int column(int position) {
+        int column = 1;
+        for(int i = lineStart; i < position && i < lineEnd; i++) {
+            if( (buffer[i] & 0xC0) != 0x80 ) {
+                column++;
+            }
         }
+        return column;
     }
 
     /**
-     * Asserts to read a specific char.
+     * Returns the position of a byte.
      *
-     * @param bis
-     * @param c
-     * @throws IOException
+     * @param b the byte to look for.
+     * @param from the start of the search.
+     * @param to the end of the search, exclusive.
+     * @return the position or <code>-1</code> if not found.
      */
-    private void assertChar(BufferedInputStream bis, char c) throws IOException {
-        if( readChar(bis) != c) {
-            throw new IllegalArgumentException(
-                    String.format("Unexpected char at location %s %s, expected '%s'", row, col, c)
-            );
+    private int indexOf(byte b, int from, int to) {
+        final byte[] bytes = buffer;
+        for(int i = from; i < to; i++) {
+            if(bytes[i] == b) {
+                return i;
+            }
         }
+        return -1;
     }
 
     /**
-     * Parsers an <i>NQuads</i> line.
+     * Returns the position of the first space or <i>&lt;</i> of the current line.
      *
-     * @param bis input stream containing NQuads.
-     * @return <code>false</code> if the parsing completed, <code>true</code> otherwise.
-     * @throws IOException
-     * @throws RDFParseException
-     * @throws RDFHandlerException
+     * @param from the start of the search.
+     * @return the position, the line end if not found.
      */
-    private boolean parseLine(BufferedInputStream bis)
-    throws IOException, RDFParseException, RDFHandlerException {
-
-        // Consumes initial spaces.
-        if( ! consumeSpacesAndNotEOS(bis) ) {
-            return false;
+    private int indexOfTermEnd(int from) {
+        final byte[] bytes = buffer;
+        int i = from;
+        while(i < lineEnd && bytes[i] != '<' && ! isSpace(bytes[i])) {
+            i++;
         }
+        return i;
+    }
 
-        // Consumes empty line or line comment.
-        try {
-            if(consumeEmptyLine(bis)) return true;
-            if( consumeComment(bis) ) return true;
-        } catch (EOS eos) {
-            return false;
-        }
-
-        Resource sub = parseSubject(bis);
-        consumeSpaces(bis);
-        URI pred = parsePredicate(bis);
-        consumeSpaces(bis);
-        Value obj = parseObject(bis);
-        consumeSpaces(bis);
-        URI graph = parseGraph(bis);
-        consumeSpaces(bis);
-        parseDot(bis);
-
-        notifyStatement(sub, pred, obj, graph);
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\r' || b == '\f' || b == '\t';
+    }
 
-        if(!consumeSpacesAndNotEOS(bis)) {
-            return false;
+    /**
+     * Consumes spaces until a non space char or the line end is detected.
+     */
+    private void consumeSpaces() {
+        while(pos < lineEnd && isSpace(buffer[pos])) {
+            pos++;
         }
-        return readChar(bis) == '\n';
     }
 
     /**
-     * Consumes spaces until a non space char is detected.
+     * Asserts to read a specific char.
      *
-     * @param bis input NQuads stream.
+     * @param c
      * @throws IOException
+     * @throws RDFParseException
      */
-    private void consumeSpaces(BufferedInputStream bis) throws IOException {
-        char c;
-        while(true) {
-            mark(bis);
-            c = readChar(bis);
-            if(c == ' ' || c == '\r' || c == '\f' || c == '\t') {
-                mark(bis);
-            } else {
-                break;
-            }
+    private void assertChar(char c) throws IOException, RDFParseException {
+        if(pos >= lineEnd) {
+            throw unexpectedEndOfLine();
+        }
+        if(buffer[pos] != c) {
+            throw fatalError( String.format("Unexpected char, expected '%s'", c) );
         }
-        reset(bis);
+        pos++;
     }
 
     /**
-     * Consumes all subsequent spaces and returns true, if End Of Stream is reached instead returns false.
+     * Decodes the <i>UTF-8</i> content of a term, with a fast path for <i>ASCII</i> content.
      *
-     * @param bis input NQuads stream.
-     * @return <code>true</code> if there are other chars to be consumed.
-     * @throws IOException if an error occurs while consuming stream.
+     * @param from the first byte.
+     * @param to the last byte, exclusive.
+     * @return the decoded string.
      */
-    private boolean consumeSpacesAndNotEOS(BufferedInputStream bis) throws IOException {
-        try {
-            consumeSpaces(bis);
-            return true;
-        } catch (EOS eos) {
-            return false;
+    private String decode(int from, int to) {
+        final byte[] bytes = buffer;
+        final char[] chars = new char[to - from];
+        for(int i = from; i < to; i++) {
+            final byte b = bytes[i];
+            if(b < 0) {
+                return new String(bytes, from, to - from, UTF8);
+            }
+            chars[i - from] = (char) b;
         }
+        return new String(chars);
     }
 
     /**
-     * Consumes the line if empty (contains just a carriage return).
+     * Processes the escape sequences of a literal value.
      *
-     * @param bis input NQuads stream.
-     * @return <code>true</code> if the line is empty.
-     * @throws IOException if an error occurs while consuming stream.
-     */
-    private boolean consumeEmptyLine(BufferedInputStream bis) throws IOException {
-        char c;
-        mark(bis);
-        c = readChar(bis);
-        if (c == '\n') {
-            return true;
-        } else {
-            reset(bis);
-            return false;
+     * @param value the escaped value.
+     * @return the unescaped value.
+     * @throws RDFParseException
+     */
+    private String unescape(String value) throws RDFParseException {
+        final StringBuilder sb = new StringBuilder( value.length() );
+        for(int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if(c != '\\' || i == value.length() - 1) {
+                sb.append(c);
+                continue;
+            }
+            final char escaped = value.charAt(++i);
+            switch (escaped) {
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                case 'U':
+                    final int digits = escaped == 'u' ? 4 : 8;
+                    if(i + digits >= value.length()) {
+                        throw fatalError( String.format("Invalid unicode escape in literal '%s'", value) );
+                    }
+                    try {
+                        sb.appendCodePoint( Integer.parseInt( value.substring(i + 1, i + 1 + digits), 16 ) );
+                    } catch (IllegalArgumentException iae) {
+                        throw fatalError( String.format("Invalid unicode escape in literal '%s'", value) );
+                    }
+                    i += digits;
+                    break;
+                default:
+                    sb.append(escaped);
+            }
         }
+        return sb.toString();
     }
 
     /**
-     * Consumes a comment if any.
+     * Reports a fatal error at the current location.
      *
-     * @param bis input NQuads stream.
-     * @return <code>true</code> if comment has been consumed, false otherwise.
-     * @throws IOException
+     * @param msg the error message.
+     * @return the exception to be thrown.
+     * @throws RDFParseException
      */
-    private boolean consumeComment(BufferedInputStream bis) throws IOException {
-        char c;
-        mark(bis);
-        c = readChar(bis);
-        if (c == '#') {
-            mark(bis);
-            while (readChar(bis) != '\n');
-            mark(bis);
-            return true;
-        } else {
-            reset(bis);
-            return false;
+    private RDFParseException fatalError(String msg) throws RDFParseException {
+        final int col = column(pos);
+        reportFatalError(msg, row, col);
+        return new RDFParseException(msg, row, col);
+    }
+
+    /**
+     * Reports a line ended before the end of the statement.
+     *
+     * @return the exception to be thrown.
+     * @throws RDFParseException
+     */
+    private IOException unexpectedEndOfLine() throws RDFParseException {
+        if(lastLine) {
+            return new EOS();
         }
+        throw fatalError("Unexpected end of line.");
     }
 
     /**
@@ -326,49 +466,33 @@ public class NQuadsParser extends RDFParserBase {
         }
     }
 
-    /**
-     * Consumes the dot at the end of NQuads line.
-     *
-     * @param bis
-     * @throws IOException
-     */
-    private void parseDot(BufferedInputStream bis) throws IOException {
-        assertChar(bis, '.');
-    }
-
     /**
      * Parses a URI enclosed within &lt; and &gt; brackets.
-     * @param bis
+     *
      * @return the parsed URI.
      * @throws IOException
      * @throws RDFParseException
      */
-    private URI parseURI(BufferedInputStream bis) throws IOException, RDFParseException {
-        assertChar(bis, '<');
-
-        StringBuilder sb = new StringBuilder();
-        char c;
-        while(true) {
-            c = readChar(bis);
-            if(c != '>') {
-                sb.append(c);
-            } else {
-                break;
-            }
+    private URI parseURI() throws IOException, RDFParseException {
+        assertChar('<');
+        final int end = indexOf( (byte) '>', pos, lineEnd );
+        if(end == -1) {
+            pos = lineEnd;
+            throw unexpectedEndOfLine();
         }
-        mark(bis);
+        final String uriStr = decode(pos, end);
+        pos = end + 1;
 
         try {
-            String uriStr = sb.toString();
             URI uri;
-            if(uriStr.charAt(0) == '#') {
+            if(uriStr.length() > 0 && uriStr.charAt(0) == '#') {
                 uri = resolveURI(uriStr);
             } else {
                 uri = createURI(uriStr);
             }
             return uri;
         } catch (RDFParseException rdfpe) {
-            reportFatalError(rdfpe, row, col);
+            reportFatalError(rdfpe, row, column(pos));
             throw rdfpe;
         }
     }
@@ -376,32 +500,21 @@ public class NQuadsParser extends RDFParserBase {
     /**
      * Parses a BNode.
      *
-     * @param bis the buffered input stream.
      * @return the generated bnode.
      * @throws IOException
      * @throws RDFParseException
      */
-    private BNode parseBNode(BufferedInputStream bis) throws IOException, RDFParseException {
-        assertChar(bis, '_');
-        assertChar(bis, ':');
-
-        char c;
-        StringBuilder sb = new StringBuilder();
-        while(true) {
-            c = readChar(bis);
-            if(c != ' ' && c != '<') {
-                sb.append(c);
-                mark(bis);
-            } else {
-                break;
-            }
-        }
-        reset(bis);
+    private BNode parseBNode() throws IOException, RDFParseException {
+        assertChar('_');
+        assertChar(':');
+        final int end = indexOfTermEnd(pos);
+        final String id = decode(pos, end);
+        pos = end;
 
         try {
-            return createBNode( sb.toString() );
+            return createBNode(id);
         } catch (RDFParseException rdfpe) {
-            reportFatalError(rdfpe, row, col);
+            reportFatalError(rdfpe, row, column(pos));
             throw rdfpe;
         }
     }
@@ -409,46 +522,35 @@ public class NQuadsParser extends RDFParserBase {
     /**
      * Parses a literal attribute that can be either the language or the data type.
      *
-     * @param bis
-     * @return the literal attribute.
+     * @return the literal attribute or <code>null</code> if not specified.
      * @throws IOException
+     * @throws RDFParseException
      */
-    private LiteralAttribute parseLiteralAttribute(BufferedInputStream bis) throws IOException {
-        char c = readChar(bis);
-        if(c != '^' && c != '@') {
-            reset(bis);
+    private LiteralAttribute parseLiteralAttribute() throws IOException, RDFParseException {
+        if(pos >= lineEnd || (buffer[pos] != '^' && buffer[pos] != '@')) {
             return null;
         }
 
-        boolean isLang = true;
-        if(c == '^') {
-            isLang = false;
-            assertChar(bis, '^');
-        }
-
-        // Consuming eventual open URI.
-        mark(bis);
-        c = readChar(bis);
-        if(c != '<') {
-            reset(bis);
-        }
-
-        StringBuilder sb = new StringBuilder();
-        while(true) {
-            c = readChar(bis);
-            if(c == '>') {
-                mark(bis);
-                continue;
-            }
-            if(c != ' ' && c != '<') {
-                mark(bis);
-                sb.append(c);
-            } else {
-                break;
+        final boolean isLang = buffer[pos] == '@';
+        pos++;
+        if( ! isLang ) {
+            assertChar('^');
+            if(pos < lineEnd && buffer[pos] == '<') {
+                pos++;
+                final int end = indexOf( (byte) '>', pos, lineEnd );
+                if(end == -1) {
+                    pos = lineEnd;
+                    throw unexpectedEndOfLine();
+                }
+                final String datatype = decode(pos, end);
+                pos = end + 1;
+                return new LiteralAttribute(false, datatype);
             }
         }
-        reset(bis);
-        return new LiteralAttribute( isLang, sb.toString() );
+        final int end = indexOfTermEnd(pos);
+        final String value = decode(pos, end);
+        pos = end;
+        return new LiteralAttribute(isLang, value);
     }
 
     /**
@@ -468,12 +570,12 @@ public class NQuadsParser extends RDFParserBase {
 
         if ( dh.equals(DatatypeHandling.VERIFY) ) {
             if( ! XMLDatatypeUtil.isBuiltInDatatype(datatype)){
-                throw new RDFParseException( String.format("Unsupported datatype %s", datatype), row, col);
+                throw new RDFParseException( String.format("Unsupported datatype %s", datatype), row, column(pos));
             }
             if( ! XMLDatatypeUtil.isValidValue(value, datatype) ) {
                 throw new RDFParseException(
                         String.format("Illegal literal value '%s' with datatype %s", value, datatype.stringValue() ),
-                        row, col
+                        row, column(pos)
                 );
             }
             return value;
@@ -487,43 +589,32 @@ public class NQuadsParser extends RDFParserBase {
     /**
      * Parses a literal.
      *
-     * @param bis
      * @return the parsed literal.
      * @throws IOException
      * @throws RDFParseException
      */
-    private Value parseLiteral(BufferedInputStream bis) throws IOException, RDFParseException {
-        assertChar(bis, '"');
+    private Value parseLiteral() throws IOException, RDFParseException {
+        assertChar('"');
 
-        char c;
+        final byte[] bytes = buffer;
         boolean escaped = false;
-        boolean justEscaped = false;
-        StringBuilder sb = new StringBuilder();
-        while(true) {
-            c = readChar(bis);
-            if( !escaped && c == '\\' ) {
+        int end = pos;
+        while(end < lineEnd && bytes[end] != '"') {
+            if(bytes[end] == '\\') {
                 escaped = true;
-                continue;
-            } else if(escaped) {
-                escaped = false;
-                justEscaped = true;
-                sb.append(c);
-            }
-            if(justEscaped) {
-                justEscaped = false;
-                continue;
-            }
-            if(c != '"') {
-                sb.append(c);
-            } else {
-                break;
+                end++;
             }
+            end++;
         }
-        mark(bis);
+        if(end >= lineEnd) {
+            pos = lineEnd;
+            throw unexpectedEndOfLine();
+        }
+        final String value = escaped ? unescape( decode(pos, end) ) : decode(pos, end);
+        pos = end + 1;
 
-        LiteralAttribute lt = parseLiteralAttribute(bis);
+        LiteralAttribute lt = parseLiteralAttribute();
 
-        final String value = sb.toString();
         if(lt == null) {
             return createLiteral(value, null, null);
         }else if(lt.isLang) {
@@ -537,7 +628,7 @@ public class NQuadsParser extends RDFParserBase {
             try {
                 literalType = new URIImpl(lt.value);
             } catch (Exception e) {
-                reportError( String.format("Error while parsing literal type '%s'", lt.value), row, col );
+                reportError( String.format("Error while parsing literal type '%s'", lt.value), row, column(pos) );
             }
             return createLiteral(
                     validateAndNormalizeLiteral(value, literalType),
@@ -550,52 +641,36 @@ public class NQuadsParser extends RDFParserBase {
     /**
      * Parses the subject sequence.
      *
-     * @param bis
      * @return the corresponding URI object.
      * @throws IOException
      * @throws RDFParseException
      */
-    private Resource parseSubject(BufferedInputStream bis) throws IOException, RDFParseException {
-        mark(bis);
-        char c = readChar(bis);
-        reset(bis);
-        if( c == '<' ) {
-            return parseURI(bis);
+    private Resource parseSubject() throws IOException, RDFParseException {
+        if( buffer[pos] == '<' ) {
+            return parseURI();
         } else {
-            return parseBNode(bis);
+            return parseBNode();
         }
     }
 
-    /**
-     * Parses the predicate URI.
-     *
-     * @param bis
-     * @return the corresponding URI object.
-     * @throws IOException
-     * @throws RDFParseException
-     */
-    private URI parsePredicate(BufferedInputStream bis) throws IOException, RDFParseException {
-        return parseURI(bis);
-    }
-
     /**
      * Parses the the object sequence.
      *
-     * @param bis
      * @return the corresponding URI object.
      * @throws IOException
      * @throws RDFParseException
      */
-    private Value parseObject(BufferedInputStream bis) throws IOException, RDFParseException {
-        mark(bis);
-        char c = readChar(bis);
-        reset(bis);
+    private Value parseObject() throws IOException, RDFParseException {
+        if(pos >= lineEnd) {
+            throw unexpectedEndOfLine();
+        }
+        final byte c = buffer[pos];
         if( c == '<' ) {
-            return parseURI(bis);
+            return parseURI();
         } else if( c == '_') {
-            return parseBNode(bis);
+            return parseBNode();
         } else {
-            return parseLiteral(bis);
+            return parseLiteral();
         }
     }
 
@@ -612,18 +687,6 @@ public class NQuadsParser extends RDFParserBase {
         }
     }
 
-    /**
-     * Parses the graph URI.
-     *
-     * @param bis
-     * @return the corresponding URI object.
-     * @throws IOException
-     * @throws RDFParseException
-     */
-    private URI parseGraph(BufferedInputStream bis) throws IOException, RDFParseException {
-        return parseURI(bis);
-    }
-
     /**
      * Defines the End Of Stream exception.
      */
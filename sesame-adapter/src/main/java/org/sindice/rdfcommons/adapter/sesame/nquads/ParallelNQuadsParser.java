@@ -0,0 +1,431 @@
+/**
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.sindice.rdfcommons.adapter.sesame.nquads;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Statement;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Parses an <i>N-Quads</i> file on many threads.
+ * <p>
+ * The file is split at line boundaries into chunks of about {@link #getChunkSize()} bytes that are
+ * parsed concurrently by {@link NQuadsParser}s reading the file with positional reads. The statements
+ * of every chunk are notified to the {@link RDFHandler} from the calling thread, so the handler doesn't
+ * need to be thread safe, either in file order or in chunk completion order.
+ * The chunks pass their statements to the calling thread in batches of {@link #BATCH_SIZE}, and a chunk
+ * stops parsing when {@link #BATCHES_AHEAD} of its batches are waiting to be notified, so the memory used
+ * doesn't depend on the chunk size.
+ * </p>
+ * <p>
+ * A blank node label identifies the same blank node in all the chunks of a file, as it happens
+ * with the sequential parser: the blank node identifier is the label prefixed by a random salt
+ * chosen at every parse, so no state is shared among the chunks and the blank nodes of different
+ * parses never clash. The rows of the reported parse errors are relative to the chunk.
+ * </p>
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class ParallelNQuadsParser {
+
+    /**
+     * Default size of the chunks.
+     */
+    public static final long DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Number of statements passed at once from a chunk to the handler.
+     */
+    public static final int BATCH_SIZE = 1024;
+
+    /**
+     * Maximum number of batches of a chunk waiting to be notified to the handler.
+     */
+    public static final int BATCHES_AHEAD = 4;
+
+    private static final Random SALTS = new Random();
+
+    private final int threads;
+
+    private final long chunkSize;
+
+    private final boolean ordered;
+
+    private RDFParser.DatatypeHandling datatypeHandling = RDFParser.DatatypeHandling.VERIFY;
+
+    private boolean stopAtFirstError = true;
+
+    /**
+     * Constructor.
+     *
+     * @param threads number of parsing threads.
+     * @param chunkSize approximate size in bytes of the chunks.
+     * @param ordered if <code>true</code> the statements are notified in file order,
+     *        otherwise as soon as their chunk has been parsed.
+     */
+    public ParallelNQuadsParser(int threads, long chunkSize, boolean ordered) {
+        if(threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than zero.");
+        }
+        if(chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be greater than zero.");
+        }
+        this.threads   = threads;
+        this.chunkSize = chunkSize;
+        this.ordered   = ordered;
+    }
+
+    /**
+     * Constructor, the statements are notified in file order.
+     *
+     * @param threads number of parsing threads.
+     */
+    public ParallelNQuadsParser(int threads) {
+        this(threads, DEFAULT_CHUNK_SIZE, true);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public RDFParser.DatatypeHandling getDatatypeHandling() {
+        return datatypeHandling;
+    }
+
+    public void setDatatypeHandling(RDFParser.DatatypeHandling datatypeHandling) {
+        if(datatypeHandling == null) {
+            throw new NullPointerException("datatypeHandling cannot be null.");
+        }
+        this.datatypeHandling = datatypeHandling;
+    }
+
+    public boolean isStopAtFirstError() {
+        return stopAtFirstError;
+    }
+
+    public void setStopAtFirstError(boolean stopAtFirstError) {
+        this.stopAtFirstError = stopAtFirstError;
+    }
+
+    /**
+     * Parses a file notifying the statements to a handler.
+     *
+     * @param file the <i>N-Quads</i> file.
+     * @param baseURI the base URI.
+     * @param handler the handler receiving the statements.
+     * @throws IOException if an error occurs while reading the file.
+     * @throws RDFParseException if the file is not valid.
+     * @throws RDFHandlerException if the handler fails.
+     */
+    public void parse(File file, String baseURI, RDFHandler handler)
+    throws IOException, RDFParseException, RDFHandlerException {
+        if(file == null) {
+            throw new NullPointerException("file cannot be null.");
+        }
+        if(baseURI == null) {
+            throw new NullPointerException("baseURI cannot be null.");
+        }
+        if(handler == null) {
+            throw new NullPointerException("handler cannot be null.");
+        }
+
+        final FileInputStream fis = new FileInputStream(file);
+        // The chunks are independent and of about the same size, so the work stealing of a fork/join
+        // pool wouldn't balance them better, while the chunk tasks block on file reads and on the
+        // batch queues, which fork/join tasks are not supposed to do.
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final FileChannel channel = fis.getChannel();
+            final List<long[]> chunks = split(channel);
+            final String salt = String.format("%016x", SALTS.nextLong());
+            final BlockingQueue<Batch> shared =
+                    ordered ? null : new ArrayBlockingQueue<Batch>(threads * BATCHES_AHEAD);
+            final LinkedList<ChunkTask> pending = new LinkedList<ChunkTask>();
+
+            handler.startRDF();
+            try {
+                int next = 0;
+                while(next < chunks.size() || ! pending.isEmpty()) {
+                    while(next < chunks.size() && pending.size() < threads * 2) {
+                        final BlockingQueue<Batch> batches =
+                                ordered ? new ArrayBlockingQueue<Batch>(BATCHES_AHEAD) : shared;
+                        final ChunkTask task = new ChunkTask(channel, chunks.get(next++), baseURI, salt, batches);
+                        executor.execute(task);
+                        pending.add(task);
+                    }
+                    final Batch batch = take( ordered ? pending.getFirst().batches : shared );
+                    if(batch.statements == null) {
+                        pending.remove(batch.task);
+                        rethrow(batch.task.error);
+                        continue;
+                    }
+                    for(Statement statement : batch.statements) {
+                        handler.handleStatement(statement);
+                    }
+                }
+            } finally {
+                handler.endRDF();
+            }
+        } finally {
+            executor.shutdownNow();
+            fis.close();
+        }
+    }
+
+    /**
+     * Splits a file at the line boundaries.
+     *
+     * @param channel the file channel.
+     * @return the list of <code>{start, end}</code> byte ranges.
+     * @throws IOException
+     */
+    private List<long[]> split(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final List<long[]> chunks = new ArrayList<long[]>();
+        final ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+        long start = 0;
+        while(start < size) {
+            long end = start + chunkSize;
+            if(end >= size) {
+                end = size;
+            } else {
+                end = nextLine(channel, end, size, buffer);
+            }
+            chunks.add( new long[]{start, end} );
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Finds the start of the line following a position.
+     *
+     * @return the position after the next new line, the file size if there are no more lines.
+     */
+    private static long nextLine(FileChannel channel, long position, long size, ByteBuffer buffer)
+    throws IOException {
+        while(position < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if(read == -1) {
+                break;
+            }
+            final byte[] bytes = buffer.array();
+            for(int i = 0; i < read; i++) {
+                if(bytes[i] == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static Batch take(BlockingQueue<Batch> batches) throws InterruptedIOException {
+        try {
+            return batches.take();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing.");
+        }
+    }
+
+    /**
+     * Rethrows the error occurred while parsing a chunk, if any.
+     */
+    private static void rethrow(Throwable cause) throws IOException, RDFParseException, RDFHandlerException {
+        if(cause == null) {
+            return;
+        }
+        if(cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if(cause instanceof RDFParseException) {
+            throw (RDFParseException) cause;
+        }
+        if(cause instanceof RDFHandlerException) {
+            throw (RDFHandlerException) cause;
+        }
+        if(cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if(cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new RuntimeException("Error while parsing chunk.", cause);
+    }
+
+    /**
+     * Statements of a chunk to be notified to the handler,
+     * <code>null</code> statements mark the end of the chunk.
+     */
+    private static class Batch {
+
+        final ChunkTask task;
+        final List<Statement> statements;
+
+        Batch(ChunkTask task, List<Statement> statements) {
+            this.task       = task;
+            this.statements = statements;
+        }
+    }
+
+    /**
+     * Parses a chunk of the file, putting its statements into a queue.
+     */
+    private class ChunkTask implements Runnable {
+
+        private final FileChannel channel;
+        private final long[] chunk;
+        private final String baseURI;
+        private final String salt;
+        private final BlockingQueue<Batch> batches;
+
+        private final ValueFactory valueFactory = new ValueFactoryImpl();
+
+        private List<Statement> statements = new ArrayList<Statement>(BATCH_SIZE);
+
+        /**
+         * Error occurred while parsing, read by the calling thread after the end of the chunk.
+         */
+        private volatile Throwable error;
+
+        ChunkTask(FileChannel channel, long[] chunk, String baseURI, String salt, BlockingQueue<Batch> batches) {
+            this.channel = channel;
+            this.chunk   = chunk;
+            this.baseURI = baseURI;
+            this.salt    = salt;
+            this.batches = batches;
+        }
+
+        public void run() {
+            try {
+                parse();
+            } catch (Throwable t) {
+                error = t;
+            }
+            try {
+                batches.put( new Batch(this, null) );
+            } catch (InterruptedException ie) {
+                // The parse has been aborted.
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void parse() throws IOException, RDFParseException, RDFHandlerException {
+            final NQuadsParser parser = new NQuadsParser() {
+                @Override
+                protected BNode createBNode(String nodeID) {
+                    return valueFactory.createBNode(salt + nodeID);
+                }
+            };
+            parser.setDatatypeHandling(datatypeHandling);
+            parser.setStopAtFirstError(stopAtFirstError);
+            parser.setRDFHandler( new RDFHandlerBase() {
+                @Override
+                public void handleStatement(Statement statement) throws RDFHandlerException {
+                    statements.add(statement);
+                    if(statements.size() == BATCH_SIZE) {
+                        flush();
+                    }
+                }
+            });
+            parser.parse( new ChunkInputStream(channel, chunk[0], chunk[1]), baseURI );
+            flush();
+        }
+
+        private void flush() throws RDFHandlerException {
+            if(statements.isEmpty()) {
+                return;
+            }
+            try {
+                batches.put( new Batch(this, statements) );
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new RDFHandlerException("Interrupted while parsing.");
+            }
+            statements = new ArrayList<Statement>(BATCH_SIZE);
+        }
+    }
+
+    /**
+     * Input stream over a byte range of a file channel, based on positional reads
+     * that can be performed concurrently on the same channel.
+     */
+    private static class ChunkInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        ChunkInputStream(FileChannel channel, long start, long end) {
+            this.channel  = channel;
+            this.position = start;
+            this.end      = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if(position >= end) {
+                return -1;
+            }
+            final int toRead = (int) Math.min(len, end - position);
+            final int read = channel.read( ByteBuffer.wrap(b, off, toRead), position );
+            if(read > 0) {
+                position += read;
+            }
+            return read;
+        }
+    }
+
+}
@@ -2,15 +2,23 @@ package org.sindice.rdfcommons.adapter.sesame;
 
 import org.sindice.rdfcommons.adapter.LiteralFactoryException;
 import org.sindice.rdfcommons.adapter.sesame.nquads.NQuadsParser;
+import org.sindice.rdfcommons.model.BNodeIdGenerator;
+import org.sindice.rdfcommons.model.SkolemBNodeIdGenerator;
 import org.sindice.rdfcommons.model.Triple;
+import org.sindice.rdfcommons.model.TripleImpl;
+import org.sindice.rdfcommons.model.TripleSet;
 import org.sindice.rdfcommons.parser.RDFHandler;
 import org.sindice.rdfcommons.parser.RDFHandlerException;
 import org.sindice.rdfcommons.parser.RDFParserException;
+import org.sindice.rdfcommons.serialization.NQuadsEncoder;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -40,6 +48,31 @@ public class RDFParserAdapterTestCase {
         rdfHandler.verify();
     }
 
+    /**
+     * Tests that a triple with a skolemized blank node can be written as <i>N-Quads</i> and parsed back.
+     */
+    @Test
+    public void testSkolemRoundTrip() throws IOException, LiteralFactoryException, RDFParserException {
+        final BNodeIdGenerator previous = TripleImpl.getBNodeIdGenerator();
+        TripleImpl.setBNodeIdGenerator( new SkolemBNodeIdGenerator("http://example.org") );
+        final Triple triple;
+        try {
+            triple = TripleImpl.createBNodeObjectTriple("http://s", "http://p", Triple.SubjectType.uri, "http://g");
+        } finally {
+            TripleImpl.setBNodeIdGenerator(previous);
+        }
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final NQuadsEncoder encoder = new NQuadsEncoder(baos);
+        encoder.writeQuad(triple);
+        encoder.flush();
+
+        final TripleSet parsed = adapter.parse( new ByteArrayInputStream( baos.toByteArray() ), "http://base" );
+        Assert.assertEquals(parsed.getSize(), 1);
+        final Triple result = parsed.iterator().next();
+        Assert.assertEquals(result.getObject(), triple.getObject());
+        Assert.assertEquals(result.getObjectType(), Triple.ObjectType.uri);
+    }
+
     class TestRDFHandler implements RDFHandler {
 
         private boolean begin = false;
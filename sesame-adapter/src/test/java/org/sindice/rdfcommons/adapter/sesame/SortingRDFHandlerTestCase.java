@@ -0,0 +1,89 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.adapter.sesame;
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+import org.sindice.rdfcommons.adapter.sesame.nquads.NQuadsParser;
+import org.sindice.rdfcommons.serialization.ExternalTripleSorter;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test case for {@link SortingRDFHandler} class.
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class SortingRDFHandlerTestCase {
+
+    private static final String INPUT =
+            "<http://s/3> <http://p> \"three\"@en <http://g/1> .\n" +
+            "<http://s/1> <http://p> <http://o> <http://g/2> .\n" +
+            "<http://s/3> <http://p> \"three\"@en <http://g/1> .\n" +
+            "<http://s/2> <http://p> \"two\" <http://g/1> .\n" +
+            "<http://s/1> <http://p> <http://o> <http://g/2> .\n";
+
+    @Test
+    public void testSortUnique() throws Exception {
+        final List<Statement> statements = parse(ExternalTripleSorter.Order.SPOG, true, 1024 * 1024);
+        Assert.assertEquals(statements.size(), 3);
+        Assert.assertEquals( statements.get(0).getSubject().stringValue(), "http://s/1" );
+        Assert.assertEquals( statements.get(1).getSubject().stringValue(), "http://s/2" );
+        Assert.assertEquals( statements.get(2).getSubject().stringValue(), "http://s/3" );
+        Assert.assertEquals( statements.get(2).getContext().stringValue(), "http://g/1" );
+    }
+
+    /**
+     * Tests the graph order with a budget spilling every statement to disk.
+     */
+    @Test
+    public void testGraphOrderSpilled() throws Exception {
+        final List<Statement> statements = parse(ExternalTripleSorter.Order.GSPO, false, 1);
+        Assert.assertEquals(statements.size(), 5);
+        Assert.assertEquals( statements.get(0).getSubject().stringValue(), "http://s/2" );
+        Assert.assertEquals( statements.get(1).getSubject().stringValue(), "http://s/3" );
+        Assert.assertEquals( statements.get(2).getSubject().stringValue(), "http://s/3" );
+        Assert.assertEquals( statements.get(3).getContext().stringValue(), "http://g/2" );
+        Assert.assertEquals( statements.get(1).getObject().toString(), "\"three\"@en" );
+    }
+
+    private List<Statement> parse(ExternalTripleSorter.Order order, boolean unique, long memoryBudget)
+    throws IOException, RDFParseException, RDFHandlerException {
+        final List<Statement> statements = new ArrayList<Statement>();
+        final NQuadsParser parser = new NQuadsParser();
+        parser.setRDFHandler(
+                new SortingRDFHandler(
+                        new RDFHandlerBase() {
+                            @Override
+                            public void handleStatement(Statement statement) {
+                                statements.add(statement);
+                            }
+                        },
+                        order, unique, memoryBudget, null
+                )
+        );
+        parser.parse( new ByteArrayInputStream( INPUT.getBytes("UTF-8") ), "http://base" );
+        return statements;
+    }
+
+}
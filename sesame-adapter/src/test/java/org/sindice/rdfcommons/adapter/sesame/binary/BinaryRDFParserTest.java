@@ -0,0 +1,94 @@
+/**
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.sindice.rdfcommons.adapter.sesame.binary;
+
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+import org.sindice.rdfcommons.adapter.sesame.nquads.NQuadsParser;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test case for {@link BinaryRDFParser} and {@link BinaryRDFWriter}.
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class BinaryRDFParserTest {
+
+    private static final String NQUADS =
+            "<http://s1> <http://p1> <http://o1> <http://g1> .\n" +
+            "<http://s1> <http://p2> \"plain\" <http://g1> .\n" +
+            "<http://s1> <http://p2> \"ciao\"@it <http://g2> .\n" +
+            "<http://s1> <http://p3> \"10\"^^<http://www.w3.org/2001/XMLSchema#int> <http://g2> .\n" +
+            "_:b1 <http://p4> _:b2 <http://g2> .\n" +
+            "<http://s2> <http://p2> \"plain\" <http://g1> .\n";
+
+    /**
+     * Tests that the statements parsed from the binary format are the ones written.
+     * The blank node identifiers are preserved, otherwise every parse would generate its own.
+     */
+    @Test
+    public void testRoundTrip() throws IOException, RDFParseException, RDFHandlerException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        parseNQuads( new BinaryRDFWriter(baos) );
+
+        final CollectingHandler expected = new CollectingHandler();
+        parseNQuads(expected);
+
+        final CollectingHandler actual = new CollectingHandler();
+        final BinaryRDFParser parser = new BinaryRDFParser();
+        parser.setPreserveBNodeIDs(true);
+        parser.setRDFHandler(actual);
+        parser.parse( new ByteArrayInputStream( baos.toByteArray() ), "http://base" );
+
+        Assert.assertEquals(actual.statements.size(), 6);
+        Assert.assertEquals(actual.statements, expected.statements);
+        Assert.assertTrue(baos.size() < NQUADS.length());
+    }
+
+    private void parseNQuads(RDFHandler handler) throws IOException, RDFParseException, RDFHandlerException {
+        final NQuadsParser parser = new NQuadsParser();
+        parser.setPreserveBNodeIDs(true);
+        parser.setRDFHandler(handler);
+        parser.parse( new ByteArrayInputStream( NQUADS.getBytes("UTF-8") ), "http://base" );
+    }
+
+    /**
+     * Handler collecting the string representation of the statements.
+     */
+    private static class CollectingHandler extends RDFHandlerBase {
+        private final List<String> statements = new ArrayList<String>();
+
+        @Override
+        public void handleStatement(Statement statement) {
+            statements.add(
+                    statement.getSubject() + " " + statement.getPredicate() + " " +
+                    statement.getObject() + " " + statement.getContext()
+            );
+        }
+    }
+
+}
@@ -235,7 +235,7 @@ public class NQuadsParserTest {
         parser.parse(bais, "http://base-uri");
 
         rdfHandler.assertHandler(1);
-        parseLocationListener.assertListener(1, 40);
+        parseLocationListener.assertListener(1, 39);
     }
 
     /**
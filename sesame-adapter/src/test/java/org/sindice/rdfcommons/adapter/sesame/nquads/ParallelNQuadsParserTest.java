@@ -0,0 +1,164 @@
+/**
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.sindice.rdfcommons.adapter.sesame.nquads;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParseException;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test case for {@link ParallelNQuadsParser}.
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class ParallelNQuadsParserTest {
+
+    private static final int LINES = 1000;
+
+    private File file;
+
+    private String content;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("_:shared <http://p/first> \"first\" <http://g> .\n");
+        for(int i = 0; i < LINES; i++) {
+            sb.append( String.format("<http://s/%d> <http://p> \"value %d\" <http://g/%d> .\n", i, i, i % 7) );
+            if(i % 100 == 0) {
+                sb.append("# Comment.\n\n");
+            }
+        }
+        sb.append("<http://s/last> <http://p/last> _:shared <http://g> .");
+        content = sb.toString();
+        file = File.createTempFile("parallel", ".nq");
+        final Writer writer = new OutputStreamWriter( new FileOutputStream(file), "UTF-8" );
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Tests that the ordered parsing produces the statements of the sequential parser.
+     */
+    @Test
+    public void testOrdered() throws IOException, RDFParseException, RDFHandlerException {
+        final List<Statement> expected = new ArrayList<Statement>();
+        final NQuadsParser sequential = new NQuadsParser();
+        sequential.setRDFHandler( new CollectingHandler(expected) );
+        sequential.parse( new ByteArrayInputStream( content.getBytes("UTF-8") ), "http://base" );
+
+        final List<Statement> statements = parse(true);
+        Assert.assertEquals(statements.size(), LINES + 2);
+        for(int i = 1; i < statements.size() - 1; i++) {
+            Assert.assertEquals( statements.get(i).toString(), expected.get(i).toString() );
+        }
+        Assert.assertTrue( statements.get(0).getSubject() instanceof BNode );
+        Assert.assertEquals( statements.get(0).getSubject(), statements.get(statements.size() - 1).getObject() );
+    }
+
+    /**
+     * Tests that the unordered parsing produces all the statements.
+     */
+    @Test
+    public void testUnordered() throws IOException, RDFParseException, RDFHandlerException {
+        final List<Statement> statements = parse(false);
+        final Set<String> subjects = new HashSet<String>();
+        for(Statement statement : statements) {
+            subjects.add( statement.getSubject().stringValue() );
+        }
+        Assert.assertEquals(statements.size(), LINES + 2);
+        Assert.assertEquals(subjects.size(), LINES + 2);
+    }
+
+    /**
+     * Tests that the same blank node label produces different blank nodes in different parses.
+     */
+    @Test
+    public void testBNodesScopedToParse() throws IOException, RDFParseException, RDFHandlerException {
+        final List<Statement> first  = parse(false);
+        final List<Statement> second = parse(false);
+        final Set<BNode> bnodes = new HashSet<BNode>();
+        for(Statement statement : first) {
+            if(statement.getSubject() instanceof BNode) {
+                bnodes.add( (BNode) statement.getSubject() );
+            }
+        }
+        Assert.assertEquals(bnodes.size(), 1);
+        for(Statement statement : second) {
+            Assert.assertFalse( bnodes.contains( statement.getSubject() ) );
+            Assert.assertFalse( bnodes.contains( statement.getObject() ) );
+        }
+    }
+
+    @Test(expectedExceptions = RDFParseException.class)
+    public void testInvalidChunk() throws IOException, RDFParseException, RDFHandlerException {
+        final Writer writer = new OutputStreamWriter( new FileOutputStream(file, true), "UTF-8" );
+        try {
+            writer.write("\n<http://s> <http://p> <http://o> <http://g> . <http://invalid>\n");
+        } finally {
+            writer.close();
+        }
+        parse(true);
+    }
+
+    private List<Statement> parse(boolean ordered) throws IOException, RDFParseException, RDFHandlerException {
+        final List<Statement> statements = new ArrayList<Statement>();
+        final ParallelNQuadsParser parser = new ParallelNQuadsParser(4, 512, ordered);
+        parser.parse( file, "http://base", new CollectingHandler(statements) );
+        return statements;
+    }
+
+    private static class CollectingHandler extends RDFHandlerBase {
+
+        private final List<Statement> statements;
+
+        CollectingHandler(List<Statement> statements) {
+            this.statements = statements;
+        }
+
+        @Override
+        public void handleStatement(Statement statement) {
+            statements.add(statement);
+        }
+    }
+
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.tripleconverter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OutputStream} handing the written data in large chunks to a background thread,
+ * which writes them to the wrapped stream. Wrapping a compressing stream moves the codec work
+ * off the writing thread.
+ * <p>
+ * A failure of the background thread is reported by the next write, flush or close. The wrapped stream
+ * is closed by the background thread when it stops, either for a close or for a failure.
+ * </p>
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class BackgroundOutputStream extends OutputStream {
+
+    /**
+     * Default size of the handed chunks.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * Default number of chunks queued for the background thread.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 4;
+
+    private static final Chunk FLUSH = new Chunk(0);
+
+    private static final Chunk CLOSE = new Chunk(0);
+
+    private final OutputStream os;
+
+    private final BlockingQueue<Chunk> full;
+
+    private final BlockingQueue<Chunk> free;
+
+    private final Thread worker;
+
+    private volatile Throwable failure;
+
+    private Chunk current;
+
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param os the wrapped output stream.
+     * @param chunkSize the size of the handed chunks.
+     * @param queueSize the number of chunks queued for the background thread.
+     */
+    public BackgroundOutputStream(OutputStream os, int chunkSize, int queueSize) {
+        if(os == null) {
+            throw new NullPointerException("os cannot be null.");
+        }
+        if(chunkSize <= 0 || queueSize <= 0) {
+            throw new IllegalArgumentException("Chunk and queue sizes must be positive.");
+        }
+        this.os = os;
+        full = new ArrayBlockingQueue<Chunk>(queueSize + 2);
+        free = new ArrayBlockingQueue<Chunk>(queueSize + 1);
+        for(int i = 0; i < queueSize; i++) {
+            free.add( new Chunk(chunkSize) );
+        }
+        current = new Chunk(chunkSize);
+        worker = new Thread("background-output") {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Constructor with default chunk and queue sizes.
+     *
+     * @param os the wrapped output stream.
+     */
+    public BackgroundOutputStream(OutputStream os) {
+        this(os, DEFAULT_CHUNK_SIZE, DEFAULT_QUEUE_SIZE);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if(current.length == current.data.length) {
+            handOff();
+        }
+        current.data[current.length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while(len > 0) {
+            if(current.length == current.data.length) {
+                handOff();
+            }
+            final int n = Math.min(len, current.data.length - current.length);
+            System.arraycopy(b, off, current.data, current.length, n);
+            current.length += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Hands the buffered data to the background thread and asks it to flush the wrapped stream.
+     * It doesn't wait for the flush to complete.
+     *
+     * @throws IOException if the background thread failed.
+     */
+    @Override
+    public void flush() throws IOException {
+        if(current.length > 0) {
+            handOff();
+        }
+        put(FLUSH);
+    }
+
+    /**
+     * Writes the pending data, waits for the background thread and closes the wrapped stream.
+     * The background thread is waited for and the wrapped stream closed even if the writing fails.
+     *
+     * @throws IOException if an error occurs while writing or closing.
+     */
+    @Override
+    public void close() throws IOException {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        boolean delivered = false;
+        try {
+            if(current.length > 0) {
+                handOff();
+            }
+            put(CLOSE);
+            delivered = true;
+        } finally {
+            if( ! delivered ) {
+                // The background thread stops on interruption, if it is not stopped yet.
+                worker.interrupt();
+            }
+            joinWorker();
+        }
+        checkFailure();
+    }
+
+    /**
+     * Waits for the background thread to stop, preserving the interrupted status of the caller.
+     */
+    private void joinWorker() {
+        boolean interrupted = false;
+        while( worker.isAlive() ) {
+            try {
+                worker.join();
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handOff() throws IOException {
+        put(current);
+        try {
+            Chunk next;
+            while( (next = free.poll(100, TimeUnit.MILLISECONDS)) == null ) {
+                checkFailure();
+            }
+            current = next;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing.");
+        }
+    }
+
+    private void put(Chunk chunk) throws IOException {
+        checkFailure();
+        try {
+            while( ! full.offer(chunk, 100, TimeUnit.MILLISECONDS) ) {
+                checkFailure();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing.");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        final Throwable t = failure;
+        if(t != null) {
+            if(t instanceof IOException) {
+                throw (IOException) t;
+            }
+            throw new IOException("Error in background output: " + t.getMessage(), t);
+        }
+    }
+
+    /**
+     * Body of the background thread.
+     */
+    private void drain() {
+        try {
+            Chunk chunk;
+            while( (chunk = full.take()) != CLOSE ) {
+                if(chunk == FLUSH) {
+                    os.flush();
+                    continue;
+                }
+                os.write(chunk.data, 0, chunk.length);
+                chunk.length = 0;
+                free.put(chunk);
+            }
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            try {
+                os.close();
+            } catch (Throwable t) {
+                if(failure == null) {
+                    failure = t;
+                }
+            }
+        }
+    }
+
+    /**
+     * A buffer with its filled length.
+     */
+    private static class Chunk {
+        private final byte[] data;
+        private int length;
+
+        private Chunk(int size) {
+            data = new byte[size];
+        }
+    }
+
+}
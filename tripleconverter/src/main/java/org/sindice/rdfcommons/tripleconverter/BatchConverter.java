@@ -0,0 +1,506 @@
+/**
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.tripleconverter;
+
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.RDFWriter;
+import org.sindice.rdfcommons.adapter.sesame.SortingRDFHandler;
+import org.sindice.rdfcommons.serialization.ExternalTripleSorter;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Converts many input files within a single process, running the conversions on a bounded pool
+ * of workers. Every worker reuses its own parser, while a writer is created for every output file.
+ * <p>
+ * The inputs can be files, directories, visited recursively, or <i>glob</i> patterns supporting
+ * <code>*</code>, <code>?</code> and <code>**</code>. Every input file is converted to a file of the
+ * output directory with the same relative path, with the extension replaced by the one of the output
+ * format and compression. Inputs that would be converted to the same output file are rejected.
+ * The throughput is periodically printed, a failed file is reported, its partial output deleted,
+ * and doesn't stop the batch.
+ * </p>
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class BatchConverter {
+
+    /**
+     * Number of statements counted locally before updating the shared counter.
+     */
+    private static final int COUNT_BATCH = 1024;
+
+    private static final Map<String,String> FORMAT_EXTENSIONS = new HashMap<String,String>();
+
+    static {
+        FORMAT_EXTENSIONS.put( TripleConverter.RDFXML_FORMAT.toLowerCase()  , ".rdf"  );
+        FORMAT_EXTENSIONS.put( TripleConverter.NTRIPLES_FORMAT.toLowerCase(), ".nt"   );
+        FORMAT_EXTENSIONS.put( TripleConverter.TRIG_FORMAT.toLowerCase()    , ".trig" );
+        FORMAT_EXTENSIONS.put( TripleConverter.TURTLE_FORMAT.toLowerCase()  , ".ttl"  );
+        FORMAT_EXTENSIONS.put( TripleConverter.NQUADS_FORMAT.toLowerCase()  , ".nq"   );
+        FORMAT_EXTENSIONS.put( TripleConverter.BINARY_FORMAT.toLowerCase()  , ".brf"  );
+    }
+
+    private final TripleConverter converter;
+
+    private final String inputFormat;
+
+    private final String outputFormat;
+
+    private final String baseURI;
+
+    private final Compression outputCompression;
+
+    private final File outputDir;
+
+    private final int workers;
+
+    private final AtomicLong files   = new AtomicLong();
+
+    private final AtomicLong failed  = new AtomicLong();
+
+    private final AtomicLong triples = new AtomicLong();
+
+    private final AtomicLong bytes   = new AtomicLong();
+
+    private final ThreadLocal<RDFParser> parsers = new ThreadLocal<RDFParser>() {
+        @Override
+        protected RDFParser initialValue() {
+            final RDFParser parser = converter.getParser(inputFormat);
+            parser.setDatatypeHandling(RDFParser.DatatypeHandling.IGNORE);
+            parser.setStopAtFirstError(false);
+            return parser;
+        }
+    };
+
+    private ExternalTripleSorter.Order sortOrder;
+
+    private boolean unique;
+
+    private long sortMemory;
+
+    private long startTime;
+
+    /**
+     * Constructor.
+     *
+     * @param converter the converter providing parsers and writers.
+     * @param inputFormat the format of the input files.
+     * @param outputFormat the format of the output files.
+     * @param baseURI the base URI of the input files.
+     * @param outputCompression the compression of the output files.
+     * @param outputDir the output directory.
+     * @param workers the number of files converted concurrently.
+     */
+    public BatchConverter(
+            TripleConverter converter,
+            String inputFormat,
+            String outputFormat,
+            String baseURI,
+            Compression outputCompression,
+            File outputDir,
+            int workers
+    ) {
+        if(converter == null) {
+            throw new NullPointerException("converter cannot be null.");
+        }
+        if(outputDir == null) {
+            throw new NullPointerException("outputDir cannot be null.");
+        }
+        if(workers <= 0) {
+            throw new IllegalArgumentException("Invalid number of workers: " + workers);
+        }
+        this.converter         = converter;
+        this.inputFormat       = inputFormat;
+        this.outputFormat      = outputFormat;
+        this.baseURI           = baseURI;
+        this.outputCompression = outputCompression;
+        this.outputDir         = outputDir;
+        this.workers           = workers;
+    }
+
+    /**
+     * Sorts the statements of every converted file.
+     *
+     * @param order the sort order.
+     * @param unique if <code>true</code> the duplicate statements of a file are dropped.
+     * @param memoryBudget the memory budget of every worker, in bytes.
+     */
+    public void setSorting(ExternalTripleSorter.Order order, boolean unique, long memoryBudget) {
+        if(order == null) {
+            throw new NullPointerException("order cannot be null.");
+        }
+        if(memoryBudget <= 0) {
+            throw new IllegalArgumentException("Invalid memory budget: " + memoryBudget);
+        }
+        this.sortOrder  = order;
+        this.unique     = unique;
+        this.sortMemory = memoryBudget;
+    }
+
+    /**
+     * Checks whether the given inputs require the batch mode.
+     *
+     * @param inputs the command line inputs.
+     * @return <code>true</code> if there are many inputs, a directory or a <i>glob</i> pattern.
+     */
+    public static boolean isBatch(String[] inputs) {
+        if(inputs.length != 1) {
+            return inputs.length > 1;
+        }
+        final File file = new File(inputs[0]);
+        return file.isDirectory() || ( ! file.exists() && isGlob(inputs[0]) );
+    }
+
+    /**
+     * Resolves the input files and their paths relative to the input they have been found in.
+     *
+     * @param inputs files, directories or <i>glob</i> patterns.
+     * @return the resolved files sorted by input and path.
+     * @throws IllegalArgumentException if an input doesn't exist or two inputs would be converted
+     *         to the same output file.
+     */
+    public static List<Input> resolve(String[] inputs) {
+        final List<Input> result = new ArrayList<Input>();
+        for(String input : inputs) {
+            final File file = new File(input);
+            final List<Input> found = new ArrayList<Input>();
+            if( file.isDirectory() ) {
+                collect(file, "", null, found);
+            } else if( file.exists() ) {
+                found.add( new Input(file, file.getName()) );
+            } else if( isGlob(input) ) {
+                final String normalized = input.replace(File.separatorChar, '/');
+                int base = normalized.length();
+                for(char c : new char[]{'*', '?', '['}) {
+                    final int index = normalized.indexOf(c);
+                    if(index != -1) {
+                        base = Math.min(base, index);
+                    }
+                }
+                final int slash = normalized.lastIndexOf('/', base);
+                final File root = new File( slash == -1 ? "." : normalized.substring(0, slash + 1) );
+                if( root.isDirectory() ) {
+                    collect(root, "", globToPattern( normalized.substring(slash + 1) ), found);
+                }
+            } else {
+                throw new IllegalArgumentException( String.format("Invalid input '%s'", input) );
+            }
+            Collections.sort(found);
+            result.addAll(found);
+        }
+        final Map<String,Input> outputs = new HashMap<String,Input>();
+        for(Input input : result) {
+            final Input previous = outputs.put( getOutputStem( input.getPath() ), input );
+            if(previous != null) {
+                throw new IllegalArgumentException(
+                        String.format(
+                                "Inputs '%s' and '%s' would be converted to the same output file",
+                                previous.getFile(), input.getFile()
+                        )
+                );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Converts the given files.
+     *
+     * @param inputs the files to be converted.
+     * @param statsOut the stream receiving the statistics.
+     * @param statsInterval the interval between two statistics reports, in seconds,
+     *                      <code>0</code> to print only the final report.
+     * @return the number of failed files.
+     */
+    public long convert(List<Input> inputs, final PrintStream statsOut, int statsInterval) {
+        startTime = System.currentTimeMillis();
+        final ExecutorService executor = Executors.newFixedThreadPool(workers);
+        final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        if(statsInterval > 0) {
+            reporter.scheduleAtFixedRate(
+                    new Runnable() {
+                        public void run() {
+                            statsOut.println( getStatistics() );
+                        }
+                    },
+                    statsInterval, statsInterval, TimeUnit.SECONDS
+            );
+        }
+        try {
+            final List<Future<?>> futures = new ArrayList<Future<?>>( inputs.size() );
+            for(final Input input : inputs) {
+                futures.add( executor.submit( new Callable<Object>() {
+                    public Object call() {
+                        convert(input, statsOut);
+                        return null;
+                    }
+                }));
+            }
+            for(Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while converting.", ie);
+                } catch (ExecutionException ee) {
+                    throw new RuntimeException("Error while converting.", ee.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            reporter.shutdownNow();
+        }
+        statsOut.println( getStatistics() );
+        return failed.get();
+    }
+
+    /**
+     * @return the current throughput statistics.
+     */
+    public String getStatistics() {
+        final double seconds = Math.max(1, System.currentTimeMillis() - startTime) / 1000d;
+        final double megabytes = bytes.get() / (1024d * 1024d);
+        return String.format(
+                "Files: %d (%.1f/s), triples: %d (%.1f/s), input: %.1f MB (%.2f MB/s), failed: %d",
+                files.get(), files.get() / seconds,
+                triples.get(), triples.get() / seconds,
+                megabytes, megabytes / seconds,
+                failed.get()
+        );
+    }
+
+    /**
+     * Returns the output file of an input.
+     *
+     * @param input the input.
+     * @return the output file.
+     */
+    public File getOutputFile(Input input) {
+        final String extension = FORMAT_EXTENSIONS.get( outputFormat.toLowerCase() );
+        return new File(
+                outputDir,
+                getOutputStem( input.getPath() ) + (extension == null ? "" : extension)
+                        + outputCompression.getExtension()
+        );
+    }
+
+    /**
+     * @return the relative path without the compression and format extensions.
+     */
+    private static String getOutputStem(String path) {
+        final Compression inputCompression = Compression.fromFileName(path);
+        path = path.substring(0, path.length() - inputCompression.getExtension().length());
+        final int dot = path.lastIndexOf('.');
+        if(dot > path.lastIndexOf('/')) {
+            path = path.substring(0, dot);
+        }
+        return path;
+    }
+
+    private void convert(Input input, PrintStream statsOut) {
+        final File outputFile = getOutputFile(input);
+        final File parent = outputFile.getParentFile();
+        try {
+            if( ! parent.isDirectory() && ! parent.mkdirs() && ! parent.isDirectory() ) {
+                throw new IOException("Cannot create directory " + parent);
+            }
+            final InputStream is = Compression.detect( input.getFile() ).openInput(input.getFile(), 1);
+            try {
+                final OutputStream os = outputCompression.openOutput(
+                        new BufferedOutputStream( new FileOutputStream(outputFile), Compression.BUFFER_SIZE )
+                );
+                try {
+                    final RDFParser parser = parsers.get();
+                    final CountingHandler handler = new CountingHandler( converter.getWriter(outputFormat, os) );
+                    parser.setRDFHandler(
+                            sortOrder == null
+                                    ? handler
+                                    : new SortingRDFHandler(handler, sortOrder, unique, sortMemory, null)
+                    );
+                    try {
+                        parser.parse(is, baseURI);
+                    } finally {
+                        handler.commit();
+                        parser.setRDFHandler(null);
+                    }
+                } finally {
+                    os.close();
+                }
+            } finally {
+                is.close();
+            }
+            files.incrementAndGet();
+            bytes.addAndGet( input.getFile().length() );
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            outputFile.delete();
+            statsOut.println( String.format("ERROR: %s: %s", input.getFile(), e.getMessage()) );
+        }
+    }
+
+    private static boolean isGlob(String input) {
+        return input.indexOf('*') != -1 || input.indexOf('?') != -1 || input.indexOf('[') != -1;
+    }
+
+    private static void collect(File dir, String prefix, Pattern pattern, List<Input> found) {
+        final File[] children = dir.listFiles();
+        if(children == null) {
+            return;
+        }
+        for(File child : children) {
+            final String path = prefix + child.getName();
+            if( child.isDirectory() ) {
+                collect(child, path + "/", pattern, found);
+            } else if( child.isFile() && (pattern == null || pattern.matcher(path).matches()) ) {
+                found.add( new Input(child, path) );
+            }
+        }
+    }
+
+    /**
+     * Converts a <i>glob</i> pattern to a regular expression matching relative paths.
+     */
+    static Pattern globToPattern(String glob) {
+        final StringBuilder regex = new StringBuilder();
+        for(int i = 0; i < glob.length(); i++) {
+            final char c = glob.charAt(i);
+            switch(c) {
+                case '*':
+                    if(i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        i++;
+                        if(i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                            i++;
+                            regex.append("(.*/)?");
+                        } else {
+                            regex.append(".*");
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '[':
+                    final int end = glob.indexOf(']', i);
+                    if(end == -1) {
+                        regex.append("\\[");
+                    } else {
+                        regex.append( glob.substring(i, end + 1) );
+                        i = end;
+                    }
+                    break;
+                default:
+                    regex.append( Pattern.quote( String.valueOf(c) ) );
+            }
+        }
+        return Pattern.compile( regex.toString() );
+    }
+
+    /**
+     * An input file with its path relative to the input it has been found in.
+     */
+    public static class Input implements Comparable<Input> {
+
+        private final File file;
+
+        private final String path;
+
+        public Input(File file, String path) {
+            this.file = file;
+            this.path = path;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public int compareTo(Input other) {
+            return path.compareTo(other.path);
+        }
+    }
+
+    /**
+     * Handler forwarding to a writer and counting the statements.
+     */
+    private class CountingHandler implements RDFHandler {
+
+        private final RDFWriter writer;
+
+        private int count;
+
+        private CountingHandler(RDFWriter writer) {
+            this.writer = writer;
+        }
+
+        public void startRDF() throws RDFHandlerException {
+            writer.startRDF();
+        }
+
+        public void endRDF() throws RDFHandlerException {
+            writer.endRDF();
+        }
+
+        public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+            writer.handleNamespace(prefix, uri);
+        }
+
+        public void handleStatement(Statement statement) throws RDFHandlerException {
+            writer.handleStatement(statement);
+            if(++count == COUNT_BATCH) {
+                commit();
+            }
+        }
+
+        public void handleComment(String comment) throws RDFHandlerException {
+            writer.handleComment(comment);
+        }
+
+        private void commit() {
+            triples.addAndGet(count);
+            count = 0;
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.tripleconverter;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression formats supported by the {@link TripleConverter}.
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public enum Compression {
+
+    NONE(""),
+    GZIP(".gz"),
+    BZIP2(".bz2");
+
+    /**
+     * Size of the buffers used by the codecs.
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String extension;
+
+    Compression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return the file extension of the format, empty for {@link #NONE}.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Returns the compression format with the given name, case insensitive.
+     *
+     * @param name the format name.
+     * @return the format.
+     * @throws IllegalArgumentException if the name is unknown.
+     */
+    public static Compression fromName(String name) {
+        for(Compression compression : values()) {
+            if(compression.name().equalsIgnoreCase(name)) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException( String.format("Unknown compression '%s'", name) );
+    }
+
+    /**
+     * Returns the compression format associated to the extension of a file name.
+     *
+     * @param fileName the file name.
+     * @return the format, {@link #NONE} if the extension is not recognized.
+     */
+    public static Compression fromFileName(String fileName) {
+        final String lowerCase = fileName.toLowerCase();
+        if( lowerCase.endsWith(GZIP.extension) || lowerCase.endsWith(".gzip") ) {
+            return GZIP;
+        }
+        if( lowerCase.endsWith(BZIP2.extension) || lowerCase.endsWith(".bzip2") ) {
+            return BZIP2;
+        }
+        return NONE;
+    }
+
+    /**
+     * Detects the compression format of a file from its magic bytes,
+     * falling back on the file extension.
+     *
+     * @param file the file to be inspected.
+     * @return the detected format.
+     * @throws IOException if an error occurs while reading the file.
+     */
+    public static Compression detect(File file) throws IOException {
+        final byte[] magic = new byte[3];
+        final FileInputStream fis = new FileInputStream(file);
+        int read = 0;
+        try {
+            int r;
+            while( read < magic.length && (r = fis.read(magic, read, magic.length - read)) != -1 ) {
+                read += r;
+            }
+        } finally {
+            fis.close();
+        }
+        if( read >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B ) {
+            return GZIP;
+        }
+        if( read == 3 && magic[0] == 'B' && magic[1] == 'Z' && magic[2] == 'h' ) {
+            return BZIP2;
+        }
+        return fromFileName( file.getName() );
+    }
+
+    /**
+     * Opens a decompressing stream over a file.
+     * Concatenated members are decompressed, <i>gzip</i> members in parallel when <i>threads &gt; 1</i>.
+     *
+     * @param file the file to be read.
+     * @param threads the number of decompressing threads.
+     * @return the input stream.
+     * @throws IOException if an error occurs while opening the file.
+     */
+    public InputStream openInput(File file, int threads) throws IOException {
+        switch(this) {
+            case GZIP:
+                if(threads > 1) {
+                    return new ParallelGzipInputStream(file, threads);
+                }
+                return new GZIPInputStream( new FileInputStream(file), BUFFER_SIZE );
+            case BZIP2:
+                return new BZip2CompressorInputStream(
+                        new BufferedInputStream( new FileInputStream(file), BUFFER_SIZE ), true
+                );
+            default:
+                return new BufferedInputStream( new FileInputStream(file), BUFFER_SIZE );
+        }
+    }
+
+    /**
+     * Wraps an output stream with the compressor of this format.
+     *
+     * @param os the output stream receiving the compressed data.
+     * @return the compressing stream, <i>os</i> for {@link #NONE}.
+     * @throws IOException if an error occurs while writing the header.
+     */
+    public OutputStream openOutput(OutputStream os) throws IOException {
+        switch(this) {
+            case GZIP:
+                return new GZIPOutputStream(os, BUFFER_SIZE);
+            case BZIP2:
+                return new BZip2CompressorOutputStream(os);
+            default:
+                return os;
+        }
+    }
+
+}
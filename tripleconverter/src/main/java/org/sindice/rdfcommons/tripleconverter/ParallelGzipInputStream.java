@@ -0,0 +1,597 @@
+/**
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sindice.rdfcommons.tripleconverter;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * {@link InputStream} decompressing the members of a multi-member <i>gzip</i> file in parallel.
+ * <p>
+ * The file is split at the offsets looking like member headers and every segment is inflated
+ * by a pool of threads, while the segments are returned in file order. A segment whose member doesn't
+ * end exactly at the segment end started at a false header match, so it is merged with the following one
+ * and inflated again. When a member is larger than the maximum segment size, as in files produced
+ * by a single <i>gzip</i> run, the rest of the file is decompressed sequentially, member after member.
+ * </p>
+ * <p>
+ * New segments are submitted as long as the inflated bytes waiting to be read stay within a budget.
+ * The size of the segments not inflated yet is estimated from the compression ratio observed so far.
+ * </p>
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class ParallelGzipInputStream extends InputStream {
+
+    /**
+     * Default maximum compressed size of a segment inflated in parallel.
+     */
+    public static final int DEFAULT_MAX_SEGMENT_SIZE = 32 * 1024 * 1024;
+
+    /**
+     * Default maximum number of inflated bytes waiting to be read.
+     */
+    public static final long DEFAULT_MAX_INFLATED_BYTES = 512 * 1024 * 1024;
+
+    /**
+     * Compression ratio assumed before the first segment is inflated.
+     */
+    private static final double INITIAL_RATIO = 4;
+
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    private static final int HEADER_SIZE = 10;
+
+    private static final int TRAILER_SIZE = 8;
+
+    private static final int FHCRC    = 0x02;
+    private static final int FEXTRA   = 0x04;
+    private static final int FNAME    = 0x08;
+    private static final int FCOMMENT = 0x10;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private final int maxSegmentSize;
+
+    private final long maxInflatedBytes;
+
+    private final ExecutorService executor;
+
+    private final LinkedList<Segment> segments = new LinkedList<Segment>();
+
+    private final ByteBuffer scanBuffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+
+    /**
+     * Start of the next segment to be submitted.
+     */
+    private long scanPosition;
+
+    /**
+     * Estimated inflated bytes of the submitted segments.
+     */
+    private long inflatedEstimate;
+
+    private long compressedRead;
+
+    private long inflatedRead;
+
+    /**
+     * Sequential stream used after a segment too large to be inflated in memory.
+     */
+    private InputStream fallback;
+
+    private final byte[] single = new byte[1];
+
+    private byte[] data = new byte[0];
+
+    private int dataPosition;
+
+    private int dataLength;
+
+    /**
+     * Constructor.
+     *
+     * @param file the <i>gzip</i> file.
+     * @param threads the number of inflating threads.
+     * @param maxSegmentSize the maximum compressed size of a segment inflated in parallel.
+     * @param maxInflatedBytes the maximum number of inflated bytes waiting to be read.
+     * @throws IOException if an error occurs while opening the file.
+     */
+    public ParallelGzipInputStream(File file, int threads, int maxSegmentSize, long maxInflatedBytes)
+    throws IOException {
+        if(threads <= 0) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        if(maxSegmentSize <= HEADER_SIZE + TRAILER_SIZE) {
+            throw new IllegalArgumentException("Invalid max segment size: " + maxSegmentSize);
+        }
+        if(maxInflatedBytes <= 0) {
+            throw new IllegalArgumentException("Invalid max inflated bytes: " + maxInflatedBytes);
+        }
+        this.file             = new RandomAccessFile(file, "r");
+        this.channel          = this.file.getChannel();
+        this.size             = channel.size();
+        this.maxSegmentSize   = maxSegmentSize;
+        this.maxInflatedBytes = maxInflatedBytes;
+        this.executor       = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "gzip-inflater");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Constructor with default max inflated bytes.
+     *
+     * @param file the <i>gzip</i> file.
+     * @param threads the number of inflating threads.
+     * @param maxSegmentSize the maximum compressed size of a segment inflated in parallel.
+     * @throws IOException if an error occurs while opening the file.
+     */
+    public ParallelGzipInputStream(File file, int threads, int maxSegmentSize) throws IOException {
+        this(file, threads, maxSegmentSize, DEFAULT_MAX_INFLATED_BYTES);
+    }
+
+    /**
+     * Constructor with default max segment size and max inflated bytes.
+     *
+     * @param file the <i>gzip</i> file.
+     * @param threads the number of inflating threads.
+     * @throws IOException if an error occurs while opening the file.
+     */
+    public ParallelGzipInputStream(File file, int threads) throws IOException {
+        this(file, threads, DEFAULT_MAX_SEGMENT_SIZE);
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if(len == 0) {
+            return 0;
+        }
+        if(dataPosition == dataLength) {
+            final boolean loaded = fallback == null && nextData();
+            if(fallback != null) {
+                return fallback.read(b, off, len);
+            }
+            if( ! loaded ) {
+                return -1;
+            }
+        }
+        final int n = Math.min(len, dataLength - dataPosition);
+        System.arraycopy(data, dataPosition, b, off, n);
+        dataPosition += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return dataLength - dataPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        segments.clear();
+        if(fallback != null) {
+            fallback.close();
+        }
+        file.close();
+    }
+
+    /**
+     * Loads the data of the next member.
+     *
+     * @return <code>false</code> if no more members are available or the fallback stream has been opened.
+     * @throws IOException if the file is corrupted.
+     */
+    private boolean nextData() throws IOException {
+        while(true) {
+            submitSegments();
+            if( segments.isEmpty() ) {
+                if(scanPosition < size) {
+                    openFallback(scanPosition);
+                }
+                return false;
+            }
+            final Segment head = segments.removeFirst();
+            inflatedEstimate -= head.estimate;
+            Inflated inflated = head.get();
+            long end = head.end;
+            while( ! inflated.complete ) {
+                if(end >= size) {
+                    throw new IOException("Corrupted gzip member at offset " + head.start);
+                }
+                if( segments.isEmpty() ) {
+                    end = nextCandidate(end);
+                    scanPosition = end;
+                } else {
+                    final Segment next = segments.removeFirst();
+                    inflatedEstimate -= next.estimate;
+                    // Never interrupted: an interrupted read closes the shared channel.
+                    next.future.cancel(false);
+                    end = next.end;
+                }
+                if(end - head.start > maxSegmentSize) {
+                    for(Segment segment : segments) {
+                        segment.future.cancel(false);
+                    }
+                    segments.clear();
+                    inflatedEstimate = 0;
+                    openFallback(head.start);
+                    return false;
+                }
+                inflated = inflate(head.start, end);
+            }
+            compressedRead += end - head.start;
+            inflatedRead   += inflated.length;
+            data         = inflated.data;
+            dataLength   = inflated.length;
+            dataPosition = 0;
+            if(dataLength > 0) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Submits new segments while the estimated inflated bytes are within the budget,
+     * at least one segment is always submitted.
+     */
+    private void submitSegments() throws IOException {
+        final double ratio = compressedRead == 0
+                ? INITIAL_RATIO
+                : Math.max(1, (double) inflatedRead / compressedRead);
+        while(
+                scanPosition < size
+                        &&
+                (segments.isEmpty() || inflatedEstimate < maxInflatedBytes)
+        ) {
+            final long start = scanPosition;
+            final long end   = nextCandidate(start);
+            if(end - start > maxSegmentSize) {
+                return;
+            }
+            final Segment segment = new Segment(start, end, (long) ((end - start) * ratio));
+            segments.add(segment);
+            inflatedEstimate += segment.estimate;
+            scanPosition = end;
+        }
+    }
+
+    private void openFallback(long start) throws IOException {
+        executor.shutdown();
+        fallback = new SequentialInflater(start);
+    }
+
+    /**
+     * Finds the next offset looking like a member header.
+     *
+     * @param from the offset after which the header is searched.
+     * @return the header offset, the file size if there are no more headers or the offset
+     *         {@link #maxSegmentSize} + 1 bytes after <i>from</i> if none is found within that range.
+     * @throws IOException if an error occurs while reading.
+     */
+    private long nextCandidate(long from) throws IOException {
+        final long limit = Math.min(size, from + maxSegmentSize + 1);
+        long position = from + 1;
+        final byte[] buffer = scanBuffer.array();
+        while(position + HEADER_SIZE <= limit) {
+            scanBuffer.clear();
+            final int read = readFully(scanBuffer, position);
+            for(int i = 0; i + HEADER_SIZE <= read; i++) {
+                if( isHeader(buffer, i) ) {
+                    return position + i;
+                }
+            }
+            if(read < SCAN_BUFFER_SIZE) {
+                break;
+            }
+            position += read - HEADER_SIZE + 1;
+        }
+        return limit;
+    }
+
+    private static boolean isHeader(byte[] b, int i) {
+        if( (b[i] & 0xFF) != 0x1F || (b[i + 1] & 0xFF) != 0x8B || b[i + 2] != 8 || (b[i + 3] & 0xE0) != 0 ) {
+            return false;
+        }
+        final int xfl = b[i + 8] & 0xFF;
+        final int os  = b[i + 9] & 0xFF;
+        return (xfl == 0 || xfl == 2 || xfl == 4) && (os <= 13 || os == 255);
+    }
+
+    private int readFully(ByteBuffer buffer, long position) throws IOException {
+        int read = 0;
+        while( buffer.hasRemaining() ) {
+            final int r = channel.read(buffer, position + read);
+            if(r == -1) {
+                break;
+            }
+            read += r;
+        }
+        return read;
+    }
+
+    /**
+     * Inflates the member between two offsets.
+     *
+     * @return the inflated data, not complete if the member doesn't end exactly at <i>end</i>.
+     */
+    private Inflated inflate(long start, long end) throws IOException {
+        final int length = (int) (end - start);
+        final ByteBuffer input = ByteBuffer.allocate(length);
+        if(readFully(input, start) != length) {
+            throw new EOFException("Unexpected end of file at offset " + (start + length));
+        }
+        final byte[] in = input.array();
+        final int offset = headerLength(in, length);
+        if(offset < 0) {
+            return Inflated.INCOMPLETE;
+        }
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(in, offset, length - offset);
+            byte[] out = new byte[ Math.max(length * 4, SCAN_BUFFER_SIZE) ];
+            int n = 0;
+            while( ! inflater.finished() ) {
+                if(n == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                final int r = inflater.inflate(out, n, out.length - n);
+                if(r == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    return Inflated.INCOMPLETE;
+                }
+                n += r;
+            }
+            if(inflater.getRemaining() != TRAILER_SIZE) {
+                return Inflated.INCOMPLETE;
+            }
+            final CRC32 crc = new CRC32();
+            crc.update(out, 0, n);
+            final int t = length - TRAILER_SIZE;
+            final long expectedCrc  = readUInt32(in, t);
+            final long expectedSize = readUInt32(in, t + 4);
+            if(crc.getValue() != expectedCrc || (n & 0xFFFFFFFFL) != expectedSize) {
+                return Inflated.INCOMPLETE;
+            }
+            return new Inflated(out, n);
+        } catch (DataFormatException dfe) {
+            return Inflated.INCOMPLETE;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * @return the length of the member header or <code>-1</code> if not valid.
+     */
+    private static int headerLength(byte[] in, int length) {
+        if(length < HEADER_SIZE + TRAILER_SIZE || ! isHeader(in, 0)) {
+            return -1;
+        }
+        final int flags = in[3] & 0xFF;
+        int p = HEADER_SIZE;
+        if( (flags & FEXTRA) != 0 ) {
+            if(p + 2 > length) {
+                return -1;
+            }
+            p += 2 + ((in[p] & 0xFF) | (in[p + 1] & 0xFF) << 8);
+        }
+        if( (flags & FNAME) != 0 ) {
+            while(p < length && in[p] != 0) {
+                p++;
+            }
+            p++;
+        }
+        if( (flags & FCOMMENT) != 0 ) {
+            while(p < length && in[p] != 0) {
+                p++;
+            }
+            p++;
+        }
+        if( (flags & FHCRC) != 0 ) {
+            p += 2;
+        }
+        return p + TRAILER_SIZE <= length ? p : -1;
+    }
+
+    private static long readUInt32(byte[] b, int i) {
+        return ((b[i] & 0xFFL) | (b[i + 1] & 0xFFL) << 8 | (b[i + 2] & 0xFFL) << 16 | (b[i + 3] & 0xFFL) << 24);
+    }
+
+    /**
+     * A segment of the file inflated in background.
+     */
+    private class Segment {
+        private final long start;
+        private final long end;
+        private final long estimate;
+        private final Future<Inflated> future;
+
+        private Segment(final long start, final long end, long estimate) {
+            this.start    = start;
+            this.end      = end;
+            this.estimate = estimate;
+            this.future = executor.submit( new Callable<Inflated>() {
+                public Inflated call() throws IOException {
+                    return inflate(start, end);
+                }
+            });
+        }
+
+        private Inflated get() throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while inflating.");
+            } catch (ExecutionException ee) {
+                if(ee.getCause() instanceof IOException) {
+                    throw (IOException) ee.getCause();
+                }
+                throw new IOException("Error while inflating segment at offset " + start, ee.getCause());
+            }
+        }
+    }
+
+    /**
+     * Inflates the members from an offset to the end of the file on the reading thread,
+     * reading the shared channel so that the members already inflated in parallel are skipped.
+     */
+    private class SequentialInflater extends InputStream {
+        private final Inflater inflater = new Inflater(true);
+        private final ByteBuffer input = ByteBuffer.allocate(Compression.BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * Offset following the data given to the inflater.
+         */
+        private long inputPosition;
+
+        private boolean eof;
+
+        private SequentialInflater(long start) throws IOException {
+            startMember(start);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if(len == 0) {
+                return 0;
+            }
+            while( ! eof ) {
+                final int n;
+                try {
+                    n = inflater.inflate(b, off, len);
+                } catch (DataFormatException dfe) {
+                    throw new IOException("Corrupted gzip data before offset " + inputPosition, dfe);
+                }
+                if(n > 0) {
+                    crc.update(b, off, n);
+                    return n;
+                }
+                if( inflater.finished() ) {
+                    final long trailer = inputPosition - inflater.getRemaining();
+                    checkTrailer(trailer);
+                    startMember(trailer + TRAILER_SIZE);
+                } else if( inflater.needsInput() ) {
+                    if(inputPosition >= size) {
+                        throw new EOFException("Unexpected end of file at offset " + inputPosition);
+                    }
+                    input.clear();
+                    final int read = readFully(input, inputPosition);
+                    inflater.setInput(input.array(), 0, read);
+                    inputPosition += read;
+                } else {
+                    throw new IOException("Corrupted gzip data before offset " + inputPosition);
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() {
+            inflater.end();
+        }
+
+        private void startMember(long start) throws IOException {
+            if(start >= size) {
+                eof = true;
+                return;
+            }
+            input.clear();
+            final int read = readFully(input, start);
+            final int offset = headerLength(input.array(), read);
+            if(offset < 0) {
+                throw new IOException("Corrupted gzip member at offset " + start);
+            }
+            inflater.reset();
+            crc.reset();
+            inflater.setInput(input.array(), offset, read - offset);
+            inputPosition = start + read;
+        }
+
+        private void checkTrailer(long position) throws IOException {
+            final ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+            if(readFully(trailer, position) != TRAILER_SIZE) {
+                throw new EOFException("Unexpected end of file at offset " + position);
+            }
+            final byte[] t = trailer.array();
+            if(
+                    readUInt32(t, 0) != crc.getValue()
+                            ||
+                    readUInt32(t, 4) != (inflater.getBytesWritten() & 0xFFFFFFFFL)
+            ) {
+                throw new IOException("Corrupted gzip member ending at offset " + position);
+            }
+        }
+    }
+
+    /**
+     * The inflated data of a segment.
+     */
+    private static class Inflated {
+        private static final Inflated INCOMPLETE = new Inflated(null, 0, false);
+
+        private final byte[] data;
+        private final int length;
+        private final boolean complete;
+
+        private Inflated(byte[] data, int length) {
+            this(data, length, true);
+        }
+
+        private Inflated(byte[] data, int length, boolean complete) {
+            this.data     = data;
+            this.length   = length;
+            this.complete = complete;
+        }
+    }
+
+}
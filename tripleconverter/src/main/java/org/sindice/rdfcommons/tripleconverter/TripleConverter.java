@@ -24,6 +24,7 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.openrdf.rio.RDFHandler;
 import org.openrdf.rio.RDFParser;
 import org.openrdf.rio.RDFWriter;
 import org.openrdf.rio.ntriples.NTriplesParser;
@@ -34,20 +35,26 @@ import org.openrdf.rio.trig.TriGParser;
 import org.openrdf.rio.trig.TriGWriter;
 import org.openrdf.rio.turtle.TurtleParser;
 import org.openrdf.rio.turtle.TurtleWriter;
+import org.sindice.rdfcommons.adapter.sesame.SortingRDFHandler;
+import org.sindice.rdfcommons.adapter.sesame.binary.BinaryRDFParser;
+import org.sindice.rdfcommons.adapter.sesame.binary.BinaryRDFWriter;
 import org.sindice.rdfcommons.adapter.sesame.nquads.NQuadsParser;
+import org.sindice.rdfcommons.adapter.sesame.nquads.ParallelNQuadsParser;
 import org.sindice.rdfcommons.adapter.sesame.nquads.NQuadsWriter;
+import org.sindice.rdfcommons.serialization.ExternalTripleSorter;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * This converter is able to transform an input triple format in
@@ -62,17 +69,22 @@ public class TripleConverter {
     public static final String TRIG_FORMAT     = "Trig";
     public static final String TURTLE_FORMAT   = "Turtle";
     public static final String NQUADS_FORMAT   = "NQuads";
+    public static final String BINARY_FORMAT   = "Binary";
 
     public static final String[] INPUT_FORMATS = new String[]{
-            RDFXML_FORMAT, NTRIPLES_FORMAT, TRIG_FORMAT, TURTLE_FORMAT, NQUADS_FORMAT
+            RDFXML_FORMAT, NTRIPLES_FORMAT, TRIG_FORMAT, TURTLE_FORMAT, NQUADS_FORMAT, BINARY_FORMAT
     }; 
 
     public static final String[] OUTPUT_FORMATS = new String[]{
-            RDFXML_FORMAT, NTRIPLES_FORMAT, TRIG_FORMAT, TURTLE_FORMAT, NQUADS_FORMAT
+            RDFXML_FORMAT, NTRIPLES_FORMAT, TRIG_FORMAT, TURTLE_FORMAT, NQUADS_FORMAT, BINARY_FORMAT
     };
 
     public static final String DEFAULT_BASE_URI = "http://sindice.com/base-uri";
 
+    public static final int DEFAULT_STATS_INTERVAL = 10;
+
+    public static final int DEFAULT_SORT_MEMORY = 256;
+
     public static void main(String[] args) {
         final TripleConverter tripleConverter = new TripleConverter();
         try {
@@ -114,16 +126,95 @@ public class TripleConverter {
 
         final Option outputFile = OptionBuilder
                             .withLongOpt("output-file")
-                            .withDescription("The output file")
+                            .withDescription("The output file, or the output directory when converting many files")
                             .hasArg()
                             .isRequired(false)
                             .create("O");
 
+        final Option threads = OptionBuilder
+                            .withLongOpt("threads")
+                            .withDescription(
+                                    "The number of threads parsing a NQuads input or decompressing a gzip input: default 1"
+                            )
+                            .hasArg()
+                            .create("t");
+
+        final Option unordered = OptionBuilder
+                            .withLongOpt("unordered")
+                            .withDescription("Don't preserve the statements order when parsing on many threads")
+                            .create("u");
+
+        final Option compression = OptionBuilder
+                            .withLongOpt("compression")
+                            .withDescription(
+                                    String.format(
+                                            "Output compression, one of %s: default detected from the output file",
+                                            Arrays.toString( Compression.values() )
+                                    )
+                            )
+                            .hasArg()
+                            .create("c");
+
+        final Option workers = OptionBuilder
+                            .withLongOpt("workers")
+                            .withDescription(
+                                    "The number of files converted concurrently when converting many files: " +
+                                    "default the number of processors"
+                            )
+                            .hasArg()
+                            .create("w");
+
+        final Option statsInterval = OptionBuilder
+                            .withLongOpt("stats-interval")
+                            .withDescription(
+                                    String.format(
+                                            "Seconds between statistics reports when converting many files: default %d",
+                                            DEFAULT_STATS_INTERVAL
+                                    )
+                            )
+                            .hasArg()
+                            .create("s");
+
+        final Option sort = OptionBuilder
+                            .withLongOpt("sort")
+                            .withDescription(
+                                    String.format(
+                                            "Sort the statements in the given order, one of %s",
+                                            Arrays.toString( ExternalTripleSorter.Order.values() )
+                                    )
+                            )
+                            .hasArg()
+                            .create("S");
+
+        final Option unique = OptionBuilder
+                            .withLongOpt("unique")
+                            .withDescription("Drop the duplicate statements, sorting them in SPOG order if no order is given")
+                            .create("U");
+
+        final Option sortMemory = OptionBuilder
+                            .withLongOpt("sort-memory")
+                            .withDescription(
+                                    String.format(
+                                            "Megabytes of statements buffered before spilling to disk when sorting: default %d",
+                                            DEFAULT_SORT_MEMORY
+                                    )
+                            )
+                            .hasArg()
+                            .create("m");
+
         options = new Options();
         options.addOption(inputFormat);
         options.addOption(outputFormat);
         options.addOption(outputFile);
         options.addOption(baseURI);
+        options.addOption(threads);
+        options.addOption(unordered);
+        options.addOption(compression);
+        options.addOption(workers);
+        options.addOption(statsInterval);
+        options.addOption(sort);
+        options.addOption(unique);
+        options.addOption(sortMemory);
     }
 
     public void processCommand(String[] args) {
@@ -138,19 +229,16 @@ public class TripleConverter {
         // Input and output formats.
         final String inputFormat  = cl.getOptionValue("if");
         final String outputFormat = cl.getOptionValue("of");
-        OutputStream os = null;
-        if(cl.hasOption("O")) {
+        Compression outputCompression = Compression.NONE;
+        if(cl.hasOption("c")) {
             try {
-                os = new BufferedOutputStream( new FileOutputStream(cl.getOptionValue("O"), false) );
-            } catch (FileNotFoundException fnfe) {
-                printUsageAndExit("Invalid output file.");
+                outputCompression = Compression.fromName( cl.getOptionValue("c") );
+            } catch (IllegalArgumentException iae) {
+                printUsageAndExit( iae.getMessage() );
             }
-        } else {
-            os = System.out;
+        } else if(cl.hasOption("O")) {
+            outputCompression = Compression.fromFileName( cl.getOptionValue("O") );
         }
-        final RDFParser rdfParser = getParser(inputFormat);
-        final RDFWriter rdfWriter = getWriter(outputFormat, os);
-
         final String baseURI;
         if(cl.hasOption("bu")) {
             baseURI = cl.getOptionValue("bu");
@@ -163,6 +251,50 @@ public class TripleConverter {
             baseURI = DEFAULT_BASE_URI;
         }
 
+        // Sorting.
+        ExternalTripleSorter.Order sortOrder = null;
+        if(cl.hasOption("S")) {
+            try {
+                sortOrder = ExternalTripleSorter.Order.valueOf( cl.getOptionValue("S").toUpperCase() );
+            } catch (IllegalArgumentException iae) {
+                printUsageAndExit( String.format("Invalid sort order: '%s'", cl.getOptionValue("S")) );
+            }
+        } else if(cl.hasOption("U")) {
+            sortOrder = ExternalTripleSorter.Order.SPOG;
+        }
+        final long sortMemory =
+                getPositiveInt(cl, "m", DEFAULT_SORT_MEMORY, "Invalid sort memory: '%s'") * 1024L * 1024L;
+
+        // Batch conversion.
+        if( BatchConverter.isBatch( cl.getArgs() ) ) {
+            processBatch(cl, inputFormat, outputFormat, baseURI, outputCompression, sortOrder, sortMemory);
+            return;
+        }
+
+        OutputStream os = null;
+        if(cl.hasOption("O")) {
+            try {
+                os = new BufferedOutputStream(
+                        new FileOutputStream(cl.getOptionValue("O"), false), Compression.BUFFER_SIZE
+                );
+            } catch (FileNotFoundException fnfe) {
+                printUsageAndExit("Invalid output file.");
+            }
+        } else {
+            os = new StandardOutputStream();
+        }
+        if(outputCompression != Compression.NONE) {
+            try {
+                os = new BackgroundOutputStream( outputCompression.openOutput(os) );
+            } catch (IOException ioe) {
+                throw new RuntimeException("Error while opening output.", ioe);
+            }
+        }
+        final RDFParser rdfParser = getParser(inputFormat);
+        final RDFHandler rdfHandler = sortOrder == null
+                ? getWriter(outputFormat, os)
+                : new SortingRDFHandler( getWriter(outputFormat, os), sortOrder, cl.hasOption("U"), sortMemory, null );
+
         // Input file.
         if(cl.getArgs().length != 1) {
             printUsageAndExit("Expected one argument.");
@@ -172,26 +304,117 @@ public class TripleConverter {
             printUsageAndExit("Invalid input file.");
         }
 
+        // Parsing threads.
+        final int threads = getPositiveInt(cl, "t", 1, "Invalid number of threads: '%s'");
+        try {
+            convert(inputFile, inputFormat, baseURI, threads, ! cl.hasOption("u"), rdfParser, rdfHandler);
+        } finally {
+            try {
+                os.close();
+            } catch (IOException ioe) {
+                throw new RuntimeException("Error while closing output.", ioe);
+            }
+        }
+    }
+
+    private void processBatch(
+            CommandLine cl, String inputFormat, String outputFormat, String baseURI, Compression outputCompression,
+            ExternalTripleSorter.Order sortOrder, long sortMemory
+    ) {
+        if( ! cl.hasOption("O") ) {
+            printUsageAndExit("An output directory is required when converting many files.");
+        }
+        final File outputDir = new File( cl.getOptionValue("O") );
+        if( ! cl.hasOption("c") ) {
+            outputCompression = Compression.NONE;
+        }
+        if( outputDir.isFile() ) {
+            printUsageAndExit("Invalid output directory.");
+        }
+        final List<BatchConverter.Input> inputs;
+        try {
+            inputs = BatchConverter.resolve( cl.getArgs() );
+        } catch (IllegalArgumentException iae) {
+            printUsageAndExit( iae.getMessage() );
+            return;
+        }
+        final int workers = getPositiveInt(
+                cl, "w", Runtime.getRuntime().availableProcessors(), "Invalid number of workers: '%s'"
+        );
+        final int statsInterval = getPositiveInt(
+                cl, "s", DEFAULT_STATS_INTERVAL, "Invalid statistics interval: '%s'"
+        );
+        final BatchConverter batchConverter = new BatchConverter(
+                this, inputFormat, outputFormat, baseURI, outputCompression, outputDir, workers
+        );
+        if(sortOrder != null) {
+            batchConverter.setSorting(sortOrder, cl.hasOption("U"), sortMemory / workers);
+        }
+        final long failed = batchConverter.convert(inputs, System.err, statsInterval);
+        if(failed > 0) {
+            throw new RuntimeException( String.format("%d of %d files failed.", failed, inputs.size()) );
+        }
+    }
+
+    private int getPositiveInt(CommandLine cl, String option, int defaultValue, String error) {
+        if( ! cl.hasOption(option) ) {
+            return defaultValue;
+        }
+        int value;
+        try {
+            value = Integer.parseInt( cl.getOptionValue(option) );
+        } catch (NumberFormatException nfe) {
+            value = 0;
+        }
+        if(value <= 0) {
+            printUsageAndExit( String.format(error, cl.getOptionValue(option)) );
+        }
+        return value;
+    }
+
+    private void convert(
+            File inputFile, String inputFormat, String baseURI, int threads, boolean ordered,
+            RDFParser rdfParser, RDFHandler rdfHandler
+    ) {
+        final Compression inputCompression;
+        try {
+            inputCompression = Compression.detect(inputFile);
+        } catch (IOException ioe) {
+            throw new RuntimeException("Error while opening file.", ioe);
+        }
+        if(threads > 1 && NQUADS_FORMAT.equalsIgnoreCase(inputFormat) && inputCompression == Compression.NONE) {
+            final ParallelNQuadsParser parallelParser = new ParallelNQuadsParser(
+                    threads, ParallelNQuadsParser.DEFAULT_CHUNK_SIZE, ordered
+            );
+            parallelParser.setDatatypeHandling(RDFParser.DatatypeHandling.IGNORE);
+            parallelParser.setStopAtFirstError(false);
+            try {
+                parallelParser.parse(inputFile, baseURI, rdfHandler);
+            } catch (Exception e) {
+                throw new RuntimeException("Error while parsing file.", e);
+            }
+            return;
+        }
+
         // Configure RDF parser.
-        rdfParser.setRDFHandler(rdfWriter);
+        rdfParser.setRDFHandler(rdfHandler);
         rdfParser.setDatatypeHandling(RDFParser.DatatypeHandling.IGNORE);
         rdfParser.setStopAtFirstError(false);
 
         // Perform parsing.
-        FileInputStream fis;
+        final InputStream is;
         try {
-            fis = new FileInputStream(inputFile);
-        } catch (FileNotFoundException fnfe) {
-            throw new RuntimeException("Error while opening file.", fnfe);
+            is = inputCompression.openInput(inputFile, threads);
+        } catch (IOException ioe) {
+            throw new RuntimeException("Error while opening file.", ioe);
         }
-        BufferedInputStream bis = new BufferedInputStream(fis);
         try {
-            rdfParser.parse(bis, baseURI);
+            rdfParser.parse(is, baseURI);
         } catch (Exception e) {
             throw new RuntimeException("Error while parsing file.", e);
         } finally {
             try {
-                fis.close();
+                is.close();
             } catch (IOException ioe) {
                 throw new RuntimeException("Error while closing file buffer.", ioe);
             }
@@ -202,7 +425,7 @@ public class TripleConverter {
         final HelpFormatter formatter = new HelpFormatter();
         formatter.printHelp(
                 150,
-                String.format("%s OPTIONS <inputfile>", this.getClass().getName() ),
+                String.format("%s OPTIONS <inputfile> | <input>...", this.getClass().getName() ),
                 "Supported options are:",
                  options,
                 "\n"
@@ -211,7 +434,7 @@ public class TripleConverter {
         throw new RuntimeException(error);
     }
 
-    private RDFParser getParser(String inputFormat) {
+    RDFParser getParser(String inputFormat) {
         if(RDFXML_FORMAT.equalsIgnoreCase(inputFormat)) {
             return new RDFXMLParser();
         }
@@ -227,10 +450,13 @@ public class TripleConverter {
         if(NQUADS_FORMAT.equalsIgnoreCase(inputFormat)) {
             return new NQuadsParser();
         }
+        if(BINARY_FORMAT.equalsIgnoreCase(inputFormat)) {
+            return new BinaryRDFParser();
+        }
         throw new IllegalArgumentException( String.format("Invalid format %s", inputFormat) );
     }
 
-    private RDFWriter getWriter(String outputFormat, OutputStream os) {
+    RDFWriter getWriter(String outputFormat, OutputStream os) {
         if(RDFXML_FORMAT.equalsIgnoreCase(outputFormat)) {
             return new RDFXMLWriter(os);
         }
@@ -246,7 +472,30 @@ public class TripleConverter {
         if(NQUADS_FORMAT.equalsIgnoreCase(outputFormat)) {
             return new NQuadsWriter(os);
         }
+        if(BINARY_FORMAT.equalsIgnoreCase(outputFormat)) {
+            return new BinaryRDFWriter(os);
+        }
         throw new IllegalArgumentException( String.format("Invalid format %s", outputFormat) );
     }
 
+    /**
+     * Standard output stream flushed but not closed on {@link #close()}.
+     */
+    private static class StandardOutputStream extends FilterOutputStream {
+
+        private StandardOutputStream() {
+            super(System.out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
 }
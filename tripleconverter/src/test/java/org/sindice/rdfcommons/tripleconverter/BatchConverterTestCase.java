@@ -0,0 +1,184 @@
+/**
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.tripleconverter;
+
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.serialization.BinaryTripleReader;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Test case for {@link BatchConverter}.
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class BatchConverterTestCase {
+
+    private File inputDir;
+
+    private File outputDir;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        inputDir  = createTempDir("batch-in");
+        outputDir = createTempDir("batch-out");
+        writeQuads( new FileOutputStream( new File(inputDir, "a.nq") ), 10 );
+        new File(inputDir, "sub/deep").mkdirs();
+        writeQuads( new GZIPOutputStream( new FileOutputStream( new File(inputDir, "sub/b.nq.gz") ) ), 20 );
+        writeQuads( new FileOutputStream( new File(inputDir, "sub/deep/c.nq") ), 30 );
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        delete(inputDir);
+        delete(outputDir);
+    }
+
+    @Test
+    public void testGlobToPattern() {
+        Assert.assertTrue ( BatchConverter.globToPattern("*.nq").matcher("a.nq").matches() );
+        Assert.assertFalse( BatchConverter.globToPattern("*.nq").matcher("sub/b.nq").matches() );
+        Assert.assertTrue ( BatchConverter.globToPattern("**/*.nq").matcher("a.nq").matches() );
+        Assert.assertTrue ( BatchConverter.globToPattern("**/*.nq").matcher("sub/deep/c.nq").matches() );
+        Assert.assertTrue ( BatchConverter.globToPattern("sub/?.nq*").matcher("sub/b.nq.gz").matches() );
+        Assert.assertFalse( BatchConverter.globToPattern("a.nq").matcher("aXnq").matches() );
+    }
+
+    @Test
+    public void testResolve() {
+        final List<BatchConverter.Input> all = BatchConverter.resolve( new String[]{ inputDir.getPath() } );
+        Assert.assertEquals(all.size(), 3);
+        Assert.assertEquals(all.get(0).getPath(), "a.nq");
+        Assert.assertEquals(all.get(1).getPath(), "sub/b.nq.gz");
+        Assert.assertEquals(all.get(2).getPath(), "sub/deep/c.nq");
+
+        final List<BatchConverter.Input> glob = BatchConverter.resolve(
+                new String[]{ inputDir.getPath() + "/**/*.nq" }
+        );
+        Assert.assertEquals(glob.size(), 2);
+        Assert.assertEquals(glob.get(1).getPath(), "sub/deep/c.nq");
+
+        Assert.assertTrue ( BatchConverter.isBatch( new String[]{ inputDir.getPath() } ) );
+        Assert.assertTrue ( BatchConverter.isBatch( new String[]{ inputDir.getPath() + "/*.nq" } ) );
+        Assert.assertFalse( BatchConverter.isBatch( new String[]{ inputDir.getPath() + "/a.nq" } ) );
+    }
+
+    /**
+     * Tests that inputs converted to the same output file are rejected.
+     */
+    @Test
+    public void testResolveCollisions() throws IOException {
+        final File otherDir = createTempDir("batch-other");
+        try {
+            writeQuads( new FileOutputStream( new File(otherDir, "a.nq") ), 1 );
+            try {
+                BatchConverter.resolve( new String[]{ inputDir.getPath(), otherDir.getPath() } );
+                Assert.fail("Expected exception.");
+            } catch (IllegalArgumentException iae) {
+                Assert.assertTrue( iae.getMessage().contains("same output file") );
+            }
+        } finally {
+            delete(otherDir);
+        }
+
+        writeQuads( new FileOutputStream( new File(inputDir, "sub/deep/c.nt") ), 1 );
+        try {
+            BatchConverter.resolve( new String[]{ inputDir.getPath() } );
+            Assert.fail("Expected exception.");
+        } catch (IllegalArgumentException iae) {
+            Assert.assertTrue( iae.getMessage().contains("same output file") );
+        }
+    }
+
+    @Test
+    public void testConvert() throws IOException {
+        writeQuads( new FileOutputStream( new File(inputDir, "broken.nq") ), 0 );
+        final FileOutputStream broken = new FileOutputStream( new File(inputDir, "broken.nq"), true );
+        broken.write("<http://s> <http://p> ".getBytes("UTF-8"));
+        broken.close();
+
+        final BatchConverter converter = new BatchConverter(
+                new TripleConverter(),
+                TripleConverter.NQUADS_FORMAT,
+                TripleConverter.BINARY_FORMAT,
+                TripleConverter.DEFAULT_BASE_URI,
+                Compression.NONE,
+                outputDir,
+                2
+        );
+        final ByteArrayOutputStream stats = new ByteArrayOutputStream();
+        final long failed = converter.convert(
+                BatchConverter.resolve( new String[]{ inputDir.getPath() } ), new PrintStream(stats), 0
+        );
+        Assert.assertEquals(failed, 1);
+        Assert.assertEquals( readTriples( new File(outputDir, "a.brf") ), 10 );
+        Assert.assertEquals( readTriples( new File(outputDir, "sub/b.brf") ), 20 );
+        Assert.assertEquals( readTriples( new File(outputDir, "sub/deep/c.brf") ), 30 );
+        Assert.assertFalse( new File(outputDir, "broken.brf").exists(), "Partial output not deleted." );
+        Assert.assertTrue( stats.toString("UTF-8").contains("Files: 3 ") );
+        Assert.assertTrue( stats.toString("UTF-8").contains("triples: 60 ") );
+        Assert.assertTrue( stats.toString("UTF-8").contains("failed: 1") );
+    }
+
+    private void writeQuads(OutputStream os, int count) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < count; i++) {
+            sb.append( String.format("<http://s/%d> <http://p> \"literal %d\" <http://g> .\n", i, i) );
+        }
+        os.write( sb.toString().getBytes("UTF-8") );
+        os.close();
+    }
+
+    private int readTriples(File file) throws IOException {
+        final BinaryTripleReader reader = new BinaryTripleReader( new FileInputStream(file) );
+        try {
+            return reader.read( new TripleBuffer() );
+        } finally {
+            reader.close();
+        }
+    }
+
+    private File createTempDir(String prefix) throws IOException {
+        final File dir = File.createTempFile(prefix, "");
+        dir.delete();
+        dir.mkdir();
+        return dir;
+    }
+
+    private void delete(File file) {
+        final File[] children = file.listFiles();
+        if(children != null) {
+            for(File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+}
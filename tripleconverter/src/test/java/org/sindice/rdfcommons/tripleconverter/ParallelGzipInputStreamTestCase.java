@@ -0,0 +1,189 @@
+/**
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *          http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.tripleconverter;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Test case for {@link ParallelGzipInputStream} and {@link BackgroundOutputStream}.
+ *
+ * @author Michele Mostarda (mostarda@fbk.eu)
+ */
+public class ParallelGzipInputStreamTestCase {
+
+    /**
+     * Bytes looking like a member header.
+     */
+    private static final byte[] FAKE_HEADER = {
+            (byte) 0x1F, (byte) 0x8B, 8, 0, 0, 0, 0, 0, 0, (byte) 0xFF
+    };
+
+    private File file;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        file = File.createTempFile("parallel", ".gz");
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Tests the parallel decompression of many members, some of them containing fake headers.
+     */
+    @Test
+    public void testMultiMember() throws IOException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final OutputStream os = new FileOutputStream(file);
+        try {
+            for(int m = 0; m < 50; m++) {
+                final ByteArrayOutputStream member = new ByteArrayOutputStream();
+                for(int i = 0; i < 200; i++) {
+                    member.write( String.format("<http://s/%d/%d> <http://p> \"v\" .\n", m, i).getBytes("UTF-8") );
+                    if(m % 5 == 0 && i % 50 == 0) {
+                        member.write(FAKE_HEADER);
+                    }
+                }
+                writeMember(os, member.toByteArray(), m % 5 == 0);
+                expected.write( member.toByteArray() );
+            }
+        } finally {
+            os.close();
+        }
+        Assert.assertEquals( readAll( new ParallelGzipInputStream(file, 4, 64 * 1024) ), expected.toByteArray() );
+        // A budget smaller than a member inflates one segment at a time.
+        Assert.assertEquals( readAll( new ParallelGzipInputStream(file, 4, 64 * 1024, 1) ), expected.toByteArray() );
+    }
+
+    /**
+     * Tests the sequential fallback on members larger than the maximum segment size.
+     */
+    @Test
+    public void testLargeMember() throws IOException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for(int i = 0; i < 20000; i++) {
+            expected.write( String.format("<http://s/%d> <http://p> \"%d\" .\n", i, i * 31).getBytes("UTF-8") );
+        }
+        expected.write(FAKE_HEADER);
+        final OutputStream os = new FileOutputStream(file);
+        try {
+            writeMember(os, expected.toByteArray(), true);
+            writeMember(os, "next line\n".getBytes("UTF-8"), false);
+            writeMember(os, "last line\n".getBytes("UTF-8"), false);
+        } finally {
+            os.close();
+        }
+        expected.write( "next line\n".getBytes("UTF-8") );
+        expected.write( "last line\n".getBytes("UTF-8") );
+        Assert.assertEquals( readAll( new ParallelGzipInputStream(file, 2, 4 * 1024) ), expected.toByteArray() );
+    }
+
+    @Test
+    public void testBackgroundCompression() throws IOException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final OutputStream os = new BackgroundOutputStream(
+                Compression.GZIP.openOutput( new FileOutputStream(file) ), 1024, 2
+        );
+        for(int i = 0; i < 10000; i++) {
+            final byte[] line = String.format("line %d\n", i).getBytes("UTF-8");
+            os.write(line);
+            expected.write(line);
+        }
+        os.close();
+        Assert.assertEquals(Compression.detect(file), Compression.GZIP);
+        Assert.assertEquals( readAll( new GZIPInputStream( new FileInputStream(file) ) ), expected.toByteArray() );
+    }
+
+    /**
+     * Tests that the wrapped stream is closed when the background thread fails.
+     */
+    @Test
+    public void testBackgroundFailure() throws IOException {
+        final boolean[] wrappedClosed = new boolean[1];
+        final OutputStream os = new BackgroundOutputStream(
+                new OutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        throw new IOException("Write failure.");
+                    }
+
+                    @Override
+                    public void close() {
+                        wrappedClosed[0] = true;
+                    }
+                },
+                16, 1
+        );
+        try {
+            os.write( new byte[64] );
+        } catch (IOException ioe) {
+            // The failure can be reported by the write as well.
+        }
+        try {
+            os.close();
+            Assert.fail("Expected exception.");
+        } catch (IOException ioe) {
+            Assert.assertEquals( ioe.getMessage(), "Write failure." );
+        }
+        Assert.assertTrue( wrappedClosed[0], "Wrapped stream not closed." );
+    }
+
+    private void writeMember(OutputStream os, byte[] data, final boolean stored) throws IOException {
+        final ByteArrayOutputStream member = new ByteArrayOutputStream();
+        final GZIPOutputStream gzip = new GZIPOutputStream(member) {
+            {
+                if(stored) {
+                    def.setLevel(Deflater.NO_COMPRESSION);
+                }
+            }
+        };
+        gzip.write(data);
+        gzip.close();
+        os.write( member.toByteArray() );
+    }
+
+    private byte[] readAll(InputStream is) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try {
+            final byte[] buffer = new byte[1000];
+            int read;
+            while( (read = is.read(buffer)) != -1 ) {
+                result.write(buffer, 0, read);
+            }
+        } finally {
+            is.close();
+        }
+        return result.toByteArray();
+    }
+
+}
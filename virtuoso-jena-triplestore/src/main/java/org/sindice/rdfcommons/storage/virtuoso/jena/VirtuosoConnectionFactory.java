@@ -0,0 +1,76 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.storage.virtuoso.jena;
+
+import org.apache.log4j.Logger;
+import org.sindice.rdfcommons.storage.ConnectionFactory;
+import org.sindice.rdfcommons.storage.StorageException;
+import virtuoso.jena.driver.VirtGraph;
+
+/**
+ * {@link ConnectionFactory} opening {@link VirtGraph}s bound to a single graph
+ * of the <i>Virtuoso</i> server described by a {@link VirtuosoTripleStorageConfig}.
+ *
+ * @author Michele Mostarda ( michele.mostarda@gmail.com )
+ * @version $Id$
+ */
+public class VirtuosoConnectionFactory implements ConnectionFactory<VirtGraph> {
+
+    private static final Logger logger = Logger.getLogger(VirtuosoConnectionFactory.class);
+
+    private final VirtuosoTripleStorageConfig config;
+
+    private final String graphURI;
+
+    /**
+     * Constructor.
+     *
+     * @param config the configuration of the server.
+     * @param graphURI the graph the connections are bound to, <code>null</code> for the master graph.
+     */
+    public VirtuosoConnectionFactory(VirtuosoTripleStorageConfig config, String graphURI) {
+        if(config == null) {
+            throw new NullPointerException("config cannot be null.");
+        }
+        this.config   = config;
+        this.graphURI = graphURI;
+    }
+
+    public VirtGraph createConnection() throws StorageException {
+        try {
+            if(graphURI == null) {
+                return new VirtGraph( config.getUrl(), config.getUsername(), config.getPassword() );
+            }
+            return new VirtGraph( graphURI, config.getUrl(), config.getUsername(), config.getPassword() );
+        } catch (Exception e) {
+            throw new StorageException("Error while establishing connection.", e);
+        }
+    }
+
+    public boolean validateConnection(VirtGraph connection) {
+        return ! connection.isClosed();
+    }
+
+    public void destroyConnection(VirtGraph connection) {
+        try {
+            connection.close();
+        } catch (Exception e) {
+            logger.error("Error while closing connection.", e);
+        }
+    }
+
+}
@@ -16,35 +16,74 @@
 
 package org.sindice.rdfcommons.storage.virtuoso.jena;
 
+import com.hp.hpl.jena.query.QueryExecution;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.rdf.model.Literal;
 import com.hp.hpl.jena.rdf.model.RDFNode;
+import org.sindice.rdfcommons.storage.ConnectionPool;
 import org.sindice.rdfcommons.storage.ResultSet;
+import virtuoso.jena.driver.VirtGraph;
 
+import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
 /**
- * Defines the virtuoso result set.
+ * Defines the virtuoso result set. The pooled connection is given back once the result
+ * has been fully consumed, callers stopping earlier must invoke {@link #close()}.
  *
  * @author Michele Mostarda ( michele.mostarda@gmail.com )
  * @version $Id$
  */
-public class VirtuosoResultSet implements ResultSet {
+public class VirtuosoResultSet implements ResultSet, Closeable {
+
+    private final QueryExecution execution;
 
     private com.hp.hpl.jena.query.ResultSet resultSet;
 
+    private final ConnectionPool<VirtGraph> connectionPool;
+
+    private VirtGraph connection;
+
     private QuerySolution solution;
 
     private String[] variables;
 
-    protected VirtuosoResultSet(com.hp.hpl.jena.query.ResultSet rs) {
-        resultSet = rs;
+    /**
+     * Constructor.
+     *
+     * @param execution the query execution, closed when the result is consumed.
+     * @param rs the wrapped result set.
+     * @param connectionPool the pool the connection has been borrowed from.
+     * @param connection the connection evaluating the query, given back when the result is consumed.
+     */
+    protected VirtuosoResultSet(
+            QueryExecution execution,
+            com.hp.hpl.jena.query.ResultSet rs,
+            ConnectionPool<VirtGraph> connectionPool,
+            VirtGraph connection
+    ) {
+        this.execution      = execution;
+        resultSet           = rs;
+        this.connectionPool = connectionPool;
+        this.connection     = connection;
     }
 
     public boolean hasNext() {
-        return resultSet.hasNext();
+        if(connection == null) {
+            return false;
+        }
+        try {
+            if( resultSet.hasNext() ) {
+                return true;
+            }
+        } catch (RuntimeException re) {
+            releaseConnection();
+            throw re;
+        }
+        releaseConnection();
+        return false;
     }
 
     public void next() {
@@ -88,4 +127,23 @@ public class VirtuosoResultSet implements ResultSet {
         }
         return variables;
     }
+
+    /**
+     * Closes the query execution and gives back its connection, can be invoked more than once.
+     */
+    public void close() {
+        if(connection == null) {
+            return;
+        }
+        releaseConnection();
+    }
+
+    private void releaseConnection() {
+        try {
+            execution.close();
+        } finally {
+            connectionPool.release(connection);
+            connection = null;
+        }
+    }
 }
@@ -22,59 +22,81 @@ import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.rdf.model.Model;
 import org.sindice.rdfcommons.adapter.jena.JenaConversionUtil;
 import org.sindice.rdfcommons.model.TripleSet;
+import org.sindice.rdfcommons.storage.ConnectionPool;
 import org.sindice.rdfcommons.storage.SparqlEndPoint;
 import org.sindice.rdfcommons.storage.SparqlEndpointException;
+import org.sindice.rdfcommons.storage.StorageException;
 import virtuoso.jena.driver.VirtGraph;
 import virtuoso.jena.driver.VirtuosoQueryExecution;
 import virtuoso.jena.driver.VirtuosoQueryExecutionFactory;
 
 /**
  * <i>Virtuoso</i> implementation of {@link org.sindice.rdfcommons.storage.SparqlEndPoint}.
+ * Every query borrows a connection from the pool, the select queries give it back
+ * once their {@link org.sindice.rdfcommons.storage.ResultSet} has been fully consumed or closed.
  *
  * @author Michele Mostarda ( michele.mostarda@gmail.com )
  * @version $Id$
  */
 public class VirtuosoSparqlEndPoint implements SparqlEndPoint {
 
-    private VirtGraph graph;
+    private final ConnectionPool<VirtGraph> connectionPool;
 
-    protected VirtuosoSparqlEndPoint(VirtGraph vg) {
-        graph = vg;
+    protected VirtuosoSparqlEndPoint(ConnectionPool<VirtGraph> connectionPool) {
+        this.connectionPool = connectionPool;
     }
 
     public org.sindice.rdfcommons.storage.ResultSet processSelectQuery(String qry)
     throws SparqlEndpointException {
+        final VirtGraph graph = borrowConnection();
         try {
-            ResultSet resultSet = createQueryExecution(qry).execSelect();
-            return new VirtuosoResultSet(resultSet);
+            final VirtuosoQueryExecution execution = createQueryExecution(graph, qry);
+            final ResultSet resultSet;
+            try {
+                resultSet = execution.execSelect();
+            } catch (RuntimeException re) {
+                execution.close();
+                throw re;
+            }
+            return new VirtuosoResultSet(execution, resultSet, connectionPool, graph);
         } catch (Exception e) {
+            connectionPool.release(graph);
             throw new SparqlEndpointException("Error while performing select operation.", e);
         }
     }
 
     public TripleSet processConstructQuery(String qry) throws SparqlEndpointException {
+        final VirtGraph graph = borrowConnection();
         try {
-            Model model = createQueryExecution(qry).execConstruct();
+            Model model = createQueryExecution(graph, qry).execConstruct();
             return JenaConversionUtil.getInstance().convertJenaModelToTripleSet(model, null);
         } catch (Exception e) {
             throw new SparqlEndpointException("Error while performing construct operation.", e);
+        } finally {
+            connectionPool.release(graph);
         }
     }
 
     public TripleSet processDescribeQuery(String qry) throws SparqlEndpointException {
+        final VirtGraph graph = borrowConnection();
         try {
-            Model model = createQueryExecution(qry).execDescribe();
+            Model model = createQueryExecution(graph, qry).execDescribe();
             return JenaConversionUtil.getInstance().convertJenaModelToTripleSet(model, null);
         } catch (Exception e) {
             throw new SparqlEndpointException("Error while performing construct operation.", e);
+        } finally {
+            connectionPool.release(graph);
         }
     }
 
     public boolean processAskQuery(String qry) throws SparqlEndpointException {
+        final VirtGraph graph = borrowConnection();
         try {
-            return createQueryExecution(qry).execAsk();
+            return createQueryExecution(graph, qry).execAsk();
         } catch (Exception e) {
             throw new SparqlEndpointException("Error while performing ask operation.", e);
+        } finally {
+            connectionPool.release(graph);
         }
     }
 
@@ -119,7 +141,16 @@ public class VirtuosoSparqlEndPoint implements SparqlEndPoint {
         throw new IllegalArgumentException( String.format("Invalid query: [%s]", query.toString()) );
     }
 
-    private VirtuosoQueryExecution createQueryExecution(String queryStr) throws SparqlEndpointException {
+    private VirtGraph borrowConnection() throws SparqlEndpointException {
+        try {
+            return connectionPool.borrow();
+        } catch (StorageException se) {
+            throw new SparqlEndpointException("Error while connecting with repository.", se);
+        }
+    }
+
+    private VirtuosoQueryExecution createQueryExecution(VirtGraph graph, String queryStr)
+    throws SparqlEndpointException {
         try {
             return VirtuosoQueryExecutionFactory.create( parseQuery(queryStr), graph);
         } catch (Exception e) {
@@ -24,6 +24,8 @@ import org.sindice.rdfcommons.adapter.jena.JenaConversionUtil;
 import org.sindice.rdfcommons.model.TripleBuffer;
 import org.sindice.rdfcommons.model.TripleIterator;
 import org.sindice.rdfcommons.model.TripleSet;
+import org.sindice.rdfcommons.storage.ConnectionPool;
+import org.sindice.rdfcommons.storage.SharedConnectionLimit;
 import org.sindice.rdfcommons.storage.SparqlEndPoint;
 import org.sindice.rdfcommons.storage.StorageException;
 import org.sindice.rdfcommons.storage.TripleStorage;
@@ -31,13 +33,29 @@ import org.sindice.rdfcommons.storage.TripleStorageConfig;
 import org.sindice.rdfcommons.storage.TripleStorageFilter;
 import virtuoso.jena.driver.VirtGraph;
 
+import java.io.Closeable;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link org.sindice.rdfcommons.storage.TripleStorage} implementation for <i>Virtuoso</i>.
+ * <p>
+ * Since every {@link VirtGraph} is bound to a single graph, a bounded {@link ConnectionPool} is kept
+ * for every accessed graph and for the master graph. Every operation borrows a connection
+ * from the pool of its graph, so the storage can be used concurrently by many threads.
+ * The pools share a single evictor thread and a {@link SharedConnectionLimit} on the connections open
+ * in all of them, idle ones included, the pool of a graph is dropped once all its connections have been evicted.
+ * The iterators returned by {@link #getTriplesIterator(String, TripleStorageFilter)} and the
+ * select results of the {@link #getSparqlEndPoint()} hold their connection until they are fully consumed,
+ * callers stopping earlier must close them as {@link Closeable}.
+ * </p>
  *
  * @author Michele Mostarda ( michele.mostarda@gmail.com )
  * @version $Id$
@@ -46,46 +64,93 @@ public class VirtuosoTripleStorage implements TripleStorage {
 
     private static final Logger logger = Logger.getLogger(VirtuosoTripleStorage.class);
 
+    private final ConcurrentMap<String,ConnectionPool<VirtGraph>> graphPools =
+            new ConcurrentHashMap<String,ConnectionPool<VirtGraph>>();
+
     private VirtuosoTripleStorageConfig virtuosoConfig;
 
-    private Map<String,VirtGraph> virtuosoGraphs;
+    /**
+     * Pool of the connections to the master graph.
+     */
+    private ConnectionPool<VirtGraph> defaultGraphPool;
+
+    /**
+     * Evictor shared by all the pools.
+     */
+    private ScheduledExecutorService evictor;
 
     /**
-     * Represents the master graph.
+     * Limit of the connections open in all the pools.
      */
-    private VirtGraph defaultGraph;
+    private SharedConnectionLimit connections;
 
     public void openStorage(TripleStorageConfig config) {
         if( ! (config instanceof VirtuosoTripleStorageConfig) ) {
             throw new IllegalArgumentException("config must be instance of " + VirtuosoTripleStorageConfig.class);
         }
         virtuosoConfig = (VirtuosoTripleStorageConfig) config;
-        virtuosoGraphs = new HashMap<String,VirtGraph>();
+        connections    = new SharedConnectionLimit( virtuosoConfig.getMaxTotalConnections() );
+        evictor        = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "virtuoso-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final long maxIdleTime = virtuosoConfig.getMaxIdleTime();
+        if(maxIdleTime > 0) {
+            evictor.scheduleWithFixedDelay(
+                    new Runnable() {
+                        public void run() {
+                            dropUnusedPools();
+                        }
+                    },
+                    maxIdleTime, maxIdleTime, TimeUnit.MILLISECONDS
+            );
+        }
+        defaultGraphPool = createPool(null);
     }
 
     public void closeStorage() {
         virtuosoConfig = null;
 
         try {
-            if(defaultGraph != null) {
-                defaultGraph.close();
+            if(defaultGraphPool != null) {
+                defaultGraphPool.close();
             }
         } catch (Exception e) {
             logger.error("Error while closing master graph.", e);
+        } finally {
+            defaultGraphPool = null;
         }
 
-        for(VirtGraph vg : virtuosoGraphs.values()) {
+        for(ConnectionPool<VirtGraph> pool : graphPools.values()) {
             try {
-                vg.close();
+                pool.close();
             } catch (Exception e) {
                 logger.error("Error while closing a storage.", e);
             }
         }
-        virtuosoGraphs.clear();
+        graphPools.clear();
+
+        if(evictor != null) {
+            evictor.shutdownNow();
+            evictor = null;
+        }
     }
 
     public boolean isOpen() {
-        return defaultGraph != null || virtuosoGraphs.size() > 0;
+        return defaultGraphPool != null;
+    }
+
+    /**
+     * @param graph the graph URI.
+     * @return the pool of the connections to the given graph, closed once dropped
+     *         because unused: it must not be retained.
+     */
+    public ConnectionPool<VirtGraph> getConnectionPool(String graph) {
+        checkOpened();
+        return getPool(graph);
     }
 
     public void store(TripleSet tripleSet) throws StorageException {
@@ -94,10 +159,14 @@ public class VirtuosoTripleStorage implements TripleStorage {
 
     public void store(String graph, TripleSet tripleSet) throws StorageException {
         checkOpened();
-        VirtGraph vg = getGraph(graph);
-        vg.getBulkUpdateHandler().add(
-            JenaConversionUtil.getInstance().convertToJenaTriples(tripleSet)
-        );
+        final Lease lease = borrow(graph);
+        try {
+            lease.graph.getBulkUpdateHandler().add(
+                JenaConversionUtil.getInstance().convertToJenaTriples(tripleSet)
+            );
+        } finally {
+            lease.release();
+        }
     }
 
     public void remove(TripleSet tripleSet) throws StorageException {
@@ -106,111 +175,94 @@ public class VirtuosoTripleStorage implements TripleStorage {
 
     public void remove(String graph, TripleSet tripleSet) throws StorageException {
         checkOpened();
-        VirtGraph vg = getGraph(graph);
-        vg.getBulkUpdateHandler().delete(
-            JenaConversionUtil.getInstance().convertToJenaTriples(tripleSet)
-        );
+        final Lease lease = borrow(graph);
+        try {
+            lease.graph.getBulkUpdateHandler().delete(
+                JenaConversionUtil.getInstance().convertToJenaTriples(tripleSet)
+            );
+        } finally {
+            lease.release();
+        }
     }
 
-    public TripleIterator getTriplesIterator(TripleStorageFilter tripleFilter) {
+    public TripleIterator getTriplesIterator(TripleStorageFilter tripleFilter) throws StorageException {
         return getTriplesIterator( virtuosoConfig.getDefaultGraphName(), tripleFilter );
     }
 
-    public TripleIterator getTriplesIterator(String graph, TripleStorageFilter tripleFilter) {
+    public TripleIterator getTriplesIterator(String graph, TripleStorageFilter tripleFilter)
+    throws StorageException {
         checkOpened();
-        VirtGraph vg = getGraph(graph);
-        final ExtendedIterator iterator = vg.graphBaseFind(
-                JenaConversionUtil.getInstance().convertToJenaTripleMatch(tripleFilter)
-        );
-        return new TripleIterator() {
-
-            private com.hp.hpl.jena.graph.Triple triple;
-
-            public boolean hasNext() {
-                return iterator.hasNext();
-            }
-
-            public void next() {
-                triple = (com.hp.hpl.jena.graph.Triple) iterator.next();
-            }
-
-            public String subject() {
-                return triple.getSubject().getURI();
-            }
-
-            public String predicate() {
-                return triple.getPredicate().getURI();
-            }
-
-            public Object object() {
-                return triple.getObject().getLiteralValue();
-            }
-
-            public String objectStr() {
-                return triple.getObject().getURI();
-            }
-
-            public boolean isBlankSubject() {
-                return triple.getSubject().isBlank();
-            }
-
-            public boolean isBlankObject() {
-                return triple.getObject().isBlank();
-            }
-
-            public boolean isObjLiteral() {
-                return triple.getObject().isLiteral();
-            }
-        };
+        final Lease lease = borrow(graph);
+        final ExtendedIterator iterator;
+        try {
+            iterator = lease.graph.graphBaseFind(
+                    JenaConversionUtil.getInstance().convertToJenaTripleMatch(tripleFilter)
+            );
+        } catch (RuntimeException re) {
+            lease.release();
+            throw re;
+        }
+        return new InternalTripleIterator(lease, iterator);
     }
 
-    public TripleSet getTriples(TripleStorageFilter tripleStorageFilter) {
+    public TripleSet getTriples(TripleStorageFilter tripleStorageFilter) throws StorageException {
         return getTriples( virtuosoConfig.getDefaultGraphName(), tripleStorageFilter );
     }
 
-    public TripleSet getTriples(String graph, TripleStorageFilter tripleStorageFilter) {
+    public TripleSet getTriples(String graph, TripleStorageFilter tripleStorageFilter) throws StorageException {
         checkOpened();
 
         final JenaConversionUtil jenaConversionUtil = JenaConversionUtil.getInstance();
-        final VirtGraph vg = getGraph(graph);
         final TripleMatch tripleMatch = jenaConversionUtil.convertToJenaTripleMatch(tripleStorageFilter);
-        final ExtendedIterator extendedIterator = vg.find(
-                tripleMatch.getMatchSubject(),
-                tripleMatch.getMatchPredicate(),
-                tripleMatch.getMatchObject()
-        );
-
-        final TripleSet result = new TripleBuffer();
-        Triple triple;
+        final Lease lease = borrow(graph);
         try {
-            while (extendedIterator.hasNext()) {
-                triple = (Triple) extendedIterator.next();
-                result.addTriple(jenaConversionUtil.convertJenaTripleToTriple(triple, graph));
+            final ExtendedIterator extendedIterator = lease.graph.find(
+                    tripleMatch.getMatchSubject(),
+                    tripleMatch.getMatchPredicate(),
+                    tripleMatch.getMatchObject()
+            );
+
+            final TripleSet result = new TripleBuffer();
+            Triple triple;
+            try {
+                while (extendedIterator.hasNext()) {
+                    triple = (Triple) extendedIterator.next();
+                    result.addTriple(jenaConversionUtil.convertJenaTripleToTriple(triple, graph));
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("Error while converting triple.", e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error while converting triple.", e);
+            return result;
+        } finally {
+            lease.release();
         }
-        return result;
     }
 
     public SparqlEndPoint getSparqlEndPoint() {
         checkOpened();
-        return new VirtuosoSparqlEndPoint( getDefaultGraph() );
+        return new VirtuosoSparqlEndPoint(defaultGraphPool);
     }
 
-    public void clear(String graph) {
+    public void clear(String graph) throws StorageException {
         checkOpened();
-        VirtGraph vg = getGraph(graph);
-        vg.clear();
+        final Lease lease = borrow(graph);
+        try {
+            lease.graph.clear();
+        } finally {
+            lease.release();
+        }
     }
 
     public void clearAll() throws StorageException {
-        final VirtGraph vg = getGraph(null);
-        final Connection connection = vg.getConnection();
+        checkOpened();
+        final VirtGraph vg = defaultGraphPool.borrow();
         try {
+            final Connection connection = vg.getConnection();
             connection.prepareStatement("RDF_GLOBAL_RESET()").execute();
         } catch (SQLException sqle) {
             throw new StorageException("Error while deleting all triple store content.", sqle);
+        } finally {
+            defaultGraphPool.release(vg);
         }
     }
 
@@ -223,30 +275,165 @@ public class VirtuosoTripleStorage implements TripleStorage {
         }
     }
 
-    private VirtGraph getGraph(String graphURI) {
-        // TODO: (MED) add graph pool to avoid creating too much connections.
-        VirtGraph vg = virtuosoGraphs.get(graphURI);
-        if(vg == null) {
-            vg = new VirtGraph(
-                graphURI,
-                virtuosoConfig.getUrl(),
-                virtuosoConfig.getUsername(),
-                virtuosoConfig.getPassword()
-            );
-            virtuosoGraphs.put(graphURI, vg);
+    /**
+     * Returns the pool of the given graph, creating it at the first access.
+     */
+    private ConnectionPool<VirtGraph> getPool(String graphURI) {
+        ConnectionPool<VirtGraph> pool = graphPools.get(graphURI);
+        if(pool == null) {
+            final ConnectionPool<VirtGraph> created = createPool(graphURI);
+            pool = graphPools.putIfAbsent(graphURI, created);
+            if(pool == null) {
+                pool = created;
+            } else {
+                created.close();
+            }
         }
-        return vg;
+        return pool;
     }
 
-    private VirtGraph getDefaultGraph() {
-        if(defaultGraph == null) {
-            defaultGraph = new VirtGraph(
-                virtuosoConfig.getUrl(),
-                virtuosoConfig.getUsername(),
-                virtuosoConfig.getPassword()
-            );
+    /**
+     * Borrows a connection to the given graph, from a new pool if the current one is dropped meanwhile.
+     */
+    private Lease borrow(String graphURI) throws StorageException {
+        while(true) {
+            checkOpened();
+            final ConnectionPool<VirtGraph> pool = getPool(graphURI);
+            try {
+                return new Lease( pool, pool.borrow() );
+            } catch (IllegalStateException ise) {
+                if( ! pool.isClosed() ) {
+                    throw ise;
+                }
+                graphPools.remove(graphURI, pool);
+            }
+        }
+    }
+
+    /**
+     * Drops the graph pools whose connections have all been evicted.
+     */
+    private void dropUnusedPools() {
+        for(Map.Entry<String,ConnectionPool<VirtGraph>> entry : graphPools.entrySet()) {
+            if( entry.getValue().closeIfUnused() ) {
+                graphPools.remove( entry.getKey(), entry.getValue() );
+            }
+        }
+    }
+
+    private ConnectionPool<VirtGraph> createPool(String graphURI) {
+        return new ConnectionPool<VirtGraph>(
+                new VirtuosoConnectionFactory(virtuosoConfig, graphURI),
+                virtuosoConfig.getMaxConnections(),
+                virtuosoConfig.getMaxIdleTime(),
+                virtuosoConfig.getBorrowTimeout(),
+                evictor,
+                connections
+        );
+    }
+
+    private static class InternalTripleIterator implements TripleIterator, Closeable {
+
+        private final ExtendedIterator iterator;
+
+        private Lease connection;
+
+        private Triple triple;
+
+        private InternalTripleIterator(Lease connection, ExtendedIterator iterator) {
+            this.connection = connection;
+            this.iterator   = iterator;
+        }
+
+        public boolean hasNext() {
+            if(connection == null) {
+                return false;
+            }
+            try {
+                if( iterator.hasNext() ) {
+                    return true;
+                }
+                iterator.close();
+            } catch (RuntimeException re) {
+                releaseConnection();
+                throw re;
+            }
+            releaseConnection();
+            return false;
+        }
+
+        public void next() {
+            triple = (Triple) iterator.next();
+        }
+
+        public String subject() {
+            return triple.getSubject().getURI();
+        }
+
+        public String predicate() {
+            return triple.getPredicate().getURI();
+        }
+
+        public Object object() {
+            return triple.getObject().getLiteralValue();
+        }
+
+        public String objectStr() {
+            return triple.getObject().getURI();
+        }
+
+        public boolean isBlankSubject() {
+            return triple.getSubject().isBlank();
+        }
+
+        public boolean isBlankObject() {
+            return triple.getObject().isBlank();
+        }
+
+        public boolean isObjLiteral() {
+            return triple.getObject().isLiteral();
+        }
+
+        /**
+         * Closes the result and gives back its connection, can be invoked more than once.
+         */
+        public void close() {
+            if(connection == null) {
+                return;
+            }
+            try {
+                iterator.close();
+            } finally {
+                releaseConnection();
+            }
+        }
+
+        /**
+         * Gives back the connection once the result has been consumed.
+         */
+        private void releaseConnection() {
+            connection.release();
+            connection = null;
+        }
+    }
+
+    /**
+     * A connection borrowed from the pool of a graph.
+     */
+    private static class Lease {
+
+        private final ConnectionPool<VirtGraph> pool;
+
+        private final VirtGraph graph;
+
+        private Lease(ConnectionPool<VirtGraph> pool, VirtGraph graph) {
+            this.pool  = pool;
+            this.graph = graph;
+        }
+
+        private void release() {
+            pool.release(graph);
         }
-        return defaultGraph;
     }
 
 }
@@ -16,6 +16,7 @@
 
 package org.sindice.rdfcommons.storage.virtuoso.jena;
 
+import org.sindice.rdfcommons.storage.ConnectionPool;
 import org.sindice.rdfcommons.storage.TripleStorageConfig;
 
 /**
@@ -46,6 +47,26 @@ public class VirtuosoTripleStorageConfig implements TripleStorageConfig {
      */
     private String password;
 
+    /**
+     * Maximum number of connections used at the same time on every graph.
+     */
+    private int maxConnections = ConnectionPool.DEFAULT_MAX_SIZE;
+
+    /**
+     * Maximum number of connections open at the same time on all the graphs, idle ones included.
+     */
+    private int maxTotalConnections = 4 * ConnectionPool.DEFAULT_MAX_SIZE;
+
+    /**
+     * Time after which an idle connection is closed, in milliseconds.
+     */
+    private long maxIdleTime = ConnectionPool.DEFAULT_MAX_IDLE_TIME;
+
+    /**
+     * Maximum time waited for a connection, in milliseconds.
+     */
+    private long borrowTimeout = ConnectionPool.DEFAULT_BORROW_TIMEOUT;
+
     /**
      * Constructor.
      *
@@ -101,4 +122,74 @@ public class VirtuosoTripleStorageConfig implements TripleStorageConfig {
         return password;
     }
 
+    /**
+     * @return the maximum number of connections used at the same time on every graph.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @param maxConnections the maximum number of connections used at the same time on every graph.
+     */
+    public void setMaxConnections(int maxConnections) {
+        if(maxConnections <= 0) {
+            throw new IllegalArgumentException("invalid maxConnections");
+        }
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * @return the maximum number of connections open at the same time on all the graphs, idle ones included.
+     */
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    /**
+     * @param maxTotalConnections the maximum number of connections open at the same time on all the graphs,
+     *                            idle ones included.
+     */
+    public void setMaxTotalConnections(int maxTotalConnections) {
+        if(maxTotalConnections <= 0) {
+            throw new IllegalArgumentException("invalid maxTotalConnections");
+        }
+        this.maxTotalConnections = maxTotalConnections;
+    }
+
+    /**
+     * @return the time after which an idle connection is closed, in milliseconds.
+     */
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * @param maxIdleTime the time after which an idle connection is closed, in milliseconds,
+     *        <code>0</code> to keep idle connections open.
+     */
+    public void setMaxIdleTime(long maxIdleTime) {
+        if(maxIdleTime < 0) {
+            throw new IllegalArgumentException("invalid maxIdleTime");
+        }
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    /**
+     * @return the maximum time waited for a connection, in milliseconds.
+     */
+    public long getBorrowTimeout() {
+        return borrowTimeout;
+    }
+
+    /**
+     * @param borrowTimeout the maximum time waited for a connection, in milliseconds.
+     */
+    public void setBorrowTimeout(long borrowTimeout) {
+        if(borrowTimeout < 0) {
+            throw new IllegalArgumentException("invalid borrowTimeout");
+        }
+        this.borrowTimeout = borrowTimeout;
+    }
+
 }
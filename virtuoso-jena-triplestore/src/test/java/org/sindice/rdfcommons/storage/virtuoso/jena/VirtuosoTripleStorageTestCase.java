@@ -169,7 +169,7 @@ public class VirtuosoTripleStorageTestCase {
      * Tests the #getTriples method.
      */
     @Test(dependsOnMethods = {"testBasicStore"} )
-    public void testGetTriples() {
+    public void testGetTriples() throws StorageException {
         TripleSet set = storage.getTriples( AllTriplesStorageFilter.getInstance() );
         assert set.getSize() > 0;
     }
@@ -429,7 +429,7 @@ public class VirtuosoTripleStorageTestCase {
         assert ts.getSize() == 0 : "Unexpected size: "+ ts.getSize();
     }
 
-    private TripleSet getTBDTriples(String graphName) {
+    private TripleSet getTBDTriples(String graphName) throws StorageException {
         return storage.getTriples(graphName, new TripleStorageFilter(){
             public String getSubjectMatching() {
                 return null;
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.storage.virtuoso.sesame;
+
+import org.apache.log4j.Logger;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.sindice.rdfcommons.storage.ConnectionFactory;
+import org.sindice.rdfcommons.storage.StorageException;
+import virtuoso.sesame2.driver.VirtuosoRepository;
+
+/**
+ * {@link ConnectionFactory} opening connections to the <i>Virtuoso</i> repository
+ * described by a {@link VirtuosoTripleStorageConfig}.
+ *
+ * @author Michele Mostarda ( michele.mostarda@gmail.com )
+ * @version $Id$
+ */
+public class VirtuosoConnectionFactory implements ConnectionFactory<RepositoryConnection> {
+
+    private static final Logger logger = Logger.getLogger(VirtuosoConnectionFactory.class);
+
+    private final VirtuosoRepository virtuosoRepository;
+
+    public VirtuosoConnectionFactory(VirtuosoTripleStorageConfig config) {
+        if(config == null) {
+            throw new NullPointerException("config cannot be null.");
+        }
+        virtuosoRepository = new VirtuosoRepository(
+                config.getUrl(),
+                config.getUsername(),
+                config.getPassword()
+        );
+    }
+
+    public RepositoryConnection createConnection() throws StorageException {
+        try {
+            return virtuosoRepository.getConnection();
+        } catch (RepositoryException re) {
+            throw new StorageException("Error while establishing connection.", re);
+        }
+    }
+
+    public boolean validateConnection(RepositoryConnection connection) {
+        try {
+            return connection.isOpen();
+        } catch (RepositoryException re) {
+            return false;
+        }
+    }
+
+    public void destroyConnection(RepositoryConnection connection) {
+        try {
+            connection.close();
+        } catch (Exception e) {
+            logger.error("Error while closing connection.", e);
+        }
+    }
+
+}
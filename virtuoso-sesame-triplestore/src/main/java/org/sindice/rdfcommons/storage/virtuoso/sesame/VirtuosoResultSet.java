@@ -22,28 +22,61 @@ import org.openrdf.model.Value;
 import org.openrdf.query.BindingSet;
 import org.openrdf.query.QueryEvaluationException;
 import org.openrdf.query.TupleQueryResult;
+import org.openrdf.repository.RepositoryConnection;
 import org.sindice.rdfcommons.adapter.LiteralFactoryException;
 import org.sindice.rdfcommons.model.Literal;
+import org.sindice.rdfcommons.storage.ConnectionPool;
 import org.sindice.rdfcommons.storage.ResultSet;
 
+import java.io.Closeable;
 import java.util.Set;
 
-public class VirtuosoResultSet implements ResultSet {
+/**
+ * {@link ResultSet} over a <i>Sesame</i> tuple query result. The pooled connection is given back
+ * once the result has been fully consumed, callers stopping earlier must invoke {@link #close()}.
+ */
+public class VirtuosoResultSet implements ResultSet, Closeable {
 
         private final TupleQueryResult queryResult;
 
+        private final ConnectionPool<RepositoryConnection> connectionPool;
+
+        private RepositoryConnection connection;
+
         private BindingSet bindingSet;
 
-        protected VirtuosoResultSet(TupleQueryResult queryResult) {
-            this.queryResult = queryResult;
+        /**
+         * Constructor.
+         *
+         * @param queryResult the wrapped query result.
+         * @param connectionPool the pool the connection has been borrowed from.
+         * @param connection the connection evaluating the query, given back when the result is consumed.
+         */
+        protected VirtuosoResultSet(
+                TupleQueryResult queryResult,
+                ConnectionPool<RepositoryConnection> connectionPool,
+                RepositoryConnection connection
+        ) {
+            this.queryResult    = queryResult;
+            this.connectionPool = connectionPool;
+            this.connection     = connection;
         }
 
         public boolean hasNext() {
+            if(connection == null) {
+                return false;
+            }
             try {
-                return queryResult.hasNext();
+                if( queryResult.hasNext() ) {
+                    return true;
+                }
+                queryResult.close();
             } catch (QueryEvaluationException qee) {
+                releaseConnection();
                 throw new RuntimeException("Error while checking query result.", qee);
             }
+            releaseConnection();
+            return false;
         }
 
         public void next() {
@@ -84,4 +117,25 @@ public class VirtuosoResultSet implements ResultSet {
             final Set<String> bindingNames = bindingSet.getBindingNames();
             return bindingNames.toArray( new String[bindingNames.size()] );
         }
-    }
\ No newline at end of file
+
+        /**
+         * Closes the query result and gives back its connection, can be invoked more than once.
+         */
+        public void close() {
+            if(connection == null) {
+                return;
+            }
+            try {
+                queryResult.close();
+            } catch (QueryEvaluationException qee) {
+                throw new RuntimeException("Error while closing query result.", qee);
+            } finally {
+                releaseConnection();
+            }
+        }
+
+        private void releaseConnection() {
+            connectionPool.release(connection);
+            connection = null;
+        }
+    }
@@ -27,17 +27,21 @@ import org.openrdf.query.TupleQueryResult;
 import org.openrdf.query.parser.ParsedQuery;
 import org.openrdf.query.parser.QueryParser;
 import org.openrdf.query.parser.QueryParserRegistry;
+import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
 import org.sindice.rdfcommons.adapter.sesame.SesameConversionUtil;
 import org.sindice.rdfcommons.model.TripleBuffer;
 import org.sindice.rdfcommons.model.TripleSet;
+import org.sindice.rdfcommons.storage.ConnectionPool;
 import org.sindice.rdfcommons.storage.ResultSet;
 import org.sindice.rdfcommons.storage.SparqlEndPoint;
 import org.sindice.rdfcommons.storage.SparqlEndpointException;
-import virtuoso.sesame2.driver.VirtuosoRepositoryConnection;
+import org.sindice.rdfcommons.storage.StorageException;
 
 /**
  * <i>Virtuoso</i> implementation of {@link org.sindice.rdfcommons.storage.SparqlEndPoint}.
+ * Every query borrows a connection from the pool, the select queries give it back
+ * once their {@link ResultSet} has been fully consumed or closed.
  *
  * @author Michele Mostarda ( michele.mostarda@gmail.com )
  * @version $Id$
@@ -46,30 +50,39 @@ public class VirtuosoSparqlEndPoint implements SparqlEndPoint {
 
     protected static final SesameConversionUtil SESAME_CONVERSION_UTIL = SesameConversionUtil.getInstance();
 
-    private final VirtuosoRepositoryConnection repositoryConnection;
+    private final ConnectionPool<RepositoryConnection> connectionPool;
 
-    protected VirtuosoSparqlEndPoint(VirtuosoRepositoryConnection repositoryConnection) {
-        this.repositoryConnection = repositoryConnection;
+    protected VirtuosoSparqlEndPoint(ConnectionPool<RepositoryConnection> connectionPool) {
+        this.connectionPool = connectionPool;
     }
 
     public ResultSet processSelectQuery(String qry)
     throws SparqlEndpointException {
-        final TupleQuery tupleQuery;
+        final RepositoryConnection repositoryConnection = borrowConnection();
         try {
-            tupleQuery = repositoryConnection.prepareTupleQuery(QueryLanguage.SPARQL, qry);
-        } catch (MalformedQueryException mqe) {
-            throw new SparqlEndpointException("Error while parsing query", mqe);
-        } catch (RepositoryException re) {
-            throw new SparqlEndpointException("Error while connecting with repository.", re);
-        }
+            final TupleQuery tupleQuery;
+            try {
+                tupleQuery = repositoryConnection.prepareTupleQuery(QueryLanguage.SPARQL, qry);
+            } catch (MalformedQueryException mqe) {
+                throw new SparqlEndpointException("Error while parsing query", mqe);
+            } catch (RepositoryException re) {
+                throw new SparqlEndpointException("Error while connecting with repository.", re);
+            }
 
-        final TupleQueryResult tupleQueryResult;
-        try {
-            tupleQueryResult = tupleQuery.evaluate();
-        } catch (QueryEvaluationException qee) {
-            throw new SparqlEndpointException("Error while evaluating query.", qee);
+            final TupleQueryResult tupleQueryResult;
+            try {
+                tupleQueryResult = tupleQuery.evaluate();
+            } catch (QueryEvaluationException qee) {
+                throw new SparqlEndpointException("Error while evaluating query.", qee);
+            }
+            return new VirtuosoResultSet(tupleQueryResult, connectionPool, repositoryConnection);
+        } catch (SparqlEndpointException see) {
+            connectionPool.release(repositoryConnection);
+            throw see;
+        } catch (RuntimeException re) {
+            connectionPool.release(repositoryConnection);
+            throw re;
         }
-        return new VirtuosoResultSet(tupleQueryResult);
     }
 
     public TripleSet processConstructQuery(String qry) throws SparqlEndpointException {
@@ -81,16 +94,21 @@ public class VirtuosoSparqlEndPoint implements SparqlEndPoint {
     }
 
     public boolean processAskQuery(String qry) throws SparqlEndpointException {
-        final BooleanQuery booleanQuery;
-        try {
-            booleanQuery = repositoryConnection.prepareBooleanQuery(QueryLanguage.SPARQL, qry);
-        } catch (Exception e) {
-            throw new SparqlEndpointException("Error while parsing query.", e);
-        }
+        final RepositoryConnection repositoryConnection = borrowConnection();
         try {
-            return booleanQuery.evaluate();
-        } catch (QueryEvaluationException qee) {
-            throw new SparqlEndpointException("Error while evaluating query.", qee);
+            final BooleanQuery booleanQuery;
+            try {
+                booleanQuery = repositoryConnection.prepareBooleanQuery(QueryLanguage.SPARQL, qry);
+            } catch (Exception e) {
+                throw new SparqlEndpointException("Error while parsing query.", e);
+            }
+            try {
+                return booleanQuery.evaluate();
+            } catch (QueryEvaluationException qee) {
+                throw new SparqlEndpointException("Error while evaluating query.", qee);
+            }
+        } finally {
+            connectionPool.release(repositoryConnection);
         }
     }
 
@@ -133,7 +151,25 @@ public class VirtuosoSparqlEndPoint implements SparqlEndPoint {
         return queryParser.parseQuery(qry, null);
     }
 
+    private RepositoryConnection borrowConnection() throws SparqlEndpointException {
+        try {
+            return connectionPool.borrow();
+        } catch (StorageException se) {
+            throw new SparqlEndpointException("Error while connecting with repository.", se);
+        }
+    }
+
     private TripleSet processGraphQuery(String qry) throws SparqlEndpointException {
+        final RepositoryConnection repositoryConnection = borrowConnection();
+        try {
+            return processGraphQuery(repositoryConnection, qry);
+        } finally {
+            connectionPool.release(repositoryConnection);
+        }
+    }
+
+    private TripleSet processGraphQuery(RepositoryConnection repositoryConnection, String qry)
+    throws SparqlEndpointException {
         final GraphQuery graphQuery;
         try {
             graphQuery = repositoryConnection.prepareGraphQuery(QueryLanguage.SPARQL, qry);
@@ -24,6 +24,7 @@ import org.openrdf.model.URI;
 import org.openrdf.model.Value;
 import org.openrdf.model.ValueFactory;
 import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
 import org.openrdf.repository.RepositoryResult;
 import org.sindice.rdfcommons.adapter.sesame.SesameConversionUtil;
@@ -31,19 +32,40 @@ import org.sindice.rdfcommons.model.Triple;
 import org.sindice.rdfcommons.model.TripleBuffer;
 import org.sindice.rdfcommons.model.TripleIterator;
 import org.sindice.rdfcommons.model.TripleSet;
+import org.sindice.rdfcommons.storage.ConnectionFactory;
+import org.sindice.rdfcommons.storage.ConnectionPool;
 import org.sindice.rdfcommons.storage.SparqlEndPoint;
 import org.sindice.rdfcommons.storage.StorageException;
 import org.sindice.rdfcommons.storage.TripleStorage;
 import org.sindice.rdfcommons.storage.TripleStorageConfig;
 import org.sindice.rdfcommons.storage.TripleStorageFilter;
-import virtuoso.sesame2.driver.VirtuosoRepository;
 import virtuoso.sesame2.driver.VirtuosoRepositoryConnection;
 
+import java.io.Closeable;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link org.sindice.rdfcommons.storage.TripleStorage} implementation for <i>Virtuoso</i>.
+ * <p>
+ * Every operation borrows a connection from a {@link ConnectionPool} and runs its own transaction on it,
+ * so the storage can be used concurrently by many threads. The iterators returned by
+ * {@link #getTriplesIterator(String, TripleStorageFilter)} and the select results of the
+ * {@link #getSparqlEndPoint()} hold their connection until they are fully consumed,
+ * callers stopping earlier must close them as {@link java.io.Closeable}.
+ * </p>
  *
  * @author Michele Mostarda ( michele.mostarda@gmail.com )
  * @version $Id: VirtuosoTripleStorage.java 143 2011-05-23 21:41:46Z michele.mostarda $
@@ -56,61 +78,132 @@ public class VirtuosoTripleStorage implements TripleStorage {
 
     private static final SesameConversionUtil sesameConversionUtil = SesameConversionUtil.getInstance();
 
+    /**
+     * Number of converted batches waiting to be sent when pipelining.
+     */
+    private static final int PIPELINE_DEPTH = 2;
+
+    private final WriteStatistics writeStatistics = new WriteStatistics();
+
+    private final ConnectionFactory<RepositoryConnection> connectionFactory;
+
     private VirtuosoTripleStorageConfig virtuosoConfig;
 
-    private VirtuosoRepository virtuosoRepository;
+    private ConnectionPool<RepositoryConnection> connectionPool;
+
+    private ExecutorService conversionExecutor;
 
-    private VirtuosoRepositoryConnection repositoryConnection;
+    /**
+     * Constructor connecting to the <i>Virtuoso</i> server described by the configuration.
+     */
+    public VirtuosoTripleStorage() {
+        this(null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param connectionFactory the factory of the pooled connections, <code>null</code> to connect
+     *        to the <i>Virtuoso</i> server described by the configuration.
+     */
+    public VirtuosoTripleStorage(ConnectionFactory<RepositoryConnection> connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
 
     public void openStorage(TripleStorageConfig config) throws StorageException {
         if( ! (config instanceof VirtuosoTripleStorageConfig) ) {
             throw new IllegalArgumentException("config must be instance of " + VirtuosoTripleStorageConfig.class);
         }
         virtuosoConfig = (VirtuosoTripleStorageConfig) config;
-        virtuosoRepository = new VirtuosoRepository(
-                virtuosoConfig.getUrl(),
-                virtuosoConfig.getUsername(),
-                virtuosoConfig.getPassword()
+        connectionPool = new ConnectionPool<RepositoryConnection>(
+                connectionFactory == null ? new VirtuosoConnectionFactory(virtuosoConfig) : connectionFactory,
+                virtuosoConfig.getMaxConnections(),
+                virtuosoConfig.getMaxIdleTime(),
+                virtuosoConfig.getBorrowTimeout()
         );
-        try {
-            repositoryConnection = (VirtuosoRepositoryConnection) virtuosoRepository.getConnection();
-        } catch (RepositoryException re) {
-            throw new StorageException("Error while establishing connection.", re);
+        // Fails early if the server cannot be reached.
+        connectionPool.release( connectionPool.borrow() );
+        if( virtuosoConfig.isPipelined() ) {
+            conversionExecutor = Executors.newCachedThreadPool( new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "virtuoso-conversion");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
         }
     }
 
     public void closeStorage() {
         virtuosoConfig = null;
+        if(conversionExecutor != null) {
+            conversionExecutor.shutdownNow();
+            conversionExecutor = null;
+        }
 
         try {
-            if(repositoryConnection != null) {
-                repositoryConnection.close();
+            if(connectionPool != null) {
+                connectionPool.close();
             }
         } catch (Exception e) {
-            logger.error("Error while closing master graph.", e);
+            logger.error("Error while closing connection pool.", e);
+        } finally {
+            connectionPool = null;
         }
     }
 
     public boolean isOpen() {
-        return repositoryConnection != null;
+        return connectionPool != null;
     }
 
+    /**
+     * @return the pool of the connections used by this storage.
+     */
+    public ConnectionPool<RepositoryConnection> getConnectionPool() {
+        checkOpened();
+        return connectionPool;
+    }
+
+    /**
+     * Stores the triple set sending the statements in batches of
+     * {@link VirtuosoTripleStorageConfig#getBatchSize()} and committing every
+     * {@link VirtuosoTripleStorageConfig#getBatchesPerCommit()} batches, so neither the whole converted
+     * triple set nor a single huge transaction are ever required. If an error occurs only the uncommitted
+     * batches are rolled back.
+     *
+     * @param graph the destination graph.
+     * @param tripleSet the triples to be stored.
+     * @throws StorageException if an error occurs while converting or storing the triples.
+     */
     public void store(String graph, TripleSet tripleSet) throws StorageException {
         checkOpened();
-        final Graph convertedTripleSet;
+        final Resource context = valueFactory.createURI(graph);
+        final RepositoryConnection connection = connectionPool.borrow();
+        boolean consistent = true;
         try {
-            convertedTripleSet = sesameConversionUtil.convertTripleSetToSesameGraph(tripleSet);
-        } catch (Exception e) {
-            throw new StorageException("Error while converting data.", e);
-        }
-        beginTransaction();
-        try {
-            repositoryConnection.add(convertedTripleSet, valueFactory.createURI(graph));
-        } catch (RepositoryException re) {
-            rollbackTransaction();
-            throw new StorageException("Error while storing triple set.", re);
+            beginTransaction(connection);
+            try {
+                if(conversionExecutor != null) {
+                    storePipelined(connection, context, tripleSet);
+                } else {
+                    final Iterator<Triple> triples = tripleSet.iterator();
+                    int batches = 0;
+                    List<Statement> batch;
+                    while( ! (batch = convertBatch(triples)).isEmpty() ) {
+                        batches = sendBatch(connection, context, batch, batches);
+                    }
+                }
+                commitTransaction(connection);
+            } catch (StorageException se) {
+                consistent = rollbackTransaction(connection);
+                throw se;
+            } catch (RuntimeException re) {
+                consistent = rollbackTransaction(connection);
+                throw re;
+            }
+        } finally {
+            endTransaction(connection, consistent);
         }
-        commitTransaction();
     }
 
     public void store(TripleSet tripleSet) throws StorageException {
@@ -120,14 +213,26 @@ public class VirtuosoTripleStorage implements TripleStorage {
     public void remove(String graph, TripleSet tripleSet) throws StorageException {
         checkOpened();
         final Graph toBeRemoved = sesameConversionUtil.convertTripleSetToSesameGraph(tripleSet);
-        beginTransaction();
+        final RepositoryConnection connection = connectionPool.borrow();
+        boolean consistent = true;
         try {
-            repositoryConnection.remove(toBeRemoved, valueFactory.createURI(graph));
-        } catch (RepositoryException re) {
-            rollbackTransaction();
-            throw new StorageException("Error while removing graph.", re);
+            beginTransaction(connection);
+            try {
+                connection.remove(toBeRemoved, valueFactory.createURI(graph));
+                commitTransaction(connection);
+            } catch (RepositoryException re) {
+                consistent = rollbackTransaction(connection);
+                throw new StorageException("Error while removing graph.", re);
+            } catch (StorageException se) {
+                consistent = rollbackTransaction(connection);
+                throw se;
+            } catch (RuntimeException re) {
+                consistent = rollbackTransaction(connection);
+                throw re;
+            }
+        } finally {
+            endTransaction(connection, consistent);
         }
-        commitTransaction();
     }
 
     public void remove(TripleSet tripleSet) throws StorageException {
@@ -141,8 +246,14 @@ public class VirtuosoTripleStorage implements TripleStorage {
 
     public TripleIterator getTriplesIterator(String graph, TripleStorageFilter tripleFilter)
     throws StorageException {
-        final RepositoryResult result = getTriplesInternal(tripleFilter);
-        return new InternalTripleIterator(result);
+        checkOpened();
+        final RepositoryConnection connection = connectionPool.borrow();
+        try {
+            return new InternalTripleIterator( connection, getTriplesInternal(connection, tripleFilter) );
+        } catch (StorageException se) {
+            connectionPool.release(connection);
+            throw se;
+        }
     }
 
     public TripleSet getTriples(TripleStorageFilter tripleStorageFilter)
@@ -152,40 +263,151 @@ public class VirtuosoTripleStorage implements TripleStorage {
 
     public TripleSet getTriples(String graph, TripleStorageFilter tripleStorageFilter)
     throws StorageException {
-        final RepositoryResult repositoryResult = getTriplesInternal(tripleStorageFilter);
-        final TripleSet result = new TripleBuffer();
+        checkOpened();
+        final RepositoryConnection connection = connectionPool.borrow();
         try {
-            while (repositoryResult.hasNext()) {
-                result.addTriple(
-                        sesameConversionUtil.convertSesameStatementToTriple( (Statement) repositoryResult.next() )
-                );
+            final RepositoryResult<Statement> repositoryResult = getTriplesInternal(connection, tripleStorageFilter);
+            final TripleSet result = new TripleBuffer();
+            try {
+                while (repositoryResult.hasNext()) {
+                    result.addTriple(
+                            sesameConversionUtil.convertSesameStatementToTriple( repositoryResult.next() )
+                    );
+                }
+                repositoryResult.close();
+            } catch (Exception e) {
+                throw new StorageException("Error while iterating statements.", e);
             }
-        } catch (Exception e) {
-            throw new StorageException("Error while iterating statements.", e);
+            return result;
+        } finally {
+            connectionPool.release(connection);
         }
-        return result;
     }
 
     public SparqlEndPoint getSparqlEndPoint() {
         checkOpened();
-        return new VirtuosoSparqlEndPoint(repositoryConnection);
+        return new VirtuosoSparqlEndPoint(connectionPool);
     }
 
     public void clear(String graph) throws StorageException {
         checkOpened();
+        final RepositoryConnection connection = connectionPool.borrow();
         try {
-            repositoryConnection.remove((Resource) null, (URI) null, (Value) null, valueFactory.createURI(graph));
+            connection.remove((Resource) null, (URI) null, (Value) null, valueFactory.createURI(graph));
         } catch (RepositoryException re) {
             throw new StorageException("Error while removing graph.", re);
+        } finally {
+            connectionPool.release(connection);
         }
     }
 
     public void clearAll() throws StorageException {
-        final Connection connection = ((VirtuosoRepositoryConnection) repositoryConnection).getQuadStoreConnection();
+        checkOpened();
+        final RepositoryConnection repositoryConnection = connectionPool.borrow();
         try {
+            final Connection connection = ((VirtuosoRepositoryConnection) repositoryConnection).getQuadStoreConnection();
             connection.prepareStatement("RDF_GLOBAL_RESET()").execute();
         } catch (SQLException sqle) {
             throw new StorageException("Error while deleting all triple store content.", sqle);
+        } finally {
+            connectionPool.release(repositoryConnection);
+        }
+    }
+
+    /**
+     * @return the counters of the bulk writes performed by this storage.
+     */
+    public WriteStatistics getWriteStatistics() {
+        return writeStatistics;
+    }
+
+    /**
+     * Converts the next batch of triples.
+     *
+     * @return the converted statements, empty if there are no more triples.
+     */
+    private List<Statement> convertBatch(Iterator<Triple> triples) throws StorageException {
+        final int batchSize = virtuosoConfig.getBatchSize();
+        final List<Statement> batch = new ArrayList<Statement>( batchSize );
+        try {
+            while(batch.size() < batchSize && triples.hasNext()) {
+                final Triple triple = triples.next();
+                batch.add(
+                        valueFactory.createStatement(
+                                sesameConversionUtil.createSubjectResource(triple),
+                                valueFactory.createURI( triple.getPredicate() ),
+                                sesameConversionUtil.createObjectValue(triple)
+                        )
+                );
+            }
+        } catch (Exception e) {
+            throw new StorageException("Error while converting data.", e);
+        }
+        return batch;
+    }
+
+    /**
+     * Sends a batch of statements, committing if the batches per transaction have been reached.
+     *
+     * @return the number of batches sent within the current transaction.
+     */
+    private int sendBatch(RepositoryConnection connection, Resource context, List<Statement> batch, int batches)
+    throws StorageException {
+        try {
+            connection.add(batch, context);
+        } catch (RepositoryException re) {
+            throw new StorageException("Error while storing triple set.", re);
+        }
+        writeStatistics.batchSent( batch.size() );
+        if(++batches < virtuosoConfig.getBatchesPerCommit()) {
+            return batches;
+        }
+        commitTransaction(connection);
+        return 0;
+    }
+
+    /**
+     * Converts the triples on a separate thread while sending the converted batches.
+     */
+    private void storePipelined(RepositoryConnection connection, Resource context, TripleSet tripleSet)
+    throws StorageException {
+        final BlockingQueue<List<Statement>> queue = new ArrayBlockingQueue<List<Statement>>(PIPELINE_DEPTH);
+        final Iterator<Triple> triples = tripleSet.iterator();
+        final Future<?> conversion = conversionExecutor.submit(new Callable<Object>() {
+            public Object call() throws StorageException, InterruptedException {
+                List<Statement> batch;
+                do {
+                    batch = convertBatch(triples);
+                    queue.put(batch);
+                } while( ! batch.isEmpty() );
+                return null;
+            }
+        });
+        try {
+            int batches = 0;
+            while(true) {
+                final List<Statement> batch = queue.poll(1, TimeUnit.SECONDS);
+                if(batch == null) {
+                    if( conversion.isDone() ) {
+                        conversion.get();
+                    }
+                    continue;
+                }
+                if( batch.isEmpty() ) {
+                    break;
+                }
+                batches = sendBatch(connection, context, batch, batches);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new StorageException("Interrupted while storing triple set.", ie);
+        } catch (ExecutionException ee) {
+            if(ee.getCause() instanceof StorageException) {
+                throw (StorageException) ee.getCause();
+            }
+            throw new StorageException("Error while converting data.", ee.getCause());
+        } finally {
+            conversion.cancel(true);
         }
     }
 
@@ -193,41 +415,75 @@ public class VirtuosoTripleStorage implements TripleStorage {
      * Checks if the virtuoso connector is opened. 
      */
     private void checkOpened() {
-        if(repositoryConnection == null) {
+        if(connectionPool == null) {
             throw new RuntimeException("The storage must be opened first.");
         }
     }
 
-    private void beginTransaction() throws StorageException {
+    private void beginTransaction(RepositoryConnection connection) throws StorageException {
         try {
-            repositoryConnection.setAutoCommit(false);
+            connection.setAutoCommit(false);
         } catch (RepositoryException re) {
             throw new StorageException("Error while setting up transaction.", re);
         }
     }
 
-    private void commitTransaction() throws StorageException {
+    /**
+     * Restores the auto commit mode and gives back the connection,
+     * which is discarded if the mode cannot be restored.
+     * A connection whose transaction could not be rolled back is discarded
+     * without restoring the auto commit mode, which would commit the pending changes.
+     */
+    private void endTransaction(RepositoryConnection connection, boolean consistent) {
+        if( ! consistent) {
+            connectionPool.invalidate(connection);
+            return;
+        }
         try {
-            repositoryConnection.commit();
+            connection.setAutoCommit(true);
+        } catch (RepositoryException re) {
+            logger.warn("Error while restoring auto commit, discarding connection.", re);
+            connectionPool.invalidate(connection);
+            return;
+        }
+        connectionPool.release(connection);
+    }
+
+    private void commitTransaction(RepositoryConnection connection) throws StorageException {
+        final long start = System.currentTimeMillis();
+        try {
+            connection.commit();
         } catch (RepositoryException re) {
             throw new StorageException("Error while committing transaction.", re);
         }
+        writeStatistics.committed( System.currentTimeMillis() - start );
     }
 
-    private void rollbackTransaction() throws StorageException {
+    /**
+     * Rolls back the current transaction, a failure is logged to not hide the error that caused the rollback.
+     *
+     * @return <code>true</code> if the transaction has been rolled back.
+     */
+    private boolean rollbackTransaction(RepositoryConnection connection) {
         try {
-            repositoryConnection.rollback();
+            connection.rollback();
+            return true;
         } catch (RepositoryException re) {
-            throw new StorageException("Error while rolling back transaction.", re);
+            logger.error("Error while rolling back transaction, discarding connection.", re);
+            return false;
+        } catch (RuntimeException re) {
+            logger.error("Error while rolling back transaction, discarding connection.", re);
+            return false;
         }
     }
 
-    private RepositoryResult getTriplesInternal(TripleStorageFilter tripleStorageFilter)
-    throws StorageException {
-        checkOpened();
+    private RepositoryResult<Statement> getTriplesInternal(
+            RepositoryConnection connection,
+            TripleStorageFilter tripleStorageFilter
+    ) throws StorageException {
         final Value[] pattern = sesameConversionUtil.convertToTripleMatch(tripleStorageFilter);
         try {
-            return repositoryConnection.getStatements(
+            return connection.getStatements(
                     (Resource) pattern[0],
                     (URI) pattern[1],
                     pattern[2],
@@ -238,28 +494,66 @@ public class VirtuosoTripleStorage implements TripleStorage {
         }
     }
 
-    private class InternalTripleIterator implements TripleIterator {
+    private class InternalTripleIterator implements TripleIterator, Closeable {
+
+        private final ConnectionPool<RepositoryConnection> pool = connectionPool;
+
+        private final RepositoryResult<Statement> result;
 
-        private final RepositoryResult result;
+        private RepositoryConnection connection;
 
         private Triple next;
 
-        private InternalTripleIterator(RepositoryResult result) {
-            this.result = result;
+        private InternalTripleIterator(RepositoryConnection connection, RepositoryResult<Statement> result) {
+            this.connection = connection;
+            this.result     = result;
         }
 
         public boolean hasNext() {
+            if(connection == null) {
+                return false;
+            }
             try {
-                return result.hasNext();
+                if( result.hasNext() ) {
+                    return true;
+                }
+                result.close();
             } catch (RepositoryException re) {
+                releaseConnection();
                 throw new RuntimeException("Error while moving result cursor.", re);
             }
+            releaseConnection();
+            return false;
+        }
+
+        /**
+         * Closes the result and gives back its connection, can be invoked more than once.
+         */
+        public void close() {
+            if(connection == null) {
+                return;
+            }
+            try {
+                result.close();
+            } catch (RepositoryException re) {
+                throw new RuntimeException("Error while closing result.", re);
+            } finally {
+                releaseConnection();
+            }
+        }
+
+        /**
+         * Gives back the connection once the result has been consumed.
+         */
+        private void releaseConnection() {
+            pool.release(connection);
+            connection = null;
         }
 
         public void next() {
             try {
                 next = sesameConversionUtil.convertSesameStatementToTriple(
-                        (Statement) result.next()
+                        result.next()
                 );
             } catch (Exception e) {
                 throw new RuntimeException("Error while retrieving next statement.", e);
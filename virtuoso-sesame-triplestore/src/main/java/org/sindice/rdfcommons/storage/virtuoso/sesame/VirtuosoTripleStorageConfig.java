@@ -16,6 +16,7 @@
 
 package org.sindice.rdfcommons.storage.virtuoso.sesame;
 
+import org.sindice.rdfcommons.storage.ConnectionPool;
 import org.sindice.rdfcommons.storage.TripleStorageConfig;
 
 /**
@@ -26,6 +27,16 @@ import org.sindice.rdfcommons.storage.TripleStorageConfig;
  */
 public class VirtuosoTripleStorageConfig implements TripleStorageConfig {
 
+    /**
+     * Default number of statements sent to the server at once.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    /**
+     * Default number of batches sent within a transaction.
+     */
+    public static final int DEFAULT_BATCHES_PER_COMMIT = 10;
+
     /**
      * URL locating the triple storage.
      */
@@ -46,6 +57,36 @@ public class VirtuosoTripleStorageConfig implements TripleStorageConfig {
      */
     private String password;
 
+    /**
+     * Number of statements sent to the server at once.
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Number of batches sent within a transaction.
+     */
+    private int batchesPerCommit = DEFAULT_BATCHES_PER_COMMIT;
+
+    /**
+     * If <code>true</code> the triples are converted on a separate thread while sending.
+     */
+    private boolean pipelined;
+
+    /**
+     * Maximum number of connections used at the same time.
+     */
+    private int maxConnections = ConnectionPool.DEFAULT_MAX_SIZE;
+
+    /**
+     * Time after which an idle connection is closed, in milliseconds.
+     */
+    private long maxIdleTime = ConnectionPool.DEFAULT_MAX_IDLE_TIME;
+
+    /**
+     * Maximum time waited for a connection, in milliseconds.
+     */
+    private long borrowTimeout = ConnectionPool.DEFAULT_BORROW_TIMEOUT;
+
     /**
      * Constructor.
      *
@@ -101,4 +142,104 @@ public class VirtuosoTripleStorageConfig implements TripleStorageConfig {
         return password;
     }
 
+    /**
+     * @return the number of statements sent to the server at once.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize the number of statements sent to the server at once.
+     */
+    public void setBatchSize(int batchSize) {
+        if(batchSize <= 0) {
+            throw new IllegalArgumentException("invalid batchSize");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the number of batches sent within a transaction.
+     */
+    public int getBatchesPerCommit() {
+        return batchesPerCommit;
+    }
+
+    /**
+     * @param batchesPerCommit the number of batches sent within a transaction.
+     */
+    public void setBatchesPerCommit(int batchesPerCommit) {
+        if(batchesPerCommit <= 0) {
+            throw new IllegalArgumentException("invalid batchesPerCommit");
+        }
+        this.batchesPerCommit = batchesPerCommit;
+    }
+
+    /**
+     * @return <code>true</code> if the triples are converted on a separate thread while sending.
+     */
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * @param pipelined if <code>true</code> the triples are converted on a separate thread while sending.
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * @return the maximum number of connections used at the same time.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @param maxConnections the maximum number of connections used at the same time.
+     */
+    public void setMaxConnections(int maxConnections) {
+        if(maxConnections <= 0) {
+            throw new IllegalArgumentException("invalid maxConnections");
+        }
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * @return the time after which an idle connection is closed, in milliseconds.
+     */
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * @param maxIdleTime the time after which an idle connection is closed, in milliseconds,
+     *        <code>0</code> to keep idle connections open.
+     */
+    public void setMaxIdleTime(long maxIdleTime) {
+        if(maxIdleTime < 0) {
+            throw new IllegalArgumentException("invalid maxIdleTime");
+        }
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    /**
+     * @return the maximum time waited for a connection, in milliseconds.
+     */
+    public long getBorrowTimeout() {
+        return borrowTimeout;
+    }
+
+    /**
+     * @param borrowTimeout the maximum time waited for a connection, in milliseconds.
+     */
+    public void setBorrowTimeout(long borrowTimeout) {
+        if(borrowTimeout < 0) {
+            throw new IllegalArgumentException("invalid borrowTimeout");
+        }
+        this.borrowTimeout = borrowTimeout;
+    }
+
 }
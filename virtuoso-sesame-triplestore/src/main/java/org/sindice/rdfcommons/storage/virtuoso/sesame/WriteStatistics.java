@@ -0,0 +1,117 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.storage.virtuoso.sesame;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the bulk writes performed by a {@link VirtuosoTripleStorage}.
+ * The counters are cumulative since the creation of the storage or the last {@link #reset()}
+ * and can be read from any thread.
+ *
+ * @author Michele Mostarda ( michele.mostarda@gmail.com )
+ * @version $Id$
+ */
+public class WriteStatistics {
+
+    private final AtomicLong batches = new AtomicLong();
+
+    private final AtomicLong triples = new AtomicLong();
+
+    private final AtomicLong commits = new AtomicLong();
+
+    private final AtomicLong commitTime = new AtomicLong();
+
+    private final AtomicLong maxCommitTime = new AtomicLong();
+
+    /**
+     * @return the number of batches sent.
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * @return the number of triples sent.
+     */
+    public long getTriples() {
+        return triples.get();
+    }
+
+    /**
+     * @return the number of committed transactions.
+     */
+    public long getCommits() {
+        return commits.get();
+    }
+
+    /**
+     * @return the total time spent committing, in milliseconds.
+     */
+    public long getTotalCommitTime() {
+        return commitTime.get();
+    }
+
+    /**
+     * @return the longest commit time, in milliseconds.
+     */
+    public long getMaxCommitTime() {
+        return maxCommitTime.get();
+    }
+
+    /**
+     * @return the average commit time, in milliseconds.
+     */
+    public double getAverageCommitTime() {
+        final long count = commits.get();
+        return count == 0 ? 0 : commitTime.get() / (double) count;
+    }
+
+    /**
+     * Resets all the counters.
+     */
+    public void reset() {
+        batches.set(0);
+        triples.set(0);
+        commits.set(0);
+        commitTime.set(0);
+        maxCommitTime.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "batches: %d, triples: %d, commits: %d, commit time avg: %.1f ms, max: %d ms",
+                getBatches(), getTriples(), getCommits(), getAverageCommitTime(), getMaxCommitTime()
+        );
+    }
+
+    void batchSent(int size) {
+        batches.incrementAndGet();
+        triples.addAndGet(size);
+    }
+
+    void committed(long time) {
+        commits.incrementAndGet();
+        commitTime.addAndGet(time);
+        long max;
+        while( (max = maxCommitTime.get()) < time && ! maxCommitTime.compareAndSet(max, time) ) {
+            // Retry.
+        }
+    }
+
+}
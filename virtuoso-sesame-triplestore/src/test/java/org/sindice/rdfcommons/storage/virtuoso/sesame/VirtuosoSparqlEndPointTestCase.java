@@ -1,8 +1,9 @@
 package org.sindice.rdfcommons.storage.virtuoso.sesame;
 
-import org.openrdf.repository.RepositoryException;
+import org.openrdf.repository.RepositoryConnection;
 import org.sindice.rdfcommons.model.Triple;
 import org.sindice.rdfcommons.model.TripleSet;
+import org.sindice.rdfcommons.storage.ConnectionPool;
 import org.sindice.rdfcommons.storage.ResultSet;
 import org.sindice.rdfcommons.storage.SparqlEndPoint;
 import org.sindice.rdfcommons.storage.SparqlEndpointException;
@@ -10,7 +11,6 @@ import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
-import virtuoso.sesame2.driver.VirtuosoRepositoryConnection;
 
 /**
  * Test case for {@link VirtuosoSparqlEndPoint}.
@@ -20,18 +20,23 @@ import virtuoso.sesame2.driver.VirtuosoRepositoryConnection;
 // TODO: also for Jena
 public class VirtuosoSparqlEndPointTestCase {
 
+    private ConnectionPool<RepositoryConnection> connectionPool;
+
     private VirtuosoSparqlEndPoint endPoint;
 
     @BeforeClass
-    public void setUp() throws RepositoryException {
-        endPoint = new VirtuosoSparqlEndPoint(
-                (VirtuosoRepositoryConnection) TestUtil.getTestRepository().getConnection()
+    public void setUp() {
+        connectionPool = new ConnectionPool<RepositoryConnection>(
+                new VirtuosoConnectionFactory( VirtuosoTripleStorageTestCase.createLocalTestConfig() )
         );
+        endPoint = new VirtuosoSparqlEndPoint(connectionPool);
     }
 
     @AfterClass
     public void tearDown() {
         endPoint = null;
+        connectionPool.close();
+        connectionPool = null;
     }
 
     @Test
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2008-2010 Digital Enterprise Research Institute (DERI)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.sindice.rdfcommons.storage.virtuoso.sesame;
+
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryException;
+import org.sindice.rdfcommons.model.TripleBuffer;
+import org.sindice.rdfcommons.model.TripleSet;
+import org.sindice.rdfcommons.storage.ConnectionFactory;
+import org.sindice.rdfcommons.storage.StorageException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test case for the concurrent access of {@link VirtuosoTripleStorage} to its connection pool,
+ * running against stubbed connections.
+ *
+ * @author Michele Mostarda ( michele.mostarda@gmail.com )
+ * @version $Id$
+ */
+public class VirtuosoTripleStoragePoolTestCase {
+
+    @Test
+    public void testConcurrentStores() throws Exception {
+        final StubConnectionFactory factory = new StubConnectionFactory();
+        final VirtuosoTripleStorageConfig config = VirtuosoTripleStorageTestCase.createLocalTestConfig();
+        config.setMaxConnections(2);
+        config.setBatchSize(10);
+        final VirtuosoTripleStorage storage = new VirtuosoTripleStorage(factory);
+        storage.openStorage(config);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for(int t = 0; t < 8; t++) {
+            final int thread = t;
+            futures.add( executor.submit( new Callable<Object>() {
+                public Object call() throws StorageException {
+                    final TripleSet tripleSet = new TripleBuffer();
+                    for(int i = 0; i < 100; i++) {
+                        tripleSet.addTriple(
+                                "http://org.sindice.rdfcommons#subject_" + thread + "_" + i,
+                                "http://org.sindice.rdfcommons#predicate",
+                                "http://org.sindice.rdfcommons#object_"  + i
+                        );
+                    }
+                    storage.store(tripleSet);
+                    return null;
+                }
+            }));
+        }
+        for(Future<Object> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(factory.added.get(), 800);
+        // Each store commits after its tenth batch and at its end.
+        Assert.assertEquals(factory.commits.get(), 16);
+        Assert.assertEquals(storage.getWriteStatistics().getBatches(), 80);
+        Assert.assertTrue(factory.created.get() <= 2);
+        Assert.assertTrue(factory.maxInTransaction.get() <= 2);
+        Assert.assertEquals(storage.getConnectionPool().getActiveCount(), 0);
+
+        storage.closeStorage();
+        Assert.assertEquals(factory.closed.get(), factory.created.get());
+    }
+
+    @Test
+    public void testRollbackOnFailure() throws Exception {
+        final StubConnectionFactory factory = new StubConnectionFactory();
+        final VirtuosoTripleStorageConfig config = VirtuosoTripleStorageTestCase.createLocalTestConfig();
+        config.setBatchSize(10);
+        final VirtuosoTripleStorage storage = new VirtuosoTripleStorage(factory);
+        storage.openStorage(config);
+
+        // The connection fails on the sixth batch.
+        factory.failingBatch = 6;
+        try {
+            storage.store( createTripleSet(100) );
+            Assert.fail("Expected failure.");
+        } catch (IllegalStateException ise) {
+            // Expected.
+        }
+        Assert.assertEquals(factory.rollbacks.get(), 1);
+        Assert.assertEquals(factory.commits.get(), 0);
+        Assert.assertEquals(factory.closed.get(), 0);
+        factory.failingBatch = -1;
+
+        // The commit after the tenth batch fails.
+        factory.failCommit = true;
+        try {
+            storage.store( createTripleSet(100) );
+            Assert.fail("Expected failure.");
+        } catch (StorageException se) {
+            Assert.assertTrue(se.getCause() instanceof RepositoryException);
+        }
+        Assert.assertEquals(factory.rollbacks.get(), 2);
+        Assert.assertEquals(factory.closed.get(), 0);
+        factory.failCommit = false;
+
+        // The rollback fails: the original error is reported and the connection discarded.
+        factory.failingBatch = factory.batches.get() + 6;
+        factory.failRollback = true;
+        try {
+            storage.store( createTripleSet(100) );
+            Assert.fail("Expected failure.");
+        } catch (IllegalStateException ise) {
+            // Expected.
+        }
+        Assert.assertEquals(factory.rollbacks.get(), 3);
+        Assert.assertEquals(factory.closed.get(), 1);
+        Assert.assertEquals(factory.inTransaction.get(), 1);
+        Assert.assertEquals(storage.getConnectionPool().getActiveCount(), 0);
+
+        storage.closeStorage();
+    }
+
+    private TripleSet createTripleSet(int size) {
+        final TripleSet tripleSet = new TripleBuffer();
+        for(int i = 0; i < size; i++) {
+            tripleSet.addTriple(
+                    "http://org.sindice.rdfcommons#subject_" + i,
+                    "http://org.sindice.rdfcommons#predicate",
+                    "http://org.sindice.rdfcommons#object_"  + i
+            );
+        }
+        return tripleSet;
+    }
+
+    /**
+     * Factory of {@link RepositoryConnection} stubs counting the operations performed on them.
+     */
+    private static class StubConnectionFactory implements ConnectionFactory<RepositoryConnection> {
+
+        private final AtomicInteger created = new AtomicInteger();
+
+        private final AtomicInteger closed = new AtomicInteger();
+
+        private final AtomicInteger added = new AtomicInteger();
+
+        private final AtomicInteger commits = new AtomicInteger();
+
+        private final AtomicInteger inTransaction = new AtomicInteger();
+
+        private final AtomicInteger maxInTransaction = new AtomicInteger();
+
+        private final AtomicInteger rollbacks = new AtomicInteger();
+
+        private final AtomicInteger batches = new AtomicInteger();
+
+        private volatile int failingBatch = -1;
+
+        private volatile boolean failCommit;
+
+        private volatile boolean failRollback;
+
+        public RepositoryConnection createConnection() {
+            created.incrementAndGet();
+            return (RepositoryConnection) Proxy.newProxyInstance(
+                    RepositoryConnection.class.getClassLoader(),
+                    new Class[]{ RepositoryConnection.class },
+                    new InvocationHandler() {
+                        private boolean autoCommit = true;
+
+                        public Object invoke(Object proxy, Method method, Object[] args)
+                        throws RepositoryException {
+                            final String name = method.getName();
+                            if("equals".equals(name)) {
+                                return proxy == args[0];
+                            }
+                            if("hashCode".equals(name)) {
+                                return System.identityHashCode(proxy);
+                            }
+                            if("toString".equals(name)) {
+                                return "StubConnection@" + System.identityHashCode(proxy);
+                            }
+                            if("isOpen".equals(name)) {
+                                return true;
+                            }
+                            if("close".equals(name)) {
+                                closed.incrementAndGet();
+                            } else if("setAutoCommit".equals(name)) {
+                                final boolean value = (Boolean) args[0];
+                                if(autoCommit && ! value) {
+                                    final int current = inTransaction.incrementAndGet();
+                                    synchronized (maxInTransaction) {
+                                        maxInTransaction.set( Math.max(maxInTransaction.get(), current) );
+                                    }
+                                    sleep();
+                                } else if( ! autoCommit && value) {
+                                    inTransaction.decrementAndGet();
+                                }
+                                autoCommit = value;
+                            } else if("commit".equals(name)) {
+                                if(failCommit) {
+                                    throw new RepositoryException("Commit failure.");
+                                }
+                                commits.incrementAndGet();
+                            } else if("rollback".equals(name)) {
+                                rollbacks.incrementAndGet();
+                                if(failRollback) {
+                                    throw new RepositoryException("Rollback failure.");
+                                }
+                            } else if("add".equals(name) && args[0] instanceof Iterable) {
+                                if(batches.incrementAndGet() == failingBatch) {
+                                    throw new IllegalStateException("Batch failure.");
+                                }
+                                final Iterator<?> statements = ((Iterable<?>) args[0]).iterator();
+                                while( statements.hasNext() ) {
+                                    statements.next();
+                                    added.incrementAndGet();
+                                }
+                            }
+                            return null;
+                        }
+                    }
+            );
+        }
+
+        public boolean validateConnection(RepositoryConnection connection) {
+            return true;
+        }
+
+        public void destroyConnection(RepositoryConnection connection) {
+            try {
+                connection.close();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private void sleep() {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
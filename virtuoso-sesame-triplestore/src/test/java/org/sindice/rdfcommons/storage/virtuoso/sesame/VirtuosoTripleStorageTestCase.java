@@ -130,6 +130,47 @@ public class VirtuosoTripleStorageTestCase {
         }
     }
 
+    /**
+     * Tests the #store method sending many batches within many transactions.
+     *
+     * @throws org.sindice.rdfcommons.storage.StorageException
+     */
+    @Test
+    public void testBatchedStore() throws StorageException {
+        final String graphName = "http://test/testBatchedStore";
+        final int SIZE = 100;
+        for(boolean pipelined : new boolean[]{false, true}) {
+            final VirtuosoTripleStorageConfig config = createLocalTestConfig();
+            config.setBatchSize(7);
+            config.setBatchesPerCommit(3);
+            config.setPipelined(pipelined);
+            final VirtuosoTripleStorage batchedStorage = new VirtuosoTripleStorage();
+            batchedStorage.openStorage(config);
+            try {
+                batchedStorage.clear(graphName);
+                TripleSet tripleSet = new TripleBuffer();
+                for(int i = 0; i < SIZE; i++) {
+                    tripleSet.addTriple(
+                        "http://org.sindice.rdfcommons#subject_"   + i,
+                        "http://org.sindice.rdfcommons#predicate",
+                        "http://org.sindice.rdfcommons#object_"    + i
+                    );
+                }
+                batchedStorage.store(graphName, tripleSet);
+
+                final WriteStatistics statistics = batchedStorage.getWriteStatistics();
+                Assert.assertEquals(statistics.getBatches(), 15);
+                Assert.assertEquals(statistics.getTriples(), SIZE);
+                Assert.assertEquals(statistics.getCommits(), 6);
+                Assert.assertTrue(
+                        batchedStorage.getTriples(graphName, AllTriplesStorageFilter.getInstance()).getSize() >= SIZE
+                );
+            } finally {
+                batchedStorage.closeStorage();
+            }
+        }
+    }
+
     /**
      * Tests the #store method with blank subjects and objects.
      *